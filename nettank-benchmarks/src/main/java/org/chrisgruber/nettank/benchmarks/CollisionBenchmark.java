@@ -0,0 +1,56 @@
+package org.chrisgruber.nettank.benchmarks;
+
+import org.chrisgruber.nettank.common.entities.BulletData;
+import org.chrisgruber.nettank.common.entities.TankData;
+import org.chrisgruber.nettank.common.physics.CapsuleCollider;
+import org.joml.Vector2f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code CapsuleCollider.collidesWithCapsule} for a bullet against a tank, the test the server runs for every
+ * bullet and tank pair on every tick. Overlapping, grazing and distant pairs take different branches of the
+ * segment distance code, so each is measured on its own.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+
+    // Distance from the tank's center to the bullet's center
+    @Param({"overlap", "graze", "miss"})
+    public String pair;
+
+    private CapsuleCollider tank;
+    private CapsuleCollider bullet;
+
+    @Setup
+    public void setUp() {
+        float distance = switch (pair) {
+            case "overlap" -> 0.0f;
+            case "graze" -> TankData.COLLISION_RADIUS + BulletData.COLLISION_RADIUS - 1.0f;
+            default -> 10 * TankData.SIZE;
+        };
+        tank = new CapsuleCollider(new Vector2f(500, 500), TankData.SIZE, TankData.COLLISION_RADIUS, 30.0f);
+        bullet = new CapsuleCollider(new Vector2f(500 + distance, 500), BulletData.SIZE, BulletData.COLLISION_RADIUS, 90.0f);
+    }
+
+    @Benchmark
+    public boolean bulletAgainstTank() {
+        return bullet.collidesWithCapsule(tank);
+    }
+}
@@ -0,0 +1,86 @@
+package org.chrisgruber.nettank.benchmarks;
+
+import org.chrisgruber.nettank.client.engine.network.NetworkMessage;
+import org.chrisgruber.nettank.common.network.BinaryProtocol;
+import org.chrisgruber.nettank.common.network.StateQuantizer;
+import org.chrisgruber.nettank.common.world.GameMapData;
+import org.chrisgruber.nettank.server.network.ServerMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The snapshot message, the one sent to every client on every network tick, in both wire formats: formatting
+ * on the server ({@code ServerMessage.Snapshot}) and parsing on the client ({@code NetworkMessage}).
+ * Text parsing includes the split on ';' that the client does for every line.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NetworkMessageBenchmark {
+
+    // Tanks in the snapshot, with one bullet in flight per tank
+    @Param({"2", "16", "64", "256"})
+    public int tanks;
+
+    private StateQuantizer quantizer;
+    private ServerMessage.Snapshot snapshot;
+    private String line;
+    private ByteBuffer frame;
+
+    @Setup
+    public void setUp() {
+        quantizer = StateQuantizer.forMap(100, 100, GameMapData.DEFAULT_TILE_SIZE);
+        Random random = new Random(42);
+        float world = quantizer.worldWidth();
+
+        List<ServerMessage.Snapshot.TankState> tankStates = new ArrayList<>(tanks);
+        List<ServerMessage.Snapshot.BulletState> bulletStates = new ArrayList<>(tanks);
+        for (int i = 0; i < tanks; i++) {
+            tankStates.add(new ServerMessage.Snapshot.TankState(i, random.nextFloat() * world, random.nextFloat() * world, random.nextFloat() * 360));
+            bulletStates.add(new ServerMessage.Snapshot.BulletState(UUID.randomUUID(), i, random.nextFloat() * world, random.nextFloat() * world));
+        }
+        snapshot = new ServerMessage.Snapshot(1000L, quantizer, tankStates, bulletStates);
+        line = snapshot.toText();
+        frame = snapshot.toFrame();
+    }
+
+    @Benchmark
+    public String formatText() {
+        return snapshot.toText();
+    }
+
+    @Benchmark
+    public ByteBuffer formatBinary() {
+        return snapshot.toFrame();
+    }
+
+    @Benchmark
+    public NetworkMessage parseText() {
+        return NetworkMessage.Snapshot.parse(line.split(";"), quantizer);
+    }
+
+    @Benchmark
+    public NetworkMessage parseBinary() {
+        // The client decodes from the opcode byte, after the transport has read the length prefix
+        return NetworkMessage.decode(frame.duplicate().position(BinaryProtocol.LENGTH_PREFIX_BYTES), quantizer);
+    }
+}
@@ -0,0 +1,108 @@
+package org.chrisgruber.nettank.benchmarks;
+
+import org.chrisgruber.nettank.common.entities.BulletData;
+import org.chrisgruber.nettank.common.entities.TankData;
+import org.chrisgruber.nettank.common.util.GameState;
+import org.chrisgruber.nettank.common.world.GameMapData;
+import org.chrisgruber.nettank.server.GameServer;
+import org.chrisgruber.nettank.server.state.ServerContext;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One simulation tick ({@code GameServer.updateGameLogic}) with a room full of moving tanks and one bullet in
+ * flight per tank. Tanks drive in circles in the lower half of an open map and bullets cross the upper half, so
+ * every bullet is checked against every tank each tick without hits changing the scene. Bullets that leave the
+ * map are replaced before the next tick; the replacement is part of the measured time but small next to it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulationBenchmark {
+    private static final int MAP_TILES = 100;
+    private static final int TICKS_PER_SECOND = 60;
+    private static final float DELTA_TIME = 1.0f / TICKS_PER_SECOND;
+
+    @Param({"2", "16", "64", "256"})
+    public int tanks;
+
+    private GameServer server;
+    private ServerContext context;
+    private MethodHandle updateGameLogic;
+    private float worldSize;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new GameServer(0, 30, TICKS_PER_SECOND, MAP_TILES, MAP_TILES);
+
+        // The tick runs on the game state directly, the same way GameServerTest drives it
+        Field contextField = GameServer.class.getDeclaredField("serverContext");
+        contextField.setAccessible(true);
+        context = (ServerContext) contextField.get(server);
+        Method method = GameServer.class.getDeclaredMethod("updateGameLogic", float.class);
+        method.setAccessible(true);
+        updateGameLogic = MethodHandles.lookup().unreflect(method);
+
+        context.gameMapData = new GameMapData(MAP_TILES, MAP_TILES, GameMapData.DEFAULT_TILE_SIZE);
+        context.currentGameState = GameState.PLAYING;
+        worldSize = context.gameMapData.getWorldWidth();
+
+        // Rows of tanks in the lowest 40% of the map; their circles stay well clear of the bullets' half
+        int columns = (int) Math.ceil(Math.sqrt(tanks));
+        float spacing = worldSize / (columns + 1);
+        for (int i = 0; i < tanks; i++) {
+            Vector2f position = new Vector2f(spacing * (1 + i % columns), 0.4f * worldSize * (i / columns + 0.5f) / columns);
+            TankData tank = new TankData(i, position, new Vector2f(), 0.0f, new Vector3f(1, 1, 1), "Bot" + i);
+            tank.setPosition(position);
+            tank.setInputState(true, false, true, false);   // Forward and left: drives in a circle
+            context.tanks.put(i, tank);
+        }
+        for (int i = 0; i < tanks; i++) {
+            context.bullets.add(bullet(i, worldSize * i / tanks));
+        }
+    }
+
+    // A bullet flying right along its own row of the upper half, away from every tank
+    private BulletData bullet(int ownerId, float x) {
+        float y = worldSize / 2 + (worldSize / 2 - GameMapData.DEFAULT_TILE_SIZE) * (ownerId + 0.5f) / tanks;
+        return new BulletData(UUID.randomUUID(), ownerId, new Vector2f(x, y),
+                new Vector2f(GameServer.BULLET_SPEED, 0), 0, System.currentTimeMillis(), false);
+    }
+
+    @Benchmark
+    public boolean tick() throws Throwable {
+        boolean changed = (boolean) updateGameLogic.invokeExact(server, DELTA_TIME);
+        for (int ownerId = context.bullets.size(); ownerId < tanks; ownerId++) {
+            context.bullets.add(bullet(ownerId, GameMapData.DEFAULT_TILE_SIZE));
+        }
+        return changed;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.stop();
+    }
+}
@@ -0,0 +1,75 @@
+package org.chrisgruber.nettank.benchmarks;
+
+import org.chrisgruber.nettank.common.world.BaseTerrainProfile;
+import org.chrisgruber.nettank.common.world.GameMapData;
+import org.chrisgruber.nettank.common.world.ProceduralTerrainGenerator;
+import org.chrisgruber.nettank.common.world.TerrainCodec;
+import org.chrisgruber.nettank.common.world.TerrainEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Terrain encoding for the TERRAIN_DATA message (CSV) and for TERRAIN_CHUNK (TerrainCodec, deflated), on generated
+ * maps so overlays appear as often as in a real round. Decoding writes into a second map of the same size, the way
+ * the client fills its map.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TerrainEncoderBenchmark {
+    static final long SEED = 42L;
+
+    // Map width and height in tiles
+    @Param({"50", "200", "1000"})
+    public int size;
+
+    private GameMapData source;
+    private GameMapData target;
+    private String encoded;
+    private byte[] encodedBinary;
+
+    @Setup
+    public void setUp() {
+        source = new GameMapData(size, size, GameMapData.DEFAULT_TILE_SIZE);
+        new ProceduralTerrainGenerator(SEED).generateProceduralTerrain(source, BaseTerrainProfile.GRASSLAND);
+        target = new GameMapData(size, size, GameMapData.DEFAULT_TILE_SIZE);
+        encoded = TerrainEncoder.encode(source);
+        encodedBinary = TerrainCodec.encode(source, TerrainCodec.FLAG_DEFLATE);
+    }
+
+    @Benchmark
+    public String encode() {
+        return TerrainEncoder.encode(source);
+    }
+
+    @Benchmark
+    public GameMapData decode() {
+        TerrainEncoder.decode(target, encoded);
+        return target;
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return TerrainCodec.encode(source, TerrainCodec.FLAG_DEFLATE);
+    }
+
+    @Benchmark
+    public GameMapData decodeBinary() {
+        TerrainCodec.decode(target, encodedBinary, TerrainCodec.FLAG_DEFLATE);
+        return target;
+    }
+}
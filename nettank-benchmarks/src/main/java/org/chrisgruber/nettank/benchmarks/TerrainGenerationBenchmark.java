@@ -0,0 +1,51 @@
+package org.chrisgruber.nettank.benchmarks;
+
+import org.chrisgruber.nettank.common.world.BaseTerrainProfile;
+import org.chrisgruber.nettank.common.world.GameMapData;
+import org.chrisgruber.nettank.common.world.ProceduralTerrainGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code ProceduralTerrainGenerator.generateProceduralTerrain}, the work the server does for every new round.
+ * Each call regenerates the same map in place from the same seed, so every call does the same work.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TerrainGenerationBenchmark {
+
+    // Map width and height in tiles
+    @Param({"50", "200", "1000"})
+    public int size;
+
+    @Param({"GRASSLAND", "DESERT"})
+    public BaseTerrainProfile profile;
+
+    private GameMapData mapData;
+
+    @Setup
+    public void setUp() {
+        mapData = new GameMapData(size, size, GameMapData.DEFAULT_TILE_SIZE);
+    }
+
+    @Benchmark
+    public GameMapData generate() {
+        new ProceduralTerrainGenerator(TerrainEncoderBenchmark.SEED).generateProceduralTerrain(mapData, profile);
+        return mapData;
+    }
+}
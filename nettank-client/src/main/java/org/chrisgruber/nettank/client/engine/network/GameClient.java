@@ -1,7 +1,16 @@
 package org.chrisgruber.nettank.client.engine.network;
 
+import org.chrisgruber.nettank.common.network.BinaryProtocol;
+import org.chrisgruber.nettank.common.network.FrameBuilder;
 import org.chrisgruber.nettank.common.network.NetworkProtocol;
+import org.chrisgruber.nettank.common.network.WireFormat;
+import org.chrisgruber.nettank.common.network.StateQuantizer;
+import org.chrisgruber.nettank.common.network.WireIO;
 import org.chrisgruber.nettank.common.util.GameState;
+import org.chrisgruber.nettank.common.world.BaseTerrainProfile;
+import org.chrisgruber.nettank.common.world.GameMapData;
+import org.chrisgruber.nettank.common.world.ProceduralTerrainGenerator;
+import org.chrisgruber.nettank.common.world.TerrainCodec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -10,7 +19,7 @@ import java.io.*;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.UnknownHostException;
-import java.util.UUID;
+import java.nio.ByteBuffer;
 
 public class GameClient implements Runnable {
     private static final Logger logger = LoggerFactory.getLogger(GameClient.class);
@@ -19,8 +28,8 @@ public class GameClient implements Runnable {
     private final int serverPort;
     private final String playerName;
     private Socket socket;
-    private PrintWriter out;
-    private BufferedReader in;
+    private OutputStream out;
+    private DataInputStream in;
     private volatile boolean running = false;
     private volatile boolean shuttingDown = false;
     private final Object connectionLock = new Object();
@@ -35,6 +44,40 @@ public class GameClient implements Runnable {
     private final long heartbeatIntervalMs;
     private long lastHeartbeatTime = 0;
 
+    // Wire format - the binary protocol is requested in CON and used once the server answers PRO;BIN
+    private static final boolean BINARY_PROTOCOL_REQUESTED =
+            Boolean.parseBoolean(System.getProperty("nettank.protocol.binary", "true"));
+    private volatile WireFormat wireFormat = WireFormat.TEXT;
+    private volatile boolean awaitingProtocolReply = false;
+
+    // Snapshot acknowledgements - the server deltas against the last tick we acked, so acks must keep flowing
+    // even when there is no input to piggyback on
+    private static final long SNAPSHOT_ACK_INTERVAL_MS = 100;
+    private final SnapshotHistory snapshotHistory = new SnapshotHistory(SnapshotHistory.DEFAULT_CAPACITY);
+    private volatile long ackedSnapshotTick = -1;
+    private volatile long lastAckSentTime = 0;
+
+    // Snapshot positions are quantized against the map bounds from MAP info
+    private volatile StateQuantizer stateQuantizer;
+
+    // Optional UDP channel for snapshots and input, requested in CON on top of the binary protocol (opt-in)
+    private static final boolean UDP_REQUESTED =
+            Boolean.parseBoolean(System.getProperty("nettank.udp.enabled", "false"));
+    private volatile UdpStateChannel udpChannel;
+
+    // Binary terrain, requested in CON on top of the binary protocol; chunks are collected here until complete
+    private static final boolean BINARY_TERRAIN_REQUESTED =
+            Boolean.parseBoolean(System.getProperty("nettank.terrain.binary", "true"));
+    private NetworkMessage.TerrainBegin pendingTerrain;
+    private byte[] pendingTerrainBytes;
+    private int pendingTerrainReceived;
+
+    // Seed-based terrain, requested in CON on top of the binary protocol; the map is rebuilt at the MAP info size
+    private static final boolean SEED_TERRAIN_REQUESTED =
+            Boolean.parseBoolean(System.getProperty("nettank.terrain.seed", "true"));
+    private volatile int mapWidthTiles = -1;
+    private volatile int mapHeightTiles = -1;
+
     public GameClient(String serverIp, int serverPort, String playerName, NetworkCallbackHandler networkCallbackHandler) {
         this.serverIp = serverIp;
         this.serverPort = serverPort;
@@ -63,13 +106,13 @@ public class GameClient implements Runnable {
 
         try {
             Socket localSocket;
-            PrintWriter localOut;
-            BufferedReader localIn;
+            OutputStream localOut;
+            DataInputStream localIn;
 
             synchronized(connectionLock) {
                 socket = new Socket(serverIp, serverPort);
-                out = new PrintWriter(socket.getOutputStream(), true);
-                in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+                out = new BufferedOutputStream(socket.getOutputStream());
+                in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
                 localSocket = socket;
                 localOut = out;
                 localIn = in;
@@ -78,11 +121,22 @@ public class GameClient implements Runnable {
             logger.info("Connected to server: {}:{}", serverIp, serverPort);
 
             if (localOut != null) {
-                sendMessage(NetworkProtocol.CONNECT + ";" + playerName);
+                if (BINARY_PROTOCOL_REQUESTED) {
+                    String capabilities = BinaryProtocol.CAPABILITY
+                            + (BINARY_TERRAIN_REQUESTED ? ";" + BinaryProtocol.TERRAIN_CAPABILITY : "")
+                            + (SEED_TERRAIN_REQUESTED ? ";" + BinaryProtocol.SEED_TERRAIN_CAPABILITY : "")
+                            + (UDP_REQUESTED ? ";" + BinaryProtocol.UDP_CAPABILITY : "");
+                    sendMessage(NetworkProtocol.CONNECT + ";" + playerName + ";" + capabilities);
+                    // Nothing else may be sent until the server has answered, since its reply decides the format
+                    awaitingProtocolReply = true;
+                } else {
+                    sendMessage(NetworkProtocol.CONNECT + ";" + playerName);
+                }
                 logger.info("Sent initial connect message to server: {}", playerName);
             }
 
-            String serverMessage = null;
+            lastHeartbeatTime = System.currentTimeMillis();
+            Object serverMessage = null;
 
             while (running && !Thread.currentThread().isInterrupted()) {
                 if (localIn == null) {
@@ -102,9 +156,13 @@ public class GameClient implements Runnable {
 
                     logger.trace("NetworkClient: Waiting for server message...");
 
-                    serverMessage = localIn.readLine();
+                    if (wireFormat == WireFormat.BINARY) {
+                        serverMessage = WireIO.readFrame(localIn, BinaryProtocol.MAX_SERVER_FRAME_LENGTH);
+                    } else {
+                        serverMessage = WireIO.readLine(localIn, BinaryProtocol.MAX_SERVER_FRAME_LENGTH);
+                    }
 
-                    logger.trace("NetworkClient: readLine() returned: {}", serverMessage == null ? "null" : "a message");
+                    logger.trace("NetworkClient: read returned: {}", serverMessage == null ? "null" : "a message");
 
                     if (!running) {
                         logger.trace("NetworkClient: 'running' false after readLine, exiting.");
@@ -119,7 +177,13 @@ public class GameClient implements Runnable {
 
                     logger.trace("Client received message from server: {}", serverMessage);
 
-                    parseServerMessage(serverMessage);
+                    if (serverMessage instanceof ByteBuffer frame) {
+                        parseServerFrame(frame);
+                    } else if (awaitingProtocolReply) {
+                        handleProtocolReply((String) serverMessage);
+                    } else {
+                        parseServerMessage((String) serverMessage);
+                    }
 
                 } catch (SocketException e) {
                     if (running && !shuttingDown) {
@@ -172,6 +236,20 @@ public class GameClient implements Runnable {
         }
     }
 
+    // The first line after CON;<name>;BIN is either PRO;BIN, or the first registration message of a text-only server
+    private void handleProtocolReply(String message) {
+        awaitingProtocolReply = false;
+
+        if (message.equals(NetworkProtocol.PROTOCOL + ";" + BinaryProtocol.CAPABILITY)) {
+            wireFormat = WireFormat.BINARY;
+            logger.info("Server accepted the binary protocol");
+            return;
+        }
+
+        logger.info("Server did not accept the binary protocol, continuing with text");
+        parseServerMessage(message);
+    }
+
     private void parseServerMessage(String message) {
         logger.trace("Parsing server message: {}", message);
 
@@ -181,187 +259,44 @@ public class GameClient implements Runnable {
 
             String command = parts[0];
 
-            switch (command) {
-                case NetworkProtocol.ASSIGN_ID -> {
-                    try {
-                        var msg = NetworkMessage.PlayerId.parse(parts);
-                        networkCallbackHandler.setLocalPlayerId(msg.id());
-                    } catch (IllegalArgumentException e) {
-                        logger.error("Malformed ASSIGN_ID message: {}", e.getMessage());
-                    }
-                }
-                case NetworkProtocol.NEW_PLAYER -> {
-                    try {
-                        var msg = NetworkMessage.NewPlayer.parse(parts);
-                        networkCallbackHandler.addOrUpdateTank(
-                            msg.id(), msg.x(), msg.y(), msg.rotation(),
-                            msg.name(), msg.colorR(), msg.colorG(), msg.colorB()
-                        );
-                    } catch (IllegalArgumentException e) {
-                        logger.error("Malformed NEW_PLAYER message: {}", e.getMessage());
-                    }
-                }
-                case NetworkProtocol.PLAYER_UPDATE -> {
-                    try {
-                        var msg = NetworkMessage.PlayerUpdate.parse(parts);
-                        networkCallbackHandler.updateTankState(
-                            msg.id(), msg.x(), msg.y(), msg.rotation(), false
-                        );
-                    } catch (IllegalArgumentException e) {
-                        logger.error("Malformed PLAYER_UPDATE message: {}", e.getMessage());
-                    }
-                }
-                case NetworkProtocol.PLAYER_LEFT -> {
-                    try {
-                        var msg = NetworkMessage.PlayerLeft.parse(parts);
-                        networkCallbackHandler.removeTank(msg.id());
-                    } catch (IllegalArgumentException e) {
-                        logger.error("Malformed PLAYER_LEFT message: {}", e.getMessage());
-                    }
-                }
-                case NetworkProtocol.SHOOT -> {
-                    try {
-                        var msg = NetworkMessage.Shoot.parse(parts);
-                        networkCallbackHandler.spawnBullet(
-                            msg.bulletId(), msg.ownerId(),
-                            msg.x(), msg.y(), msg.dirX(), msg.dirY()
-                        );
-                    } catch (IllegalArgumentException e) {
-                        logger.error("Malformed SHOOT message: {}", e.getMessage());
-                    }
-                }
-                case NetworkProtocol.HIT -> {
-                    try {
-                        var msg = NetworkMessage.Hit.parse(parts);
-                        networkCallbackHandler.handlePlayerHit(
-                            msg.targetId(), msg.shooterId(),
-                            msg.bulletId(), msg.damage()
-                        );
-                    } catch (IllegalArgumentException e) {
-                        logger.error("Malformed HIT message: {}", e.getMessage());
-                    }
-                }
-                case NetworkProtocol.DESTROYED -> {
-                    try {
-                        var msg = NetworkMessage.Destroyed.parse(parts);
-                        networkCallbackHandler.handlePlayerDestroyed(
-                            msg.targetId(), msg.shooterId()
-                        );
-                    } catch (IllegalArgumentException e) {
-                        logger.error("Malformed DESTROYED message: {}", e.getMessage());
-                    }
-                }
-                case NetworkProtocol.PLAYER_LIVES -> {
-                    try {
-                        var msg = NetworkMessage.PlayerLives.parse(parts);
-                        networkCallbackHandler.updatePlayerLives(msg.playerId(), msg.lives());
-                    } catch (IllegalArgumentException e) {
-                        logger.error("Malformed PLAYER_LIVES message: {}", e.getMessage());
-                    }
-                }
-                case NetworkProtocol.GAME_STATE -> {
-                    try {
-                        var msg = NetworkMessage.GameStateMessage.parse(parts);
-                        try {
-                            networkCallbackHandler.setGameState(
-                                GameState.valueOf(msg.stateName()),
-                                msg.timeData()
-                            );
-                        } catch (IllegalArgumentException e) {
-                            logger.error("Received invalid game state: {}", msg.stateName(), e);
-                        }
-                    } catch (IllegalArgumentException e) {
-                        logger.error("Malformed GAME_STATE message: {}", e.getMessage());
-                    }
-                }
-                case NetworkProtocol.ANNOUNCE -> {
-                    try {
-                        var msg = NetworkMessage.Announcement.parse(parts);
-                        networkCallbackHandler.addAnnouncement(msg.message());
-                    } catch (IllegalArgumentException e) {
-                        logger.error("Malformed ANNOUNCE message: {}", e.getMessage());
-                    }
-                }
-                case NetworkProtocol.ROUND_OVER -> {
-                    try {
-                        var msg = NetworkMessage.RoundOver.parse(parts);
-                        logger.trace("Received ROUND_OVER: winner={}, time={}ms", 
-                                   msg.winnerName(), msg.finalTimeMillis());
-                    } catch (IllegalArgumentException e) {
-                        logger.error("Malformed ROUND_OVER message: {}", e.getMessage());
-                    }
-                }
-                case NetworkProtocol.RESPAWN -> {
-                    try {
-                        var msg = NetworkMessage.Respawn.parse(parts);
-                        logger.debug("Received RESPAWN for player {}", msg.id());
-                        networkCallbackHandler.updateTankState(
-                            msg.id(), msg.x(), msg.y(), msg.rotation(), true
-                        );
-                    } catch (IllegalArgumentException e) {
-                        logger.error("Malformed RESPAWN message: {}", e.getMessage());
-                    }
-                }
-                case NetworkProtocol.SPECTATE_START -> {
-                    try {
-                        var msg = NetworkMessage.SpectatorMode.parse(parts);
-                        spectateEndTimeMillis = msg.durationMs();
-                        setSpectatorMode(true);
-                    } catch (IllegalArgumentException e) {
-                        logger.error("Malformed SPECTATE_START message: {}", e.getMessage());
-                    }
-                }
-                case NetworkProtocol.SPECTATE_END -> setSpectatorMode(false);
-                case NetworkProtocol.SPECTATE_PERMANENT -> {
-                    setSpectatorMode(true);
-                    spectateEndTimeMillis = -1;
-                }
-                case NetworkProtocol.MAP_INFO -> {
-                    try {
-                        var msg = NetworkMessage.MapInfo.parse(parts);
-                        // Note: MapInfo record doesn't store tileSize, using parts[3] directly
-                        networkCallbackHandler.storeMapInfo(
-                            msg.width(), msg.height(),
-                            parts.length >= 4 ? Float.parseFloat(parts[3]) : 1.0f
-                        );
-                    } catch (IllegalArgumentException e) {
-                        logger.error("Malformed MAP_INFO message: {}", e.getMessage());
-                    }
-                }
-                case NetworkProtocol.TERRAIN_DATA -> {
-                    try {
-                        var msg = NetworkMessage.TerrainData.parse(parts);
-                        networkCallbackHandler.receiveTerrainData(msg.width(), msg.height(), msg.encodedData());
-                        logger.info("Received TERRAIN_DATA: {}x{} tiles, {} bytes", 
-                            msg.width(), msg.height(), msg.encodedData().length());
-                    } catch (IllegalArgumentException e) {
-                        logger.error("Malformed TERRAIN_DATA message: {}", e.getMessage());
-                    }
-                }
-                case NetworkProtocol.ERROR_MSG -> {
-                    try {
-                        var msg = NetworkMessage.ErrorMessage.parse(parts);
-                        logger.error("Received error message from server: {}", msg.errorText());
-                        networkCallbackHandler.connectionFailed(msg.errorText());
-                        stop();
-                    } catch (IllegalArgumentException e) {
-                        logger.error("Malformed ERROR_MSG message: {}", e.getMessage());
-                    }
-                }
-                case NetworkProtocol.SHOOT_COOLDOWN -> {
-                    try {
-                        var msg = NetworkMessage.ShootCooldown.parse(parts);
-                        networkCallbackHandler.updateShootCooldown(msg.cooldownMs());
-                    } catch (IllegalArgumentException e) {
-                        logger.error("Malformed SHOOT_COOLDOWN message: {}", e.getMessage());
-                    }
-                }
-                default -> logger.warn("Unknown message command from server: {}", command);
+            NetworkMessage parsed;
+            try {
+                parsed = switch (command) {
+                    case NetworkProtocol.ASSIGN_ID -> NetworkMessage.PlayerId.parse(parts);
+                    case NetworkProtocol.NEW_PLAYER -> NetworkMessage.NewPlayer.parse(parts);
+                    case NetworkProtocol.PLAYER_UPDATE -> NetworkMessage.PlayerUpdate.parse(parts);
+                    case NetworkProtocol.SNAPSHOT -> NetworkMessage.Snapshot.parse(parts, stateQuantizer);
+                    case NetworkProtocol.DELTA_SNAPSHOT -> NetworkMessage.DeltaSnapshot.parse(parts, stateQuantizer);
+                    case NetworkProtocol.PLAYER_LEFT -> NetworkMessage.PlayerLeft.parse(parts);
+                    case NetworkProtocol.SHOOT -> NetworkMessage.Shoot.parse(parts);
+                    case NetworkProtocol.HIT -> NetworkMessage.Hit.parse(parts);
+                    case NetworkProtocol.DESTROYED -> NetworkMessage.Destroyed.parse(parts);
+                    case NetworkProtocol.PLAYER_LIVES -> NetworkMessage.PlayerLives.parse(parts);
+                    case NetworkProtocol.GAME_STATE -> NetworkMessage.GameStateMessage.parse(parts);
+                    case NetworkProtocol.ANNOUNCE -> NetworkMessage.Announcement.parse(parts);
+                    case NetworkProtocol.ROUND_OVER -> NetworkMessage.RoundOver.parse(parts);
+                    case NetworkProtocol.RESPAWN -> NetworkMessage.Respawn.parse(parts);
+                    case NetworkProtocol.SPECTATE_START -> NetworkMessage.SpectatorMode.parse(parts);
+                    case NetworkProtocol.SPECTATE_END -> new NetworkMessage.SpectatorEnd();
+                    case NetworkProtocol.SPECTATE_PERMANENT -> new NetworkMessage.SpectatorPermanent();
+                    case NetworkProtocol.MAP_INFO -> NetworkMessage.MapInfo.parse(parts);
+                    case NetworkProtocol.TERRAIN_DATA -> NetworkMessage.TerrainData.parse(parts);
+                    case NetworkProtocol.ERROR_MSG -> NetworkMessage.ErrorMessage.parse(parts);
+                    case NetworkProtocol.SHOOT_COOLDOWN -> NetworkMessage.ShootCooldown.parse(parts);
+                    case NetworkProtocol.PONG -> new NetworkMessage.Pong();
+                    default -> null;
+                };
+            } catch (IllegalArgumentException e) {
+                logger.error("Malformed {} message: {}", command, e.getMessage());
+                return;
+            }
+
+            if (parsed == null) {
+                logger.warn("Unknown message command from server: {}", command);
+                return;
             }
-        } catch (NumberFormatException e) {
-            logger.error("Failed to parse number in message: {}", message, e);
-        } catch (ArrayIndexOutOfBoundsException e) {
-            logger.error("Malformed message received (ArrayIndexOutOfBounds): {}", message, e);
+
+            handleServerMessage(parsed);
         } catch (Exception e) {
             logger.error("Error parsing server message {}", message, e);
         } finally {
@@ -369,6 +304,261 @@ public class GameClient implements Runnable {
         }
     }
 
+    private void parseServerFrame(ByteBuffer frame) {
+        NetworkMessage decoded;
+        try {
+            decoded = NetworkMessage.decode(frame, stateQuantizer);
+        } catch (IllegalArgumentException e) {
+            logger.error("Malformed binary frame from server: {}", e.getMessage());
+            return;
+        }
+
+        try {
+            handleServerMessage(decoded);
+        } catch (Exception e) {
+            logger.error("Error handling server message {}", decoded.getClass().getSimpleName(), e);
+        }
+    }
+
+    // Applies a parsed server message, whichever wire format it arrived in
+    private void handleServerMessage(NetworkMessage message) {
+        if (!(message instanceof NetworkMessage.TextLine)) {
+            networkCallbackHandler.messageReceived(message);    // A text line is reported once parsed
+        }
+
+        switch (message) {
+            case NetworkMessage.PlayerId msg -> networkCallbackHandler.setLocalPlayerId(msg.id());
+            case NetworkMessage.NewPlayer msg -> networkCallbackHandler.addOrUpdateTank(
+                    msg.id(), msg.x(), msg.y(), msg.rotation(),
+                    msg.name(), msg.colorR(), msg.colorG(), msg.colorB()
+            );
+            case NetworkMessage.PlayerUpdate msg -> networkCallbackHandler.updateTankState(
+                    msg.id(), msg.x(), msg.y(), msg.rotation(), false
+            );
+            case NetworkMessage.Snapshot msg -> receiveSnapshot(msg);
+            case NetworkMessage.DeltaSnapshot msg -> receiveDeltaSnapshot(msg);
+            case NetworkMessage.PlayerLeft msg -> networkCallbackHandler.removeTank(msg.id());
+            case NetworkMessage.Shoot msg -> networkCallbackHandler.spawnBullet(
+                    msg.bulletId(), msg.ownerId(),
+                    msg.x(), msg.y(), msg.dirX(), msg.dirY()
+            );
+            case NetworkMessage.Hit msg -> networkCallbackHandler.handlePlayerHit(
+                    msg.targetId(), msg.shooterId(),
+                    msg.bulletId(), msg.damage()
+            );
+            case NetworkMessage.Destroyed msg -> networkCallbackHandler.handlePlayerDestroyed(
+                    msg.targetId(), msg.shooterId()
+            );
+            case NetworkMessage.PlayerLives msg -> networkCallbackHandler.updatePlayerLives(msg.playerId(), msg.lives());
+            case NetworkMessage.GameStateMessage msg -> {
+                try {
+                    networkCallbackHandler.setGameState(
+                        GameState.valueOf(msg.stateName()),
+                        msg.timeData()
+                    );
+                } catch (IllegalArgumentException e) {
+                    logger.error("Received invalid game state: {}", msg.stateName(), e);
+                }
+            }
+            case NetworkMessage.Announcement msg -> networkCallbackHandler.addAnnouncement(msg.message());
+            case NetworkMessage.RoundOver msg -> logger.trace("Received ROUND_OVER: winner={}, time={}ms",
+                    msg.winnerName(), msg.finalTimeMillis());
+            case NetworkMessage.Respawn msg -> {
+                logger.debug("Received RESPAWN for player {}", msg.id());
+                networkCallbackHandler.updateTankState(
+                    msg.id(), msg.x(), msg.y(), msg.rotation(), true
+                );
+            }
+            case NetworkMessage.SpectatorMode msg -> {
+                spectateEndTimeMillis = msg.durationMs();
+                setSpectatorMode(true);
+            }
+            case NetworkMessage.SpectatorEnd msg -> setSpectatorMode(false);
+            case NetworkMessage.SpectatorPermanent msg -> {
+                setSpectatorMode(true);
+                spectateEndTimeMillis = -1;
+            }
+            case NetworkMessage.MapInfo msg -> {
+                stateQuantizer = StateQuantizer.forMap(msg.width(), msg.height(), msg.tileSize());
+                mapWidthTiles = msg.width();
+                mapHeightTiles = msg.height();
+                networkCallbackHandler.storeMapInfo(msg.width(), msg.height(), msg.tileSize());
+            }
+            case NetworkMessage.TerrainData msg -> {
+                networkCallbackHandler.receiveTerrainData(msg.width(), msg.height(), msg.encodedData());
+                logger.info("Received TERRAIN_DATA: {}x{} tiles, {} bytes",
+                    msg.width(), msg.height(), msg.encodedData().length());
+            }
+            case NetworkMessage.TerrainInit msg -> rebuildTerrain(msg);
+            case NetworkMessage.TerrainBegin msg -> beginTerrain(msg);
+            case NetworkMessage.TerrainChunk msg -> receiveTerrainChunk(msg.data());
+            case NetworkMessage.ErrorMessage msg -> {
+                logger.error("Received error message from server: {}", msg.errorText());
+                networkCallbackHandler.connectionFailed(msg.errorText());
+                stop();
+            }
+            case NetworkMessage.ShootCooldown msg -> networkCallbackHandler.updateShootCooldown(msg.cooldownMs());
+            case NetworkMessage.Pong msg -> logger.trace("Heartbeat acknowledged by server");
+            case NetworkMessage.UdpOffer msg -> openUdpChannel(msg);
+            case NetworkMessage.TextLine msg -> parseServerMessage(msg.line());
+            default -> logger.warn("Unhandled server message: {}", message.getClass().getSimpleName());
+        }
+    }
+
+    // Snapshots arrive on the TCP reader thread and, once bound, the UDP receiver thread
+    private void receiveSnapshot(NetworkMessage.Snapshot snapshot) {
+        synchronized (snapshotHistory) {
+            if (!snapshotHistory.add(snapshot)) {
+                logger.trace("Ignoring out of date snapshot {}", snapshot.tick());
+                return;
+            }
+            ackedSnapshotTick = snapshot.tick();
+        }
+
+        networkCallbackHandler.applySnapshot(snapshot);
+
+        if (System.currentTimeMillis() - lastAckSentTime >= SNAPSHOT_ACK_INTERVAL_MS) {
+            sendSnapshotAck();
+        }
+    }
+
+    private void receiveDeltaSnapshot(NetworkMessage.DeltaSnapshot delta) {
+        NetworkMessage.Snapshot resolved;
+        synchronized (snapshotHistory) {
+            resolved = snapshotHistory.resolve(delta);
+        }
+        if (resolved == null) {
+            // Our ack has not reached the server yet or crossed an older one; a usable snapshot follows shortly
+            logger.debug("Dropping delta snapshot {}: baseline tick {} is unknown", delta.tick(), delta.baselineTick());
+        } else {
+            receiveSnapshot(resolved);
+        }
+    }
+
+    // Rebuilds the map from its seed and reports whether it matched; on a mismatch the full terrain follows
+    private void rebuildTerrain(NetworkMessage.TerrainInit init) {
+        GameMapData mapData = null;
+        if (mapWidthTiles > 0 && mapHeightTiles > 0) {
+            try {
+                mapData = new GameMapData(mapWidthTiles, mapHeightTiles);
+                BaseTerrainProfile profile = BaseTerrainProfile.valueOf(init.profileName());
+                new ProceduralTerrainGenerator(init.seed()).generateProceduralTerrain(mapData, profile);
+            } catch (IllegalArgumentException e) {
+                logger.warn("Cannot rebuild terrain profile {}: {}", init.profileName(), e.getMessage());
+                mapData = null;
+            }
+        }
+
+        boolean matched = mapData != null && TerrainCodec.checksum(mapData) == init.checksum();
+        sendFrame(new FrameBuilder(BinaryProtocol.TERRAIN_CHECK, 9).putLong(init.seed()).putByte(matched ? 1 : 0).build());
+        if (matched) {
+            networkCallbackHandler.receiveTerrain(mapData);
+            logger.info("Rebuilt terrain from seed {} ({}): {}x{} tiles", init.seed(), init.profileName(), mapWidthTiles, mapHeightTiles);
+        } else {
+            logger.warn("Terrain rebuilt from seed {} does not match the server's, waiting for the full terrain", init.seed());
+        }
+    }
+
+    // A new TERRAIN_BEGIN replaces any transfer still in progress
+    private void beginTerrain(NetworkMessage.TerrainBegin begin) {
+        pendingTerrain = null;
+        pendingTerrainBytes = null;
+        long tiles = (long) begin.width() * begin.height();
+        if (begin.width() <= 0 || begin.height() <= 0 || tiles > BinaryProtocol.MAX_TERRAIN_BYTES
+                || begin.encodedLength() < 0 || begin.encodedLength() > BinaryProtocol.MAX_TERRAIN_BYTES) {
+            logger.error("Ignoring terrain of {}x{} tiles in {} bytes", begin.width(), begin.height(), begin.encodedLength());
+            return;
+        }
+        pendingTerrain = begin;
+        pendingTerrainBytes = new byte[begin.encodedLength()];
+        pendingTerrainReceived = 0;
+        if (begin.encodedLength() == 0) {
+            finishTerrain();
+        }
+    }
+
+    private void receiveTerrainChunk(byte[] data) {
+        if (pendingTerrain == null) {
+            logger.warn("Ignoring TERRAIN_CHUNK of {} bytes outside a terrain transfer", data.length);
+            return;
+        }
+        if (data.length > pendingTerrainBytes.length - pendingTerrainReceived) {
+            logger.error("Terrain chunks overrun the announced {} bytes, dropping the transfer", pendingTerrainBytes.length);
+            pendingTerrain = null;
+            pendingTerrainBytes = null;
+            return;
+        }
+        System.arraycopy(data, 0, pendingTerrainBytes, pendingTerrainReceived, data.length);
+        pendingTerrainReceived += data.length;
+        if (pendingTerrainReceived == pendingTerrainBytes.length) {
+            finishTerrain();
+        }
+    }
+
+    // Decodes on the network thread so the main thread only gets a finished map
+    private void finishTerrain() {
+        NetworkMessage.TerrainBegin begin = pendingTerrain;
+        byte[] encoded = pendingTerrainBytes;
+        pendingTerrain = null;
+        pendingTerrainBytes = null;
+
+        GameMapData mapData = new GameMapData(begin.width(), begin.height());
+        try {
+            TerrainCodec.decode(mapData, encoded, begin.flags());
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid binary terrain from server: {}", e.getMessage());
+            return;
+        }
+        networkCallbackHandler.receiveTerrain(mapData);
+        logger.info("Received binary terrain: {}x{} tiles, {} bytes", begin.width(), begin.height(), encoded.length);
+    }
+
+    private void openUdpChannel(NetworkMessage.UdpOffer offer) {
+        if (udpChannel != null || shuttingDown) {
+            logger.warn("Ignoring duplicate UDP offer");
+            return;
+        }
+        try {
+            UdpStateChannel channel = new UdpStateChannel(serverIp, offer.udpPort(), offer.token(), this::parseDatagramFrame,
+                    this::abandonUdpChannel);
+            udpChannel = channel;
+            channel.start();
+            logger.info("Opening UDP channel to {}:{}", serverIp, offer.udpPort());
+        } catch (IOException e) {
+            logger.warn("Could not open UDP channel, staying on TCP: {}", e.getMessage());
+        }
+    }
+
+    // Called by the UDP receiver thread when the channel gives up: the server may have bound it anyway, so ask it to
+    // send state over TCP again
+    private void abandonUdpChannel() {
+        udpChannel = null;
+        if (!shuttingDown) {
+            sendFrame(new FrameBuilder(BinaryProtocol.UDP_CLOSE, 0).build());
+        }
+    }
+
+    // Only drop-tolerant state is accepted over UDP; everything else must arrive over TCP
+    private void parseDatagramFrame(ByteBuffer frame) {
+        NetworkMessage decoded;
+        try {
+            decoded = NetworkMessage.decode(frame, stateQuantizer);
+        } catch (IllegalArgumentException e) {
+            logger.debug("Malformed datagram from server: {}", e.getMessage());
+            return;
+        }
+
+        try {
+            switch (decoded) {
+                case NetworkMessage.Snapshot msg -> receiveSnapshot(msg);
+                case NetworkMessage.DeltaSnapshot msg -> receiveDeltaSnapshot(msg);
+                default -> logger.debug("Ignoring {} received over UDP", decoded.getClass().getSimpleName());
+            }
+        } catch (Exception e) {
+            logger.error("Error handling datagram {}", decoded.getClass().getSimpleName(), e);
+        }
+    }
+
     private void setSpectatorMode(boolean spectating) {
         this.isSpectating = spectating;
         // TODO: Update UI to show spectator mode
@@ -381,12 +571,40 @@ public class GameClient implements Runnable {
         }
     }
 
+    // Sends a text protocol line; only valid while the connection is using the text protocol
     public void sendMessage(String message) {
+        if (wireFormat == WireFormat.BINARY) {
+            logger.warn("Dropping text message on a binary connection: {}", message);
+            return;
+        }
+        write(message, null);
+    }
+
+    private void sendFrame(ByteBuffer frame) {
+        write(null, frame);
+    }
+
+    private void write(String line, ByteBuffer frame) {
         synchronized(connectionLock) {
-            if (out != null && running && !shuttingDown) {
-                out.println(message);
+            if (out == null || !running || shuttingDown) {
+                return;
+            }
+            // Only CON may go out before the server has answered the protocol request
+            if (awaitingProtocolReply) {
+                logger.trace("Dropping outgoing message while the protocol handshake is pending");
+                return;
+            }
+            try {
+                if (frame != null) {
+                    WireIO.writeFrame(out, frame);
+                } else {
+                    WireIO.writeLine(out, line);
+                }
                 // Add immediate flush to ensure messages are sent
                 out.flush();
+            } catch (IOException e) {
+                // The reader loop notices the broken connection and reports it
+                logger.debug("Failed to send message to server: {}", e.getMessage());
             }
         }
     }
@@ -396,20 +614,66 @@ public class GameClient implements Runnable {
         long now = System.currentTimeMillis();
 
         if (now - lastInputSendTime >= INPUT_SEND_INTERVAL_MS) {
-            sendMessage(String.format("%s;%b;%b;%b;%b", NetworkProtocol.INPUT, w, s, a, d));
+            long ackTick = ackedSnapshotTick;
+            if (wireFormat == WireFormat.BINARY) {
+                int mask = (w ? BinaryProtocol.INPUT_FORWARD : 0)
+                        | (s ? BinaryProtocol.INPUT_BACKWARD : 0)
+                        | (a ? BinaryProtocol.INPUT_LEFT : 0)
+                        | (d ? BinaryProtocol.INPUT_RIGHT : 0);
+                FrameBuilder frame = new FrameBuilder(BinaryProtocol.INPUT, 9).putByte(mask);
+                if (ackTick >= 0) {
+                    frame.putLong(ackTick);
+                }
+                // Input is resent every interval anyway, so a lost datagram only delays it
+                UdpStateChannel udp = udpChannel;
+                ByteBuffer inputFrame = frame.build();
+                if (udp == null || !udp.isBound() || !udp.send(inputFrame)) {
+                    sendFrame(inputFrame);
+                }
+            } else {
+                String input = String.format("%s;%b;%b;%b;%b", NetworkProtocol.INPUT, w, s, a, d);
+                sendMessage(ackTick >= 0 ? input + ";" + ackTick : input);
+            }
             lastInputSendTime = now;
+            if (ackTick >= 0) {
+                lastAckSentTime = now;
+            }
         }
     }
 
     // Send shoot command
     public void sendShoot() {
-        sendMessage(NetworkProtocol.SHOOT_CMD);
+        if (wireFormat == WireFormat.BINARY) {
+            sendFrame(new FrameBuilder(BinaryProtocol.SHOOT_CMD, 0).build());
+        } else {
+            sendMessage(NetworkProtocol.SHOOT_CMD);
+        }
     }
     
+    // Acknowledge the latest snapshot on its own (PIN;<ackTick>) when no input has carried it recently
+    private void sendSnapshotAck() {
+        long ackTick = ackedSnapshotTick;
+        if (wireFormat == WireFormat.BINARY) {
+            sendFrame(new FrameBuilder(BinaryProtocol.PING, 8).putLong(ackTick).build());
+        } else {
+            sendMessage(NetworkProtocol.PING + ";" + ackTick);
+        }
+        lastAckSentTime = System.currentTimeMillis();
+    }
+
     // Send heartbeat to keep connection alive
     private void sendHeartbeat() {
         logger.trace("Sending heartbeat to server");
-        sendMessage(NetworkProtocol.PING);
+        sendPing();
+    }
+
+    // Send a plain ping, which the server answers with a pong
+    public void sendPing() {
+        if (wireFormat == WireFormat.BINARY) {
+            sendFrame(new FrameBuilder(BinaryProtocol.PING, 0).build());
+        } else {
+            sendMessage(NetworkProtocol.PING);
+        }
     }
 
     public synchronized void stop() {
@@ -423,9 +687,15 @@ public class GameClient implements Runnable {
         shuttingDown = true;
         running = false;
 
+        UdpStateChannel udpToClose = udpChannel;
+        udpChannel = null;
+        if (udpToClose != null) {
+            udpToClose.close();
+        }
+
         Socket socketToClose = null;
-        PrintWriter outToClose = null;
-        BufferedReader inToClose = null;
+        OutputStream outToClose = null;
+        DataInputStream inToClose = null;
 
         logger.debug("Preparing to close socket/streams...");
 
@@ -1,6 +1,7 @@
 package org.chrisgruber.nettank.client.engine.network;
 
 import org.chrisgruber.nettank.common.util.GameState;
+import org.chrisgruber.nettank.common.world.GameMapData;
 
 import java.util.UUID;
 
@@ -15,6 +16,7 @@ public interface NetworkCallbackHandler {
     // Entity/World Updates
     void addOrUpdateTank(int id, float x, float y, float rotation, String name, float r, float g, float b);
     void updateTankState(int id, float x, float y, float rotation, boolean isRespawn);
+    void applySnapshot(NetworkMessage.Snapshot snapshot);
     void removeTank(int id);
     void updatePlayerLives(int playerId, int lives);
     void spawnBullet(UUID bulletId, int ownerId, float x, float y, float dirX, float dirY);
@@ -22,5 +24,9 @@ public interface NetworkCallbackHandler {
     void handlePlayerDestroyed(int targetId, int shooterId);
     void storeMapInfo(int widthTiles, int heightTiles, float tileSize);
     void receiveTerrainData(int width, int height, String encodedData);
+    // Binary terrain, already decoded on the network thread
+    void receiveTerrain(GameMapData mapData);
     void updateShootCooldown(long cooldownRemainingMs);
+    // Diagnostics: every message from the server over TCP, before it is applied
+    default void messageReceived(NetworkMessage message) {}
 }
\ No newline at end of file
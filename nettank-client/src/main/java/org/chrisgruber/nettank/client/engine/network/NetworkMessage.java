@@ -1,9 +1,73 @@
 package org.chrisgruber.nettank.client.engine.network;
 
+import org.chrisgruber.nettank.common.network.BinaryProtocol;
+import org.chrisgruber.nettank.common.network.StateQuantizer;
+import org.chrisgruber.nettank.common.network.WireIO;
+import org.chrisgruber.nettank.common.util.GameState;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
 /**
- * Record types for type-safe network message parsing
+ * Record types for type-safe network message parsing.
+ * Server messages parse from a split text line ({@code parse}) or from a binary frame ({@code decode}).
  */
 public sealed interface NetworkMessage {
+
+    /**
+     * Decodes one binary frame (positioned at its opcode byte) into the matching message record.
+     * Throws IllegalArgumentException for unknown opcodes and truncated or malformed frames.
+     */
+    static NetworkMessage decode(ByteBuffer frame) {
+        return decode(frame, null);
+    }
+
+    /**
+     * Like {@link #decode(ByteBuffer)}, using the quantizer of the current map for snapshot frames.
+     * Snapshots are rejected while the quantizer is still null (no MAP info received yet).
+     */
+    static NetworkMessage decode(ByteBuffer frame, StateQuantizer quantizer) {
+        try {
+            byte opcode = frame.get();
+            return switch (opcode) {
+                case BinaryProtocol.ASSIGN_ID -> PlayerId.decode(frame);
+                case BinaryProtocol.NEW_PLAYER -> NewPlayer.decode(frame);
+                case BinaryProtocol.PLAYER_UPDATE -> PlayerUpdate.decode(frame);
+                case BinaryProtocol.PLAYER_LEFT -> PlayerLeft.decode(frame);
+                case BinaryProtocol.SHOOT -> Shoot.decode(frame);
+                case BinaryProtocol.HIT -> Hit.decode(frame);
+                case BinaryProtocol.DESTROYED -> Destroyed.decode(frame);
+                case BinaryProtocol.RESPAWN -> Respawn.decode(frame);
+                case BinaryProtocol.PLAYER_LIVES -> PlayerLives.decode(frame);
+                case BinaryProtocol.GAME_STATE -> GameStateMessage.decode(frame);
+                case BinaryProtocol.ANNOUNCE -> Announcement.decode(frame);
+                case BinaryProtocol.ROUND_OVER -> RoundOver.decode(frame);
+                case BinaryProtocol.PONG -> new Pong();
+                case BinaryProtocol.ERROR_MSG -> ErrorMessage.decode(frame);
+                case BinaryProtocol.SPECTATE_START -> SpectatorMode.decode(frame);
+                case BinaryProtocol.SPECTATE_END -> new SpectatorEnd();
+                case BinaryProtocol.SPECTATE_PERMANENT -> new SpectatorPermanent();
+                case BinaryProtocol.MAP_INFO -> MapInfo.decode(frame);
+                case BinaryProtocol.TERRAIN_INIT -> TerrainInit.decode(frame);
+                case BinaryProtocol.TERRAIN_DATA -> TerrainData.decode(frame);
+                case BinaryProtocol.TERRAIN_BEGIN -> TerrainBegin.decode(frame);
+                case BinaryProtocol.TERRAIN_CHUNK -> new TerrainChunk(WireIO.getBytes(frame));
+                case BinaryProtocol.SHOOT_COOLDOWN -> ShootCooldown.decode(frame);
+                case BinaryProtocol.SNAPSHOT -> Snapshot.decode(frame, quantizer);
+                case BinaryProtocol.DELTA_SNAPSHOT -> DeltaSnapshot.decode(frame, quantizer);
+                case BinaryProtocol.UDP_OFFER -> UdpOffer.decode(frame);
+                case BinaryProtocol.UDP_WELCOME -> new UdpWelcome();
+                case BinaryProtocol.TEXT -> new TextLine(WireIO.getText(frame));
+                default -> throw new IllegalArgumentException(
+                        "Unknown opcode: 0x" + Integer.toHexString(Byte.toUnsignedInt(opcode)));
+            };
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated frame", e);
+        }
+    }
     
     record TankUpdate(
         int id, 
@@ -112,6 +176,14 @@ public sealed interface NetworkMessage {
             }
             return new GameStateMessage(parts[1], Long.parseLong(parts[2]));
         }
+
+        public static GameStateMessage decode(ByteBuffer frame) {
+            int ordinal = Byte.toUnsignedInt(frame.get());
+            GameState[] states = GameState.values();
+            // An unknown ordinal is passed through as-is so it is reported like an unknown state name
+            String stateName = ordinal < states.length ? states[ordinal].name() : Integer.toString(ordinal);
+            return new GameStateMessage(stateName, frame.getLong());
+        }
     }
     
     record SpectatorMode(
@@ -123,11 +195,38 @@ public sealed interface NetworkMessage {
             }
             return new SpectatorMode(Long.parseLong(parts[1]));
         }
+
+        public static SpectatorMode decode(ByteBuffer frame) {
+            return new SpectatorMode(frame.getLong());
+        }
+    }
+
+    record SpectatorEnd() implements NetworkMessage {}
+
+    record SpectatorPermanent() implements NetworkMessage {}
+
+    record Pong() implements NetworkMessage {}
+
+    // A text protocol line carried inside a binary TEXT frame
+    record TextLine(String line) implements NetworkMessage {}
+
+    // Binary only: the token to present in UDP_HELLO datagrams to the server's UDP port
+    record UdpOffer(
+        long token,
+        int udpPort
+    ) implements NetworkMessage {
+        public static UdpOffer decode(ByteBuffer frame) {
+            return new UdpOffer(frame.getLong(), Short.toUnsignedInt(frame.getShort()));
+        }
     }
+
+    // Datagram only: the server bound this client's UDP address
+    record UdpWelcome() implements NetworkMessage {}
     
     record MapInfo(
         int width,
-        int height
+        int height,
+        float tileSize
     ) implements NetworkMessage {
         public static MapInfo parse(String[] parts) {
             if (parts.length < 3) {
@@ -135,24 +234,35 @@ public sealed interface NetworkMessage {
             }
             return new MapInfo(
                 Integer.parseInt(parts[1]),
-                Integer.parseInt(parts[2])
+                Integer.parseInt(parts[2]),
+                parts.length >= 4 ? Float.parseFloat(parts[3]) : 1.0f
             );
         }
+
+        public static MapInfo decode(ByteBuffer frame) {
+            return new MapInfo(frame.getInt(), frame.getInt(), frame.getFloat());
+        }
     }
     
     record TerrainInit(
         long seed,
-        String profileName
+        String profileName,
+        int checksum
     ) implements NetworkMessage {
         public static TerrainInit parse(String[] parts) {
-            if (parts.length < 3) {
+            if (parts.length < 4) {
                 throw new IllegalArgumentException("Invalid TerrainInit message: insufficient parts");
             }
             return new TerrainInit(
                 Long.parseLong(parts[1]),
-                parts[2]
+                parts[2],
+                Integer.parseInt(parts[3])
             );
         }
+
+        public static TerrainInit decode(ByteBuffer frame) {
+            return new TerrainInit(frame.getLong(), WireIO.getString(frame), frame.getInt());
+        }
     }
     
     record TerrainData(
@@ -170,7 +280,25 @@ public sealed interface NetworkMessage {
                 parts[3]
             );
         }
+
+        public static TerrainData decode(ByteBuffer frame) {
+            return new TerrainData(frame.getInt(), frame.getInt(), WireIO.getText(frame));
+        }
+    }
+
+    // Binary terrain: encodedLength bytes in TerrainCodec format follow in TerrainChunk frames
+    record TerrainBegin(
+        int width,
+        int height,
+        int flags,
+        int encodedLength
+    ) implements NetworkMessage {
+        public static TerrainBegin decode(ByteBuffer frame) {
+            return new TerrainBegin(frame.getInt(), frame.getInt(), Byte.toUnsignedInt(frame.get()), frame.getInt());
+        }
     }
+
+    record TerrainChunk(byte[] data) implements NetworkMessage {}
     
     record PlayerLives(
         int playerId,
@@ -185,6 +313,10 @@ public sealed interface NetworkMessage {
                 Integer.parseInt(parts[2])
             );
         }
+
+        public static PlayerLives decode(ByteBuffer frame) {
+            return new PlayerLives(frame.getInt(), frame.getInt());
+        }
     }
     
     record ShootCooldown(
@@ -196,6 +328,10 @@ public sealed interface NetworkMessage {
             }
             return new ShootCooldown(Long.parseLong(parts[1]));
         }
+
+        public static ShootCooldown decode(ByteBuffer frame) {
+            return new ShootCooldown(frame.getLong());
+        }
     }
     
     record Announcement(
@@ -207,6 +343,10 @@ public sealed interface NetworkMessage {
             }
             return new Announcement(parts[1]);
         }
+
+        public static Announcement decode(ByteBuffer frame) {
+            return new Announcement(WireIO.getString(frame));
+        }
     }
     
     record PlayerId(
@@ -218,6 +358,11 @@ public sealed interface NetworkMessage {
             }
             return new PlayerId(Integer.parseInt(parts[1]));
         }
+
+        public static PlayerId decode(ByteBuffer frame) {
+            // The assigned color follows the id but is delivered again with NEW_PLAYER
+            return new PlayerId(frame.getInt());
+        }
     }
     
     record NewPlayer(
@@ -245,6 +390,19 @@ public sealed interface NetworkMessage {
                 Float.parseFloat(parts[8])
             );
         }
+
+        public static NewPlayer decode(ByteBuffer frame) {
+            return new NewPlayer(
+                frame.getInt(),
+                frame.getFloat(),
+                frame.getFloat(),
+                frame.getFloat(),
+                WireIO.getString(frame),
+                frame.getFloat(),
+                frame.getFloat(),
+                frame.getFloat()
+            );
+        }
     }
     
     record PlayerUpdate(
@@ -264,6 +422,185 @@ public sealed interface NetworkMessage {
                 Float.parseFloat(parts[4])
             );
         }
+
+        public static PlayerUpdate decode(ByteBuffer frame) {
+            return new PlayerUpdate(frame.getInt(), frame.getFloat(), frame.getFloat(), frame.getFloat());
+        }
+    }
+    
+    record Snapshot(
+        long tick,
+        List<TankState> tanks,
+        List<BulletState> bullets
+    ) implements NetworkMessage {
+        public record TankState(int id, float x, float y, float rotation) {}
+
+        public record BulletState(UUID id, int ownerId, float x, float y) {}
+
+        public static Snapshot parse(String[] parts, StateQuantizer quantizer) {
+            requireQuantizer(quantizer);
+            if (parts.length < 4) {
+                throw new IllegalArgumentException("Invalid Snapshot message: insufficient parts");
+            }
+            long tick = Long.parseLong(parts[1]);
+            int tankCount = Integer.parseInt(parts[2]);
+            int bulletCount = Integer.parseInt(parts[3]);
+            if (tankCount < 0 || bulletCount < 0 || parts.length < 4 + tankCount + bulletCount) {
+                throw new IllegalArgumentException("Invalid Snapshot message: entry count mismatch");
+            }
+
+            List<TankState> tanks = new ArrayList<>(tankCount);
+            for (int i = 0; i < tankCount; i++) {
+                String[] fields = splitEntry(parts[4 + i], 4);
+                tanks.add(new TankState(
+                    Integer.parseInt(fields[0]),
+                    quantizer.dequantizeX(Integer.parseInt(fields[1])),
+                    quantizer.dequantizeY(Integer.parseInt(fields[2])),
+                    quantizer.dequantizeRotation(Integer.parseInt(fields[3]))
+                ));
+            }
+
+            List<BulletState> bullets = parseBullets(parts, 4 + tankCount, bulletCount, quantizer);
+
+            return new Snapshot(tick, tanks, bullets);
+        }
+
+        public static Snapshot decode(ByteBuffer frame, StateQuantizer quantizer) {
+            requireQuantizer(quantizer);
+            long tick = frame.getLong();
+
+            int tankCount = Short.toUnsignedInt(frame.getShort());
+            List<TankState> tanks = new ArrayList<>(tankCount);
+            for (int i = 0; i < tankCount; i++) {
+                tanks.add(new TankState(
+                    frame.getInt(),
+                    quantizer.dequantizeX(Short.toUnsignedInt(frame.getShort())),
+                    quantizer.dequantizeY(Short.toUnsignedInt(frame.getShort())),
+                    quantizer.dequantizeRotation(Short.toUnsignedInt(frame.getShort()))
+                ));
+            }
+
+            return new Snapshot(tick, tanks, decodeBullets(frame, quantizer));
+        }
+
+        static List<BulletState> parseBullets(String[] parts, int start, int count, StateQuantizer quantizer) {
+            List<BulletState> bullets = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String[] fields = splitEntry(parts[start + i], 4);
+                bullets.add(new BulletState(
+                    UUID.fromString(fields[0]),
+                    Integer.parseInt(fields[1]),
+                    quantizer.dequantizeX(Integer.parseInt(fields[2])),
+                    quantizer.dequantizeY(Integer.parseInt(fields[3]))
+                ));
+            }
+            return bullets;
+        }
+
+        static List<BulletState> decodeBullets(ByteBuffer frame, StateQuantizer quantizer) {
+            int count = Short.toUnsignedInt(frame.getShort());
+            List<BulletState> bullets = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                bullets.add(new BulletState(
+                    WireIO.getUuid(frame),
+                    frame.getInt(),
+                    quantizer.dequantizeX(Short.toUnsignedInt(frame.getShort())),
+                    quantizer.dequantizeY(Short.toUnsignedInt(frame.getShort()))
+                ));
+            }
+            return bullets;
+        }
+
+        static void requireQuantizer(StateQuantizer quantizer) {
+            if (quantizer == null) {
+                throw new IllegalArgumentException("Snapshot received before map info");
+            }
+        }
+
+        // Keeps empty fields, which delta entries use for unchanged values
+        static String[] splitEntry(String entry, int expectedFields) {
+            String[] fields = entry.split(":", -1);
+            if (fields.length < expectedFields) {
+                throw new IllegalArgumentException("Invalid Snapshot entry: " + entry);
+            }
+            return fields;
+        }
+    }
+
+    record DeltaSnapshot(
+        long tick,
+        long baselineTick,
+        List<TankDelta> changedTanks,
+        List<Integer> removedTankIds,
+        List<Snapshot.BulletState> bullets
+    ) implements NetworkMessage {
+        // fieldMask uses BinaryProtocol.DELTA_* bits; fields outside the mask are unchanged from the baseline
+        public record TankDelta(int id, int fieldMask, float x, float y, float rotation) {}
+
+        public static DeltaSnapshot parse(String[] parts, StateQuantizer quantizer) {
+            Snapshot.requireQuantizer(quantizer);
+            if (parts.length < 6) {
+                throw new IllegalArgumentException("Invalid DeltaSnapshot message: insufficient parts");
+            }
+            long tick = Long.parseLong(parts[1]);
+            long baselineTick = Long.parseLong(parts[2]);
+            int changedCount = Integer.parseInt(parts[3]);
+            int removedCount = Integer.parseInt(parts[4]);
+            int bulletCount = Integer.parseInt(parts[5]);
+            if (changedCount < 0 || removedCount < 0 || bulletCount < 0
+                    || parts.length < 6 + changedCount + removedCount + bulletCount) {
+                throw new IllegalArgumentException("Invalid DeltaSnapshot message: entry count mismatch");
+            }
+
+            List<TankDelta> changed = new ArrayList<>(changedCount);
+            for (int i = 0; i < changedCount; i++) {
+                String[] fields = Snapshot.splitEntry(parts[6 + i], 4);
+                int fieldMask = 0;
+                float x = 0, y = 0, rotation = 0;
+                if (!fields[1].isEmpty()) { fieldMask |= BinaryProtocol.DELTA_X; x = quantizer.dequantizeX(Integer.parseInt(fields[1])); }
+                if (!fields[2].isEmpty()) { fieldMask |= BinaryProtocol.DELTA_Y; y = quantizer.dequantizeY(Integer.parseInt(fields[2])); }
+                if (!fields[3].isEmpty()) {
+                    fieldMask |= BinaryProtocol.DELTA_ROTATION;
+                    rotation = quantizer.dequantizeRotation(Integer.parseInt(fields[3]));
+                }
+                changed.add(new TankDelta(Integer.parseInt(fields[0]), fieldMask, x, y, rotation));
+            }
+
+            List<Integer> removed = new ArrayList<>(removedCount);
+            for (int i = 0; i < removedCount; i++) {
+                removed.add(Integer.parseInt(parts[6 + changedCount + i]));
+            }
+
+            List<Snapshot.BulletState> bullets = Snapshot.parseBullets(parts, 6 + changedCount + removedCount, bulletCount, quantizer);
+
+            return new DeltaSnapshot(tick, baselineTick, changed, removed, bullets);
+        }
+
+        public static DeltaSnapshot decode(ByteBuffer frame, StateQuantizer quantizer) {
+            Snapshot.requireQuantizer(quantizer);
+            long tick = frame.getLong();
+            long baselineTick = frame.getLong();
+
+            int changedCount = Short.toUnsignedInt(frame.getShort());
+            List<TankDelta> changed = new ArrayList<>(changedCount);
+            for (int i = 0; i < changedCount; i++) {
+                int id = frame.getInt();
+                int fieldMask = Byte.toUnsignedInt(frame.get());
+                float x = (fieldMask & BinaryProtocol.DELTA_X) != 0 ? quantizer.dequantizeX(Short.toUnsignedInt(frame.getShort())) : 0;
+                float y = (fieldMask & BinaryProtocol.DELTA_Y) != 0 ? quantizer.dequantizeY(Short.toUnsignedInt(frame.getShort())) : 0;
+                float rotation = (fieldMask & BinaryProtocol.DELTA_ROTATION) != 0
+                        ? quantizer.dequantizeRotation(Short.toUnsignedInt(frame.getShort())) : 0;
+                changed.add(new TankDelta(id, fieldMask, x, y, rotation));
+            }
+
+            int removedCount = Short.toUnsignedInt(frame.getShort());
+            List<Integer> removed = new ArrayList<>(removedCount);
+            for (int i = 0; i < removedCount; i++) {
+                removed.add(frame.getInt());
+            }
+
+            return new DeltaSnapshot(tick, baselineTick, changed, removed, Snapshot.decodeBullets(frame, quantizer));
+        }
     }
     
     record PlayerLeft(
@@ -275,6 +612,10 @@ public sealed interface NetworkMessage {
             }
             return new PlayerLeft(Integer.parseInt(parts[1]));
         }
+
+        public static PlayerLeft decode(ByteBuffer frame) {
+            return new PlayerLeft(frame.getInt());
+        }
     }
     
     record Shoot(
@@ -298,6 +639,17 @@ public sealed interface NetworkMessage {
                 Float.parseFloat(parts[6])
             );
         }
+
+        public static Shoot decode(ByteBuffer frame) {
+            return new Shoot(
+                WireIO.getUuid(frame),
+                frame.getInt(),
+                frame.getFloat(),
+                frame.getFloat(),
+                frame.getFloat(),
+                frame.getFloat()
+            );
+        }
     }
     
     record Hit(
@@ -317,6 +669,10 @@ public sealed interface NetworkMessage {
                 Integer.parseInt(parts[4])
             );
         }
+
+        public static Hit decode(ByteBuffer frame) {
+            return new Hit(frame.getInt(), frame.getInt(), WireIO.getUuid(frame), frame.getInt());
+        }
     }
     
     record Destroyed(
@@ -332,6 +688,10 @@ public sealed interface NetworkMessage {
                 Integer.parseInt(parts[2])
             );
         }
+
+        public static Destroyed decode(ByteBuffer frame) {
+            return new Destroyed(frame.getInt(), frame.getInt());
+        }
     }
     
     record Respawn(
@@ -351,6 +711,10 @@ public sealed interface NetworkMessage {
                 Float.parseFloat(parts[4])
             );
         }
+
+        public static Respawn decode(ByteBuffer frame) {
+            return new Respawn(frame.getInt(), frame.getFloat(), frame.getFloat(), frame.getFloat());
+        }
     }
     
     record RoundOver(
@@ -368,6 +732,10 @@ public sealed interface NetworkMessage {
                 Long.parseLong(parts[3])
             );
         }
+
+        public static RoundOver decode(ByteBuffer frame) {
+            return new RoundOver(frame.getInt(), WireIO.getString(frame), frame.getLong());
+        }
     }
     
     record ErrorMessage(
@@ -379,5 +747,9 @@ public sealed interface NetworkMessage {
             }
             return new ErrorMessage(parts[1]);
         }
+
+        public static ErrorMessage decode(ByteBuffer frame) {
+            return new ErrorMessage(WireIO.getString(frame));
+        }
     }
 }
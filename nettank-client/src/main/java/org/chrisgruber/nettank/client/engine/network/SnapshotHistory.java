@@ -0,0 +1,90 @@
+package org.chrisgruber.nettank.client.engine.network;
+
+import org.chrisgruber.nettank.common.network.BinaryProtocol;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recently received full snapshots, used to rebuild delta snapshots into full ones.
+ * Not thread-safe: GameClient guards it, since snapshots may arrive over both TCP and UDP.
+ */
+class SnapshotHistory {
+    static final int DEFAULT_CAPACITY = 64; // Larger than the server's history, so any baseline it can use is still here
+
+    private final int capacity;
+    private final ArrayDeque<NetworkMessage.Snapshot> snapshots;
+
+    SnapshotHistory(int capacity) {
+        this.capacity = capacity;
+        this.snapshots = new ArrayDeque<>(capacity);
+    }
+
+    // Tick of the newest snapshot stored, which is what the client acknowledges; -1 before the first one
+    long latestTick() {
+        NetworkMessage.Snapshot latest = snapshots.peekLast();
+        return latest != null ? latest.tick() : -1;
+    }
+
+    // Stores a snapshot; returns false (and ignores it) when it is not newer than the latest one
+    boolean add(NetworkMessage.Snapshot snapshot) {
+        if (snapshot.tick() <= latestTick()) {
+            return false;
+        }
+        if (snapshots.size() == capacity) {
+            snapshots.removeFirst();
+        }
+        snapshots.addLast(snapshot);
+        return true;
+    }
+
+    NetworkMessage.Snapshot get(long tick) {
+        Iterator<NetworkMessage.Snapshot> iterator = snapshots.descendingIterator();
+        while (iterator.hasNext()) {
+            NetworkMessage.Snapshot snapshot = iterator.next();
+            if (snapshot.tick() == tick) {
+                return snapshot;
+            }
+            if (snapshot.tick() < tick) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    // Rebuilds the full snapshot a delta describes, or returns null when its baseline is not (or no longer) known
+    NetworkMessage.Snapshot resolve(NetworkMessage.DeltaSnapshot delta) {
+        NetworkMessage.Snapshot baseline = get(delta.baselineTick());
+        if (baseline == null) {
+            return null;
+        }
+
+        Map<Integer, NetworkMessage.Snapshot.TankState> tanks = new LinkedHashMap<>();
+        for (NetworkMessage.Snapshot.TankState tank : baseline.tanks()) {
+            tanks.put(tank.id(), tank);
+        }
+        for (int removedId : delta.removedTankIds()) {
+            tanks.remove(removedId);
+        }
+        for (NetworkMessage.DeltaSnapshot.TankDelta change : delta.changedTanks()) {
+            NetworkMessage.Snapshot.TankState previous = tanks.get(change.id());
+            int mask = change.fieldMask();
+            if (previous == null && mask != BinaryProtocol.DELTA_ALL) {
+                throw new IllegalArgumentException("Partial delta for tank " + change.id() + " missing from baseline tick " + delta.baselineTick());
+            }
+            tanks.put(change.id(), new NetworkMessage.Snapshot.TankState(
+                change.id(),
+                (mask & BinaryProtocol.DELTA_X) != 0 ? change.x() : previous.x(),
+                (mask & BinaryProtocol.DELTA_Y) != 0 ? change.y() : previous.y(),
+                (mask & BinaryProtocol.DELTA_ROTATION) != 0 ? change.rotation() : previous.rotation()
+            ));
+        }
+
+        List<NetworkMessage.Snapshot.TankState> resolved = new ArrayList<>(tanks.values());
+        return new NetworkMessage.Snapshot(delta.tick(), resolved, delta.bullets());
+    }
+}
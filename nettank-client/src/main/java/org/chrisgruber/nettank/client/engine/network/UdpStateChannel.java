@@ -0,0 +1,152 @@
+package org.chrisgruber.nettank.client.engine.network;
+
+import org.chrisgruber.nettank.common.network.BinaryProtocol;
+import org.chrisgruber.nettank.common.network.Datagrams;
+import org.chrisgruber.nettank.common.network.FrameBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Client side of the UDP channel offered by the server (see {@link Datagrams}). Sends UDP_HELLO until the
+ * server answers with UDP_WELCOME, then hands every in-order datagram frame to the consumer and carries
+ * outgoing INPUT frames. If the server never answers or the socket fails, the channel gives up and calls
+ * its give-up callback, so the client can tell the server over TCP to stop sending state by UDP.
+ */
+class UdpStateChannel {
+    private static final Logger logger = LoggerFactory.getLogger(UdpStateChannel.class);
+
+    private static final int HELLO_INTERVAL_MS = 200;
+    private static final int MAX_HELLO_ATTEMPTS = 10;
+
+    private final DatagramSocket socket;
+    private final long token;
+    private final Consumer<ByteBuffer> frameConsumer;
+    private final Runnable onGiveUp;
+    private final ByteBuffer sendBuffer = ByteBuffer.allocate(Datagrams.MAX_DATAGRAM_BYTES); // Guarded by this
+    private int sendSequence;                                                                // Guarded by this
+    private volatile boolean bound = false;
+    private volatile boolean running = true;
+    private Thread receiverThread;
+
+    UdpStateChannel(String host, int port, long token, Consumer<ByteBuffer> frameConsumer, Runnable onGiveUp) throws SocketException {
+        this.socket = new DatagramSocket();
+        this.socket.connect(new InetSocketAddress(host, port));
+        this.token = token;
+        this.frameConsumer = frameConsumer;
+        this.onGiveUp = onGiveUp;
+    }
+
+    void start() {
+        receiverThread = Thread.ofVirtual()
+                .name("GameClient-Udp")
+                .start(this::runReceiverLoop);
+    }
+
+    // True once the server has confirmed our address; until then state keeps arriving over TCP
+    boolean isBound() {
+        return bound;
+    }
+
+    // Sends one frame as a datagram; returns false if the caller should use TCP instead
+    synchronized boolean send(ByteBuffer frame) {
+        if (!running || !Datagrams.write(sendBuffer, token, ++sendSequence, frame)) {
+            return false;
+        }
+        try {
+            socket.send(new DatagramPacket(sendBuffer.array(), sendBuffer.remaining()));
+            return true;
+        } catch (IOException e) {
+            logger.debug("UDP send failed: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void runReceiverLoop() {
+        byte[] data = new byte[Datagrams.MAX_DATAGRAM_BYTES];
+        DatagramPacket packet = new DatagramPacket(data, data.length);
+        ByteBuffer hello = new FrameBuilder(BinaryProtocol.UDP_HELLO, 0).build();
+        int helloAttempts = 0;
+        int lastSequence = 0;
+        boolean receivedAny = false;
+
+        try {
+            socket.setSoTimeout(HELLO_INTERVAL_MS);
+            while (running) {
+                if (!bound) {
+                    if (helloAttempts++ == MAX_HELLO_ATTEMPTS) {
+                        logger.warn("No UDP_WELCOME from the server after {} attempts, staying on TCP", MAX_HELLO_ATTEMPTS);
+                        giveUp();
+                        break;
+                    }
+                    send(hello);
+                }
+
+                try {
+                    packet.setLength(data.length);
+                    socket.receive(packet);
+                } catch (SocketTimeoutException e) {
+                    continue;
+                }
+
+                ByteBuffer datagram = ByteBuffer.wrap(data, 0, packet.getLength());
+                if (datagram.remaining() < Datagrams.HEADER_BYTES || datagram.getLong() != token) {
+                    continue;
+                }
+                int sequence = datagram.getInt();
+                if (!Datagrams.seekFrameBody(datagram)) {
+                    continue;
+                }
+                if (receivedAny && !Datagrams.isNewer(sequence, lastSequence)) {
+                    logger.trace("Dropping late datagram {} (last {})", sequence, lastSequence);
+                    continue;
+                }
+                receivedAny = true;
+                lastSequence = sequence;
+
+                if (datagram.get(datagram.position()) == BinaryProtocol.UDP_WELCOME) {
+                    if (!bound) {
+                        bound = true;
+                        socket.setSoTimeout(0);
+                        logger.info("UDP channel bound to {}", socket.getRemoteSocketAddress());
+                    }
+                    continue;
+                }
+                frameConsumer.accept(datagram.slice());
+            }
+        } catch (IOException e) {
+            if (running) {
+                logger.warn("UDP channel failed, staying on TCP: {}", e.getMessage());
+                giveUp();
+            }
+        } finally {
+            bound = false;
+        }
+    }
+
+    // The welcome may have been lost on its way back, leaving the server bound and sending state here: stop
+    // accepting datagrams and let the client tell the server
+    private void giveUp() {
+        bound = false;
+        running = false;
+        socket.close();
+        onGiveUp.run();
+    }
+
+    void close() {
+        running = false;
+        bound = false;
+        socket.close();
+        if (receiverThread != null) {
+            receiverThread.interrupt();
+        }
+    }
+}
@@ -7,6 +7,7 @@ import org.chrisgruber.nettank.client.engine.graphics.Shader;
 import org.chrisgruber.nettank.client.engine.graphics.Texture;
 import org.chrisgruber.nettank.client.engine.network.GameClient;
 import org.chrisgruber.nettank.client.engine.network.NetworkCallbackHandler;
+import org.chrisgruber.nettank.client.engine.network.NetworkMessage;
 import org.chrisgruber.nettank.client.engine.ui.KillFeedMessage;
 import org.chrisgruber.nettank.client.engine.ui.StatusMessageKind;
 import org.chrisgruber.nettank.client.engine.ui.UIManager;
@@ -20,6 +21,7 @@ import org.chrisgruber.nettank.common.entities.BulletData;
 import org.chrisgruber.nettank.common.entities.TankData;
 import org.chrisgruber.nettank.common.util.Colors;
 import org.chrisgruber.nettank.common.util.GameState;
+import org.chrisgruber.nettank.common.world.GameMapData;
 
 import org.joml.Vector2f;
 import org.joml.Vector3f;
@@ -30,6 +32,7 @@ import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.lwjgl.glfw.GLFW.*;
 import static org.lwjgl.opengl.GL11.*;
@@ -73,6 +76,10 @@ public class TankBattleGame extends GameEngine implements NetworkCallbackHandler
     private final Map<Integer, ClientTank> tanks = new ConcurrentHashMap<>();
     private final List<ClientBullet> bullets = new CopyOnWriteArrayList<>();
 
+    // Latest snapshot received from the network thread, applied as a whole at the start of the next frame
+    private final AtomicReference<NetworkMessage.Snapshot> pendingSnapshot = new AtomicReference<>();
+    private long lastAppliedSnapshotTick = -1;
+
     // Player specific
     private int localPlayerId = -1;
     private ClientTank localTank = null;
@@ -108,6 +115,7 @@ public class TankBattleGame extends GameEngine implements NetworkCallbackHandler
     private int mapHeightTiles = -1;
     private float mapTileSize = -1.0f;
     private String receivedTerrainData = null;
+    private volatile GameMapData receivedTerrain = null;  // Binary terrain, decoded by the network thread
     private boolean mapInitialized = false;
     private volatile boolean mapInfoReceivedForProcessing = false;
     private volatile boolean terrainInfoReceivedForProcessing = false;
@@ -293,6 +301,8 @@ public class TankBattleGame extends GameEngine implements NetworkCallbackHandler
 
     @Override
     public void updateGame(float deltaTime) {
+        applyPendingSnapshot();
+
         // --- Update Active Explosions & Trigger Flames ---
         activeExplosions.removeIf(explosion -> {
             boolean explosionFinished = explosion.update(); // Update explosion animation
@@ -408,6 +418,13 @@ public class TankBattleGame extends GameEngine implements NetworkCallbackHandler
         this.terrainInfoReceivedForProcessing = true; // Signal the main thread
     }
 
+    @Override
+    public void receiveTerrain(GameMapData mapData) {
+        logger.info("Received binary terrain from server: {}x{} tiles", mapData.getWidthTiles(), mapData.getHeightTiles());
+        this.receivedTerrain = mapData;
+        this.terrainInfoReceivedForProcessing = true; // Signal the main thread
+    }
+
     @Override
     public void updateShootCooldown(long cooldownRemainingMs) {
         if (localTank != null) {
@@ -425,7 +442,9 @@ public class TankBattleGame extends GameEngine implements NetworkCallbackHandler
             mapWidthTiles, mapHeightTiles, receivedTerrainData != null ? receivedTerrainData.length() : 0);
         try {
             // Create the map object (uses the stored dimensions and terrain data from server)
-            this.gameMap = new ClientGameMap(mapWidthTiles, mapHeightTiles, receivedTerrainData);
+            this.gameMap = receivedTerrain != null
+                    ? new ClientGameMap(receivedTerrain)
+                    : new ClientGameMap(mapWidthTiles, mapHeightTiles, receivedTerrainData);
 
             logger.debug("Main thread loading map textures...");
             summerGrassTexture = new Texture("textures/Summer_Grass.png");
@@ -1000,6 +1019,41 @@ public class TankBattleGame extends GameEngine implements NetworkCallbackHandler
         logger.trace("Updated tank state for player ID: {} x: {}, y: {}, rotation: {}", id, x, y, rotation);
     }
 
+    // Called when SNAPSHOT is received (network thread). Only the newest snapshot is kept; older ones are superseded.
+    @Override
+    public void applySnapshot(NetworkMessage.Snapshot snapshot) {
+        pendingSnapshot.accumulateAndGet(snapshot,
+                (current, incoming) -> current == null || incoming.tick() > current.tick() ? incoming : current);
+    }
+
+    // Applies the pending snapshot on the game thread so every tank and bullet moves to the same tick in one frame
+    private void applyPendingSnapshot() {
+        NetworkMessage.Snapshot snapshot = pendingSnapshot.getAndSet(null);
+        if (snapshot == null || snapshot.tick() <= lastAppliedSnapshotTick) {
+            return;
+        }
+
+        for (NetworkMessage.Snapshot.TankState tankState : snapshot.tanks()) {
+            updateTankState(tankState.id(), tankState.x(), tankState.y(), tankState.rotation(), false);
+        }
+
+        if (!snapshot.bullets().isEmpty()) {
+            Map<UUID, NetworkMessage.Snapshot.BulletState> bulletStates = new HashMap<>();
+            for (NetworkMessage.Snapshot.BulletState bulletState : snapshot.bullets()) {
+                bulletStates.put(bulletState.id(), bulletState);
+            }
+            for (ClientBullet bullet : bullets) {
+                NetworkMessage.Snapshot.BulletState bulletState = bulletStates.get(bullet.getId());
+                if (bulletState != null) {
+                    bullet.correctPosition(bulletState.x(), bulletState.y());
+                }
+            }
+        }
+
+        lastAppliedSnapshotTick = snapshot.tick();
+        logger.trace("Applied snapshot for tick {} ({} tanks, {} bullets)", snapshot.tick(), snapshot.tanks().size(), snapshot.bullets().size());
+    }
+
     // Called when SHOOT is received
     public void spawnBullet(UUID bulletId, int ownerId, float x, float y, float dirX, float dirY) {
         // Calculate velocity based on direction and common speed
@@ -40,6 +40,11 @@ public class ClientBullet extends ClientEntity {
         this.position.set(new Vector2f(newX, newY));
     }
 
+    // Snaps the predicted position to the server's authoritative one
+    public void correctPosition(float x, float y) {
+        this.position.set(x, y);
+    }
+
     @Override
     public float getSize() {
         return BulletData.SIZE;
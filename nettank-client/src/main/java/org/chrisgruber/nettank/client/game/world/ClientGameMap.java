@@ -37,6 +37,11 @@ public class ClientGameMap {
         logger.info("Client terrain loaded from server: {}x{} tiles", width, height);
     }
 
+    public ClientGameMap(GameMapData mapData) {
+        this.mapData = mapData;
+        logger.info("Client terrain loaded from server: {}x{} tiles", mapData.getWidthTiles(), mapData.getHeightTiles());
+    }
+
     public void registerTerrainTexture(TerrainType type, Texture texture) {
         terrainTextures.put(type, texture);
     }
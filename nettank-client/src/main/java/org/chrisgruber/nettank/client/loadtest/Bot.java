@@ -0,0 +1,186 @@
+package org.chrisgruber.nettank.client.loadtest;
+
+import org.chrisgruber.nettank.client.engine.network.GameClient;
+import org.chrisgruber.nettank.client.engine.network.NetworkCallbackHandler;
+import org.chrisgruber.nettank.client.engine.network.NetworkMessage;
+import org.chrisgruber.nettank.common.util.GameState;
+import org.chrisgruber.nettank.common.world.GameMapData;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One simulated player: a {@link GameClient} with no window. The client's reader loop runs on one virtual
+ * thread; {@link #drive} runs on another and sends input, shots and pings until the deadline. Everything the
+ * server sends is ignored except what the measurements need.
+ */
+final class Bot implements NetworkCallbackHandler {
+    static final long INPUT_INTERVAL_MS = 50;   // GameClient sends at most one INP per 50 ms
+    private static final long PING_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long PING_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final GameClient client;
+    private final LoadStats stats;
+    private final InputPattern pattern;
+    private final long shootIntervalNanos;
+    private final Random random;
+
+    private final AtomicLong pingSentNanos = new AtomicLong();  // 0 while no ping is outstanding
+    private volatile boolean registered;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    // Reader thread (and the UDP receiver thread, if UDP is enabled)
+    private long lastSnapshotNanos;
+    private long lastSnapshotInterval = -1;
+
+    Bot(int index, String host, int port, LoadStats stats, InputPattern pattern, long shootIntervalMs) {
+        this.client = new GameClient(host, port, "Bot" + index, this);
+        this.stats = stats;
+        this.pattern = pattern;
+        this.shootIntervalNanos = TimeUnit.MILLISECONDS.toNanos(shootIntervalMs);
+        this.random = new Random(index);
+    }
+
+    GameClient client() {
+        return client;
+    }
+
+    // Sends until the deadline or until the connection is gone, then disconnects
+    void drive(long deadlineNanos) throws InterruptedException {
+        boolean[] keys = new boolean[4];
+        long nextShot = System.nanoTime() + (shootIntervalNanos > 0 ? random.nextLong(shootIntervalNanos) : 0);
+        long nextPing = System.nanoTime() + random.nextLong(PING_INTERVAL_NANOS);   // Spread the bots' pings
+
+        try {
+            for (int step = 0; !closed.get() && System.nanoTime() < deadlineNanos; step++) {
+                Thread.sleep(INPUT_INTERVAL_MS);
+                if (!registered || !client.isConnected()) {
+                    continue;
+                }
+
+                keys = pattern.keys(step, random, keys);
+                client.sendInput(keys[0], keys[1], keys[2], keys[3]);
+                stats.inputsSent.increment();
+
+                long now = System.nanoTime();
+                if (shootIntervalNanos > 0 && now >= nextShot) {
+                    client.sendShoot();
+                    stats.shotsSent.increment();
+                    nextShot = now + shootIntervalNanos;
+                }
+                if (now >= nextPing) {
+                    sendPing(now);
+                    nextPing = now + PING_INTERVAL_NANOS;
+                }
+            }
+        } finally {
+            client.stop();
+            markClosed();
+        }
+    }
+
+    // One ping in flight at a time, since a pong does not say which ping it answers
+    private void sendPing(long now) {
+        long sent = pingSentNanos.get();
+        if (sent != 0 && now - sent < PING_TIMEOUT_NANOS) {
+            return;
+        }
+        if (pingSentNanos.compareAndSet(sent, now)) {
+            client.sendPing();
+        }
+    }
+
+    // The driver, the reader thread and the Swing thread (for connection callbacks) may all get here
+    private void markClosed() {
+        if (closed.compareAndSet(false, true) && registered) {
+            stats.connected.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void messageReceived(NetworkMessage message) {
+        stats.messagesReceived.increment();
+        if (message instanceof NetworkMessage.Pong) {
+            long sent = pingSentNanos.getAndSet(0);
+            if (sent != 0) {
+                stats.roundTrip.record(System.nanoTime() - sent);
+            }
+        }
+    }
+
+    @Override
+    public void applySnapshot(NetworkMessage.Snapshot snapshot) {
+        long now = System.nanoTime();
+        stats.snapshotsReceived.increment();
+        if (lastSnapshotNanos != 0) {
+            long interval = now - lastSnapshotNanos;
+            stats.snapshotInterval.record(interval);
+            if (lastSnapshotInterval >= 0) {
+                stats.snapshotJitter.record(Math.abs(interval - lastSnapshotInterval));
+            }
+            lastSnapshotInterval = interval;
+        }
+        lastSnapshotNanos = now;
+    }
+
+    @Override
+    public void setLocalPlayerId(int id) {
+        if (!registered && !closed.get()) {
+            registered = true;
+            stats.connected.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void connectionFailed(String reason) {
+        stats.failed.incrementAndGet();
+        markClosed();
+    }
+
+    @Override
+    public void disconnected() {
+        markClosed();
+    }
+
+    @Override
+    public void setGameState(GameState state, long timeData) {}
+
+    @Override
+    public void addAnnouncement(String message) {}
+
+    @Override
+    public void addOrUpdateTank(int id, float x, float y, float rotation, String name, float r, float g, float b) {}
+
+    @Override
+    public void updateTankState(int id, float x, float y, float rotation, boolean isRespawn) {}
+
+    @Override
+    public void removeTank(int id) {}
+
+    @Override
+    public void updatePlayerLives(int playerId, int lives) {}
+
+    @Override
+    public void spawnBullet(UUID bulletId, int ownerId, float x, float y, float dirX, float dirY) {}
+
+    @Override
+    public void handlePlayerHit(int targetId, int shooterId, UUID bulletId, int damage) {}
+
+    @Override
+    public void handlePlayerDestroyed(int targetId, int shooterId) {}
+
+    @Override
+    public void storeMapInfo(int widthTiles, int heightTiles, float tileSize) {}
+
+    @Override
+    public void receiveTerrainData(int width, int height, String encodedData) {}
+
+    @Override
+    public void receiveTerrain(GameMapData mapData) {}
+
+    @Override
+    public void updateShootCooldown(long cooldownRemainingMs) {}
+}
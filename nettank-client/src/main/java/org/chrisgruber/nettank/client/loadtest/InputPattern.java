@@ -0,0 +1,40 @@
+package org.chrisgruber.nettank.client.loadtest;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * How a bot drives its tank. Each pattern turns the bot's input step (one every input interval) into the
+ * forward, backward, left and right keys that go out in its next {@code INP}.
+ */
+public enum InputPattern {
+    IDLE,       // Never moves; only shoots and pings
+    CIRCLE,     // Forward and left, every step
+    WANDER;     // A random key combination, changed about once a second
+
+    private static final int WANDER_HOLD_STEPS = 20;
+
+    // Keys as {forward, backward, left, right}; the random source belongs to the bot
+    boolean[] keys(int step, Random random, boolean[] previous) {
+        return switch (this) {
+            case IDLE -> new boolean[4];
+            case CIRCLE -> new boolean[] {true, false, true, false};
+            case WANDER -> {
+                if (step % WANDER_HOLD_STEPS != 0) {
+                    yield previous;
+                }
+                boolean forward = random.nextInt(4) != 0;   // Mostly moving, so tanks spread over the map
+                int turn = random.nextInt(3);
+                yield new boolean[] {forward, !forward && random.nextBoolean(), turn == 1, turn == 2};
+            }
+        };
+    }
+
+    public static InputPattern parse(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown input pattern: " + name + " (idle, circle or wander)");
+        }
+    }
+}
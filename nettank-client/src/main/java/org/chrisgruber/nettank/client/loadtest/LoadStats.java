@@ -0,0 +1,79 @@
+package org.chrisgruber.nettank.client.loadtest;
+
+import org.chrisgruber.nettank.common.metrics.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measurements shared by every bot of a load test. Histograms hold nanoseconds since the start of the run;
+ * counters are read as totals and, by the reporter, as rates over each report interval.
+ */
+final class LoadStats {
+    final LatencyHistogram roundTrip = new LatencyHistogram();           // Plain PING to PONG
+    final LatencyHistogram snapshotInterval = new LatencyHistogram();    // Time between two snapshots of one bot
+    final LatencyHistogram snapshotJitter = new LatencyHistogram();      // Change between consecutive intervals
+
+    final LongAdder messagesReceived = new LongAdder();
+    final LongAdder snapshotsReceived = new LongAdder();
+    final LongAdder inputsSent = new LongAdder();
+    final LongAdder shotsSent = new LongAdder();
+    final AtomicInteger connected = new AtomicInteger();
+    final AtomicInteger failed = new AtomicInteger();
+
+    // Counter totals at the previous report, for the rates
+    private long lastReportNanos = System.nanoTime();
+    private long lastMessages;
+    private long lastSnapshots;
+    private long lastInputs;
+
+    // Called by the reporter thread only
+    String report() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1, now - lastReportNanos) / 1e9;
+        long messages = messagesReceived.sum();
+        long snapshots = snapshotsReceived.sum();
+        long inputs = inputsSent.sum();
+
+        String line = String.format(
+                "%d bots connected, %d failed | in: %.0f msg/s, %.0f snapshots/s | out: %.0f inputs/s | "
+                        + "RTT p50 %.2f / p99 %.2f / max %.2f ms | snapshot interval p50 %.1f / p99 %.1f ms, jitter p99 %.1f ms",
+                connected.get(), failed.get(),
+                (messages - lastMessages) / seconds, (snapshots - lastSnapshots) / seconds, (inputs - lastInputs) / seconds,
+                millis(roundTrip.valueAtQuantile(0.5)), millis(roundTrip.valueAtQuantile(0.99)), millis(roundTrip.max()),
+                millis(snapshotInterval.valueAtQuantile(0.5)), millis(snapshotInterval.valueAtQuantile(0.99)),
+                millis(snapshotJitter.valueAtQuantile(0.99)));
+
+        lastReportNanos = now;
+        lastMessages = messages;
+        lastSnapshots = snapshots;
+        lastInputs = inputs;
+        return line;
+    }
+
+    String summary(long elapsedNanos) {
+        double seconds = Math.max(1, elapsedNanos) / 1e9;
+        return String.format(
+                "%d messages (%.0f/s), %d snapshots (%.0f/s), %d inputs and %d shots sent in %.0f s%n"
+                        + "  round trip:        %s%n"
+                        + "  snapshot interval: %s%n"
+                        + "  snapshot jitter:   %s",
+                messagesReceived.sum(), messagesReceived.sum() / seconds,
+                snapshotsReceived.sum(), snapshotsReceived.sum() / seconds,
+                inputsSent.sum(), shotsSent.sum(), seconds,
+                quantiles(roundTrip), quantiles(snapshotInterval), quantiles(snapshotJitter));
+    }
+
+    private static String quantiles(LatencyHistogram histogram) {
+        return String.format("n=%d p50 %.2f / p90 %.2f / p99 %.2f / p99.9 %.2f / max %.2f ms",
+                histogram.count(),
+                millis(histogram.valueAtQuantile(0.5)), millis(histogram.valueAtQuantile(0.9)),
+                millis(histogram.valueAtQuantile(0.99)), millis(histogram.valueAtQuantile(0.999)),
+                millis(histogram.max()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,104 @@
+package org.chrisgruber.nettank.client.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless load generator: connects N bots to a server on this machine and reports what they measure.
+ * Each bot is a {@link Bot} on two virtual threads, so hundreds of bots need no GPU and few platform threads;
+ * no LWJGL class is ever loaded.
+ * <p>
+ * Usage: {@code LoadTest [bots] [port] [seconds]}, with {@code nettank.loadtest.pattern} (idle, circle or
+ * wander), {@code nettank.loadtest.shoot.ms} (0 never shoots) and {@code nettank.loadtest.ramp.ms} (delay
+ * between two connects). The host is {@code nettank.loadtest.host} and must be a loopback address.
+ */
+public final class LoadTest {
+    private static final Logger logger = LoggerFactory.getLogger(LoadTest.class);
+
+    private static final long REPORT_INTERVAL_SECONDS = 5;
+
+    private LoadTest() {}
+
+    public static void main(String[] args) throws InterruptedException {
+        int bots = args.length >= 1 ? Integer.parseInt(args[0]) : 100;
+        int port = args.length >= 2 ? Integer.parseInt(args[1]) : 5555;
+        int seconds = args.length >= 3 ? Integer.parseInt(args[2]) : 60;
+        String host = System.getProperty("nettank.loadtest.host", "localhost");
+        InputPattern pattern = InputPattern.parse(System.getProperty("nettank.loadtest.pattern", "wander"));
+        long shootMs = Long.getLong("nettank.loadtest.shoot.ms", 500);
+        long rampMs = Long.getLong("nettank.loadtest.ramp.ms", 10);
+
+        if (bots <= 0 || seconds <= 0) {
+            throw new IllegalArgumentException("Invalid load test: " + bots + " bots for " + seconds + " s");
+        }
+        requireLoopback(host);
+
+        // Bots ping every second and time the PONG; the client's own heartbeat PING would be answered with a PONG too
+        if (System.getProperty("nettank.heartbeat.interval.ms") == null) {
+            System.setProperty("nettank.heartbeat.interval.ms", String.valueOf(TimeUnit.HOURS.toMillis(1)));
+        }
+
+        logger.info("Load test: {} bots against {}:{} for {} s, pattern {}, shooting every {} ms",
+                bots, host, port, seconds, pattern, shootMs > 0 ? shootMs : "never");
+
+        LoadStats stats = new LoadStats();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+
+        Thread reporter = Thread.ofPlatform().name("LoadTestReporter").daemon(true).start(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(REPORT_INTERVAL_SECONDS));
+                    logger.info(stats.report());
+                }
+            } catch (InterruptedException e) {
+                // Finished
+            }
+        });
+
+        List<Thread> drivers = new ArrayList<>(bots);
+        for (int i = 0; i < bots && System.nanoTime() < deadline; i++) {
+            Bot bot = new Bot(i, host, port, stats, pattern, shootMs);
+            Thread.ofVirtual().name("Bot-" + i + "-Reader").start(bot.client());
+            drivers.add(Thread.ofVirtual().name("Bot-" + i).start(() -> {
+                try {
+                    bot.drive(deadline);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            if (rampMs > 0) {
+                Thread.sleep(rampMs);
+            }
+        }
+
+        for (Thread driver : drivers) {
+            driver.join();
+        }
+        reporter.interrupt();
+
+        logger.info("Load test finished: {} of {} bots started, {} hit connection errors",
+                drivers.size(), bots, stats.failed.get());
+        logger.info(stats.summary(System.nanoTime() - start));
+        System.exit(0);     // GameClient reports disconnects on the Swing thread, which would keep the JVM alive
+    }
+
+    // The bots open hundreds of connections and send continuously; they are only ever pointed at this machine
+    private static void requireLoopback(String host) {
+        try {
+            for (InetAddress address : InetAddress.getAllByName(host)) {
+                if (!address.isLoopbackAddress()) {
+                    throw new IllegalArgumentException("Load tests only run against a server on this machine, not " + host);
+                }
+            }
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Unknown host: " + host, e);
+        }
+    }
+}
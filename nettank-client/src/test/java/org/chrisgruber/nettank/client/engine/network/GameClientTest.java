@@ -439,4 +439,53 @@ class GameClientTest {
         
         verify(mockHandler).connectionFailed("Server is full");
     }
+
+    @Test
+    void testParseMessage_Snapshot() throws Exception {
+        UUID bulletId = UUID.randomUUID();
+        String message = "SNP;120;2;1;0:10:20:16384;1:30:40:32768;" + bulletId + ":0:15:25";
+
+        var method = GameClient.class.getDeclaredMethod("parseServerMessage", String.class);
+        method.setAccessible(true);
+        // One quantization step per world unit
+        method.invoke(gameClient, "MAP;65535;65535;1.0");
+        method.invoke(gameClient, message);
+
+        var captor = org.mockito.ArgumentCaptor.forClass(NetworkMessage.Snapshot.class);
+        verify(mockHandler).applySnapshot(captor.capture());
+        assertEquals(120L, captor.getValue().tick());
+        assertEquals(new NetworkMessage.Snapshot.TankState(0, 10.0f, 20.0f, 90.0f), captor.getValue().tanks().getFirst());
+        assertEquals(2, captor.getValue().tanks().size());
+        assertEquals(bulletId, captor.getValue().bullets().getFirst().id());
+        verify(mockHandler, never()).updateTankState(anyInt(), anyFloat(), anyFloat(), anyFloat(), anyBoolean());
+    }
+
+    @Test
+    void testParseMessage_DeltaSnapshotResolvedAgainstBaseline() throws Exception {
+        var method = GameClient.class.getDeclaredMethod("parseServerMessage", String.class);
+        method.setAccessible(true);
+        method.invoke(gameClient, "MAP;65535;65535;1.0");
+        method.invoke(gameClient, "SNP;10;2;0;0:1:2:16384;1:4:5:0");
+        // Tank 0 moved on x only, tank 1 left, tank 2 is new
+        method.invoke(gameClient, "SND;12;10;2;1;0;0:3::;2:7:8:32768;1");
+
+        var captor = org.mockito.ArgumentCaptor.forClass(NetworkMessage.Snapshot.class);
+        verify(mockHandler, times(2)).applySnapshot(captor.capture());
+        var resolved = captor.getAllValues().get(1);
+        assertEquals(12L, resolved.tick());
+        assertEquals(java.util.List.of(
+                new NetworkMessage.Snapshot.TankState(0, 3.0f, 2.0f, 90.0f),
+                new NetworkMessage.Snapshot.TankState(2, 7.0f, 8.0f, 180.0f)),
+            resolved.tanks());
+    }
+
+    @Test
+    void testParseMessage_DeltaSnapshotWithUnknownBaselineIsDropped() throws Exception {
+        var method = GameClient.class.getDeclaredMethod("parseServerMessage", String.class);
+        method.setAccessible(true);
+        method.invoke(gameClient, "MAP;65535;65535;1.0");
+        method.invoke(gameClient, "SND;12;10;1;0;0;0:3::");
+
+        verify(mockHandler, never()).applySnapshot(any());
+    }
 }
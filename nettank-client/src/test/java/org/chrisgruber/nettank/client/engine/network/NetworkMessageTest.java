@@ -1,10 +1,15 @@
 package org.chrisgruber.nettank.client.engine.network;
 
+import org.chrisgruber.nettank.common.network.BinaryProtocol;
+import org.chrisgruber.nettank.common.network.FrameBuilder;
+import org.chrisgruber.nettank.common.network.StateQuantizer;
+import org.chrisgruber.nettank.common.util.GameState;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.nio.ByteBuffer;
 import java.util.UUID;
 import java.util.stream.Stream;
 
@@ -410,4 +415,188 @@ class NetworkMessageTest {
         
         assertEquals("Player! @#$%^&*() won the round!", msg.message());
     }
+
+    // ========== Binary Decode Tests ==========
+
+    // Skips the length prefix, as the reader does before handing the frame to decode()
+    private static ByteBuffer payloadOf(FrameBuilder builder) {
+        ByteBuffer frame = builder.build();
+        frame.position(BinaryProtocol.LENGTH_PREFIX_BYTES);
+        return frame;
+    }
+
+    @Test
+    void testDecodePlayerUpdate() {
+        var frame = payloadOf(new FrameBuilder(BinaryProtocol.PLAYER_UPDATE, 16)
+                .putInt(42).putFloat(100.5f).putFloat(200.25f).putFloat(90.0f));
+
+        var msg = assertInstanceOf(NetworkMessage.PlayerUpdate.class, NetworkMessage.decode(frame));
+        assertEquals(42, msg.id());
+        assertEquals(100.5f, msg.x());
+        assertEquals(200.25f, msg.y());
+        assertEquals(90.0f, msg.rotation());
+    }
+
+    @Test
+    void testDecodeNewPlayerWithName() {
+        var frame = payloadOf(new FrameBuilder(BinaryProtocol.NEW_PLAYER, 40)
+                .putInt(7).putFloat(1.0f).putFloat(2.0f).putFloat(3.0f)
+                .putString("Tänk")
+                .putFloat(0.1f).putFloat(0.2f).putFloat(0.3f));
+
+        var msg = assertInstanceOf(NetworkMessage.NewPlayer.class, NetworkMessage.decode(frame));
+        assertEquals(7, msg.id());
+        assertEquals("Tänk", msg.name());
+        assertEquals(0.3f, msg.colorB());
+    }
+
+    @Test
+    void testDecodeHitWithUuid() {
+        UUID bulletId = UUID.randomUUID();
+        var frame = payloadOf(new FrameBuilder(BinaryProtocol.HIT, 28)
+                .putInt(1).putInt(2).putUuid(bulletId).putInt(3));
+
+        var msg = assertInstanceOf(NetworkMessage.Hit.class, NetworkMessage.decode(frame));
+        assertEquals(bulletId, msg.bulletId());
+        assertEquals(3, msg.damage());
+    }
+
+    @Test
+    void testDecodeGameState() {
+        var frame = payloadOf(new FrameBuilder(BinaryProtocol.GAME_STATE, 9)
+                .putByte(GameState.COUNTDOWN.ordinal()).putLong(12345L));
+
+        var msg = assertInstanceOf(NetworkMessage.GameStateMessage.class, NetworkMessage.decode(frame));
+        assertEquals("COUNTDOWN", msg.stateName());
+        assertEquals(12345L, msg.timeData());
+    }
+
+    @Test
+    void testDecodeTextFrame() {
+        var frame = payloadOf(new FrameBuilder(BinaryProtocol.TEXT, 16).putText("ANN;Hello"));
+
+        var msg = assertInstanceOf(NetworkMessage.TextLine.class, NetworkMessage.decode(frame));
+        assertEquals("ANN;Hello", msg.line());
+    }
+
+    @Test
+    void testDecodeUdpOfferReadsUnsignedPort() {
+        var frame = payloadOf(new FrameBuilder(BinaryProtocol.UDP_OFFER, 10).putLong(-42L).putShort(50000));
+
+        var msg = assertInstanceOf(NetworkMessage.UdpOffer.class, NetworkMessage.decode(frame));
+        assertEquals(-42L, msg.token());
+        assertEquals(50000, msg.udpPort());
+    }
+
+    @Test
+    void testDecodeTerrainInit() {
+        var frame = payloadOf(new FrameBuilder(BinaryProtocol.TERRAIN_INIT, 23)
+                .putLong(-7L).putString("GRASSLAND").putInt(0xCAFEBABE));
+
+        var msg = assertInstanceOf(NetworkMessage.TerrainInit.class, NetworkMessage.decode(frame));
+        assertEquals(-7L, msg.seed());
+        assertEquals("GRASSLAND", msg.profileName());
+        assertEquals(0xCAFEBABE, msg.checksum());
+    }
+
+    @Test
+    void testDecodeTerrainBeginAndChunk() {
+        var begin = payloadOf(new FrameBuilder(BinaryProtocol.TERRAIN_BEGIN, 13)
+                .putInt(200).putInt(150).putByte(1).putInt(70000));
+        var chunk = payloadOf(new FrameBuilder(BinaryProtocol.TERRAIN_CHUNK, 8)
+                .putBytes(new byte[] {9, 1, 2, 3, 4, 9}, 1, 4));
+
+        var beginMsg = assertInstanceOf(NetworkMessage.TerrainBegin.class, NetworkMessage.decode(begin));
+        assertEquals(200, beginMsg.width());
+        assertEquals(150, beginMsg.height());
+        assertEquals(1, beginMsg.flags());
+        assertEquals(70000, beginMsg.encodedLength());
+        var chunkMsg = assertInstanceOf(NetworkMessage.TerrainChunk.class, NetworkMessage.decode(chunk));
+        assertArrayEquals(new byte[] {1, 2, 3, 4}, chunkMsg.data());
+    }
+
+    @Test
+    void testDecodeTruncatedFrame() {
+        var frame = payloadOf(new FrameBuilder(BinaryProtocol.PLAYER_UPDATE, 4).putInt(42));
+
+        assertThrows(IllegalArgumentException.class, () -> NetworkMessage.decode(frame));
+    }
+
+    @Test
+    void testDecodeUnknownOpcode() {
+        var frame = payloadOf(new FrameBuilder((byte) 0x6E, 0));
+
+        assertThrows(IllegalArgumentException.class, () -> NetworkMessage.decode(frame));
+    }
+
+    // One quantization step per world unit, so quantized test values read as plain coordinates
+    private static final StateQuantizer UNIT_QUANTIZER = new StateQuantizer(StateQuantizer.POSITION_STEPS, StateQuantizer.POSITION_STEPS);
+
+    @Test
+    void testDecodeSnapshot() {
+        UUID bulletId = UUID.randomUUID();
+        var frame = payloadOf(new FrameBuilder(BinaryProtocol.SNAPSHOT, 64)
+                .putLong(77L)
+                .putShort(2)
+                .putInt(0).putShort(1).putShort(2).putShort(0)
+                .putInt(1).putShort(4).putShort(5).putShort(0x4000)
+                .putShort(1)
+                .putUuid(bulletId).putInt(1).putShort(7).putShort(8));
+
+        var msg = assertInstanceOf(NetworkMessage.Snapshot.class, NetworkMessage.decode(frame, UNIT_QUANTIZER));
+        assertEquals(77L, msg.tick());
+        assertEquals(new NetworkMessage.Snapshot.TankState(1, 4.0f, 5.0f, 90.0f), msg.tanks().get(1));
+        assertEquals(new NetworkMessage.Snapshot.BulletState(bulletId, 1, 7.0f, 8.0f), msg.bullets().getFirst());
+    }
+
+    @Test
+    void testSnapshotParse_Empty() {
+        String[] parts = {"SNP", "5", "0", "0"};
+        var msg = NetworkMessage.Snapshot.parse(parts, UNIT_QUANTIZER);
+
+        assertEquals(5L, msg.tick());
+        assertTrue(msg.tanks().isEmpty());
+        assertTrue(msg.bullets().isEmpty());
+    }
+
+    @Test
+    void testSnapshotParse_CountMismatch() {
+        String[] parts = {"SNP", "5", "2", "0", "0:1:2:3"};
+        assertThrows(IllegalArgumentException.class,
+            () -> NetworkMessage.Snapshot.parse(parts, UNIT_QUANTIZER));
+    }
+
+    @Test
+    void testSnapshotRejectedWithoutQuantizer() {
+        String[] parts = {"SNP", "5", "0", "0"};
+        assertThrows(IllegalArgumentException.class, () -> NetworkMessage.Snapshot.parse(parts, null));
+
+        var frame = payloadOf(new FrameBuilder(BinaryProtocol.SNAPSHOT, 12).putLong(5L).putShort(0).putShort(0));
+        assertThrows(IllegalArgumentException.class, () -> NetworkMessage.decode(frame));
+    }
+
+    @Test
+    void testDecodeDeltaSnapshotReadsOnlyMaskedFields() {
+        var frame = payloadOf(new FrameBuilder(BinaryProtocol.DELTA_SNAPSHOT, 32)
+                .putLong(12L).putLong(10L)
+                .putShort(1)
+                .putInt(3).putByte(BinaryProtocol.DELTA_Y | BinaryProtocol.DELTA_ROTATION).putShort(40).putShort(0x8000)
+                .putShort(1).putInt(2)
+                .putShort(0));
+
+        var msg = assertInstanceOf(NetworkMessage.DeltaSnapshot.class, NetworkMessage.decode(frame, UNIT_QUANTIZER));
+        assertEquals(10L, msg.baselineTick());
+        assertEquals(new NetworkMessage.DeltaSnapshot.TankDelta(
+                3, BinaryProtocol.DELTA_Y | BinaryProtocol.DELTA_ROTATION, 0.0f, 40.0f, 180.0f), msg.changedTanks().getFirst());
+        assertEquals(java.util.List.of(2), msg.removedTankIds());
+        assertTrue(msg.bullets().isEmpty());
+    }
+
+    @Test
+    void testMapInfoParse_WithTileSize() {
+        String[] parts = {"MAP", "100", "80", "32.0"};
+        var msg = NetworkMessage.MapInfo.parse(parts);
+
+        assertEquals(32.0f, msg.tileSize(), 0.001f);
+    }
 }
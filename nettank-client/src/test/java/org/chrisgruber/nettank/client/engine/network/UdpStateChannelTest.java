@@ -0,0 +1,46 @@
+package org.chrisgruber.nettank.client.engine.network;
+
+import org.chrisgruber.nettank.common.network.BinaryProtocol;
+import org.chrisgruber.nettank.common.network.Datagrams;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Timeout(value = 10, unit = TimeUnit.SECONDS)
+class UdpStateChannelTest {
+
+    @Test
+    void testGivesUpWhenNoWelcomeArrives() throws Exception {
+        // A server that takes the hellos but whose welcomes never arrive
+        try (DatagramSocket server = new DatagramSocket(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            CountDownLatch gaveUp = new CountDownLatch(1);
+            UdpStateChannel channel = new UdpStateChannel(InetAddress.getLoopbackAddress().getHostAddress(), server.getLocalPort(),
+                    42L, frame -> fail("No frames were sent"), gaveUp::countDown);
+            channel.start();
+            try {
+                DatagramPacket packet = new DatagramPacket(new byte[Datagrams.MAX_DATAGRAM_BYTES], Datagrams.MAX_DATAGRAM_BYTES);
+                server.receive(packet);
+                ByteBuffer hello = ByteBuffer.wrap(packet.getData(), 0, packet.getLength());
+                assertEquals(42L, hello.getLong());
+                hello.getInt(); // Sequence
+                assertTrue(Datagrams.seekFrameBody(hello));
+                assertEquals(BinaryProtocol.UDP_HELLO, hello.get());
+
+                assertTrue(gaveUp.await(5, TimeUnit.SECONDS), "The channel never gave up");
+                assertFalse(channel.isBound());
+                assertFalse(channel.send(ByteBuffer.allocate(0)));
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.chrisgruber.nettank.client.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InputPatternTest {
+
+    @Test
+    void testParseIgnoresCase() {
+        assertEquals(InputPattern.WANDER, InputPattern.parse("wander"));
+        assertEquals(InputPattern.CIRCLE, InputPattern.parse(" Circle "));
+        assertThrows(IllegalArgumentException.class, () -> InputPattern.parse("zigzag"));
+    }
+
+    @Test
+    void testIdleNeverPressesAKey() {
+        boolean[] keys = InputPattern.IDLE.keys(0, new Random(1), new boolean[4]);
+        assertArrayEquals(new boolean[4], keys);
+    }
+
+    @Test
+    void testCircleDrivesForwardAndLeft() {
+        boolean[] keys = InputPattern.CIRCLE.keys(7, new Random(1), new boolean[4]);
+        assertArrayEquals(new boolean[] {true, false, true, false}, keys);
+    }
+
+    @Test
+    void testWanderHoldsItsKeysBetweenChanges() {
+        Random random = new Random(3);
+        boolean[] first = InputPattern.WANDER.keys(0, random, new boolean[4]);
+        for (int step = 1; step < 20; step++) {
+            assertSame(first, InputPattern.WANDER.keys(step, random, first));
+        }
+        assertFalse(first[0] && first[1], "Never forward and backward at once");
+        assertFalse(first[2] && first[3], "Never left and right at once");
+    }
+}
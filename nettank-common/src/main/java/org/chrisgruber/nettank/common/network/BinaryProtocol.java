@@ -0,0 +1,89 @@
+package org.chrisgruber.nettank.common.network;
+
+/**
+ * Opcodes and field layouts for the binary wire protocol.
+ * <p>
+ * The binary protocol is negotiated during the text {@code CON} handshake: a client that supports it sends
+ * {@code CON;<playerName>;BIN}, and a server that accepts answers with a final text line {@code PRO;BIN}.
+ * From then on both directions use length-prefixed frames: {@code [int32 length][u8 opcode][payload]},
+ * where {@code length} counts the opcode and payload bytes. Clients that do not ask for it, or servers that
+ * refuse it, keep using the semicolon-delimited text protocol in {@link NetworkProtocol}.
+ * <p>
+ * All multi-byte fields are big-endian. {@code str} is a u16 byte length followed by UTF-8 bytes,
+ * {@code text} is the same with an int32 length, and {@code uuid} is two int64 values (most, least significant).
+ * <p>
+ * Binary clients may also ask for a UDP channel ({@code CON;<playerName>;BIN;UDP}), see {@link Datagrams}, and for
+ * binary terrain ({@code TRZ}): the map then arrives as one TERRAIN_BEGIN and TERRAIN_CHUNK frames in
+ * {@link org.chrisgruber.nettank.common.world.TerrainCodec} encoding instead of one TERRAIN_DATA CSV frame.
+ * With {@code GEN} the server sends only TERRAIN_INIT, the seed and profile the map was generated from; the client
+ * rebuilds the map and answers with TERRAIN_CHECK, and the full terrain follows only if the checksums differ.
+ */
+public class BinaryProtocol {
+
+    // Handshake
+    public static final String CAPABILITY = "BIN";          // Third field of CON, and the mode echoed in PRO
+    public static final String UDP_CAPABILITY = "UDP";      // Field after BIN in CON; asks for a UDP_OFFER after registration
+    public static final String TERRAIN_CAPABILITY = "TRZ";  // Field after BIN in CON; asks for TERRAIN_BEGIN/CHUNK instead of TERRAIN_DATA
+    public static final String SEED_TERRAIN_CAPABILITY = "GEN"; // Field after BIN in CON; asks for TERRAIN_INIT, with full terrain only on mismatch
+
+    // Framing
+    public static final int LENGTH_PREFIX_BYTES = 4;
+    public static final int MAX_SERVER_FRAME_LENGTH = 16 * 1024 * 1024;   // Large enough for terrain on big maps
+    public static final int MAX_CLIENT_FRAME_LENGTH = 256;                // Client messages are tiny
+    public static final int TERRAIN_CHUNK_BYTES = 64 * 1024;              // Encoded terrain per TERRAIN_CHUNK
+    public static final int MAX_TERRAIN_BYTES = 64 * 1024 * 1024;         // Largest encodedLength a client accepts
+
+    // Client to Server Opcodes
+    public static final byte INPUT = 0x40;               // u8 inputMask (see INPUT_* bits) [, int64 ackTick]
+    public static final byte SHOOT_CMD = 0x41;           // (no payload)
+    public static final byte PING = 0x42;                // [int64 ackTick] (only a PING without ack is answered with PONG)
+    public static final byte UDP_HELLO = 0x43;           // (no payload) datagram only; repeated until UDP_WELCOME arrives
+    public static final byte TERRAIN_CHECK = 0x44;       // int64 seed, u8 matched (1 if the map rebuilt from TERRAIN_INIT has its checksum)
+    public static final byte UDP_CLOSE = 0x45;           // (no payload) TCP only; the client gave up on UDP, so state must come over TCP
+
+    // Input mask bits for INPUT
+    public static final int INPUT_FORWARD = 1;
+    public static final int INPUT_BACKWARD = 1 << 1;
+    public static final int INPUT_LEFT = 1 << 2;
+    public static final int INPUT_RIGHT = 1 << 3;
+
+    // Server to Client Opcodes
+    public static final byte ASSIGN_ID = 0x01;           // int32 id, f32 r, f32 g, f32 b
+    public static final byte NEW_PLAYER = 0x02;          // int32 id, f32 x, f32 y, f32 rot, str name, f32 r, f32 g, f32 b
+    public static final byte PLAYER_UPDATE = 0x03;       // int32 id, f32 x, f32 y, f32 rot
+    public static final byte PLAYER_LEFT = 0x04;         // int32 id
+    public static final byte SHOOT = 0x05;               // uuid bulletId, int32 ownerId, f32 x, f32 y, f32 dirX, f32 dirY
+    public static final byte HIT = 0x06;                 // int32 targetId, int32 shooterId, uuid bulletId, int32 damage
+    public static final byte DESTROYED = 0x07;           // int32 targetId, int32 shooterId
+    public static final byte RESPAWN = 0x08;             // int32 id, f32 x, f32 y, f32 rot
+    public static final byte PLAYER_LIVES = 0x09;        // int32 id, int32 lives
+    public static final byte GAME_STATE = 0x0A;          // u8 GameState ordinal, int64 timeData
+    public static final byte ANNOUNCE = 0x0B;            // str message
+    public static final byte ROUND_OVER = 0x0C;          // int32 winnerId, str winnerName, int64 finalTimeMillis
+    public static final byte PONG = 0x0D;                // (no payload)
+    public static final byte ERROR_MSG = 0x0E;           // str errorMessage
+    public static final byte SPECTATE_START = 0x0F;      // int64 respawnTimeMillis
+    public static final byte SPECTATE_END = 0x10;        // (no payload)
+    public static final byte SPECTATE_PERMANENT = 0x11;  // (no payload)
+    public static final byte MAP_INFO = 0x12;            // int32 widthTiles, int32 heightTiles, f32 tileSize
+    public static final byte TERRAIN_INIT = 0x13;        // int64 seed, str profileName (BaseTerrainProfile name), int32 checksum (TerrainCodec)
+    public static final byte TERRAIN_DATA = 0x14;        // int32 width, int32 height, text encodedData
+    public static final byte SHOOT_COOLDOWN = 0x15;      // int64 cooldownRemainingMs
+    public static final byte SNAPSHOT = 0x16;            // int64 tick, u16 tankCount, [int32 id, u16 x, u16 y, u16 rot]*,
+                                                         // u16 bulletCount, [uuid bulletId, int32 ownerId, u16 x, u16 y]*
+                                                         // (x, y and rot quantized with StateQuantizer)
+    public static final byte DELTA_SNAPSHOT = 0x17;      // int64 tick, int64 baselineTick, u16 changedCount,
+                                                         // [int32 id, u8 fieldMask, (u16 x)?, (u16 y)?, (u16 rot)?]*,
+                                                         // u16 removedCount, [int32 id]*, u16 bulletCount, [bullet as in SNAPSHOT]*
+    public static final byte UDP_OFFER = 0x18;          // int64 token, u16 udpPort (sent over TCP)
+    public static final byte UDP_WELCOME = 0x19;         // (no payload) datagram only; the server bound the client's address
+    public static final byte TERRAIN_BEGIN = 0x1A;       // int32 width, int32 height, u8 flags (TerrainCodec.FLAG_*), int32 encodedLength
+    public static final byte TERRAIN_CHUNK = 0x1B;       // bytes data: the next part of the encoded terrain, until encodedLength is reached
+    public static final byte TEXT = 0x7F;                // text line - any text protocol message without a binary form
+
+    // Field mask bits for changed tanks in DELTA_SNAPSHOT (a tank missing from the baseline has all bits set)
+    public static final int DELTA_X = 1;
+    public static final int DELTA_Y = 1 << 1;
+    public static final int DELTA_ROTATION = 1 << 2;
+    public static final int DELTA_ALL = DELTA_X | DELTA_Y | DELTA_ROTATION;
+}
@@ -0,0 +1,51 @@
+package org.chrisgruber.nettank.common.network;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Layout of the optional UDP channel that carries snapshots (server to client) and INPUT (client to server)
+ * next to the TCP connection. Every datagram is {@code [int64 token][int32 sequence][frame]}, where the frame
+ * is a complete length-prefixed binary frame. The token comes from the server's UDP_OFFER and ties the
+ * datagram to one connection; the sequence increases per sender so late or duplicate datagrams can be dropped.
+ * Everything else, including every reliable game event, stays on TCP.
+ */
+public class Datagrams {
+
+    public static final int HEADER_BYTES = 12;
+    public static final int MAX_DATAGRAM_BYTES = 1200;  // Below common path MTUs; larger frames go over TCP instead
+    public static final int MAX_FRAME_BYTES = MAX_DATAGRAM_BYTES - HEADER_BYTES;
+
+    private Datagrams() {}
+
+    /**
+     * Writes one datagram into target (cleared first) and flips it for sending.
+     * Returns false, leaving target empty, when the frame does not fit in a datagram.
+     */
+    public static boolean write(ByteBuffer target, long token, int sequence, ByteBuffer frame) {
+        target.clear();
+        if (frame.remaining() > MAX_FRAME_BYTES || target.capacity() < HEADER_BYTES + frame.remaining()) {
+            target.flip();
+            return false;
+        }
+        target.putLong(token).putInt(sequence).put(frame.duplicate());
+        target.flip();
+        return true;
+    }
+
+    /**
+     * Checks the length prefix of the frame that follows the header and positions the buffer at its opcode.
+     * Returns false for a truncated or padded datagram.
+     */
+    public static boolean seekFrameBody(ByteBuffer datagram) {
+        if (datagram.remaining() < BinaryProtocol.LENGTH_PREFIX_BYTES + 1) {
+            return false;
+        }
+        int length = datagram.getInt();
+        return length == datagram.remaining();
+    }
+
+    // Sequence comparison that survives int wrap-around
+    public static boolean isNewer(int sequence, int lastSequence) {
+        return sequence - lastSequence > 0;
+    }
+}
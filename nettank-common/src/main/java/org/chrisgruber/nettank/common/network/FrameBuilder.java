@@ -0,0 +1,104 @@
+package org.chrisgruber.nettank.common.network;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Builds a single length-prefixed binary frame (see {@link BinaryProtocol}).
+ * The buffer grows as needed, so the size hint only has to be a reasonable guess.
+ */
+public class FrameBuilder {
+    private ByteBuffer buffer;
+
+    public FrameBuilder(byte opcode, int payloadSizeHint) {
+        this.buffer = ByteBuffer.allocate(BinaryProtocol.LENGTH_PREFIX_BYTES + 1 + Math.max(0, payloadSizeHint));
+        this.buffer.putInt(0); // Length placeholder, patched in build()
+        this.buffer.put(opcode);
+    }
+
+    public FrameBuilder putByte(int value) {
+        ensureCapacity(1);
+        buffer.put((byte) value);
+        return this;
+    }
+
+    public FrameBuilder putShort(int value) {
+        ensureCapacity(2);
+        buffer.putShort((short) value);
+        return this;
+    }
+
+    public FrameBuilder putInt(int value) {
+        ensureCapacity(4);
+        buffer.putInt(value);
+        return this;
+    }
+
+    public FrameBuilder putLong(long value) {
+        ensureCapacity(8);
+        buffer.putLong(value);
+        return this;
+    }
+
+    public FrameBuilder putFloat(float value) {
+        ensureCapacity(4);
+        buffer.putFloat(value);
+        return this;
+    }
+
+    public FrameBuilder putUuid(UUID value) {
+        ensureCapacity(16);
+        buffer.putLong(value.getMostSignificantBits());
+        buffer.putLong(value.getLeastSignificantBits());
+        return this;
+    }
+
+    // u16 length-prefixed UTF-8 string
+    public FrameBuilder putString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("String too long for a short string field: " + bytes.length + " bytes");
+        }
+        ensureCapacity(2 + bytes.length);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+        return this;
+    }
+
+    // int32 length-prefixed UTF-8 string, for payloads that may exceed 64 KiB
+    public FrameBuilder putText(String value) {
+        return putBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // int32 length-prefixed raw bytes
+    public FrameBuilder putBytes(byte[] bytes) {
+        return putBytes(bytes, 0, bytes.length);
+    }
+
+    // int32 length-prefixed raw bytes, from part of an array
+    public FrameBuilder putBytes(byte[] bytes, int offset, int length) {
+        ensureCapacity(4 + length);
+        buffer.putInt(length);
+        buffer.put(bytes, offset, length);
+        return this;
+    }
+
+    // Returns the frame positioned at the length prefix and limited to its end. Treat it as immutable.
+    public ByteBuffer build() {
+        buffer.putInt(0, buffer.position() - BinaryProtocol.LENGTH_PREFIX_BYTES);
+        buffer.flip();
+        return buffer;
+    }
+
+    private void ensureCapacity(int additionalBytes) {
+        if (buffer.remaining() >= additionalBytes) {
+            return;
+        }
+        int newCapacity = Math.max(buffer.capacity() * 2, buffer.position() + additionalBytes);
+        ByteBuffer grown = ByteBuffer.allocate(newCapacity);
+        buffer.flip();
+        grown.put(buffer);
+        buffer = grown;
+    }
+}
@@ -4,15 +4,18 @@ package org.chrisgruber.nettank.common.network;
 public class NetworkProtocol {
 
     // Client to Server Messages
-    public static final String CONNECT = "CON";      // CON;<playerName>
-    public static final String INPUT = "INP";        // INP;<W_down>;<S_down>;<A_down>;<D_down>
+    public static final String CONNECT = "CON";      // CON;<playerName>[;BIN[;TRZ][;GEN][;UDP]] (BIN requests the binary protocol, see BinaryProtocol for the rest)
+    public static final String INPUT = "INP";        // INP;<W_down>;<S_down>;<A_down>;<D_down>[;<ackTick>]
     public static final String SHOOT_CMD = "SHT";    // SHT (Command to shoot)
-    public static final String PING = "PIN";         // PIN (Optional)
+    public static final String PING = "PIN";         // PIN[;<ackTick>] (ackTick = last snapshot tick applied; only a plain PIN is answered with PON)
 
     // Server to Client Messages
+    public static final String PROTOCOL = "PRO";     // PRO;<mode> (Last text line before switching to the negotiated binary protocol)
     public static final String ASSIGN_ID = "AID";    // AID;<yourId>;<colorR>;<colorG>;<colorB> // REMOVED isHost
     public static final String NEW_PLAYER = "NEW";   // NEW;<id>;<x>;<y>;<rot>;<name>;<r>;<g>;<b> // Lives sent separately
     public static final String PLAYER_UPDATE = "UPD"; // UPD;<id>;<x>;<y>;<rot>
+    public static final String SNAPSHOT = "SNP";     // SNP;<tick>;<tankCount>;<bulletCount>;[<id>:<x>:<y>:<rot>;]*[<bulletId>:<ownerId>:<x>:<y>;]* (x, y, rot quantized with StateQuantizer)
+    public static final String DELTA_SNAPSHOT = "SND"; // SND;<tick>;<baselineTick>;<changedCount>;<removedCount>;<bulletCount>;[<id>:<x|>:<y|>:<rot|>;]*[<removedId>;]*[<bullet>;]* (empty field = unchanged)
     public static final String PLAYER_LEFT = "LEF";  // LEF;<id>
     public static final String SHOOT = "SHO";        // SHO;<bulletId>;<ownerId>;<x>;<y>;<dirX>;<dirY>
     public static final String HIT = "HIT";          // HIT;<targetId>;<shooterId>;<bulletId>;<damage>
@@ -28,7 +31,7 @@ public class NetworkProtocol {
     public static final String SPECTATE_END = "SPEC_END";           // SPECTATE_END;<playerId>
     public static final String SPECTATE_PERMANENT = "SPEC_PERM";    // SPECTATE_PERM;<playerId>
     public static final String MAP_INFO = "MAP";     // MAP;<widthTiles>;<heightTiles>;<tileSize>
-    public static final String TERRAIN_INIT = "TER"; // TER;<seed>;<profileName>
+    public static final String TERRAIN_INIT = "TER"; // TER;<seed>;<profileName>;<checksum> (sent only to binary clients that asked for GEN)
     public static final String TERRAIN_DATA = "TRD"; // TRD;<width>;<height>;<compressedData>
     public static final String SHOOT_COOLDOWN = "SHT_CDN";     // SHT_CDN;<cooldownRemainingMs>
 }
\ No newline at end of file
@@ -0,0 +1,71 @@
+package org.chrisgruber.nettank.common.network;
+
+import org.chrisgruber.nettank.common.world.GameMapData;
+
+/**
+ * Packs tank and bullet state into unsigned 16-bit fields for snapshot messages.
+ *
+ * Positions are quantized relative to the world bounds in {@link #POSITION_STEPS} steps per axis,
+ * so a round trip is off by at most half a step: {@code worldSize / 65535 / 2} (about 0.025 units
+ * on a 100x100 map of 32-unit tiles). Positions outside the world are clamped to its edge.
+ * Rotations wrap around 360 degrees in 65536 steps, an error of at most {@link #ROTATION_PRECISION_DEGREES}.
+ */
+public record StateQuantizer(float worldWidth, float worldHeight) {
+    public static final int POSITION_STEPS = 0xFFFF;
+    public static final int ROTATION_STEPS = 0x10000;
+    public static final float ROTATION_PRECISION_DEGREES = 360.0f / ROTATION_STEPS / 2;
+
+    public StateQuantizer {
+        if (!(worldWidth > 0) || !(worldHeight > 0)) {
+            throw new IllegalArgumentException("World bounds must be positive: " + worldWidth + "x" + worldHeight);
+        }
+    }
+
+    public static StateQuantizer forMap(GameMapData mapData) {
+        return new StateQuantizer(mapData.getWorldWidth(), mapData.getWorldHeight());
+    }
+
+    public static StateQuantizer forMap(int widthTiles, int heightTiles, float tileSize) {
+        return new StateQuantizer(widthTiles * tileSize, heightTiles * tileSize);
+    }
+
+    // Worst-case round-trip error of a position inside the world bounds
+    public float positionPrecision() {
+        return Math.max(worldWidth, worldHeight) / POSITION_STEPS / 2;
+    }
+
+    public int quantizeX(float x) {
+        return quantizePosition(x, worldWidth);
+    }
+
+    public int quantizeY(float y) {
+        return quantizePosition(y, worldHeight);
+    }
+
+    public float dequantizeX(int quantized) {
+        return dequantizePosition(quantized, worldWidth);
+    }
+
+    public float dequantizeY(int quantized) {
+        return dequantizePosition(quantized, worldHeight);
+    }
+
+    public int quantizeRotation(float degrees) {
+        double wrapped = ((degrees % 360.0) + 360.0) % 360.0;
+        return (int) Math.round(wrapped / 360.0 * ROTATION_STEPS) & 0xFFFF;
+    }
+
+    public float dequantizeRotation(int quantized) {
+        return (float) ((quantized & 0xFFFF) * 360.0 / ROTATION_STEPS);
+    }
+
+    private static int quantizePosition(float value, float range) {
+        if (!(value > 0)) return 0; // Also maps NaN to the origin
+        if (value >= range) return POSITION_STEPS;
+        return (int) Math.round((double) value / range * POSITION_STEPS);
+    }
+
+    private static float dequantizePosition(int quantized, float range) {
+        return (float) ((double) (quantized & 0xFFFF) * range / POSITION_STEPS);
+    }
+}
@@ -0,0 +1,7 @@
+package org.chrisgruber.nettank.common.network;
+
+// Encoding negotiated for a connection during the CON handshake
+public enum WireFormat {
+    TEXT,   // Semicolon-delimited lines (NetworkProtocol)
+    BINARY  // Length-prefixed frames (BinaryProtocol)
+}
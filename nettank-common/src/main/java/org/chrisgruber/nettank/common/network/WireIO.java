@@ -0,0 +1,116 @@
+package org.chrisgruber.nettank.common.network;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Byte-level stream helpers shared by the text and binary protocols.
+ * Text lines are read straight from the byte stream (instead of through a {@code BufferedReader}) so that a
+ * connection can switch to binary frames right after the handshake without losing buffered bytes.
+ */
+public class WireIO {
+
+    private WireIO() {}
+
+    /**
+     * Reads one newline-terminated UTF-8 line, stripping a trailing carriage return.
+     * Returns null at end of stream when no bytes were read.
+     */
+    public static String readLine(InputStream in, int maxLength) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                return toLineString(line);
+            }
+            if (line.size() >= maxLength) {
+                throw new IOException("Line exceeds maximum length of " + maxLength + " bytes");
+            }
+            line.write(b);
+        }
+        return line.size() == 0 ? null : toLineString(line);
+    }
+
+    public static void writeLine(OutputStream out, String line) throws IOException {
+        out.write(line.getBytes(StandardCharsets.UTF_8));
+        out.write('\n');
+    }
+
+    // Writes a complete frame (as built by FrameBuilder) without moving the buffer's position
+    public static void writeFrame(OutputStream out, ByteBuffer frame) throws IOException {
+        out.write(frame.array(), frame.arrayOffset() + frame.position(), frame.remaining());
+    }
+
+    /**
+     * Reads one length-prefixed frame and returns it positioned at the opcode byte.
+     * Returns null at end of stream.
+     */
+    public static ByteBuffer readFrame(DataInputStream in, int maxLength) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+
+        if (length <= 0 || length > maxLength) {
+            throw new IOException("Invalid frame length: " + length + " (max " + maxLength + ")");
+        }
+
+        byte[] frame = new byte[length];
+        in.readFully(frame);
+        return ByteBuffer.wrap(frame);
+    }
+
+    // Frame field readers, matching the writers in FrameBuilder
+
+    public static String getString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        return getUtf8(buffer, length);
+    }
+
+    public static String getText(ByteBuffer buffer) {
+        return new String(getBytes(buffer), StandardCharsets.UTF_8);
+    }
+
+    public static byte[] getBytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid byte field length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    public static UUID getUuid(ByteBuffer buffer) {
+        long most = buffer.getLong();
+        long least = buffer.getLong();
+        return new UUID(most, least);
+    }
+
+    private static String getUtf8(ByteBuffer buffer, int length) {
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid string field length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String toLineString(ByteArrayOutputStream line) {
+        byte[] bytes = line.toByteArray();
+        int length = bytes.length;
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
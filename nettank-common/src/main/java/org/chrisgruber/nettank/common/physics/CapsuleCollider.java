@@ -11,6 +11,9 @@ public class CapsuleCollider implements Collider {
     private float radius;    // Radius of the capsule
     private float rotation;  // in radians
 
+    // Returned by sweepAgainstCapsule when the capsules do not touch during the move
+    public static final float NO_HIT = -1.0f;
+
     public CapsuleCollider(Vector2f position, float length, float radius, float rotation) {
         this.position = new Vector2f(position);
         this.length = Math.max(0.0f, length - (2 * radius));
@@ -105,6 +108,85 @@ public class CapsuleCollider implements Collider {
         return collides;
     }
 
+    /**
+     * Continuous collision: moves this capsule by (dx, dy) without turning it and returns the fraction of the move,
+     * 0 to 1, at which it first touches the other capsule, 0 if they already overlap, or {@link #NO_HIT}.
+     * Exact for any length of move, so a fast bullet cannot pass through a tank between two ticks.
+     */
+    public float sweepAgainstCapsule(CapsuleCollider other, float dx, float dy) {
+        if (collidesWithCapsule(other)) {
+            return 0.0f;
+        }
+
+        float thisOffsetX = (float) (-Math.sin(rotation) * length / 2);
+        float thisOffsetY = (float) (Math.cos(rotation) * length / 2);
+        float otherOffsetX = (float) (-Math.sin(other.rotation) * other.length / 2);
+        float otherOffsetY = (float) (Math.cos(other.rotation) * other.length / 2);
+
+        // Corners of the parallelogram {u - s : u on the other segment, s on this one}. The capsules touch at
+        // fraction t when t * (dx, dy) is within the sum of radii of it, so cast a ray from the origin against
+        // the capsules around its four edges; the first one it enters is the first contact.
+        float baseX = other.position.x - position.x;
+        float baseY = other.position.y - position.y;
+        float ax = baseX - otherOffsetX + thisOffsetX, ay = baseY - otherOffsetY + thisOffsetY;  // other start - this start
+        float bx = baseX - otherOffsetX - thisOffsetX, by = baseY - otherOffsetY - thisOffsetY;  // other start - this end
+        float cx = baseX + otherOffsetX - thisOffsetX, cy = baseY + otherOffsetY - thisOffsetY;  // other end - this end
+        float ex = baseX + otherOffsetX + thisOffsetX, ey = baseY + otherOffsetY + thisOffsetY;  // other end - this start
+        float sumRadii = radius + other.radius;
+
+        float first = Math.min(
+                Math.min(rayAgainstCapsule(dx, dy, ax, ay, bx, by, sumRadii), rayAgainstCapsule(dx, dy, bx, by, cx, cy, sumRadii)),
+                Math.min(rayAgainstCapsule(dx, dy, cx, cy, ex, ey, sumRadii), rayAgainstCapsule(dx, dy, ex, ey, ax, ay, sumRadii)));
+        return first <= 1.0f ? first : NO_HIT;
+    }
+
+    // First t in [0, 1] at which t * (dx, dy) comes within r of the segment from a to b, or infinity
+    private static float rayAgainstCapsule(float dx, float dy, float ax, float ay, float bx, float by, float r) {
+        float first = Math.min(rayAgainstCircle(dx, dy, ax, ay, r), rayAgainstCircle(dx, dy, bx, by, r));
+
+        // The straight sides: lines at distance r on either side of the segment, within its extent
+        float edgeX = bx - ax;
+        float edgeY = by - ay;
+        float edgeLengthSquared = edgeX * edgeX + edgeY * edgeY;
+        if (edgeLengthSquared > 1e-12f) {
+            float edgeLength = (float) Math.sqrt(edgeLengthSquared);
+            float normalX = -edgeY / edgeLength;
+            float normalY = edgeX / edgeLength;
+            float approach = dx * normalX + dy * normalY;
+            if (approach != 0.0f) {
+                float lineOffset = ax * normalX + ay * normalY;
+                first = Math.min(first, sideEntry((lineOffset + r) / approach, dx, dy, ax, ay, edgeX, edgeY, edgeLengthSquared));
+                first = Math.min(first, sideEntry((lineOffset - r) / approach, dx, dy, ax, ay, edgeX, edgeY, edgeLengthSquared));
+            }
+        }
+        return first;
+    }
+
+    // t if the ray crosses a side line at t within the segment's extent, otherwise infinity
+    private static float sideEntry(float t, float dx, float dy, float ax, float ay, float edgeX, float edgeY, float edgeLengthSquared) {
+        if (t < 0.0f || t > 1.0f) {
+            return Float.POSITIVE_INFINITY;
+        }
+        float along = ((t * dx - ax) * edgeX + (t * dy - ay) * edgeY) / edgeLengthSquared;
+        return along >= 0.0f && along <= 1.0f ? t : Float.POSITIVE_INFINITY;
+    }
+
+    // First t in [0, 1] at which t * (dx, dy) comes within r of (cx, cy), or infinity; the origin is outside
+    private static float rayAgainstCircle(float dx, float dy, float cx, float cy, float r) {
+        float a = dx * dx + dy * dy;
+        if (a <= 1e-12f) {
+            return Float.POSITIVE_INFINITY;
+        }
+        float b = dx * cx + dy * cy;
+        float c = cx * cx + cy * cy - r * r;
+        float discriminant = b * b - a * c;
+        if (discriminant < 0.0f) {
+            return Float.POSITIVE_INFINITY;
+        }
+        float t = (b - (float) Math.sqrt(discriminant)) / a;
+        return t >= 0.0f && t <= 1.0f ? t : Float.POSITIVE_INFINITY;
+    }
+
     // Helper method to find the closest distance squared between two line segments
     private float closestDistanceSquaredBetweenSegments(
             Vector2f p1, Vector2f q1, Vector2f p2, Vector2f q2) {
@@ -0,0 +1,121 @@
+package org.chrisgruber.nettank.common.physics;
+
+import org.chrisgruber.nettank.common.world.GameMapData;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Uniform grid broad-phase over a map. Cells are squares of {@code cellTiles} map tiles, and each item is
+ * filed under the cell of its center. A query looks only at the cells within its radius plus the largest item
+ * radius, so it costs the number of items nearby rather than the number on the map.
+ * <p>
+ * Meant to be rebuilt every tick: {@link #clear} only resets the cells that were used, so a large map costs
+ * nothing when few items are on it. Items outside the map are filed under the nearest edge cell.
+ * Not thread-safe; one thread builds and queries it.
+ */
+public final class SpatialGrid<T> {
+    private final float cellSize;
+    private final float worldWidth;
+    private final float worldHeight;
+    private final int columns;
+    private final int rows;
+    private final int[] cellHead;   // First item in each cell, -1 when empty
+
+    // Items as singly linked lists per cell, by insertion index
+    private Object[] items = new Object[16];
+    private int[] next = new int[16];
+    private int[] itemCell = new int[16];
+    private int count;
+    private float maxItemRadius;
+
+    public SpatialGrid(GameMapData mapData, int cellTiles) {
+        if (cellTiles <= 0) {
+            throw new IllegalArgumentException("Grid cells must be at least one tile: " + cellTiles);
+        }
+        this.cellSize = mapData.getTileSize() * cellTiles;
+        this.worldWidth = mapData.getWorldWidth();
+        this.worldHeight = mapData.getWorldHeight();
+        this.columns = Math.ceilDiv(mapData.getWidthTiles(), cellTiles);
+        this.rows = Math.ceilDiv(mapData.getHeightTiles(), cellTiles);
+        this.cellHead = new int[columns * rows];
+        Arrays.fill(cellHead, -1);
+    }
+
+    // True if this grid was built for a map of the same size, so it can be reused for it
+    public boolean covers(GameMapData mapData) {
+        return worldWidth == mapData.getWorldWidth() && worldHeight == mapData.getWorldHeight();
+    }
+
+    public void clear() {
+        for (int i = 0; i < count; i++) {
+            cellHead[itemCell[i]] = -1;
+            items[i] = null;
+        }
+        count = 0;
+        maxItemRadius = 0;
+    }
+
+    // Files the item at its center; radius is how far it reaches from there, such as a collider's bounding radius
+    public void insert(T item, float x, float y, float radius) {
+        if (count == items.length) {
+            int capacity = count * 2;
+            items = Arrays.copyOf(items, capacity);
+            next = Arrays.copyOf(next, capacity);
+            itemCell = Arrays.copyOf(itemCell, capacity);
+        }
+        int cell = row(y) * columns + column(x);
+        items[count] = item;
+        itemCell[count] = cell;
+        next[count] = cellHead[cell];
+        cellHead[cell] = count;
+        count++;
+        maxItemRadius = Math.max(maxItemRadius, radius);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * The first item whose cell is within radius (plus the largest item radius) of the point and that passes
+     * the test, or null. The test is the narrow phase, such as an exact collider check.
+     */
+    @SuppressWarnings("unchecked")
+    public T findFirst(float x, float y, float radius, Predicate<? super T> test) {
+        float reach = radius + maxItemRadius;
+        int minColumn = column(x - reach);
+        int maxColumn = column(x + reach);
+        int minRow = row(y - reach);
+        int maxRow = row(y + reach);
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                for (int i = cellHead[row * columns + column]; i >= 0; i = next[i]) {
+                    T item = (T) items[i];
+                    if (test.test(item)) {
+                        return item;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    // Adds every item whose cell is within radius (plus the largest item radius) of the point to out
+    public void collectNear(float x, float y, float radius, List<? super T> out) {
+        findFirst(x, y, radius, item -> {
+            out.add(item);
+            return false;
+        });
+    }
+
+    private int column(float x) {
+        return Math.clamp((long) Math.floor(x / cellSize), 0, columns - 1);
+    }
+
+    private int row(float y) {
+        return Math.clamp((long) Math.floor(y / cellSize), 0, rows - 1);
+    }
+}
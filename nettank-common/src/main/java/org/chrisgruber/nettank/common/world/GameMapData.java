@@ -16,7 +16,7 @@ public class GameMapData {
     public final float tileSize;
 
     private final Random random = new Random();
-    protected final TerrainTile[][] terrainGrid;
+    private final TerrainStore terrain;     // Packed tiles, row by row; getTile hands out views of it
 
     public GameMapData(int widthTiles, int heightTiles) { 
         this(widthTiles, heightTiles, DEFAULT_TILE_SIZE); 
@@ -29,16 +29,7 @@ public class GameMapData {
         if (tileSize <= 0 || widthTiles <= 0 || heightTiles <= 0) {
             throw new IllegalArgumentException("Map dimensions and tile size must be positive.");
         }
-        this.terrainGrid = new TerrainTile[widthTiles][heightTiles];
-        initializeTerrainGrid();
-    }
-
-    protected void initializeTerrainGrid() {
-        for (int y = 0; y < heightTiles; y++) {
-            for (int x = 0; x < widthTiles; x++) {
-                terrainGrid[x][y] = new TerrainTile(TerrainType.GRASS);
-            }
-        }
+        this.terrain = new TerrainStore(widthTiles * heightTiles, TerrainType.GRASS);
     }
 
     public void checkAndCorrectBoundaries(Entity entity) {
@@ -116,8 +107,8 @@ public class GameMapData {
             float spawnX = margin + random.nextFloat() * effectiveWidth;
             float spawnY = margin + random.nextFloat() * effectiveHeight;
             
-            TerrainTile tile = getTileAt(spawnX, spawnY);
-            if (tile != null && !tile.hasOverlay()) {
+            int index = tileIndexAt(spawnX, spawnY);
+            if (index >= 0 && terrain.overlayType(index) == null) {
                 return new Vector2f(spawnX, spawnY);
             }
         }
@@ -136,11 +127,17 @@ public class GameMapData {
         return x >= 0 && x < widthTiles && y >= 0 && y < heightTiles;
     }
 
+    // The packed tiles, for the codecs in this package
+    TerrainStore terrain() {
+        return terrain;
+    }
+
+    // A view of the tile, or null off the map; every view of a tile reads and writes the same packed entry
     public TerrainTile getTile(int x, int y) {
         if (!isValidTile(x, y)) {
             return null;
         }
-        return terrainGrid[x][y];
+        return new TerrainTile(terrain, y * widthTiles + x);
     }
 
     public TerrainTile getTileAt(float worldX, float worldY) {
@@ -149,27 +146,84 @@ public class GameMapData {
         return getTile(tileX, tileY);
     }
 
+    // The position's index in the packed terrain, or -1 off the map; the per-tick queries read the arrays directly
+    private int tileIndexAt(float worldX, float worldY) {
+        int tileX = (int) (worldX / tileSize);
+        int tileY = (int) (worldY / tileSize);
+        return isValidTile(tileX, tileY) ? tileY * widthTiles + tileX : -1;
+    }
+
     public float getSpeedModifierAt(float worldX, float worldY) {
-        TerrainTile tile = getTileAt(worldX, worldY);
-        if (tile == null) {
+        int index = tileIndexAt(worldX, worldY);
+        if (index < 0) {
             return 1.0f;
         }
-        return tile.getEffectiveSpeedModifier();
+        return terrain.speedModifier(index);
     }
 
     public boolean isPassableAt(float worldX, float worldY) {
-        TerrainTile tile = getTileAt(worldX, worldY);
-        if (tile == null) {
+        int index = tileIndexAt(worldX, worldY);
+        if (index < 0) {
             return false;
         }
-        return tile.isPassable();
+        return terrain.isPassable(index);
     }
 
     public boolean blocksBulletsAt(float worldX, float worldY) {
-        TerrainTile tile = getTileAt(worldX, worldY);
-        if (tile == null) {
+        int index = tileIndexAt(worldX, worldY);
+        if (index < 0) {
             return false;
         }
-        return tile.blocksBullets();
+        return terrain.blocksBullets(index);
+    }
+
+    public boolean blocksVisionAt(float worldX, float worldY) {
+        int index = tileIndexAt(worldX, worldY);
+        if (index < 0) {
+            return false;
+        }
+        return terrain.blocksVision(index);
+    }
+
+    /**
+     * The first tile that blocks bullets on the segment from (startX, startY) to (endX, endY), or null if none does.
+     * Walks the tiles the segment crosses in order, each exactly once (Amanatides and Woo's grid traversal), so a
+     * path that clips a tile corner is caught and no tile is looked up twice. Tiles off the map never block.
+     */
+    public TerrainHit findBulletBlocker(float startX, float startY, float endX, float endY) {
+        float dx = endX - startX;
+        float dy = endY - startY;
+        int tileX = (int) Math.floor(startX / tileSize);
+        int tileY = (int) Math.floor(startY / tileSize);
+        int stepX = dx > 0 ? 1 : (dx < 0 ? -1 : 0);
+        int stepY = dy > 0 ? 1 : (dy < 0 ? -1 : 0);
+        int tilesLeft = Math.abs((int) Math.floor(endX / tileSize) - tileX) + Math.abs((int) Math.floor(endY / tileSize) - tileY);
+
+        // Fractions of the segment at which it next crosses a vertical and a horizontal tile border, and between borders
+        float nextBorderX = stepX > 0 ? (tileX + 1) * tileSize : tileX * tileSize;
+        float nextBorderY = stepY > 0 ? (tileY + 1) * tileSize : tileY * tileSize;
+        float crossX = stepX != 0 ? (nextBorderX - startX) / dx : Float.POSITIVE_INFINITY;
+        float crossY = stepY != 0 ? (nextBorderY - startY) / dy : Float.POSITIVE_INFINITY;
+        float acrossTileX = stepX != 0 ? tileSize / Math.abs(dx) : Float.POSITIVE_INFINITY;
+        float acrossTileY = stepY != 0 ? tileSize / Math.abs(dy) : Float.POSITIVE_INFINITY;
+
+        float fraction = 0.0f;
+        while (true) {
+            if (isValidTile(tileX, tileY) && terrain.blocksBullets(tileY * widthTiles + tileX)) {
+                return new TerrainHit(tileX, tileY, startX + dx * fraction, startY + dy * fraction, fraction);
+            }
+            if (tilesLeft-- == 0) {
+                return null;
+            }
+            if (crossX < crossY) {
+                fraction = crossX;
+                crossX += acrossTileX;
+                tileX += stepX;
+            } else {
+                fraction = crossY;
+                crossY += acrossTileY;
+                tileY += stepY;
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,15 +1,16 @@
-package org.chrisgruber.nettank.server.world;
+package org.chrisgruber.nettank.common.world;
 
-import org.chrisgruber.nettank.common.world.BaseTerrainProfile;
-import org.chrisgruber.nettank.common.world.GameMapData;
-import org.chrisgruber.nettank.common.world.TerrainTile;
-import org.chrisgruber.nettank.common.world.TerrainType;
 import org.chrisgruber.nettank.common.world.noise.FastNoiseLite;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
 
+/**
+ * Deterministic terrain from a seed and a {@link BaseTerrainProfile}: the same seed, profile and map size always
+ * give the same tiles. The server generates each round's map with it, and clients that support seed-based terrain
+ * rebuild the map from TERRAIN_INIT instead of receiving it (checked with {@link TerrainCodec#checksum}).
+ */
 public class ProceduralTerrainGenerator {
     private static final Logger logger = LoggerFactory.getLogger(ProceduralTerrainGenerator.class);
     
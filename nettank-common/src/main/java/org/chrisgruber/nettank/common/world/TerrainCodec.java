@@ -0,0 +1,155 @@
+package org.chrisgruber.nettank.common.world;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary terrain encoding, the compact alternative to {@link TerrainEncoder}'s comma-separated ordinals.
+ * Tiles are taken row by row and written as runs of equal tiles: a varint run length, then one byte with the base
+ * type ordinal in its low four bits and the overlay type ordinal + 1 in its high four (0 for no overlay).
+ * With {@link #FLAG_DEFLATE} the runs are also compressed with {@link Deflater}. A generated map is mostly long runs
+ * of its base terrain, so the result is a small fraction of the CSV's size.
+ */
+public final class TerrainCodec {
+    public static final int FLAG_DEFLATE = 1;
+
+    private static final int MAX_RUN_BYTES_PER_TILE = 6;    // A 5-byte varint of 1 and its type code
+
+    private TerrainCodec() {}
+
+    public static byte[] encode(GameMapData mapData, int flags) {
+        TerrainStore terrain = mapData.terrain();
+        int tiles = terrain.size();
+        ByteArrayOutputStream runs = new ByteArrayOutputStream(Math.min(tiles, 64 * 1024));
+
+        int index = 0;
+        while (index < tiles) {
+            int typeCode = terrain.typeCode(index);
+            int end = index + 1;
+            while (end < tiles && terrain.typeCode(end) == typeCode) {
+                end++;
+            }
+            writeVarInt(runs, end - index);
+            runs.write(typeCode);
+            index = end;
+        }
+
+        byte[] encoded = runs.toByteArray();
+        return (flags & FLAG_DEFLATE) != 0 ? deflate(encoded) : encoded;
+    }
+
+    /**
+     * Decodes terrain written by {@link #encode} with the same flags into a map of the same size.
+     * Throws IllegalArgumentException if the data is corrupt or does not cover the map exactly.
+     */
+    public static void decode(GameMapData mapData, byte[] encoded, int flags) {
+        TerrainStore terrain = mapData.terrain();
+        int tiles = terrain.size();
+        long maxRunBytes = (long) tiles * MAX_RUN_BYTES_PER_TILE;
+        ByteBuffer runs = ByteBuffer.wrap((flags & FLAG_DEFLATE) != 0 ? inflate(encoded, maxRunBytes) : encoded);
+
+        int index = 0;
+        try {
+            while (index < tiles) {
+                int run = readVarInt(runs);
+                int typeCode = Byte.toUnsignedInt(runs.get());
+                if (run <= 0 || run > tiles - index) {
+                    throw new IllegalArgumentException("Invalid terrain run of " + run + " at tile " + index + " of " + tiles);
+                }
+                for (int end = index + run; index < end; index++) {
+                    terrain.setTypeCode(index, typeCode);
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Terrain data ends after " + index + " of " + tiles + " tiles", e);
+        }
+        if (runs.hasRemaining()) {
+            throw new IllegalArgumentException("Terrain data has " + runs.remaining() + " bytes after the last tile");
+        }
+    }
+
+    /**
+     * CRC-32 of the map size and every tile's type code, row by row. Two maps with the same checksum have, for all
+     * practical purposes, the same base and overlay types; it confirms a map rebuilt from its seed.
+     */
+    public static int checksum(GameMapData mapData) {
+        TerrainStore terrain = mapData.terrain();
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(2 * Integer.BYTES).putInt(mapData.getWidthTiles()).putInt(mapData.getHeightTiles()).flip());
+        byte[] row = new byte[mapData.getWidthTiles()];
+        for (int start = 0; start < terrain.size(); start += row.length) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = (byte) terrain.typeCode(start + i);
+            }
+            crc.update(row);
+        }
+        return (int) crc.getValue();
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Terrain run length is longer than 5 bytes");
+    }
+
+    // Fastest level: the runs are already small, and this runs at every round start
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    // Stops at maxBytes, so a small corrupt or hostile input cannot inflate into a huge buffer
+    private static byte[] inflate(byte[] data, long maxBytes) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Compressed terrain data is truncated");
+                }
+                out.write(buffer, 0, inflated);
+                if (out.size() > maxBytes) {
+                    throw new IllegalArgumentException("Compressed terrain data inflates past " + maxBytes + " bytes");
+                }
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt compressed terrain data", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package org.chrisgruber.nettank.common.world;
+
+// First blocking tile on a path: the tile, the point where the path enters it, and how far along the path that is (0 to 1)
+public record TerrainHit(int tileX, int tileY, float x, float y, float fraction) {}
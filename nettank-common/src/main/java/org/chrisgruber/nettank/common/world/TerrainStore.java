@@ -0,0 +1,208 @@
+package org.chrisgruber.nettank.common.world;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packed terrain for a whole map, one entry per tile at index y * width + x: a byte each for the base type, overlay
+ * type and state, and a palette index for the visual overlay, so a tile costs a few bytes instead of an object.
+ * The fire timestamps are kept only for tiles that have had them set, since few tiles ever burn.
+ * {@link TerrainTile} is a view of one entry. Not synchronized, like the tile objects it replaces.
+ * <p>
+ * The properties the tick asks about are also kept per tile in one int: flag bits for passable, blocks bullets,
+ * blocks vision and destructible, and the speed modifier of type and state in 16-bit fixed point. They are
+ * updated whenever a tile's base, overlay or state changes, so each query is a single array read.
+ */
+final class TerrainStore {
+    private static final TerrainType[] TYPES = TerrainType.values();
+    private static final TerrainState[] STATES = TerrainState.values();
+    private static final byte NO_OVERLAY = -1;
+    private static final short NO_VISUAL_OVERLAY = 0;
+
+    private static final int PASSABLE = 1;
+    private static final int BLOCKS_BULLETS = 1 << 1;
+    private static final int BLOCKS_VISION = 1 << 2;
+    private static final int DESTRUCTIBLE = 1 << 3;
+    private static final int SPEED_SHIFT = 16;
+    private static final float SPEED_SCALE = 0xFFFF;
+
+    // Packed properties of every effective type in every state
+    private static final int[][] PROPERTIES = new int[TYPES.length][STATES.length];
+
+    static {
+        for (TerrainType type : TYPES) {
+            int flags = (type.isPassable() ? PASSABLE : 0)
+                    | (type.blocksBullets() ? BLOCKS_BULLETS : 0)
+                    | (type.getVisionBlocking().blocksVision() ? BLOCKS_VISION : 0)
+                    | (type.isDestructible() ? DESTRUCTIBLE : 0);
+            for (TerrainState state : STATES) {
+                float speed = Math.clamp(type.getSpeedModifier() * state.getSpeedModifier(), 0.0f, 1.0f);
+                PROPERTIES[type.ordinal()][state.ordinal()] = flags | (Math.round(speed * SPEED_SCALE) << SPEED_SHIFT);
+            }
+        }
+    }
+
+    private final byte[] baseTypes;
+    private final byte[] overlayTypes;      // NO_OVERLAY when the tile has none
+    private final byte[] states;
+    private final short[] visualOverlays;   // Index into visualPalette, NO_VISUAL_OVERLAY when none
+    private final int[] properties;         // PROPERTIES entry for the tile's effective type and state
+
+    private final List<String> visualPalette = new ArrayList<>(List.of(""));
+    private final Map<String, Short> visualPaletteIndex = new HashMap<>();
+
+    // Two longs per tile that has timestamps: state change time, then fire duration
+    private final Map<Integer, Integer> timeSlots = new HashMap<>();
+    private long[] times = new long[0];
+
+    TerrainStore(int tiles, TerrainType baseType) {
+        this.baseTypes = new byte[tiles];
+        this.overlayTypes = new byte[tiles];
+        this.states = new byte[tiles];
+        this.visualOverlays = new short[tiles];
+        this.properties = new int[tiles];
+        Arrays.fill(baseTypes, (byte) baseType.ordinal());
+        Arrays.fill(overlayTypes, NO_OVERLAY);
+        Arrays.fill(states, (byte) TerrainState.NORMAL.ordinal());
+        Arrays.fill(properties, PROPERTIES[baseType.ordinal()][TerrainState.NORMAL.ordinal()]);
+    }
+
+    int size() {
+        return baseTypes.length;
+    }
+
+    TerrainType baseType(int index) {
+        return TYPES[baseTypes[index]];
+    }
+
+    void setBaseType(int index, TerrainType baseType) {
+        baseTypes[index] = (byte) baseType.ordinal();
+        updateProperties(index);
+    }
+
+    // Null when the tile has no overlay
+    TerrainType overlayType(int index) {
+        byte overlay = overlayTypes[index];
+        return overlay == NO_OVERLAY ? null : TYPES[overlay];
+    }
+
+    void setOverlayType(int index, TerrainType overlayType) {
+        overlayTypes[index] = overlayType == null ? NO_OVERLAY : (byte) overlayType.ordinal();
+        updateProperties(index);
+    }
+
+    // Base ordinal in the low four bits, overlay ordinal + 1 in the high four (0 for none), as TerrainCodec sends it
+    int typeCode(int index) {
+        return baseTypes[index] | ((overlayTypes[index] + 1) << 4);
+    }
+
+    void setTypeCode(int index, int typeCode) {
+        int base = typeCode & 0x0F;
+        int overlay = (typeCode >>> 4) - 1;
+        if (base >= TYPES.length || overlay >= TYPES.length) {
+            throw new IllegalArgumentException("Invalid terrain type code: " + typeCode);
+        }
+        baseTypes[index] = (byte) base;
+        overlayTypes[index] = (byte) overlay;
+        updateProperties(index);
+    }
+
+    TerrainType effectiveType(int index) {
+        byte overlay = overlayTypes[index];
+        return TYPES[overlay == NO_OVERLAY ? baseTypes[index] : overlay];
+    }
+
+    TerrainState state(int index) {
+        return STATES[states[index]];
+    }
+
+    void setState(int index, TerrainState state) {
+        states[index] = (byte) state.ordinal();
+        updateProperties(index);
+    }
+
+    private void updateProperties(int index) {
+        byte overlay = overlayTypes[index];
+        properties[index] = PROPERTIES[overlay == NO_OVERLAY ? baseTypes[index] : overlay][states[index]];
+    }
+
+    // Null when the tile has no visual overlay
+    String visualOverlay(int index) {
+        short entry = visualOverlays[index];
+        return entry == NO_VISUAL_OVERLAY ? null : visualPalette.get(entry);
+    }
+
+    void setVisualOverlay(int index, String visualOverlay) {
+        if (visualOverlay == null) {
+            visualOverlays[index] = NO_VISUAL_OVERLAY;
+            return;
+        }
+        Short entry = visualPaletteIndex.get(visualOverlay);
+        if (entry == null) {
+            if (visualPalette.size() > Short.MAX_VALUE) {
+                throw new IllegalStateException("Too many distinct visual overlays: " + visualPalette.size());
+            }
+            entry = (short) visualPalette.size();
+            visualPalette.add(visualOverlay);
+            visualPaletteIndex.put(visualOverlay, entry);
+        }
+        visualOverlays[index] = entry;
+    }
+
+    long stateChangeTime(int index) {
+        Integer slot = timeSlots.get(index);
+        return slot == null ? 0 : times[slot * 2];
+    }
+
+    void setStateChangeTime(int index, long stateChangeTime) {
+        setTime(index, 0, stateChangeTime);
+    }
+
+    long fireDuration(int index) {
+        Integer slot = timeSlots.get(index);
+        return slot == null ? 0 : times[slot * 2 + 1];
+    }
+
+    void setFireDuration(int index, long fireDuration) {
+        setTime(index, 1, fireDuration);
+    }
+
+    // A tile gets a slot the first time it has a time set and keeps it, so slots grow with the tiles that ever burned
+    private void setTime(int index, int field, long value) {
+        Integer slot = timeSlots.get(index);
+        if (slot == null) {
+            if (value == 0) {
+                return;
+            }
+            slot = timeSlots.size();
+            timeSlots.put(index, slot);
+            if (times.length < (slot + 1) * 2) {
+                times = Arrays.copyOf(times, Math.max(16, times.length * 2));
+            }
+        }
+        times[slot * 2 + field] = value;
+    }
+
+    float speedModifier(int index) {
+        return (properties[index] >>> SPEED_SHIFT) / SPEED_SCALE;
+    }
+
+    boolean isPassable(int index) {
+        return (properties[index] & PASSABLE) != 0;
+    }
+
+    boolean blocksBullets(int index) {
+        return (properties[index] & BLOCKS_BULLETS) != 0;
+    }
+
+    boolean blocksVision(int index) {
+        return (properties[index] & BLOCKS_VISION) != 0;
+    }
+
+    boolean isDestructible(int index) {
+        return (properties[index] & DESTRUCTIBLE) != 0;
+    }
+}
@@ -1,99 +1,99 @@
 package org.chrisgruber.nettank.common.world;
 
+// View of one tile in a map's packed terrain; reads and writes go straight to the map's arrays
 public class TerrainTile {
-    private TerrainType baseType;
-    private TerrainType overlayType;
-    private String visualOverlay; // Non-interactable visual layer (tank tracks, roads, etc)
-    private TerrainState currentState;
-    private long stateChangeTime;
-    private long fireDuration;
+    private final TerrainStore store;
+    private final int index;
 
+    // A tile of its own, outside any map
     public TerrainTile(TerrainType baseType) {
-        this.baseType = baseType;
-        this.overlayType = null;
-        this.visualOverlay = null;
-        this.currentState = TerrainState.NORMAL;
-        this.stateChangeTime = 0;
-        this.fireDuration = 0;
+        this(new TerrainStore(1, baseType), 0);
+    }
+
+    TerrainTile(TerrainStore store, int index) {
+        this.store = store;
+        this.index = index;
     }
 
     public TerrainType getBaseType() {
-        return baseType;
+        return store.baseType(index);
     }
 
     public void setBaseType(TerrainType baseType) {
-        this.baseType = baseType;
+        store.setBaseType(index, baseType);
     }
 
     public TerrainType getOverlayType() {
-        return overlayType;
+        return store.overlayType(index);
     }
 
     public void setOverlayType(TerrainType overlayType) {
-        this.overlayType = overlayType;
+        store.setOverlayType(index, overlayType);
     }
 
     public boolean hasOverlay() {
-        return overlayType != null;
+        return store.overlayType(index) != null;
     }
 
+    // Non-interactable visual layer (tank tracks, roads, etc)
     public String getVisualOverlay() {
-        return visualOverlay;
+        return store.visualOverlay(index);
     }
 
     public void setVisualOverlay(String visualOverlay) {
-        this.visualOverlay = visualOverlay;
+        store.setVisualOverlay(index, visualOverlay);
     }
 
     public boolean hasVisualOverlay() {
+        String visualOverlay = store.visualOverlay(index);
         return visualOverlay != null && !visualOverlay.isEmpty();
     }
 
     public TerrainType getEffectiveType() {
-        return overlayType != null ? overlayType : baseType;
+        return store.effectiveType(index);
     }
 
     public TerrainState getCurrentState() {
-        return currentState;
+        return store.state(index);
     }
 
     public void setCurrentState(TerrainState currentState) {
-        this.currentState = currentState;
+        store.setState(index, currentState);
     }
 
     public long getStateChangeTime() {
-        return stateChangeTime;
+        return store.stateChangeTime(index);
     }
 
     public void setStateChangeTime(long stateChangeTime) {
-        this.stateChangeTime = stateChangeTime;
+        store.setStateChangeTime(index, stateChangeTime);
     }
 
     public long getFireDuration() {
-        return fireDuration;
+        return store.fireDuration(index);
     }
 
     public void setFireDuration(long fireDuration) {
-        this.fireDuration = fireDuration;
+        store.setFireDuration(index, fireDuration);
     }
 
     public float getEffectiveSpeedModifier() {
-        TerrainType effectiveType = getEffectiveType();
-        return effectiveType.getSpeedModifier() * currentState.getSpeedModifier();
+        return store.speedModifier(index);
     }
 
     public boolean isPassable() {
-        TerrainType effectiveType = getEffectiveType();
-        return effectiveType.isPassable();
+        return store.isPassable(index);
     }
 
     public boolean blocksBullets() {
-        TerrainType effectiveType = getEffectiveType();
-        return effectiveType.blocksBullets();
+        return store.blocksBullets(index);
+    }
+
+    public boolean blocksVision() {
+        return store.blocksVision(index);
     }
 
     public boolean isDestructible() {
-        TerrainType effectiveType = getEffectiveType();
-        return effectiveType.isDestructible();
+        return store.isDestructible(index);
     }
 }
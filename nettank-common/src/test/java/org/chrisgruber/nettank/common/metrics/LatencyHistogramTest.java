@@ -0,0 +1,61 @@
+package org.chrisgruber.nettank.common.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testSmallValuesAreExact() {
+        var histogram = new LatencyHistogram();
+        for (int value = 0; value < LatencyHistogram.SUB_BUCKETS; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(0, histogram.valueAtQuantile(0.0));
+        assertEquals(7, histogram.valueAtQuantile(0.5));
+        assertEquals(LatencyHistogram.SUB_BUCKETS - 1, histogram.valueAtQuantile(1.0));
+    }
+
+    @Test
+    void testLargeValuesStayWithinRelativePrecision() {
+        for (long value : new long[] {100, 12_345, 1_000_000, 987_654_321L, Long.MAX_VALUE / 3}) {
+            var histogram = new LatencyHistogram();
+            histogram.record(1);
+            histogram.record(value);
+
+            long reported = histogram.valueAtQuantile(1.0);
+            assertEquals(value, reported); // Capped at the recorded maximum
+
+            long bucketTop = LatencyHistogram.highestValueIn(LatencyHistogram.bucketIndex(value));
+            assertTrue(bucketTop >= value && bucketTop - value <= value / LatencyHistogram.SUB_BUCKETS, "value " + value);
+        }
+    }
+
+    @Test
+    void testBucketsAreContiguousAndOrdered() {
+        long previousTop = -1;
+        for (int index = 0; index < 40 * LatencyHistogram.SUB_BUCKETS; index++) {
+            long top = LatencyHistogram.highestValueIn(index);
+            assertTrue(top > previousTop);
+            assertEquals(index, LatencyHistogram.bucketIndex(top));
+            assertEquals(index, LatencyHistogram.bucketIndex(previousTop + 1));
+            previousTop = top;
+        }
+    }
+
+    @Test
+    void testQuantilesSumAndCount() {
+        var histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        assertEquals(1000, histogram.count());
+        assertEquals(500_500_000L, histogram.sum());
+        assertEquals(1_000_000, histogram.max());
+        long p99 = histogram.valueAtQuantile(0.99);
+        assertTrue(p99 >= 990_000 && p99 <= 990_000 * 1.07, "p99 " + p99);
+    }
+}
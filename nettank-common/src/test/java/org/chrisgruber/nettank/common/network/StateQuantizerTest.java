@@ -0,0 +1,80 @@
+package org.chrisgruber.nettank.common.network;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StateQuantizerTest {
+
+    private final StateQuantizer quantizer = StateQuantizer.forMap(100, 80, 32.0f);
+
+    @Test
+    void testPositionRoundTripWithinPrecision() {
+        Random random = new Random(42);
+        float bound = quantizer.positionPrecision() + Math.ulp(quantizer.worldWidth());
+        for (int i = 0; i < 10_000; i++) {
+            float x = random.nextFloat() * quantizer.worldWidth();
+            float y = random.nextFloat() * quantizer.worldHeight();
+
+            assertEquals(x, quantizer.dequantizeX(quantizer.quantizeX(x)), bound);
+            assertEquals(y, quantizer.dequantizeY(quantizer.quantizeY(y)), bound);
+        }
+    }
+
+    @Test
+    void testPrecisionBoundForDefaultMap() {
+        assertTrue(quantizer.positionPrecision() < 0.025f, "3200 units / 65535 steps / 2");
+    }
+
+    @Test
+    void testWorldEdgesAreExact() {
+        assertEquals(0, quantizer.quantizeX(0));
+        assertEquals(StateQuantizer.POSITION_STEPS, quantizer.quantizeX(quantizer.worldWidth()));
+        assertEquals(0.0f, quantizer.dequantizeX(0));
+        assertEquals(quantizer.worldHeight(), quantizer.dequantizeY(StateQuantizer.POSITION_STEPS));
+    }
+
+    @Test
+    void testOutOfBoundsPositionsAreClamped() {
+        assertEquals(0, quantizer.quantizeX(-15.0f));
+        assertEquals(0, quantizer.quantizeY(Float.NaN));
+        assertEquals(StateQuantizer.POSITION_STEPS, quantizer.quantizeY(quantizer.worldHeight() + 100));
+    }
+
+    @Test
+    void testQuantizedValuesFitInUnsignedShort() {
+        Random random = new Random(7);
+        for (int i = 0; i < 1_000; i++) {
+            int x = quantizer.quantizeX(random.nextFloat() * 5000 - 1000);
+            int rotation = quantizer.quantizeRotation(random.nextFloat() * 2000 - 1000);
+            assertTrue(x >= 0 && x <= 0xFFFF);
+            assertTrue(rotation >= 0 && rotation <= 0xFFFF);
+        }
+    }
+
+    @Test
+    void testRotationRoundTripWithinPrecision() {
+        for (float degrees = 0; degrees < 360; degrees += 0.37f) {
+            float decoded = quantizer.dequantizeRotation(quantizer.quantizeRotation(degrees));
+            float error = Math.abs(decoded - degrees);
+            error = Math.min(error, 360 - error); // 359.999 may round to 0
+            assertTrue(error <= StateQuantizer.ROTATION_PRECISION_DEGREES + Math.ulp(360.0f),
+                "rotation " + degrees + " decoded as " + decoded);
+        }
+    }
+
+    @Test
+    void testRotationWrapsAround() {
+        assertEquals(quantizer.quantizeRotation(90), quantizer.quantizeRotation(450));
+        assertEquals(quantizer.quantizeRotation(270), quantizer.quantizeRotation(-90));
+        assertEquals(0, quantizer.quantizeRotation(360));
+    }
+
+    @Test
+    void testRejectsEmptyWorld() {
+        assertThrows(IllegalArgumentException.class, () -> new StateQuantizer(0, 100));
+        assertThrows(IllegalArgumentException.class, () -> new StateQuantizer(100, Float.NaN));
+    }
+}
@@ -0,0 +1,96 @@
+package org.chrisgruber.nettank.common.physics;
+
+import org.joml.Vector2f;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CapsuleColliderTest {
+
+    // A bullet: a circle of radius 7.5
+    private static CapsuleCollider bullet(float x, float y) {
+        return new CapsuleCollider(new Vector2f(x, y), 15.0f, 7.5f, 0.0f);
+    }
+
+    // A tank: radius 13.5, upright, with a short straight middle
+    private static CapsuleCollider tank(float x, float y, float rotationDegrees) {
+        return new CapsuleCollider(new Vector2f(x, y), 30.0f, 13.5f, rotationDegrees);
+    }
+
+    @Test
+    void testSweepHitsATankTheEndPointsJumpOver() {
+        CapsuleCollider moving = bullet(100, 100);
+        CapsuleCollider target = tank(200, 100, 0);
+
+        assertFalse(moving.collidesWith(target));
+        float fraction = moving.sweepAgainstCapsule(target, 200, 0);
+
+        // First touch when the centers are 21 apart, at x = 179
+        assertEquals((179 - 100) / 200.0f, fraction, 1e-4f);
+    }
+
+    @Test
+    void testSweepMissesATankBesideThePath() {
+        CapsuleCollider moving = bullet(100, 100);
+        CapsuleCollider target = tank(200, 130, 90);  // Lying flat, 30 above the path, 9 more than the two radii
+
+        assertEquals(CapsuleCollider.NO_HIT, moving.sweepAgainstCapsule(target, 200, 0));
+    }
+
+    @Test
+    void testSweepStopsShortOfATankBeyondTheMove() {
+        CapsuleCollider moving = bullet(100, 100);
+        CapsuleCollider target = tank(200, 100, 0);
+
+        assertEquals(CapsuleCollider.NO_HIT, moving.sweepAgainstCapsule(target, 70, 0));
+    }
+
+    @Test
+    void testSweepFromAnOverlapIsZero() {
+        CapsuleCollider moving = bullet(100, 100);
+        CapsuleCollider target = tank(110, 100, 0);
+
+        assertEquals(0.0f, moving.sweepAgainstCapsule(target, 200, 0));
+    }
+
+    @Test
+    void testSweepAgreesWithSamplingTheMove() {
+        Random random = new Random(11);
+        for (int i = 0; i < 2000; i++) {
+            CapsuleCollider moving = new CapsuleCollider(new Vector2f(random.nextFloat() * 100, random.nextFloat() * 100),
+                    5 + random.nextFloat() * 30, 2 + random.nextFloat() * 5, random.nextFloat() * 360);
+            CapsuleCollider target = new CapsuleCollider(new Vector2f(random.nextFloat() * 100, random.nextFloat() * 100),
+                    5 + random.nextFloat() * 30, 2 + random.nextFloat() * 12, random.nextFloat() * 360);
+            float dx = random.nextFloat() * 300 - 150;
+            float dy = random.nextFloat() * 300 - 150;
+
+            float swept = moving.sweepAgainstCapsule(target, dx, dy);
+            float sampled = firstSampledContact(moving, target, dx, dy);
+            if (swept == CapsuleCollider.NO_HIT || sampled == CapsuleCollider.NO_HIT) {
+                // Only a graze between two samples may disagree, and it lies at the very end of the move
+                assertTrue(swept == sampled || Math.max(swept, sampled) > 0.99f, "Case " + i + ": " + swept + " vs " + sampled);
+            } else {
+                assertEquals(sampled, swept, 2e-3f, "Case " + i);
+            }
+        }
+    }
+
+    private static float firstSampledContact(CapsuleCollider moving, CapsuleCollider target, float dx, float dy) {
+        Vector2f start = new Vector2f(moving.getPosition());
+        int samples = 4000;
+        try {
+            for (int i = 0; i <= samples; i++) {
+                float t = (float) i / samples;
+                moving.setPosition(new Vector2f(start).add(dx * t, dy * t));
+                if (moving.collidesWith(target)) {
+                    return t;
+                }
+            }
+            return CapsuleCollider.NO_HIT;
+        } finally {
+            moving.setPosition(start);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.chrisgruber.nettank.common.physics;
+
+import org.chrisgruber.nettank.common.world.GameMapData;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpatialGridTest {
+
+    private final GameMapData mapData = new GameMapData(50, 40, 32.0f);
+
+    @Test
+    void testFindsItemsOnlyNearThePoint() {
+        SpatialGrid<String> grid = new SpatialGrid<>(mapData, 2);
+        grid.insert("near", 100, 100, 15);
+        grid.insert("far", 1000, 1000, 15);
+
+        List<String> visited = new ArrayList<>();
+        assertNull(grid.findFirst(110, 105, 8, item -> !visited.add(item)));
+        assertEquals(List.of("near"), visited);
+    }
+
+    @Test
+    void testFindsItemsInNeighbouringCells() {
+        SpatialGrid<String> grid = new SpatialGrid<>(mapData, 2);
+        grid.insert("left", 63, 100, 15);   // Just left of the cell boundary at x = 64
+
+        assertEquals("left", grid.findFirst(70, 100, 8, item -> true));
+    }
+
+    @Test
+    void testItemsOutsideTheMapAreFiledAtTheEdge() {
+        SpatialGrid<String> grid = new SpatialGrid<>(mapData, 2);
+        grid.insert("outside", -20, 5000, 15);
+
+        assertEquals("outside", grid.findFirst(0, mapData.getWorldHeight(), 8, item -> true));
+    }
+
+    @Test
+    void testClearEmptiesTheGrid() {
+        SpatialGrid<String> grid = new SpatialGrid<>(mapData, 2);
+        grid.insert("tank", 300, 300, 15);
+        grid.clear();
+
+        assertEquals(0, grid.size());
+        assertNull(grid.findFirst(300, 300, 8, item -> true));
+    }
+
+    @Test
+    void testAgreesWithABruteForceSearch() {
+        Random random = new Random(7);
+        SpatialGrid<float[]> grid = new SpatialGrid<>(mapData, 2);
+        List<float[]> points = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            float[] point = {random.nextFloat() * mapData.getWorldWidth(), random.nextFloat() * mapData.getWorldHeight()};
+            points.add(point);
+            grid.insert(point, point[0], point[1], 15);
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            float x = random.nextFloat() * mapData.getWorldWidth();
+            float y = random.nextFloat() * mapData.getWorldHeight();
+            long expected = points.stream().filter(p -> Math.hypot(p[0] - x, p[1] - y) < 23).count();
+
+            List<float[]> found = new ArrayList<>();
+            grid.findFirst(x, y, 8, p -> {
+                if (Math.hypot(p[0] - x, p[1] - y) < 23) {
+                    found.add(p);
+                }
+                return false;
+            });
+            assertEquals(expected, found.size());
+        }
+    }
+
+    @Test
+    void testCoversOnlyMapsOfTheSameSize() {
+        SpatialGrid<String> grid = new SpatialGrid<>(mapData, 2);
+
+        assertTrue(grid.covers(new GameMapData(50, 40, 32.0f)));
+        assertFalse(grid.covers(new GameMapData(60, 40, 32.0f)));
+    }
+}
@@ -0,0 +1,176 @@
+package org.chrisgruber.nettank.common.world;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameMapDataTest {
+
+    private static final float TILE = 32.0f;
+
+    private static GameMapData mapWithWalls(int... tiles) {
+        GameMapData mapData = new GameMapData(10, 10, TILE);
+        for (int i = 0; i < tiles.length; i += 2) {
+            mapData.getTile(tiles[i], tiles[i + 1]).setOverlayType(TerrainType.FOREST);
+        }
+        return mapData;
+    }
+
+    @Test
+    void testBulletBlockerIsWhereThePathEntersTheTile() {
+        GameMapData mapData = mapWithWalls(5, 2);
+
+        TerrainHit hit = mapData.findBulletBlocker(40, 80, 240, 80);
+
+        assertNotNull(hit);
+        assertEquals(5, hit.tileX());
+        assertEquals(2, hit.tileY());
+        assertEquals(160, hit.x(), 1e-3f);
+        assertEquals(80, hit.y(), 1e-3f);
+        assertEquals(0.6f, hit.fraction(), 1e-5f);
+    }
+
+    @Test
+    void testBulletBlockerCatchesAPathClippingACorner() {
+        GameMapData mapData = mapWithWalls(3, 3);
+
+        // Cuts 1 px across the corner at (128, 96); samples half a tile apart step over it
+        TerrainHit hit = mapData.findBulletBlocker(64, 33, 129, 98);
+
+        assertNotNull(hit);
+        assertEquals(3, hit.tileX());
+        assertEquals(3, hit.tileY());
+    }
+
+    @Test
+    void testBulletBlockerReturnsNullForAClearPath() {
+        GameMapData mapData = mapWithWalls(5, 5);
+
+        assertNull(mapData.findBulletBlocker(10, 10, 300, 150));
+        assertNull(mapData.findBulletBlocker(100, 100, 100, 100));
+    }
+
+    @Test
+    void testBulletBlockerIgnoresTilesOffTheMap() {
+        GameMapData mapData = mapWithWalls(0, 4);
+
+        assertNull(mapData.findBulletBlocker(-50, 140, -5, 140));
+        assertNotNull(mapData.findBulletBlocker(-50, 140, 5, 140));
+    }
+
+    @Test
+    void testBulletBlockerAgreesWithDenseSampling() {
+        Random random = new Random(5);
+        for (int i = 0; i < 500; i++) {
+            GameMapData mapData = new GameMapData(10, 10, TILE);
+            for (int x = 0; x < 10; x++) {
+                for (int y = 0; y < 10; y++) {
+                    if (random.nextFloat() < 0.15f) {
+                        mapData.getTile(x, y).setOverlayType(TerrainType.FOREST);
+                    }
+                }
+            }
+            float startX = random.nextFloat() * 340 - 20;
+            float startY = random.nextFloat() * 340 - 20;
+            float endX = random.nextFloat() * 340 - 20;
+            float endY = random.nextFloat() * 340 - 20;
+
+            TerrainHit hit = mapData.findBulletBlocker(startX, startY, endX, endY);
+            float sampled = firstSampledBlock(mapData, startX, startY, endX, endY);
+            if (hit == null) {
+                assertTrue(sampled < 0, "Case " + i + " missed a block at " + sampled);
+            } else {
+                assertEquals(sampled, hit.fraction(), 1e-3f, "Case " + i);
+            }
+        }
+    }
+
+    private static float firstSampledBlock(GameMapData mapData, float startX, float startY, float endX, float endY) {
+        int samples = 20000;
+        for (int i = 0; i <= samples; i++) {
+            float t = (float) i / samples;
+            int tileX = (int) Math.floor((startX + (endX - startX) * t) / TILE);
+            int tileY = (int) Math.floor((startY + (endY - startY) * t) / TILE);
+            TerrainTile tile = mapData.getTile(tileX, tileY);
+            if (tile != null && tile.blocksBullets()) {
+                return t;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    void testTileViewsShareThePackedTerrain() {
+        GameMapData mapData = new GameMapData(10, 10, TILE);
+        mapData.getTile(3, 4).setOverlayType(TerrainType.FOREST);
+        mapData.getTile(3, 4).setCurrentState(TerrainState.BURNING);
+
+        TerrainTile tile = mapData.getTile(3, 4);
+        assertEquals(TerrainType.GRASS, tile.getBaseType());
+        assertEquals(TerrainType.FOREST, tile.getEffectiveType());
+        assertEquals(TerrainState.BURNING, tile.getCurrentState());
+        assertTrue(mapData.blocksBulletsAt(3 * TILE + 1, 4 * TILE + 1));
+        assertFalse(mapData.getTile(4, 3).hasOverlay());
+
+        tile.setOverlayType(null);
+        assertFalse(mapData.getTile(3, 4).hasOverlay());
+        assertTrue(mapData.isPassableAt(3 * TILE + 1, 4 * TILE + 1));
+    }
+
+    @Test
+    void testVisualOverlaysAndTimesArePerTile() {
+        GameMapData mapData = new GameMapData(10, 10, TILE);
+        mapData.getTile(1, 1).setVisualOverlay("tracks");
+        mapData.getTile(2, 1).setVisualOverlay("road");
+        mapData.getTile(3, 1).setVisualOverlay("tracks");
+        mapData.getTile(2, 1).setVisualOverlay(null);
+        mapData.getTile(5, 5).setStateChangeTime(1234L);
+        mapData.getTile(5, 5).setFireDuration(15000L);
+
+        assertEquals("tracks", mapData.getTile(1, 1).getVisualOverlay());
+        assertFalse(mapData.getTile(2, 1).hasVisualOverlay());
+        assertEquals("tracks", mapData.getTile(3, 1).getVisualOverlay());
+        assertEquals(1234L, mapData.getTile(5, 5).getStateChangeTime());
+        assertEquals(15000L, mapData.getTile(5, 5).getFireDuration());
+        assertEquals(0L, mapData.getTile(5, 6).getStateChangeTime());
+    }
+
+    @Test
+    void testStandaloneTileStartsAsBefore() {
+        TerrainTile tile = new TerrainTile(TerrainType.SAND);
+
+        assertEquals(TerrainType.SAND, tile.getEffectiveType());
+        assertNull(tile.getOverlayType());
+        assertNull(tile.getVisualOverlay());
+        assertEquals(TerrainState.NORMAL, tile.getCurrentState());
+        assertEquals(0L, tile.getFireDuration());
+    }
+
+    @Test
+    void testTilePropertiesFollowEveryChange() {
+        GameMapData mapData = new GameMapData(10, 10, TILE);
+        TerrainTile tile = mapData.getTile(2, 2);
+        float x = 2 * TILE + 5;
+        float y = 2 * TILE + 5;
+
+        for (TerrainType base : TerrainType.values()) {
+            for (TerrainType overlay : new TerrainType[] {null, TerrainType.FOREST, TerrainType.MOUNTAIN}) {
+                for (TerrainState state : TerrainState.values()) {
+                    tile.setBaseType(base);
+                    tile.setOverlayType(overlay);
+                    tile.setCurrentState(state);
+
+                    TerrainType effective = overlay != null ? overlay : base;
+                    String context = base + "/" + overlay + "/" + state;
+                    assertEquals(effective.isPassable(), mapData.isPassableAt(x, y), context);
+                    assertEquals(effective.blocksBullets(), mapData.blocksBulletsAt(x, y), context);
+                    assertEquals(effective.getVisionBlocking().blocksVision(), mapData.blocksVisionAt(x, y), context);
+                    assertEquals(effective.isDestructible(), tile.isDestructible(), context);
+                    assertEquals(effective.getSpeedModifier() * state.getSpeedModifier(), mapData.getSpeedModifierAt(x, y), 1e-4f, context);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package org.chrisgruber.nettank.common.world;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TerrainCodecTest {
+
+    // Grass with patches of other ground and scattered overlays, like a generated map
+    private static GameMapData patchyMap(int width, int height, long seed) {
+        Random random = new Random(seed);
+        GameMapData mapData = new GameMapData(width, height);
+        TerrainType[] types = TerrainType.values();
+        for (int patch = 0; patch < width * height / 200; patch++) {
+            TerrainType type = types[random.nextInt(types.length)];
+            int x0 = random.nextInt(width);
+            int y0 = random.nextInt(height);
+            for (int y = y0; y < Math.min(height, y0 + 6); y++) {
+                for (int x = x0; x < Math.min(width, x0 + 8); x++) {
+                    mapData.getTile(x, y).setBaseType(type);
+                }
+            }
+        }
+        for (int i = 0; i < width * height / 20; i++) {
+            TerrainTile tile = mapData.getTile(random.nextInt(width), random.nextInt(height));
+            tile.setOverlayType(random.nextBoolean() ? TerrainType.FOREST : TerrainType.MOUNTAIN);
+        }
+        return mapData;
+    }
+
+    private static void assertSameTerrain(GameMapData expected, GameMapData actual) {
+        for (int y = 0; y < expected.getHeightTiles(); y++) {
+            for (int x = 0; x < expected.getWidthTiles(); x++) {
+                assertEquals(expected.getTile(x, y).getBaseType(), actual.getTile(x, y).getBaseType(), x + "," + y);
+                assertEquals(expected.getTile(x, y).getOverlayType(), actual.getTile(x, y).getOverlayType(), x + "," + y);
+            }
+        }
+    }
+
+    @Test
+    void testRoundTripWithAndWithoutDeflate() {
+        GameMapData original = patchyMap(120, 80, 3);
+
+        for (int flags : new int[] {0, TerrainCodec.FLAG_DEFLATE}) {
+            GameMapData decoded = new GameMapData(120, 80);
+            TerrainCodec.decode(decoded, TerrainCodec.encode(original, flags), flags);
+            assertSameTerrain(original, decoded);
+        }
+    }
+
+    @Test
+    void testEveryBaseAndOverlayCombinationRoundTrips() {
+        TerrainType[] types = TerrainType.values();
+        GameMapData original = new GameMapData(types.length, types.length + 1);
+        for (int x = 0; x < types.length; x++) {
+            for (int y = 0; y <= types.length; y++) {
+                original.getTile(x, y).setBaseType(types[x]);
+                original.getTile(x, y).setOverlayType(y == types.length ? null : types[y]);
+            }
+        }
+
+        GameMapData decoded = new GameMapData(types.length, types.length + 1);
+        TerrainCodec.decode(decoded, TerrainCodec.encode(original, 0), 0);
+        assertSameTerrain(original, decoded);
+        assertEquals(original.blocksBulletsAt(40, 40), decoded.blocksBulletsAt(40, 40));
+    }
+
+    @Test
+    void testEncodingIsMuchSmallerThanTheCsv() {
+        GameMapData mapData = patchyMap(200, 200, 9);
+        int csv = TerrainEncoder.encode(mapData).length();
+
+        assertTrue(TerrainCodec.encode(mapData, 0).length < csv / 2);
+        assertTrue(TerrainCodec.encode(mapData, TerrainCodec.FLAG_DEFLATE).length < csv / 10);
+    }
+
+    @Test
+    void testTruncatedDataIsRejected() {
+        GameMapData mapData = patchyMap(50, 50, 4);
+
+        for (int flags : new int[] {0, TerrainCodec.FLAG_DEFLATE}) {
+            byte[] encoded = TerrainCodec.encode(mapData, flags);
+            byte[] truncated = Arrays.copyOf(encoded, encoded.length - 3);
+            assertThrows(IllegalArgumentException.class, () -> TerrainCodec.decode(new GameMapData(50, 50), truncated, flags));
+        }
+    }
+
+    @Test
+    void testDataForADifferentMapSizeIsRejected() {
+        byte[] encoded = TerrainCodec.encode(patchyMap(50, 50, 4), 0);
+
+        assertThrows(IllegalArgumentException.class, () -> TerrainCodec.decode(new GameMapData(50, 49), encoded, 0));
+        assertThrows(IllegalArgumentException.class, () -> TerrainCodec.decode(new GameMapData(50, 51), encoded, 0));
+    }
+
+    @Test
+    void testChecksumMatchesOnlyTheSameTerrain() {
+        GameMapData generated = new GameMapData(80, 60);
+        GameMapData regenerated = new GameMapData(80, 60);
+        GameMapData otherSeed = new GameMapData(80, 60);
+        new ProceduralTerrainGenerator(17L).generateProceduralTerrain(generated, BaseTerrainProfile.GRASSLAND);
+        new ProceduralTerrainGenerator(17L).generateProceduralTerrain(regenerated, BaseTerrainProfile.GRASSLAND);
+        new ProceduralTerrainGenerator(18L).generateProceduralTerrain(otherSeed, BaseTerrainProfile.GRASSLAND);
+
+        assertEquals(TerrainCodec.checksum(generated), TerrainCodec.checksum(regenerated));
+        assertNotEquals(TerrainCodec.checksum(generated), TerrainCodec.checksum(otherSeed));
+
+        TerrainTile tile = regenerated.getTile(40, 30);
+        tile.setOverlayType(tile.hasOverlay() ? null : TerrainType.FOREST);
+        assertNotEquals(TerrainCodec.checksum(generated), TerrainCodec.checksum(regenerated));
+    }
+
+    @Test
+    void testCorruptDataIsRejected() {
+        // A run of one tile with base type 15, which does not exist
+        assertThrows(IllegalArgumentException.class, () -> TerrainCodec.decode(new GameMapData(1, 1), new byte[] {1, 0x0F}, 0));
+        // A run of zero tiles
+        assertThrows(IllegalArgumentException.class, () -> TerrainCodec.decode(new GameMapData(1, 1), new byte[] {0, 0}, 0));
+        // Not deflate data at all
+        assertThrows(IllegalArgumentException.class,
+                () -> TerrainCodec.decode(new GameMapData(1, 1), new byte[] {1, 2, 3, 4}, TerrainCodec.FLAG_DEFLATE));
+    }
+}
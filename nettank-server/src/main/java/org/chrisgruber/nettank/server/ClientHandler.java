@@ -1,29 +1,41 @@
 package org.chrisgruber.nettank.server;
 
+import org.chrisgruber.nettank.common.network.BinaryProtocol;
 import org.chrisgruber.nettank.common.network.NetworkProtocol;
+import org.chrisgruber.nettank.common.network.WireFormat;
+import org.chrisgruber.nettank.common.network.WireIO;
+import org.chrisgruber.nettank.server.network.NioConnection;
+import org.chrisgruber.nettank.server.network.OutboundMessage;
+import org.chrisgruber.nettank.server.network.SendQueue;
+import org.chrisgruber.nettank.server.network.ServerMessage;
+import org.chrisgruber.nettank.server.network.UdpChannel;
+import org.chrisgruber.nettank.server.network.WriteStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.net.Socket;
 import java.net.SocketException;
-import java.util.concurrent.BlockingQueue; // Import
-import java.util.concurrent.LinkedBlockingQueue; // Import
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.util.concurrent.TimeUnit; // Import
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class ClientHandler implements Runnable {
     private static final Logger logger = LoggerFactory.getLogger(ClientHandler.class);
     private Socket socket;
     private final GameServer server;
-    private PrintWriter out;
-    private BufferedReader in;
+    private OutputStream out;
+    private DataInputStream in;
     private final Object connectionLock = new Object(); // Keep for initial setup & reader thread access
     private volatile boolean running = false;
     private volatile boolean shuttingDown = false;
 
-    // Player specific info
-    private int playerId = -1;
-    private String playerName = null;
+    // Player specific info - set by the GameLoop thread when it runs the registration command
+    private volatile int playerId = -1;
+    private volatile String playerName = null;
+    private volatile boolean registrationPending = false; // CON accepted, registration command not run yet
+    private volatile Thread readerThread;
 
     // Registration timeout
     private static final long REGISTRATION_TIMEOUT_MS = 5000; // 5 seconds
@@ -34,17 +46,65 @@ public class ClientHandler implements Runnable {
     private final long heartbeatTimeoutMs;
     private volatile long lastActivityTime;
 
+    // Wire format - every connection starts in text and may switch to binary during the CON handshake
+    private static final boolean BINARY_PROTOCOL_ENABLED =
+            Boolean.parseBoolean(System.getProperty("nettank.protocol.binary", "true"));
+    public static final int MAX_TEXT_LINE_BYTES = 1024; // Hard read limit; parseClientMessage enforces the real one
+    private volatile WireFormat inboundFormat = WireFormat.TEXT;
+
+    // Last snapshot tick this client acknowledged (piggybacked on INP/PIN), used as its delta baseline
+    private volatile long ackedSnapshotTick = -1;
+
+    // Terrain as TerrainCodec chunks instead of the CSV line, for binary clients that ask for it in CON
+    private static final boolean BINARY_TERRAIN_ENABLED =
+            Boolean.parseBoolean(System.getProperty("nettank.terrain.binary", "true"));
+    private volatile boolean binaryTerrain;
+
+    // Terrain as TERRAIN_INIT (seed and profile) for binary clients that can rebuild the map and ask for it in CON
+    private static final boolean SEED_TERRAIN_ENABLED =
+            Boolean.parseBoolean(System.getProperty("nettank.terrain.seed", "true"));
+    private volatile boolean seedTerrain;
+
+    // Optional UDP side channel for snapshots and input, offered when the client asks for it in CON
+    private volatile UdpChannel.Session udpSession;
+
     // --- Send Queue ---
-    private final BlockingQueue<String> sendQueue = new LinkedBlockingQueue<>();
+    // Bounded per connection; a client whose queue stays above the high-water mark for too long, or fills it, is evicted
+    private static final int SEND_QUEUE_CAPACITY = Integer.getInteger("nettank.send.queue.capacity", SendQueue.DEFAULT_CAPACITY);
+    private static final int SEND_QUEUE_HIGH_WATER_MARK = Integer.getInteger("nettank.send.queue.highwater", SEND_QUEUE_CAPACITY * 3 / 4);
+    private static final long SEND_QUEUE_EVICT_MS = Long.getLong("nettank.send.queue.evict.ms", 5000);
+    private final SendQueue sendQueue = new SendQueue(SEND_QUEUE_CAPACITY, SEND_QUEUE_HIGH_WATER_MARK);
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    // Flush mode: "message" flushes after every message, "tick" writes a tick's messages and flushes once at its end
+    private static final String FLUSH_MODE_MESSAGE = "message";
+    private static final String FLUSH_MODE_TICK = "tick";
+    private static final boolean TICK_FLUSH = FLUSH_MODE_TICK.equalsIgnoreCase(System.getProperty("nettank.flush.mode", FLUSH_MODE_MESSAGE));
+    private static final long MAX_FLUSH_DELAY_MS = 50; // Upper bound on buffering if no tick end arrives (e.g. the loop stalls)
+    private final WriteStats writeStats = new WriteStats();
     private Thread senderThread;
-    private static final String POISON_PILL = "///POISON_PILL///"; // Special message to stop sender
+    private static final OutboundMessage POISON_PILL = new OutboundMessage(new ServerMessage.Text("///POISON_PILL///")); // Special message to stop sender
 
     private static final String CLIENT_HANDLER_READER = "ClientHandler-Reader-";
     private static final String CLIENT_HANDLER_SENDER = "ClientHandler-Sender-";
 
+    // Set when the connection is served by the NIO selector transport instead of reader/sender threads
+    private final NioConnection nioConnection;
+
     public ClientHandler(Socket socket, GameServer server) {
+        this(socket, server, null);
+    }
+
+    // Used by the NIO transport: the selector thread delivers reads through receive() and drains queued messages itself
+    public ClientHandler(NioConnection connection, GameServer server) {
+        this(connection.socket(), server, connection);
+        this.running = true;
+    }
+
+    private ClientHandler(Socket socket, GameServer server, NioConnection nioConnection) {
         this.socket = socket;
         this.server = server;
+        this.nioConnection = nioConnection;
         this.connectionStartTime = System.currentTimeMillis();
         this.lastActivityTime = System.currentTimeMillis();
         
@@ -60,14 +120,23 @@ public class ClientHandler implements Runnable {
             }
         }
         this.heartbeatTimeoutMs = configuredTimeout;
+
+        server.connectionOpened();
     }
 
     public void setPlayerInfo(int id, String name) {
         this.playerId = id;
         this.playerName = name;
 
-        // Set thread name now that we have player info
-        Thread.currentThread().setName(CLIENT_HANDLER_READER + id + "-" + name);
+        if (nioConnection != null) {
+            return; // Running on the shared selector thread, which keeps its own name
+        }
+
+        // Set thread name now that we have player info (this runs on the GameLoop thread, so name the reader explicitly)
+        Thread reader = readerThread;
+        if (reader != null) {
+            reader.setName(CLIENT_HANDLER_READER + id + "-" + name);
+        }
 
         if (senderThread != null) {
             senderThread.setName(CLIENT_HANDLER_SENDER + id + "-" + name);
@@ -83,9 +152,10 @@ public class ClientHandler implements Runnable {
             logger.info("Client handler reader loop started.");
         }
         running = true; // Mark as running
+        readerThread = Thread.currentThread();
 
         try {
-            BufferedReader localIn; // Use local reference
+            DataInputStream localIn; // Use local reference
             synchronized(connectionLock) {
                 if (in == null) { // Check if already closed during setup
                     logger.error("Input stream is null at reader start for client {}", playerId);
@@ -94,29 +164,20 @@ public class ClientHandler implements Runnable {
                 localIn = in;
             }
 
-            String clientMessage;
+            Object clientMessage;
             while (running && !Thread.currentThread().isInterrupted()) {
-                long currentTime = System.currentTimeMillis();
-                
-                // Check registration timeout for unregistered clients
-                if (playerId == -1 && (currentTime - connectionStartTime > REGISTRATION_TIMEOUT_MS)) {
-                    logger.debug("Client failed to register within {}ms, closing connection", REGISTRATION_TIMEOUT_MS);
-                    closeConnection("Registration timeout");
-                    break;
-                }
-                
-                // Check heartbeat timeout for registered players
-                if (playerId != -1 && (currentTime - lastActivityTime > heartbeatTimeoutMs)) {
-                    logger.warn("Player {} ({}ms) idle, no heartbeat received for {}ms, disconnecting", 
-                            playerId, currentTime - lastActivityTime, heartbeatTimeoutMs);
-                    closeConnection("Heartbeat timeout");
+                if (checkTimeouts(System.currentTimeMillis())) {
                     break;
                 }
 
                 clientMessage = null;
                 try {
                     // Read OUTSIDE lock
-                    clientMessage = localIn.readLine();
+                    if (inboundFormat == WireFormat.BINARY) {
+                        clientMessage = WireIO.readFrame(localIn, BinaryProtocol.MAX_CLIENT_FRAME_LENGTH);
+                    } else {
+                        clientMessage = WireIO.readLine(localIn, MAX_TEXT_LINE_BYTES);
+                    }
 
                     if (!running) break; // Check flag after a potential block
 
@@ -130,12 +191,7 @@ public class ClientHandler implements Runnable {
                         break;
                     }
 
-                    logger.debug("Client {} received: {}", playerId, clientMessage);
-                    
-                    // Update last activity time on any message received
-                    lastActivityTime = System.currentTimeMillis();
-                    
-                    parseClientMessage(clientMessage);
+                    receive(clientMessage);
 
                 } catch (SocketException e) {
                     if (running && !shuttingDown) {
@@ -200,7 +256,7 @@ public class ClientHandler implements Runnable {
             logger.info("Client handler sender loop started for player {}.", playerId);
         }
 
-        PrintWriter localOut;
+        OutputStream localOut;
         Socket localSocket; // Needed for checking output shutdown status
 
         try {
@@ -213,11 +269,26 @@ public class ClientHandler implements Runnable {
                 localSocket = socket;
             }
 
+            WireFormat outboundFormat = WireFormat.TEXT;
+            int unflushed = 0; // Messages written since the last flush (tick flush mode only)
+
             while (!Thread.currentThread().isInterrupted()) {
-                String message = null;
+                OutboundMessage message = null;
                 try {
                     // Block until a message is available or interrupted
-                    message = sendQueue.poll(1, TimeUnit.SECONDS); // Poll with timeout
+                    if (TICK_FLUSH) {
+                        // Returns null at the end of a tick once everything queued has been written
+                        message = sendQueue.pollUntilFlush(unflushed > 0 ? MAX_FLUSH_DELAY_MS : 1000, TimeUnit.MILLISECONDS);
+                    } else {
+                        message = sendQueue.poll(1, TimeUnit.SECONDS); // Poll with timeout
+                    }
+
+                    if (message == null && unflushed > 0) {
+                        localOut.flush();
+                        logger.trace("Sender loop for {} flushed {} messages.", playerId, unflushed);
+                        unflushed = 0;
+                        continue;
+                    }
 
                     if (message == null) {
                         // Timeout occurred, check if still running
@@ -229,22 +300,28 @@ public class ClientHandler implements Runnable {
                     }
 
 
-                    if (POISON_PILL.equals(message)) {
+                    if (message == POISON_PILL) {
                         logger.debug("Sender loop for {} received poison pill. Exiting.", playerId);
                         break; // Exit signal
                     }
 
                     // Perform blocking IO outside any lock shared with reader/main server thread
                     logger.trace("Sender loop for {} sending message: {}", playerId, message);
-                    localOut.println(message);
-                    localOut.flush(); // Ensure it's sent
-
-                    if (localOut.checkError()) {
-                        logger.error("PrintWriter error flag set for client {} after sending/flushing message: {}", playerId, message);
-                        closeConnection("PrintWriter error"); // Trigger cleanup
-                        break; // Exit sender loop
+                    if (message.message() instanceof ServerMessage.ProtocolSwitch) {
+                        // Last text line; everything queued after it goes out as binary frames
+                        message.writeTo(localOut, WireFormat.TEXT);
+                        outboundFormat = WireFormat.BINARY;
+                    } else {
+                        // Shared bytes - encoded once no matter how many clients this message was queued for
+                        message.writeTo(localOut, outboundFormat);
+                    }
+                    writeStats.recordMessage();
+                    if (TICK_FLUSH) {
+                        unflushed++;
+                    } else {
+                        localOut.flush(); // Ensure it's sent
+                        logger.trace("Sender loop for {} flushed message.", playerId);
                     }
-                    logger.trace("Sender loop for {} flushed message.", playerId);
 
                 } catch (InterruptedException e) {
                     logger.info("Sender loop for {} interrupted. Exiting.", playerId);
@@ -287,8 +364,9 @@ public class ClientHandler implements Runnable {
         try {
             synchronized(connectionLock) {
                 // Set up streams early - if this fails, we can't proceed
-                out = new PrintWriter(socket.getOutputStream(), true);
-                in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+                // Counted below the buffer, so every write that reaches the socket is recorded
+                out = new BufferedOutputStream(writeStats.countingStream(socket.getOutputStream()));
+                in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
             }
 
             // Start the sender thread as virtual thread for I/O-bound sending
@@ -323,6 +401,62 @@ public class ClientHandler implements Runnable {
         }
     }
 
+    // Closes the connection if the client failed to register in time or stopped sending heartbeats; returns true if it did
+    public boolean checkTimeouts(long currentTime) {
+        // Check registration timeout for unregistered clients
+        if (playerId == -1 && (currentTime - connectionStartTime > REGISTRATION_TIMEOUT_MS)) {
+            logger.debug("Client failed to register within {}ms, closing connection", REGISTRATION_TIMEOUT_MS);
+            closeConnection("Registration timeout");
+            return true;
+        }
+
+        // Check heartbeat timeout for registered players
+        if (playerId != -1 && (currentTime - lastActivityTime > heartbeatTimeoutMs)) {
+            logger.warn("Player {} ({}ms) idle, no heartbeat received for {}ms, disconnecting",
+                    playerId, currentTime - lastActivityTime, heartbeatTimeoutMs);
+            closeConnection("Heartbeat timeout");
+            return true;
+        }
+
+        // A client that stopped reading may still send input, so its queue is also checked here and not only on send
+        if (sendQueue.millisOverHighWater(currentTime) > SEND_QUEUE_EVICT_MS) {
+            logger.warn("Player {} send queue above {} messages for over {}ms (depth {}), disconnecting",
+                    playerId, sendQueue.highWaterMark(), SEND_QUEUE_EVICT_MS, sendQueue.depth());
+            closeConnection("Send queue above high-water mark for over " + SEND_QUEUE_EVICT_MS + "ms");
+            return true;
+        }
+        return false;
+    }
+
+    // Handles one message read by either transport: a text line (String) or a binary frame (ByteBuffer at its opcode)
+    public void receive(Object clientMessage) {
+        logger.debug("Client {} received: {}", playerId, clientMessage);
+
+        // Update last activity time on any message received
+        lastActivityTime = System.currentTimeMillis();
+
+        if (clientMessage instanceof ByteBuffer frame) {
+            parseClientFrame(frame);
+        } else {
+            parseClientMessage((String) clientMessage);
+        }
+    }
+
+    // True if the client gets terrain as TERRAIN_BEGIN and TERRAIN_CHUNK frames rather than a TERRAIN_DATA line
+    public boolean usesBinaryTerrain() {
+        return binaryTerrain;
+    }
+
+    // True if the client gets TERRAIN_INIT and rebuilds the map itself, with the full terrain only after a failed check
+    public boolean usesSeedTerrain() {
+        return seedTerrain;
+    }
+
+    // Format of the next message expected from the client; switches to BINARY while the CON line is handled
+    public WireFormat getInboundFormat() {
+        return inboundFormat;
+    }
+
     private void parseClientMessage(String message) {
         if (message == null) {
             logger.warn("Null message received from client {}", playerId);
@@ -349,8 +483,9 @@ public class ClientHandler implements Runnable {
 
             String command = parts[0];
 
-            // Authenticate: Only allow CONNECT messages before player registration
-            if (playerId == -1 && !NetworkProtocol.CONNECT.equals(command)) {
+            // Authenticate: Only allow CONNECT messages before player registration.
+            // Messages after an accepted CON are fine: their commands queue behind the registration.
+            if (playerId == -1 && !registrationPending && !NetworkProtocol.CONNECT.equals(command)) {
                 logger.warn("Unauthorized message before registration: {}", message);
                 closeConnection("Authentication required");
                 return;
@@ -361,10 +496,16 @@ public class ClientHandler implements Runnable {
                 case NetworkProtocol.CONNECT -> handleConnectMessage(parts);
                 case NetworkProtocol.INPUT -> handleInputMessage(parts);
                 case NetworkProtocol.SHOOT_CMD -> handleShootCommand();
-                case NetworkProtocol.PING -> handlePingMessage();
+                case NetworkProtocol.PING -> {
+                    if (parts.length >= 2) {
+                        acknowledgeSnapshot(Long.parseLong(parts[1]));
+                    } else {
+                        handlePingMessage();
+                    }
+                }
                 default -> {
                     logger.warn("Unknown command from client {}: {}", playerId, command);
-                    sendMessage(NetworkProtocol.ERROR_MSG + ";Unknown command");
+                    sendMessage(new ServerMessage.Error("Unknown command"));
                 }
             }
         } catch (Exception e) {
@@ -374,6 +515,47 @@ public class ClientHandler implements Runnable {
         }
     }
 
+    // Binary counterpart of parseClientMessage; only used after the CON handshake switched the connection
+    private void parseClientFrame(ByteBuffer frame) {
+        try {
+            byte opcode = frame.get();
+            switch (opcode) {
+                case BinaryProtocol.INPUT -> {
+                    int mask = Byte.toUnsignedInt(frame.get());
+                    if (frame.remaining() >= Long.BYTES) {
+                        acknowledgeSnapshot(frame.getLong());
+                    }
+                    submitMovementInput(
+                            (mask & BinaryProtocol.INPUT_FORWARD) != 0,
+                            (mask & BinaryProtocol.INPUT_BACKWARD) != 0,
+                            (mask & BinaryProtocol.INPUT_LEFT) != 0,
+                            (mask & BinaryProtocol.INPUT_RIGHT) != 0);
+                }
+                case BinaryProtocol.SHOOT_CMD -> handleShootCommand();
+                case BinaryProtocol.PING -> {
+                    if (frame.remaining() >= Long.BYTES) {
+                        acknowledgeSnapshot(frame.getLong());
+                    } else {
+                        handlePingMessage();
+                    }
+                }
+                case BinaryProtocol.TERRAIN_CHECK -> {
+                    long seed = frame.getLong();
+                    boolean matched = frame.get() != 0;
+                    server.submit(() -> server.handleTerrainCheck(playerId, seed, matched));
+                }
+                case BinaryProtocol.UDP_CLOSE -> closeUdpSession("client gave up on UDP");
+                default -> {
+                    logger.warn("Unknown opcode from client {}: 0x{}", playerId, Integer.toHexString(Byte.toUnsignedInt(opcode)));
+                    sendMessage(new ServerMessage.Error("Unknown command"));
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            logger.warn("Truncated frame from client {}", playerId);
+            closeConnection("Malformed frame");
+        }
+    }
+
     private String sanitizeLogMessage(String message) {
         // Prevent log injection by limiting length in logs
         return message.length() > 50 ? message.substring(0, 47) + "..." : message;
@@ -382,12 +564,12 @@ public class ClientHandler implements Runnable {
     private void handleConnectMessage(String[] parts) {
         if (parts.length < 2) {
             logger.warn("Malformed CONNECT message from client {}", playerId);
-            sendMessage(NetworkProtocol.ERROR_MSG + ";Invalid connection request");
+            sendMessage(new ServerMessage.Error("Invalid connection request"));
             closeConnection("Malformed CONNECT message");
             return;
         }
 
-        if (playerId != -1) {
+        if (playerId != -1 || registrationPending) {
             logger.warn("Client {} sent duplicate CONNECT message", playerId);
             return;
         }
@@ -396,13 +578,64 @@ public class ClientHandler implements Runnable {
         // Security check: Name validation
         if (!isValidPlayerName(name)) {
             logger.warn("Invalid player name received: '{}'", name);
-            sendMessage(NetworkProtocol.ERROR_MSG + ";Invalid player name");
+            sendMessage(new ServerMessage.Error("Invalid player name"));
             closeConnection("Invalid player name");
             return;
         }
 
         logger.info("Registration request from client: {}", name);
-        server.registerPlayer(this, name);
+
+        // Negotiate the wire format before registering, so every registration message already uses it
+        boolean binary = BINARY_PROTOCOL_ENABLED && hasCapability(parts, BinaryProtocol.CAPABILITY);
+        if (binary) {
+            logger.debug("Client {} negotiated the binary protocol", name);
+            sendMessage(new ServerMessage.ProtocolSwitch());
+            inboundFormat = WireFormat.BINARY;
+        }
+
+        binaryTerrain = binary && BINARY_TERRAIN_ENABLED && hasCapability(parts, BinaryProtocol.TERRAIN_CAPABILITY);
+        seedTerrain = binary && SEED_TERRAIN_ENABLED && hasCapability(parts, BinaryProtocol.SEED_TERRAIN_CAPABILITY);
+        boolean udpRequested = binary && hasCapability(parts, BinaryProtocol.UDP_CAPABILITY);
+        registrationPending = true;
+        server.submit(() -> {
+            if (shuttingDown) {
+                return; // Closed while the command was queued
+            }
+            server.registerPlayer(this, name);
+            registrationPending = false;
+            if (udpRequested) {
+                offerUdpChannel();
+            }
+        });
+    }
+
+    // Datagrams carry binary frames, so UDP is only offered on top of the binary protocol
+    private void offerUdpChannel() {
+        UdpChannel udpChannel = server.getUdpChannel();
+        if (udpChannel != null && playerId != -1 && !shuttingDown) {
+            udpSession = udpChannel.openSession(this);
+            logger.debug("Offering UDP channel on port {} to player {}", udpChannel.getLocalPort(), playerId);
+            sendMessage(new ServerMessage.UdpOffer(udpSession.token(), udpChannel.getLocalPort()));
+        }
+    }
+
+    // Releases the UDP session, if any; state then goes over TCP again
+    private void closeUdpSession(String reason) {
+        UdpChannel.Session session = udpSession;
+        if (session != null) {
+            udpSession = null;
+            session.close();
+            logger.debug("Closed UDP session of player {}: {}", playerId, reason);
+        }
+    }
+
+    private static boolean hasCapability(String[] parts, String capability) {
+        for (int i = 2; i < parts.length; i++) {
+            if (capability.equals(parts[i])) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private boolean isValidPlayerName(String name) {
@@ -421,42 +654,116 @@ public class ClientHandler implements Runnable {
             boolean s = Boolean.parseBoolean(parts[2]);
             boolean a = Boolean.parseBoolean(parts[3]);
             boolean d = Boolean.parseBoolean(parts[4]);
-            server.handlePlayerMovementInput(playerId, w, s, a, d);
+            if (parts.length >= 6) {
+                acknowledgeSnapshot(Long.parseLong(parts[5]));
+            }
+            submitMovementInput(w, s, a, d);
         } catch (Exception e) {
             logger.error("Error parsing INPUT parameters from client {}", playerId, e);
         }
     }
 
+    // Input is applied by the GameLoop thread at the start of its next tick; playerId is read there, after any queued registration
+    private void submitMovementInput(boolean w, boolean s, boolean a, boolean d) {
+        server.submit(() -> server.handlePlayerMovementInput(playerId, w, s, a, d));
+    }
+
     private void handleShootCommand() {
-        server.handlePlayerShootMainWeaponInput(playerId);
+        server.submit(() -> server.handlePlayerShootMainWeaponInput(playerId));
+    }
+
+    // Acks can arrive out of order relative to each other's sends, so only ever move the baseline forward
+    private void acknowledgeSnapshot(long tick) {
+        if (tick > ackedSnapshotTick) {
+            ackedSnapshotTick = tick;
+            logger.trace("Player {} acknowledged snapshot tick {}", playerId, tick);
+        }
+    }
+
+    public long getAckedSnapshotTick() {
+        return ackedSnapshotTick;
     }
 
     private void handlePingMessage() {
         // Heartbeat received - activity time already updated in the reader loop
         logger.trace("Heartbeat received from player {}", playerId);
         // Optionally send PONG response
-        sendMessage(NetworkProtocol.PONG);
+        sendMessage(new ServerMessage.Pong());
     }
 
-    // Non-blocking: Adds a message to the queue for the sender thread
+    // Non-blocking: Adds a raw text protocol line to the queue for the sender thread
     public void sendMessage(String message) {
+        sendMessage(new ServerMessage.Text(message));
+    }
+
+    // Non-blocking: Adds a message for this client only to the queue for the sender thread
+    public void sendMessage(ServerMessage message) {
+        sendMessage(new OutboundMessage(message));
+    }
+
+    // Non-blocking: Adds an already wrapped (possibly shared) message to the queue for the sender thread
+    public void sendMessage(OutboundMessage message) {
         if (!running || shuttingDown) {
             logger.warn("Attempted to queue message for {} but handler not running or shutting down: {}", playerId, message);
             return;
         }
-        try {
-            logger.trace("Queuing message for client {}: {}", playerId, message);
-            // Offer might be better if queue could be bounded, but LinkedBlockingQueue is effectively unbounded
-            sendQueue.put(message);
-        } catch (InterruptedException e) {
-            logger.warn("Interrupted while queuing message for client {}: {}", playerId, message);
-            Thread.currentThread().interrupt();
-        } catch (Exception e) {
-            // Should generally not happen with LinkedBlockingQueue unless maybe out of memory
-            logger.error("Error queuing message for client {}: {}", playerId, message, e);
+        logger.trace("Queuing message for client {}: {}", playerId, message);
+        if (!sendQueue.offer(message)) {
+            // Dropping a reliable event would desync the client, so a full queue ends the connection
+            evict("Send queue full (" + sendQueue.capacity() + " messages)");
+            return;
+        }
+        if (sendQueue.millisOverHighWater(System.currentTimeMillis()) > SEND_QUEUE_EVICT_MS) {
+            evict("Send queue above high-water mark for over " + SEND_QUEUE_EVICT_MS + "ms");
+        }
+        if (nioConnection != null && !TICK_FLUSH) {
+            nioConnection.scheduleFlush();
+        }
+    }
+
+    // Senders are usually the game loop, which must not run the close itself (it joins the sender thread and takes locks)
+    private void evict(String reason) {
+        if (evicting.compareAndSet(false, true)) {
+            logger.warn("Evicting slow client {}: {} (depth {}, peak {}, {} snapshots coalesced)",
+                    playerId, reason, sendQueue.depth(), sendQueue.peakDepth(), sendQueue.coalescedCount());
+            Thread.ofVirtual()
+                    .name("ClientHandler-Evict-" + playerId)
+                    .start(() -> closeConnection(reason));
+        }
+    }
+
+    // Outbound queue of this connection, drained by the sender thread or the NIO selector thread
+    public SendQueue getSendQueue() {
+        return sendQueue;
+    }
+
+    public WriteStats getWriteStats() {
+        return writeStats;
+    }
+
+    // Called by the game loop after each tick; in tick flush mode this is when the tick's messages go out
+    public void endTick() {
+        if (!TICK_FLUSH || !running || shuttingDown) {
+            return;
+        }
+        if (nioConnection != null) {
+            if (!sendQueue.isEmpty()) {
+                nioConnection.scheduleFlush();
+            }
+        } else {
+            sendQueue.requestFlush();
         }
     }
 
+    // Sends drop-tolerant state over UDP once the client bound it, otherwise (or if it does not fit a datagram) over TCP
+    public void sendState(OutboundMessage message) {
+        UdpChannel.Session session = udpSession;
+        if (session != null && session.isBound() && running && !shuttingDown && session.send(message)) {
+            return;
+        }
+        sendMessage(message);
+    }
+
     // Stops the sender thread gracefully
     private void stopSenderThread() {
         logger.debug("Stopping sender thread for player {}...", playerId);
@@ -502,8 +809,12 @@ public class ClientHandler implements Runnable {
             logger.info("Closing connection for player {} ({}) because: {}", playerId, playerName, reason);
         }
 
-        // Step 1: Stop sender thread
+        // Step 1: Stop sender thread and release the UDP session
         stopSenderThread();
+        if (playerId != -1) {
+            logger.info("Player {} outbound: {}", playerId, writeStats);
+        }
+        closeUdpSession(reason);
 
         // Step 2: Close socket (triggers SocketException in reader thread)
         closeSocketSafely();
@@ -513,6 +824,7 @@ public class ClientHandler implements Runnable {
 
         // Step 4: Notify server of player removal
         notifyServerOfRemoval();
+        server.connectionClosed();
 
         if (playerId == -1) {
             logger.debug("Finished closing connection procedures for unregistered client.");
@@ -553,20 +865,25 @@ public class ClientHandler implements Runnable {
 
         // Then close output stream
         if (out != null) {
-            out.close(); // PrintWriter doesn't throw IOException
-            out = null;
-            logger.trace("Output stream closed for player {}", playerId);
+            try {
+                out.close();
+                logger.trace("Output stream closed for player {}", playerId);
+            } catch (IOException e) {
+                logger.debug("Error closing output stream for player {}: {}", playerId, e.getMessage());
+            } finally {
+                out = null;
+            }
         }
     }
 
+    // Queued like input, so it runs after a registration that was still pending when the connection closed
     private void notifyServerOfRemoval() {
-        if (playerId != -1) {
-            try {
-                server.removePlayer(playerId);
-            } catch (Exception e) {
-                logger.error("Error notifying server of player {} removal: {}",
-                        playerId, e.getMessage(), e);
-            }
+        if (playerId != -1 || registrationPending) {
+            server.submit(() -> {
+                if (playerId != -1) {
+                    server.removePlayer(playerId);
+                }
+            });
         }
     }
 
@@ -2,35 +2,63 @@ package org.chrisgruber.nettank.server;
 
 import org.chrisgruber.nettank.common.entities.BulletData;
 import org.chrisgruber.nettank.common.entities.TankData;
-import org.chrisgruber.nettank.common.network.NetworkProtocol;
+import org.chrisgruber.nettank.common.network.StateQuantizer;
+import org.chrisgruber.nettank.common.physics.CapsuleCollider;
+import org.chrisgruber.nettank.common.physics.Collider;
+import org.chrisgruber.nettank.common.physics.SpatialGrid;
+import org.chrisgruber.nettank.common.world.BaseTerrainProfile;
 import org.chrisgruber.nettank.common.world.GameMapData;
+import org.chrisgruber.nettank.common.world.TerrainCodec;
+import org.chrisgruber.nettank.common.world.TerrainHit;
 import org.chrisgruber.nettank.common.world.TerrainTile;
 import org.chrisgruber.nettank.common.util.Colors;
 import org.chrisgruber.nettank.common.util.GameState;
 
 import org.chrisgruber.nettank.server.gamemode.FreeForAll;
+import org.chrisgruber.nettank.server.metrics.MetricsServer;
+import org.chrisgruber.nettank.server.metrics.TickProfiler;
+import org.chrisgruber.nettank.server.network.OutboundMessage;
+import org.chrisgruber.nettank.server.network.ServerMessage;
+import org.chrisgruber.nettank.server.network.SnapshotHistory;
+import org.chrisgruber.nettank.server.network.TerrainTransfer;
+import org.chrisgruber.nettank.server.network.UdpChannel;
 import org.chrisgruber.nettank.server.state.ServerContext;
+import org.chrisgruber.nettank.server.world.TerrainGenerator;
 import org.joml.Vector2f;
 import org.joml.Vector3f;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.net.InetAddress;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.net.SocketException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class GameServer {
     private static final Logger logger = LoggerFactory.getLogger(GameServer.class);
     private final int port;
-    private ServerSocket serverSocket;
-    private Thread gameLoopThread;
+    private Lobby lobby;                    // Standalone match only; rooms share the RoomManager's lobby
+    private Thread gameLoopThread;          // Standalone match only
+    private ScheduledExecutorService tickPool;  // Room only: the RoomManager's pool
+    private ScheduledFuture<?> tickTask;        // Room only: the periodic tick on that pool, guarded by hibernationLock
+
+    // Shared by every room of a RoomManager; null when UDP is disabled or its port could not be bound
+    private volatile UdpChannel udpChannel;
 
     // Server-specific Constants
     public static final float TANK_MOVE_SPEED = 100.0f;
@@ -39,6 +67,16 @@ public class GameServer {
     public static final long BULLET_LIFETIME_MS = 2000;
     public static final long TANK_SHOOT_COOLDOWN_MS = 2000;
 
+    // Broad-phase for bullet hits: tanks filed by position, rebuilt each tick once the tanks have moved
+    static final int TANK_GRID_CELL_TILES = 2;
+    private SpatialGrid<TankData> tankGrid;     // Tick thread only
+    private final List<TankData> tankCandidates = new ArrayList<>();    // Tick thread only, reused per bullet
+
+    // Simulation rate, independent of the network rate: ticks per second of game logic
+    static final int DEFAULT_TICKS_PER_SECOND = 60;
+    static final int TICKS_PER_SECOND = Integer.getInteger("nettank.tick.rate", DEFAULT_TICKS_PER_SECOND);
+    private final int ticksPerSecond;
+
     // Game World Map
     private final int mapWidth;
     private final int mapHeight;
@@ -49,47 +87,99 @@ public class GameServer {
     private static final int DEFAULT_NETWORK_HZ = 30; // Default updates per second
     private final long networkUpdateIntervalMillis; // Made non-final
     private long lastNetworkUpdateTimeMillis = 0; // Tracks when the last update was sent
+    private boolean stateChangedSinceBroadcast;     // Any tank or bullet changed since the last snapshot; tick thread only
+
+    // Number of rooms to host in this process; 1 runs a single match without a RoomManager
+    private static final int ROOMS = Integer.getInteger("nettank.rooms", 1);
 
     private final List<Vector3f> availableColors;
-    private final List<Thread> clientHandlerThreads = new CopyOnWriteArrayList<>();
     private final ServerContext serverContext = new ServerContext();
+    private final TickProfiler tickProfiler = new TickProfiler();
+    private volatile TickScheduler tickScheduler;  // Once the GameLoop runs, or once the room starts
+    private MetricsServer metricsServer;            // Standalone match only; a RoomManager runs one for all rooms
+
+    // Binary terrain is deflated unless turned off; the client reads the flags from TERRAIN_BEGIN
+    private static final int TERRAIN_FLAGS =
+            Boolean.parseBoolean(System.getProperty("nettank.terrain.deflate", "true")) ? TerrainCodec.FLAG_DEFLATE : 0;
+    private TerrainTransfer terrainTransfer;        // Current map's encoded terrain, rebuilt when the map changes
+
+    // The next round's map is generated and encoded on this pool while the current round is played, and swapped in
+    // on the tick thread when the round ends. A room uses its RoomManager's pool; a single match owns a pool of one
+    // thread and shuts it down in stop().
+    private final ExecutorService terrainPool;
+    private final boolean ownsTerrainPool;
+    private volatile Future<PreparedTerrain> nextTerrain;   // Set on the tick thread; stop() cancels it
+    private boolean terrainPlayed;                          // A round has been played on the current map; tick thread only
+
+    // A map generated from seed and profile, with its terrain already encoded in every form
+    private record PreparedTerrain(long seed, String profileName, GameMapData mapData, TerrainTransfer transfer) {}
+
+    // Open connections handed to this server, registered or not; the RoomManager fills rooms by it
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    // Single writer: only the thread running the tick mutates game state. Reader, selector and UDP threads submit
+    // commands here (lock-free, never blocking on the tick) and the loop runs them at the start of each tick.
+    private final Queue<Runnable> commandQueue = new ConcurrentLinkedQueue<>();
+
+    // Hibernation: a waiting server with no connections and no queued commands stops ticking until the next
+    // accept or command. The GameLoop thread parks on wakeUp; a room cancels its tick task and is rescheduled.
+    private final ReentrantLock hibernationLock = new ReentrantLock();
+    private final Condition wakeUp = hibernationLock.newCondition();
+    private volatile boolean hibernating;
 
     public GameServer(int port, int networkHz, int mapWidth, int mapHeight) {
+        this(port, networkHz, TICKS_PER_SECOND, mapWidth, mapHeight);
+    }
+
+    public GameServer(int port, int networkHz, int ticksPerSecond, int mapWidth, int mapHeight) {
+        this(port, networkHz, ticksPerSecond, mapWidth, mapHeight, newTerrainPool(1), true);
+    }
+
+    // A room: prepares every map, the first one included, on the RoomManager's terrain pool, which outlives the room
+    GameServer(int port, int networkHz, int ticksPerSecond, int mapWidth, int mapHeight, ExecutorService terrainPool) {
+        this(port, networkHz, ticksPerSecond, mapWidth, mapHeight, terrainPool, false);
+    }
+
+    private GameServer(int port, int networkHz, int ticksPerSecond, int mapWidth, int mapHeight,
+                       ExecutorService terrainPool, boolean ownsTerrainPool) {
+        if (ticksPerSecond <= 0) {
+            throw new IllegalArgumentException("Invalid simulation rate: " + ticksPerSecond + " ticks per second");
+        }
         this.port = port;
+        this.terrainPool = terrainPool;
+        this.ownsTerrainPool = ownsTerrainPool;
         this.mapWidth = mapWidth;
         this.mapHeight = mapHeight;
 
-        // Set network update rate
+        // Set simulation and network update rates
+        this.ticksPerSecond = ticksPerSecond;
         this.networkUpdateIntervalMillis = 1000L / networkHz;
-        logger.info("Configuring server for network update rate: {} Hz ({} ms interval)",
-                networkHz, this.networkUpdateIntervalMillis);
+        logger.info("Configuring server for simulation rate: {} ticks per second, network update rate: {} Hz ({} ms interval)",
+                ticksPerSecond, networkHz, this.networkUpdateIntervalMillis);
+        if (networkHz > ticksPerSecond) {
+            logger.warn("Network rate {} Hz is above the simulation rate; snapshots go out at most once per tick", networkHz);
+        }
 
         // Initialize server context
         this.serverContext.gameMode = new FreeForAll();
-        this.serverContext.gameMapData = new GameMapData(mapWidth, mapHeight, GameMapData.DEFAULT_TILE_SIZE);
-        
-        // Generate unique seed for this game session
-        this.serverContext.terrainSeed = System.currentTimeMillis() ^ (mapWidth * 31L + mapHeight * 17L);
-        this.serverContext.terrainProfileName = "GRASSLAND";
-        
-        // Generate terrain for the map
-        org.chrisgruber.nettank.server.world.TerrainGenerator terrainGenerator = 
-            new org.chrisgruber.nettank.server.world.TerrainGenerator(serverContext.terrainSeed);
-        
-        // Choose the map type:
-        terrainGenerator.generateProceduralTerrain(serverContext.gameMapData, 
-            org.chrisgruber.nettank.common.world.BaseTerrainProfile.GRASSLAND, 
-            serverContext.terrainSeed);
-        
-        logger.info("Terrain generation complete (seed: {}, profile: {})", 
-            serverContext.terrainSeed, serverContext.terrainProfileName);
+
+        if (ownsTerrainPool) {
+            // Generate the first map with a unique seed for this game session, then start on the next round's
+            installTerrain(prepareTerrain(mapWidth, mapHeight, nextTerrainSeed(), "GRASSLAND"));
+            prepareNextTerrain();
+
+            logger.info("Terrain generation complete (seed: {}, profile: {})",
+                serverContext.terrainSeed, serverContext.terrainProfileName);
+        } else {
+            // A room is opened on the lobby's accept or selector thread, which must not generate a map: the first one
+            // is prepared on the terrain pool like every later one, and the room starts ticking once it is in
+            serverContext.terrainProfileName = "GRASSLAND";
+            prepareNextTerrain();
+        }
 
         // Make and shuffle colors to assign to players
         availableColors = Colors.generateDistinctColors(serverContext.gameMode.getMaxAllowedPlayers());
         Collections.shuffle(availableColors);
-
-        // Set up the server shutdown hook
-        Runtime.getRuntime().addShutdownHook(new Thread(this::stop, "ServerShutdownHook"));
     }
 
     public static void main(String[] args) {
@@ -132,9 +222,15 @@ public class GameServer {
 
         try {
             logger.info("Attempting to start server on port {}...", port);
-            GameServer server = new GameServer(port, networkHz, mapWidth, mapHeight);
-            logger.info("Server object created.");
-            server.start(); // Blocks until server stops
+            if (ROOMS > 1) {
+                RoomManager roomManager = new RoomManager(port, networkHz, TICKS_PER_SECOND, mapWidth, mapHeight, ROOMS);
+                logger.info("Room manager created for up to {} rooms.", ROOMS);
+                roomManager.start(); // Blocks until the room manager stops
+            } else {
+                GameServer server = new GameServer(port, networkHz, TICKS_PER_SECOND, mapWidth, mapHeight);
+                logger.info("Server object created.");
+                server.start(); // Blocks until server stops
+            }
             logger.info("GameServer.main() finished after server.start() returned.");
         } catch (IOException e) {
             logger.error("!!! Server failed to start on port {} !!!", port, e);
@@ -149,11 +245,15 @@ public class GameServer {
         // Removed System.exit(0) for natural JVM exit
     }
 
+    // Runs this server as a single match: its own lobby on the port and its own GameLoop thread
     public void start() throws IOException {
-        serverSocket = new ServerSocket(port, 50, InetAddress.getByName("0.0.0.0"));
+        lobby = new Lobby(port, () -> this);
+        udpChannel = lobby.getUdpChannel();
+        metricsServer = MetricsServer.startIfEnabled(() -> List.of(this));
         serverContext.running = true;
 
-        logger.info("Server started on {}:{}", serverSocket.getInetAddress().getHostAddress(), port);
+        // Set up the server shutdown hook
+        Runtime.getRuntime().addShutdownHook(new Thread(this::stop, "ServerShutdownHook"));
 
         // Keep game loop as platform thread (CPU-intensive work)
         gameLoopThread = Thread.ofPlatform()
@@ -161,26 +261,8 @@ public class GameServer {
             .daemon(true)
             .start(this::gameLoop);
 
-        logger.info("Waiting for client connections...");
-
         try {
-            while (serverContext.running) {
-                try {
-                    Socket clientSocket = serverSocket.accept(); // Blocks
-                    if (!serverContext.running) break; // Check flag after unblocking
-                    logger.info("Client connected: {}", clientSocket.getInetAddress().getHostAddress());
-                    ClientHandler clientHandler = new ClientHandler(clientSocket, this);
-                    startClientThread(clientHandler);
-                } catch (SocketException e) {
-                    if (serverContext.running) { logger.error("Server socket accept error: {}", e.getMessage());}
-                    else { logger.info("Server socket closed, accept loop terminating."); }
-                    // Loop condition (running) handles exit
-                } catch (IOException e) {
-                    if (serverContext.running) { logger.error("Error accepting client connection", e); }
-                } catch (Exception e){
-                    if(serverContext.running) { logger.error("Unexpected error in accept loop", e); }
-                }
-            }
+            lobby.run(); // Blocks until stop() closes the lobby
         } finally {
             logger.info("Server accept loop finished.");
             // Wait for game loop thread (moved from stop() to ensure it happens before main exits)
@@ -200,8 +282,161 @@ public class GameServer {
         logger.info("Server main thread exiting start() method.");
     }
 
+    // Runs this server as one room of a RoomManager: ticks on the shared pool, connections come from the shared lobby
+    void startAsRoom(ScheduledExecutorService tickPool, UdpChannel sharedUdpChannel) {
+        this.tickPool = tickPool;
+        // The pool thread must not park or spin between ticks, so the room polls its deadlines instead
+        this.tickScheduler = new TickScheduler(ticksPerSecond, TickScheduler.Profile.LOW_CPU, 0);
+        udpChannel = sharedUdpChannel;
+        serverContext.running = true;
+
+        hibernationLock.lock();
+        try {
+            scheduleRoomTicks();
+        } finally {
+            hibernationLock.unlock();
+        }
+    }
+
+    // Called with hibernationLock held. The pool fires about once per period; the room's TickScheduler decides
+    // how many ticks are due, so a late or early firing is caught up or skipped just like on the GameLoop thread.
+    private void scheduleRoomTicks() {
+        startTicking();
+        tickScheduler.restart(); // Don't count the hibernation as an overrun
+        long periodNanos = tickScheduler.periodNanos();
+        tickTask = tickPool.scheduleAtFixedRate(() -> {
+            try {
+                int ticksDue = tickScheduler.pollDueTicks();
+                if (ticksDue > 0 && hasTerrain()) {
+                    processGameUpdates(ticksDue);
+                }
+                hibernateRoomIfIdle();
+            } catch (Exception e) {
+                // An escaping exception would cancel the periodic task and freeze the room
+                logger.error("Unexpected error in room tick", e);
+            }
+        }, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Null when UDP is disabled or its port could not be bound
+    public UdpChannel getUdpChannel() {
+        return udpChannel;
+    }
+
+    // Called by each ClientHandler of this server when it is created and when its connection closes
+    void connectionOpened() {
+        connectionCount.incrementAndGet();
+        wake();
+    }
+
+    void connectionClosed() {
+        connectionCount.decrementAndGet();
+    }
+
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    // --- Metrics ---
+
+    public TickProfiler getTickProfiler() {
+        return tickProfiler;
+    }
+
+    // Null before the GameLoop or the room starts
+    public TickScheduler getTickScheduler() {
+        return tickScheduler;
+    }
+
+    // Live view of the registered clients, safe to read from any thread
+    public Collection<ClientHandler> getClients() {
+        return Collections.unmodifiableCollection(serverContext.clients.values());
+    }
+
+    // Whether another connection can join without being turned away as "Server full"
+    public boolean hasFreeSlot() {
+        return connectionCount.get() < serverContext.gameMode.getMaxAllowedPlayers();
+    }
+
+    // --- Hibernation ---
+
+    private boolean isIdle() {
+        return connectionCount.get() == 0 && commandQueue.isEmpty() && serverContext.clients.isEmpty()
+                && serverContext.currentGameState == GameState.WAITING;
+    }
+
+    public boolean isHibernating() {
+        return hibernating;
+    }
+
+    // GameLoop thread: waits while the server is idle; returns whether it hibernated
+    private boolean hibernateWhileIdle() throws InterruptedException {
+        if (!isIdle()) {
+            return false;
+        }
+        hibernationLock.lock();
+        try {
+            // Publish the flag before checking again, so a connection opened in between either sees it or is seen here
+            hibernating = true;
+            if (!isIdle() || !serverContext.running) {
+                hibernating = false;
+                return false;
+            }
+            logger.info("No connections, game loop hibernating.");
+            while (hibernating && serverContext.running) {
+                wakeUp.await();
+            }
+            logger.info("Game loop woke from hibernation.");
+            return true;
+        } finally {
+            hibernating = false;
+            hibernationLock.unlock();
+        }
+    }
+
+    // Room tick thread: cancels the tick task once the room is idle; wake() schedules a new one
+    private void hibernateRoomIfIdle() {
+        if (!isIdle()) {
+            return;
+        }
+        hibernationLock.lock();
+        try {
+            hibernating = true;
+            if (!isIdle() || !serverContext.running) {
+                hibernating = false;
+                return;
+            }
+            tickTask.cancel(false);
+            logger.info("No connections, room hibernating.");
+        } finally {
+            hibernationLock.unlock();
+        }
+    }
+
+    // Any thread: resumes ticking if the server is hibernating
+    private void wake() {
+        if (!hibernating) {
+            return;
+        }
+        hibernationLock.lock();
+        try {
+            if (!hibernating) {
+                return;
+            }
+            hibernating = false;
+            if (tickPool == null) {
+                wakeUp.signal();
+            } else if (serverContext.running) {
+                logger.info("Room woke from hibernation.");
+                scheduleRoomTicks();
+            }
+        } finally {
+            hibernationLock.unlock();
+        }
+    }
+
     // --- Server Shutdown ---
-    // This method is called by the shutdown hook.
+    // This method is called by the shutdown hook, or by the RoomManager for a room.
     public void stop() {
         if (!serverContext.stopping.compareAndSet(false, true)) {
             logger.info("Server stop() already in progress or completed.");
@@ -210,20 +445,36 @@ public class GameServer {
         logger.info("Server stop() sequence initiated...");
         serverContext.running = false;
 
-        try {
-            if (serverSocket != null && !serverSocket.isClosed()) {
-                logger.debug("Closing server socket...");
-                serverSocket.close();
-                logger.info("Server socket closed.");
-            }
-        } catch (IOException e) { logger.error("Error closing server socket.", e); }
+        if (lobby != null) {
+            lobby.close();
+        }
+        if (metricsServer != null) {
+            metricsServer.close();
+        }
 
-        // Interrupt game loop first to stop updates quickly
+        // Stop the game loop first to stop updates quickly
         if (gameLoopThread != null && gameLoopThread.isAlive()) {
             logger.debug("Interrupting GameLoop thread...");
             gameLoopThread.interrupt();
             // Join moved to start() finally block
         }
+        hibernationLock.lock();
+        try {
+            if (tickTask != null) {
+                tickTask.cancel(false);
+            }
+            wakeUp.signal();
+        } finally {
+            hibernationLock.unlock();
+        }
+
+        Future<PreparedTerrain> pendingTerrain = nextTerrain;
+        if (pendingTerrain != null) {
+            pendingTerrain.cancel(false);
+        }
+        if (ownsTerrainPool) {
+            terrainPool.shutdownNow();
+        }
 
         logger.info("Closing client connections...");
         List<ClientHandler> handlersToClose = new ArrayList<>(serverContext.clients.values());
@@ -238,42 +489,42 @@ public class GameServer {
         serverContext.bullets.clear();
         serverContext.nextPlayerId.set(0);
 
-        logger.info("Interrupting any potentially lingering client handler main threads...");
-        List<Thread> threadsToInterrupt = new ArrayList<>(clientHandlerThreads);
-        for (Thread t : threadsToInterrupt) {
-            if (t != null && t.isAlive()) {
-                logger.debug("Interrupting client handler main thread: {}", t.getName());
-                t.interrupt();
-            }
+        if (lobby != null) {
+            lobby.interruptClientThreads();
         }
-        clientHandlerThreads.clear();
 
         logger.info("Server stop() sequence finished.");
     }
 
+    // --- Commands ---
+
+    // Thread-safe; the command runs on the ticking thread at the start of the next tick, in submission order
+    public void submit(Runnable command) {
+        commandQueue.add(command);
+        wake();
+    }
 
-    // --- Client Thread Management ---
-    // This method is called by the start() method to start a new client handler thread for a new player connecting.
-    private void startClientThread(ClientHandler handler) {
-        int tempId = handler.getSocket().getPort();
-        // Use virtual threads for I/O-bound client handling (massive scalability improvement)
-        Thread thread = Thread.ofVirtual()
-            .name("ClientHandler-VT-" + tempId, 0)
-            .uncaughtExceptionHandler((t, e) -> logger.error("Uncaught exception in thread {}: {}", t.getName(), e.getMessage(), e))
-            .start(handler);
-        clientHandlerThreads.add(thread);
-        logger.info("Started client handler virtual thread: {}", thread.getName());
+    private void runCommands() {
+        Runnable command;
+        while ((command = commandQueue.poll()) != null) {
+            try {
+                command.run();
+            } catch (Exception e) {
+                logger.error("Error running game command", e);
+            }
+        }
     }
 
     // --- Registration & Removal ---
+    // Like every state mutator below, these run on the ticking thread (via submit) or, in tests, on a server without one
 
-    public synchronized void registerPlayer(ClientHandler handler, String playerName) {
+    public void registerPlayer(ClientHandler handler, String playerName) {
         if (serverContext.clients.size() >= serverContext.gameMode.getMaxAllowedPlayers()) {
-            handler.sendMessage(NetworkProtocol.ERROR_MSG + ";Server full");
+            handler.sendMessage(new ServerMessage.Error("Server full"));
             handler.closeConnection("Server full"); return;
         }
         if (availableColors.isEmpty()) {
-            handler.sendMessage(NetworkProtocol.ERROR_MSG + ";No colors available");
+            handler.sendMessage(new ServerMessage.Error("No colors available"));
             handler.closeConnection("No colors available"); return;
         }
 
@@ -293,33 +544,26 @@ public class GameServer {
         logger.info("Player registered: ID={}, Name={}, Color={}", playerId, playerName, assignedColor);
 
         // Send ASSIGN_ID
-        handler.sendMessage(String.format("%s;%d;%f;%f;%f",
-                NetworkProtocol.ASSIGN_ID, playerId, assignedColor.x, assignedColor.y, assignedColor.z));
+        handler.sendMessage(new ServerMessage.AssignId(playerId, assignedColor.x, assignedColor.y, assignedColor.z));
 
         logger.info("Sent ASSIGN_ID to player ID {}: {}", playerId, handler.getSocket().getInetAddress().getHostAddress());
 
         GameMapData mapData = serverContext.gameMapData; // Get the authoritative map data
-        handler.sendMessage(String.format("%s;%d;%d;%f",
-                NetworkProtocol.MAP_INFO,
+        handler.sendMessage(new ServerMessage.MapInfo(
                 mapData.getWidthTiles(),
                 mapData.getHeightTiles(),
                 mapData.getTileSize()));
 
         logger.info("Sent MAP_INFO ({};{};{}) to player ID {}: {}", mapData.getWidthTiles(), mapData.getHeightTiles(), mapData.getTileSize(), playerId, handler.getSocket().getInetAddress().getHostAddress());
 
-        // Send terrain data to client
-        String encodedTerrain = org.chrisgruber.nettank.common.world.TerrainEncoder.encode(serverContext.gameMapData);
-        handler.sendMessage(String.format("%s;%d;%d;%s",
-                NetworkProtocol.TERRAIN_DATA,
-                mapData.getWidthTiles(),
-                mapData.getHeightTiles(),
-                encodedTerrain));
-        logger.info("Sent TERRAIN_DATA ({}x{} tiles, {} bytes) to player ID {}", 
-            mapData.getWidthTiles(), mapData.getHeightTiles(), encodedTerrain.length(), playerId);
+        // Send terrain data to client, encoded once per map and format and shared by every client
+        sendTerrain(handler);
+        logger.info("Sent {} terrain ({}x{} tiles) to player ID {}",
+            handler.usesSeedTerrain() ? "seed" : handler.usesBinaryTerrain() ? "binary" : "CSV",
+            mapData.getWidthTiles(), mapData.getHeightTiles(), playerId);
 
-        handler.sendMessage(String.format("%s;%s;%d",
-                NetworkProtocol.GAME_STATE,
-                serverContext.currentGameState.name(),
+        handler.sendMessage(new ServerMessage.GameStateChange(
+                serverContext.currentGameState,
                 getTimeDataForGameState(serverContext.currentGameState)));
 
         logger.info("Sent GAME_STATE to player ID {}: {}", playerId, handler.getSocket().getInetAddress().getHostAddress());
@@ -335,19 +579,17 @@ public class GameServer {
         // Send all tanks and their lives to new player
         for (TankData tankData : serverContext.tanks.values()) {
             var tankColor = tankData.getColor();
-            handler.sendMessage(String.format("%s;%d;%f;%f;%f;%s;%f;%f;%f",
-                    NetworkProtocol.NEW_PLAYER, tankData.getPlayerId(), tankData.getX(), tankData.getY(), tankData.getRotation(),
+            handler.sendMessage(new ServerMessage.NewPlayer(tankData.getPlayerId(), tankData.getX(), tankData.getY(), tankData.getRotation(),
                     tankData.getPlayerName(), tankColor.x(), tankColor.y(), tankColor.z()));
-            handler.sendMessage(String.format("%s;%d;%d", NetworkProtocol.PLAYER_LIVES, tankData.getPlayerId(), totalRespawnsAllowed));
+            handler.sendMessage(new ServerMessage.PlayerLives(tankData.getPlayerId(), totalRespawnsAllowed));
         }
 
         logger.info("Sent existing player's tanks to new player ID {}: {}", playerId, handler.getSocket().getInetAddress().getHostAddress());
 
         // Inform others about new player and lives
-        String newPlayerMsg = String.format("%s;%d;%f;%f;%f;%s;%f;%f;%f",
-                NetworkProtocol.NEW_PLAYER, newTankData.getPlayerId(), newTankData.getX(), newTankData.getY(), newTankData.getRotation(),
+        ServerMessage newPlayerMsg = new ServerMessage.NewPlayer(newTankData.getPlayerId(), newTankData.getX(), newTankData.getY(), newTankData.getRotation(),
                 newTankData.getPlayerName(), newTankData.getColor().x(), newTankData.getColor().y(), newTankData.getColor().z());
-        String livesMsg = String.format("%s;%d;%d", NetworkProtocol.PLAYER_LIVES, newTankData.getPlayerId(), totalRespawnsAllowed);
+        ServerMessage livesMsg = new ServerMessage.PlayerLives(newTankData.getPlayerId(), totalRespawnsAllowed);
         broadcast(newPlayerMsg, playerId);
         broadcast(livesMsg, playerId);
 
@@ -372,14 +614,14 @@ public class GameServer {
         };
     }
 
-    public synchronized void removePlayer(int playerId) {
+    public void removePlayer(int playerId) {
         ClientHandler handler = serverContext.clients.remove(playerId);
         TankData tankData = serverContext.tanks.remove(playerId);
 
         if (handler != null && tankData != null) {
             logger.info("Player removed: ID={}, Name={}", playerId, tankData.getPlayerName());
             if (tankData.getColor() != null) { availableColors.add(tankData.getColor()); Collections.shuffle(availableColors); }
-            broadcast(NetworkProtocol.PLAYER_LEFT + ";" + playerId, -1);
+            broadcast(new ServerMessage.PlayerLeft(playerId), -1);
         }
 
         if (serverContext.currentGameState == GameState.PLAYING) {
@@ -393,73 +635,94 @@ public class GameServer {
 
     // --- Game Loop & Logic ---
 
-    // The game loop runs at a fixed time step (60 FPS) with sleep and handles game logic updates.
+    // The game loop of a standalone match: runs fixed ticks, parked on the tick scheduler in between.
     private void gameLoop() {
-        long lastTime = System.nanoTime();
-        double nsPerTick = 1_000_000_000.0 / 60.0;  // 60 ticks per second
-        double delta = 0;   // Time accumulator for game updates
+        startTicking();
+        TickScheduler tickScheduler = TickScheduler.fromSystemProperties(ticksPerSecond);
+        this.tickScheduler = tickScheduler;
 
-        lastNetworkUpdateTimeMillis = System.currentTimeMillis();
-
-        logger.trace("GameLoop thread started.");
+        logger.trace("GameLoop thread started ({} profile).", tickScheduler.profile());
 
         while (serverContext.running) {
-            long now = System.nanoTime();
-            delta += Math.min((now - lastTime) / nsPerTick, 10.0);
-            lastTime = now;
-
-            delta = processGameUpdates(delta);
-
             try {
+                if (hibernateWhileIdle()) {
+                    tickScheduler.restart(); // Don't count the hibernation as an overrun
+                }
+                if (!serverContext.running) break;
+                int ticksDue = tickScheduler.awaitNextTick();
                 if (!serverContext.running) break;
-                // sleep for 1 ms to yield CPU time
-                Thread.sleep(1);
+                processGameUpdates(ticksDue);
             } catch (InterruptedException e) {
                 logger.info("Game loop interrupted (likely server shutdown).");
                 Thread.currentThread().interrupt(); // Preserve interrupt status
+                break;
             } catch (Exception e) {
-                if (serverContext.running) { logger.error("Unexpected error in GameLoop sleep/wait phase", e); }
+                if (serverContext.running) { logger.error("Unexpected error in GameLoop tick", e); }
             }
         }
 
+        logger.info("GameLoop tick schedule: {}", tickScheduler);
         logger.trace("GameLoop thread finished.");
     }
 
+    private void startTicking() {
+        lastNetworkUpdateTimeMillis = System.currentTimeMillis();
+    }
+
     // Manages when and how often the game logic is mutated, ensuring a consistent experience regardless of the frame rate.
-    private synchronized double processGameUpdates(double delta) {
+    private double processGameUpdates(double delta) {
         // "delta" is the amount of accumulated time since the last update and is measured in "ticks". 1 tick = one full update cycle
-        boolean tankStateUpdated = false;
+        boolean ticked = delta >= 1.0;
 
         // While delta is >= 1.0, call updateGameLogic() to process game logic
         while (delta >= 1.0) {
-            // Call updateGameLogic() with fixed time step. Each call represents a game tick, 1/60th of a second of game time.
-            tankStateUpdated = updateGameLogic(1.0f / 60.0f);
+            long tickStart = System.nanoTime();
+            runCommands();
+
+            // Call updateGameLogic() with fixed time step. Each call represents a game tick, 1/ticksPerSecond of a second of game time.
+            // A change in any tick counts, not just the last one before the next network send
+            stateChangedSinceBroadcast |= updateGameLogic(1.0f / ticksPerSecond);
+            serverContext.currentTick++;
             delta -= 1.0;
+            tickProfiler.lap(TickProfiler.Phase.TICK, tickStart);
         }
 
         long currentTimeMillis = System.currentTimeMillis();
 
         // Check if it's time to send AND if the game is in a state where updates are needed
-        if (serverContext.currentGameState == GameState.PLAYING && tankStateUpdated &&
+        if (serverContext.currentGameState == GameState.PLAYING && stateChangedSinceBroadcast &&
                 (currentTimeMillis - lastNetworkUpdateTimeMillis >= networkUpdateIntervalMillis))
         {
             logger.trace("Network update interval triggered ({} ms). Broadcasting state.", networkUpdateIntervalMillis);
 
+            long broadcastStart = System.nanoTime();
             broadcastState();
+            tickProfiler.lap(TickProfiler.Phase.BROADCAST, broadcastStart);
 
             lastNetworkUpdateTimeMillis = currentTimeMillis; // IMPORTANT: Reset the timer
+            stateChangedSinceBroadcast = false;
+        }
+
+        if (ticked) {
+            // Everything this tick queued goes out together (in tick flush mode; a no-op otherwise)
+            for (ClientHandler handler : serverContext.clients.values()) {
+                handler.endTick();
+                tickProfiler.recordSendQueueDepth(handler.getSendQueue().depth());
+            }
         }
 
         return delta;
     }
 
-    private synchronized boolean updateGameLogic(float deltaTime) {
+    private boolean updateGameLogic(float deltaTime) {
         boolean stateChangedThisTick = false;
         long currentTime = System.currentTimeMillis();
 
         logger.trace("Processing game state transitions. Current state: {}, Time: {}", serverContext.currentGameState, currentTime);
 
+        long phaseStart = System.nanoTime();
         handleGameStateTransitions(currentTime);
+        phaseStart = tickProfiler.lap(TickProfiler.Phase.STATE_TRANSITIONS, phaseStart);
 
         logger.trace("Game state transitions processed. Current state: {}, Time: {}", serverContext.currentGameState, currentTime);
 
@@ -512,65 +775,73 @@ public class GameServer {
             }
         }
 
+        rebuildTankGrid();
+        phaseStart = tickProfiler.lap(TickProfiler.Phase.TANK_MOVEMENT, phaseStart);
         logger.trace("Tanks updated. Current state: {}, Time: {}", serverContext.currentGameState, currentTime);
 
-        // Update Bullets
+        // Update Bullets: each bullet's path this tick is traced through the terrain tile by tile to find how far it
+        // gets, then tanks are swept over that whole segment, so at low tick rates a bullet can pass through neither
+        // a wall corner nor a tank. Whichever it reaches first stops it.
         List<BulletData> bulletsToRemove = new ArrayList<>();
+        if (!serverContext.bullets.isEmpty()) {
+            stateChangedThisTick = true;    // Every bullet in flight moves or is removed this tick
+        }
+        long collisionNanos = 0;    // Tank collision checks and hits, timed apart from the movement around them
         for (BulletData bulletData : serverContext.bullets) {
-            // Store old position before update
-            float oldX = bulletData.getX();
-            float oldY = bulletData.getY();
-            
-            // Calculate new position
-            float deltaX = bulletData.getXVelocity() * deltaTime;
-            float deltaY = bulletData.getYVelocity() * deltaTime;
-            float newX = oldX + deltaX;
-            float newY = oldY + deltaY;
-            
-            // Check for terrain collision along the path
-            boolean hitTerrain = checkBulletTerrainCollision(oldX, oldY, newX, newY);
-            
-            // Update bullet position only if no collision
-            if (!hitTerrain) {
-                bulletData.getPosition().add(deltaX, deltaY);
-                bulletData.getCollider().setPosition(bulletData.getPosition());
-            }
-            
             boolean expired = (currentTime - bulletData.getSpawnTime()) >= BULLET_LIFETIME_MS;
-            
-            if (hitTerrain) {
-                TerrainTile tile = serverContext.gameMapData.getTileAt(newX, newY);
-                if (tile != null) {
-                    logger.info("Bullet {} hit terrain at ({}, {}) - Base: {}, Overlay: {}, BlocksBullets: {}", 
-                        bulletData.getId(), newX, newY, 
-                        tile.getBaseType(), tile.getOverlayType(), tile.blocksBullets());
-                }
+            if (expired) {
+                bulletsToRemove.add(bulletData);
+                continue;
             }
-            
-            if (expired || serverContext.gameMapData.isOutOfBounds(bulletData) || hitTerrain) {
+
+            // The bullet goes as far as the first tile that blocks it, stopping where it enters that tile
+            float startX = bulletData.getX();
+            float startY = bulletData.getY();
+            float newX = startX + bulletData.getXVelocity() * deltaTime;
+            float newY = startY + bulletData.getYVelocity() * deltaTime;
+            TerrainHit terrainHit = serverContext.gameMapData.findBulletBlocker(startX, startY, newX, newY);
+            if (terrainHit != null) {
+                newX = terrainHit.x();
+                newY = terrainHit.y();
+            }
+
+            // Collision Check: the first tank the bullet touches on its way there
+            long collisionStart = System.nanoTime();
+            TankHit hit = findFirstTankHit(bulletData, newX - startX, newY - startY);
+            if (hit != null) {
+                bulletData.getPosition().set(startX + (newX - startX) * hit.fraction(), startY + (newY - startY) * hit.fraction());
+                bulletData.getCollider().setPosition(bulletData.getPosition());
+                handleHit(hit.tank(), bulletData);
+                bulletData.setDestroyed(true);
                 bulletsToRemove.add(bulletData);
             }
-        }
+            collisionNanos += System.nanoTime() - collisionStart;
+            if (hit != null) {
+                continue;
+            }
 
-        logger.trace("Bullets updated. Current state: {}, Time: {}", serverContext.currentGameState, currentTime);
+            bulletData.getPosition().set(newX, newY);
+            bulletData.getCollider().setPosition(bulletData.getPosition());
 
-        // Collision Check
-        for (BulletData bulletData : serverContext.bullets) {
-            if (bulletsToRemove.contains(bulletData)) continue; // Skip if already marked for removal
-
-            for (TankData tankData : serverContext.tanks.values()) {
-                if (bulletData.getCollider().collidesWith(tankData.getCollider())) {
-                    handleHit(tankData, bulletData);
-                    bulletData.setDestroyed(true);
-                    bulletsToRemove.add(bulletData);
-                    break;
-                }
+            if (terrainHit != null) {
+                TerrainTile tile = serverContext.gameMapData.getTile(terrainHit.tileX(), terrainHit.tileY());
+                logger.info("Bullet {} hit terrain at ({}, {}) - Base: {}, Overlay: {}, BlocksBullets: {}",
+                    bulletData.getId(), newX, newY,
+                    tile.getBaseType(), tile.getOverlayType(), tile.blocksBullets());
+                bulletsToRemove.add(bulletData);
+            } else if (serverContext.gameMapData.isOutOfBounds(bulletData)) {
+                bulletsToRemove.add(bulletData);
             }
         }
 
         serverContext.bullets.removeAll(bulletsToRemove);
 
-        logger.trace("Bullets collisions processed. Bullets removed: {} Current state: {}, Time: {}", bulletsToRemove.size(), serverContext.currentGameState, currentTime);
+        long bulletsEnd = System.nanoTime();
+        tickProfiler.record(TickProfiler.Phase.BULLET_MOVEMENT, bulletsEnd - phaseStart - collisionNanos);
+        tickProfiler.record(TickProfiler.Phase.COLLISION, collisionNanos);
+        phaseStart = bulletsEnd;
+
+        logger.trace("Bullets updated and collisions processed. Bullets removed: {} Current state: {}, Time: {}", bulletsToRemove.size(), serverContext.currentGameState, currentTime);
 
         // Check if any destroyed tanks can respawn
         for (TankData tankData : serverContext.tanks.values()) {
@@ -581,10 +852,10 @@ public class GameServer {
                     serverContext.gameMode.handlePlayerRespawn(serverContext, tankData.getPlayerId(), tankData);
 
                     Vector2f spawnPos = tankData.getPosition();
-                    broadcast(String.format("%s;%d;%f;%f;%f", NetworkProtocol.RESPAWN, tankData.getPlayerId(), spawnPos.x, spawnPos.y, tankData.getRotation()), -1);
+                    broadcast(new ServerMessage.Respawn(tankData.getPlayerId(), spawnPos.x, spawnPos.y, tankData.getRotation()), -1);
 
                     int respawnsRemaining = serverContext.gameMode.getRemainingRespawnsForPlayer(tankData.getPlayerId());
-                    broadcast(String.format("%s;%d;%d", NetworkProtocol.PLAYER_LIVES, tankData.getPlayerId(), respawnsRemaining), -1);
+                    broadcast(new ServerMessage.PlayerLives(tankData.getPlayerId(), respawnsRemaining), -1);
 
                     sendSpectatorEndMessage(tankData.getPlayerId());
 
@@ -594,13 +865,65 @@ public class GameServer {
         }
 
         checkWinCondition();
+        tickProfiler.lap(TickProfiler.Phase.RESPAWN, phaseStart);
 
         logger.trace("Game logic update complete. Current state: {}, Time: {}", serverContext.currentGameState, currentTime);
 
         return stateChangedThisTick;
     }
 
-    private synchronized void handleHit(TankData target, BulletData bulletData) {
+    // Files every tank under its position for this tick's bullet checks; a new round's map may differ in size
+    private void rebuildTankGrid() {
+        GameMapData mapData = serverContext.gameMapData;
+        if (tankGrid == null || !tankGrid.covers(mapData)) {
+            tankGrid = new SpatialGrid<>(mapData, TANK_GRID_CELL_TILES);
+        } else {
+            tankGrid.clear();
+        }
+        for (TankData tankData : serverContext.tanks.values()) {
+            tankGrid.insert(tankData, tankData.getX(), tankData.getY(), tankData.getCollider().getBoundingRadius());
+        }
+    }
+
+    // The tank the bullet first touches while moving by (dx, dy) from where it is, and how far along the move, or null.
+    // The shooter's own tank is skipped: the bullet spawns touching it, and a tank driving forward overlaps it at the
+    // start of the next sweep, which the sweep reports as a hit.
+    private TankHit findFirstTankHit(BulletData bulletData, float dx, float dy) {
+        Collider bullet = bulletData.getCollider();
+        float halfX = dx / 2;
+        float halfY = dy / 2;
+        float reach = (float) Math.sqrt(halfX * halfX + halfY * halfY) + bullet.getBoundingRadius();
+        tankCandidates.clear();
+        tankGrid.collectNear(bulletData.getX() + halfX, bulletData.getY() + halfY, reach, tankCandidates);
+
+        TankHit first = null;
+        for (TankData tankData : tankCandidates) {
+            if (tankData.getPlayerId() == bulletData.getPlayerId()) {
+                continue;
+            }
+            float fraction = sweepBullet(bullet, tankData.getCollider(), dx, dy);
+            if (fraction != CapsuleCollider.NO_HIT && (first == null || fraction < first.fraction())) {
+                first = new TankHit(tankData, fraction);
+            }
+        }
+        return first;
+    }
+
+    // Capsules are swept exactly; any other collider is only checked where the bullet ends up
+    private static float sweepBullet(Collider bullet, Collider tank, float dx, float dy) {
+        if (bullet instanceof CapsuleCollider bulletCapsule && tank instanceof CapsuleCollider tankCapsule) {
+            return bulletCapsule.sweepAgainstCapsule(tankCapsule, dx, dy);
+        }
+        Vector2f start = new Vector2f(bullet.getPosition());
+        bullet.setPosition(new Vector2f(start).add(dx, dy));
+        boolean hit = bullet.collidesWith(tank);
+        bullet.setPosition(start);
+        return hit ? 1.0f : CapsuleCollider.NO_HIT;
+    }
+
+    private record TankHit(TankData tank, float fraction) {}
+
+    private void handleHit(TankData target, BulletData bulletData) {
         TankData shooter = serverContext.tanks.get(bulletData.getPlayerId());
         String shooterName = (shooter != null) ? shooter.getPlayerName() : "Unknown";
         String targetName = target.getPlayerName();
@@ -617,9 +940,9 @@ public class GameServer {
         if (target.isDestroyed()) {
             target.setInputState(false, false, false, false);   // Stop movement to prevent "ghosting" after death
             int respawnsRemaining = serverContext.gameMode.getRemainingRespawnsForPlayer(target.getPlayerId());
-            broadcast(String.format("%s;%d;%d;%s;%d", NetworkProtocol.HIT, target.getPlayerId(), bulletData.getPlayerId(), bulletData.getId(), weaponDamage), -1);
-            broadcast(String.format("%s;%d;%d", NetworkProtocol.PLAYER_LIVES, target.getPlayerId(), respawnsRemaining), -1);
-            broadcast(String.format("%s;%d;%d", NetworkProtocol.DESTROYED, target.getPlayerId(), bulletData.getPlayerId()), -1);
+            broadcast(new ServerMessage.Hit(target.getPlayerId(), bulletData.getPlayerId(), bulletData.getId(), weaponDamage), -1);
+            broadcast(new ServerMessage.PlayerLives(target.getPlayerId(), respawnsRemaining), -1);
+            broadcast(new ServerMessage.Destroyed(target.getPlayerId(), bulletData.getPlayerId()), -1);
             sendSpectatorStartMessage(target.getPlayerId(), target);
 
             if (respawnsRemaining <= 0) {
@@ -630,7 +953,7 @@ public class GameServer {
         }
     }
 
-    private synchronized void sendSpectatorStartMessage(int playerId, TankData tankData) {
+    private void sendSpectatorStartMessage(int playerId, TankData tankData) {
         ClientHandler targetHandler = serverContext.clients.get(playerId);
 
         if (targetHandler == null) {
@@ -639,12 +962,12 @@ public class GameServer {
         }
 
         long respawnTime = tankData.getDeathTimeMillis() + serverContext.tankRespawnDelayMillis;
-        targetHandler.sendMessage(String.format("%s;%d", NetworkProtocol.SPECTATE_START, respawnTime));
+        targetHandler.sendMessage(new ServerMessage.SpectateStart(respawnTime));
 
         logger.debug("Spectator started message sent to playerId: {} respawnTime: {}", playerId, respawnTime);
     }
 
-    private synchronized void sendSpectatorEndMessage(int playerId) {
+    private void sendSpectatorEndMessage(int playerId) {
         ClientHandler targetHandler = serverContext.clients.get(playerId);
 
         if (targetHandler == null) {
@@ -652,12 +975,12 @@ public class GameServer {
             return;
         }
 
-        targetHandler.sendMessage(NetworkProtocol.SPECTATE_END);
+        targetHandler.sendMessage(new ServerMessage.SpectateEnd());
 
         logger.debug("Spectator ended message sent to playerId: {}", playerId);
     }
 
-    private synchronized void sendSpectatePermanentMessage(int playerId) {
+    private void sendSpectatePermanentMessage(int playerId) {
         ClientHandler targetHandler = serverContext.clients.get(playerId);
 
         if (targetHandler == null) {
@@ -665,13 +988,13 @@ public class GameServer {
             return;
         }
 
-        targetHandler.sendMessage(NetworkProtocol.SPECTATE_PERMANENT);
+        targetHandler.sendMessage(new ServerMessage.SpectatePermanent());
 
         logger.debug("Spectate permanently message sent to playerId: {}", playerId);
     }
 
     // Process player movement input and set the tank's movement state
-    public synchronized void handlePlayerMovementInput(int playerId, boolean w, boolean s, boolean a, boolean d) {
+    public void handlePlayerMovementInput(int playerId, boolean w, boolean s, boolean a, boolean d) {
         if (serverContext.currentGameState != GameState.PLAYING) {
             logger.warn("Unable to process tank movement input for playerId: {} because the game is not in PLAYING state.", playerId);
             return;
@@ -695,7 +1018,7 @@ public class GameServer {
     }
 
     // Process player main weapon shoot input and shoot a bullet if possible
-    public synchronized void handlePlayerShootMainWeaponInput(int playerId) {
+    public void handlePlayerShootMainWeaponInput(int playerId) {
         if (serverContext.currentGameState != GameState.PLAYING) {
             logger.warn("Unable to process shoot input for playerId: {} because the game is not in PLAYING state.", playerId);
             return;
@@ -726,7 +1049,7 @@ public class GameServer {
             // Send cooldown remaining time to the player
             ClientHandler handler = serverContext.clients.get(playerId);
             if (handler != null) {
-                handler.sendMessage(String.format("%s;%d", NetworkProtocol.SHOOT_COOLDOWN, cooldownTimeRemainingInMilliseconds));
+                handler.sendMessage(new ServerMessage.ShootCooldown(cooldownTimeRemainingInMilliseconds));
             }
             return;
         }
@@ -754,11 +1077,11 @@ public class GameServer {
         logger.debug("PlayerId: {} shot a bullet at position ({}, {}) with direction ({}, {})", playerId, startX, startY, dirX, dirY);
 
         // Broadcast with calculated dirX, dirY
-        broadcast(String.format("%s;%s;%d;%f;%f;%f;%f", NetworkProtocol.SHOOT, bulletId, playerId, startX, startY, dirX, dirY), -1);
+        broadcast(new ServerMessage.Shoot(bulletId, playerId, startX, startY, dirX, dirY), -1);
     }
 
     // Processes game state transitions based on game state conditions
-    private synchronized void handleGameStateTransitions(long currentTime) {
+    private void handleGameStateTransitions(long currentTime) {
         logger.trace("Handling game state change: state={}, time={}, players={}",
                 serverContext.currentGameState, currentTime, serverContext.getPlayerCount());
 
@@ -800,36 +1123,43 @@ public class GameServer {
     }
 
     // Handles the state change and broadcasts the new state to all clients
-    private synchronized void changeState(GameState newState, long timeData) {
+    private void changeState(GameState newState, long timeData) {
         // Early return if state isn't changing
         if (serverContext.currentGameState == newState) {
             return;
         }
 
-        logger.info("Server changing state from {} to {}", serverContext.currentGameState, newState);
-
         GameState previousState = serverContext.currentGameState;
 
+        // A new round is never played on the last round's map: hold the current state, and try again next tick,
+        // until the next map is ready
+        if (startsNewRound(previousState, newState) && !ensureUnplayedTerrain()) {
+            logger.trace("Holding {} until the terrain for the next round is ready", previousState);
+            return;
+        }
+
+        logger.info("Server changing state from {} to {}", previousState, newState);
+
         // Update server context state
         serverContext.currentGameState = newState;
         serverContext.stateChangeTime = System.currentTimeMillis();
 
-        // Regenerate terrain with new seed when transitioning from WAITING (first player joins)
-        if (previousState == GameState.WAITING && newState == GameState.COUNTDOWN) {
-            regenerateTerrainForNewRound();
+        // Swap in the next round's map, prepared in the background, as soon as this round ends
+        if (newState == GameState.ROUND_OVER) {
+            swapInPreparedTerrain();
         }
 
         // Set roundStartTimeMillis when entering PLAYING state
         if (newState == GameState.PLAYING) {
             serverContext.roundStartTimeMillis = System.currentTimeMillis();
+            terrainPlayed = true;
         }
 
         // Calculate appropriate time data for client notification
         long broadcastTimeData = calculateBroadcastTimeData(newState, timeData);
 
         // Broadcast state change to all clients
-        broadcast(String.format("%s;%s;%d",
-                NetworkProtocol.GAME_STATE, newState.name(), broadcastTimeData), -1);
+        broadcast(new ServerMessage.GameStateChange(newState, broadcastTimeData), -1);
 
         // Send appropriate announcements based on new state
         sendStateAnnouncement(newState);
@@ -870,33 +1200,138 @@ public class GameServer {
         }
     }
 
-    // Regenerates terrain with a new seed for a new round
-    private void regenerateTerrainForNewRound() {
-        logger.info("Regenerating terrain for new round.");
-        
-        // Generate new unique seed
-        serverContext.terrainSeed = System.currentTimeMillis() ^ (mapWidth * 31L + mapHeight * 17L);
-        
-        // Regenerate terrain using the terrain generator
-        org.chrisgruber.nettank.server.world.TerrainGenerator terrainGenerator = 
-            new org.chrisgruber.nettank.server.world.TerrainGenerator(serverContext.terrainSeed);
-        
-        terrainGenerator.generateProceduralTerrain(serverContext.gameMapData, 
-            org.chrisgruber.nettank.common.world.BaseTerrainProfile.GRASSLAND,
-            serverContext.terrainSeed);
-        
-        logger.info("Terrain regeneration complete (new seed: {}, profile: {})", 
+    // False while a room's first map is still being prepared. Its queued commands, registrations included, wait until
+    // the map is in, since every one of them may need it.
+    private boolean hasTerrain() {
+        return serverContext.gameMapData != null || swapInPreparedTerrain();
+    }
+
+    // Leaving WAITING or ROUND_OVER for the countdown or for play starts a new round
+    private static boolean startsNewRound(GameState from, GameState to) {
+        return (from == GameState.WAITING || from == GameState.ROUND_OVER)
+                && (to == GameState.COUNTDOWN || to == GameState.PLAYING);
+    }
+
+    // Whether the current map is ready for a new round: not played yet, or just replaced by the prepared one
+    private boolean ensureUnplayedTerrain() {
+        return !terrainPlayed || swapInPreparedTerrain();
+    }
+
+    // Swaps in the map prepared in the background, if it is done, and starts preparing the one after it. Never waits:
+    // returns false while the map is still being prepared, and prepares another if it failed.
+    private boolean swapInPreparedTerrain() {
+        Future<PreparedTerrain> pendingTerrain = nextTerrain;
+        switch (pendingTerrain.state()) {
+            case SUCCESS -> installTerrain(pendingTerrain.resultNow());
+            case FAILED -> {
+                logger.error("Preparing terrain for the next round failed; preparing another", pendingTerrain.exceptionNow());
+                prepareNextTerrain();
+                return false;
+            }
+            default -> {
+                return false;   // Still being prepared, or cancelled by stop()
+            }
+        }
+        terrainPlayed = false;
+        prepareNextTerrain();
+
+        logger.info("Prepared terrain swapped in (new seed: {}, profile: {})",
             serverContext.terrainSeed, serverContext.terrainProfileName);
-        
-        // Broadcast new terrain to all connected clients
-        String encodedTerrain = org.chrisgruber.nettank.common.world.TerrainEncoder.encode(serverContext.gameMapData);
-        broadcast(String.format("%s;%d;%d;%s",
-                NetworkProtocol.TERRAIN_DATA,
-                serverContext.gameMapData.getWidthTiles(),
-                serverContext.gameMapData.getHeightTiles(),
-                encodedTerrain), -1);
-        
-        logger.info("Broadcasted new terrain data to all clients ({} bytes)", encodedTerrain.length());
+
+        // Send new terrain to all connected clients, each in the format it negotiated
+        for (ClientHandler handler : serverContext.clients.values()) {
+            sendTerrain(handler);
+        }
+
+        logger.info("Sent new terrain data to {} clients", serverContext.clients.size());
+        return true;
+    }
+
+    // Starts generating the next round's map on a terrain thread, with the current profile
+    private void prepareNextTerrain() {
+        if (serverContext.stopping.get()) {
+            return; // The pool may already be shut down
+        }
+        long seed = nextTerrainSeed();
+        String profileName = serverContext.terrainProfileName;
+        nextTerrain = terrainPool.submit(() -> prepareTerrain(mapWidth, mapHeight, seed, profileName));
+    }
+
+    // Threads that generate and encode the next rounds' maps; a RoomManager shares one pool among its rooms
+    static ExecutorService newTerrainPool(int threads) {
+        return Executors.newFixedThreadPool(threads, Thread.ofPlatform()
+                .name("TerrainPreparer-", 0)
+                .daemon(true)
+                .uncaughtExceptionHandler((t, e) -> logger.error("Uncaught exception in thread {}: {}", t.getName(), e.getMessage(), e))
+                .factory());
+    }
+
+    // Generates a map and encodes all its forms. Runs on a terrain thread, apart from a single match's first map.
+    private static PreparedTerrain prepareTerrain(int width, int height, long seed, String profileName) {
+        GameMapData mapData = new GameMapData(width, height, GameMapData.DEFAULT_TILE_SIZE);
+        new TerrainGenerator(seed).generateProceduralTerrain(mapData, BaseTerrainProfile.valueOf(profileName), seed);
+        TerrainTransfer transfer = new TerrainTransfer(mapData, TERRAIN_FLAGS, seed, profileName);
+        transfer.encodeAll();
+        return new PreparedTerrain(seed, profileName, mapData, transfer);
+    }
+
+    // The map and its transfer are replaced together, so the tick never sees one without the other
+    private void installTerrain(PreparedTerrain prepared) {
+        serverContext.terrainSeed = prepared.seed();
+        serverContext.terrainProfileName = prepared.profileName();
+        serverContext.gameMapData = prepared.mapData();
+        terrainTransfer = prepared.transfer();
+    }
+
+    // Time-based like the first seed, but never the current map's, which a round prepared in the same millisecond would get
+    private long nextTerrainSeed() {
+        long seed = System.currentTimeMillis() ^ (mapWidth * 31L + mapHeight * 17L);
+        return seed == serverContext.terrainSeed ? seed + 1 : seed;
+    }
+
+    // Queues the current map's terrain for one client: TERRAIN_INIT for clients that rebuild it from the seed,
+    // otherwise the full terrain
+    private void sendTerrain(ClientHandler handler) {
+        if (handler.usesSeedTerrain()) {
+            handler.sendMessage(currentTerrainTransfer().seedMessage());
+        } else {
+            sendFullTerrain(handler);
+        }
+    }
+
+    // TERRAIN_DATA, or TERRAIN_BEGIN and its TERRAIN_CHUNKs
+    private void sendFullTerrain(ClientHandler handler) {
+        for (OutboundMessage message : currentTerrainTransfer().messages(handler.usesBinaryTerrain())) {
+            handler.sendMessage(message);
+        }
+    }
+
+    private TerrainTransfer currentTerrainTransfer() {
+        if (terrainTransfer == null || !terrainTransfer.isFor(serverContext.gameMapData)) {
+            terrainTransfer = newTerrainTransfer();
+        }
+        return terrainTransfer;
+    }
+
+    private TerrainTransfer newTerrainTransfer() {
+        return new TerrainTransfer(serverContext.gameMapData, TERRAIN_FLAGS,
+                serverContext.terrainSeed, serverContext.terrainProfileName);
+    }
+
+    // A client's answer to TERRAIN_INIT. A failed check gets the full terrain; a check for an older seed is dropped,
+    // since the client already has the TERRAIN_INIT of the current map queued.
+    public void handleTerrainCheck(int playerId, long seed, boolean matched) {
+        ClientHandler handler = serverContext.clients.get(playerId);
+        if (handler == null || seed != currentTerrainTransfer().getSeed()) {
+            logger.debug("Ignoring terrain check for seed {} from player ID {}", seed, playerId);
+            return;
+        }
+        if (matched) {
+            logger.debug("Player ID {} rebuilt the terrain from seed {}", playerId, seed);
+        } else {
+            logger.warn("Player ID {} could not rebuild the terrain from seed {}, sending it in full", playerId, seed);
+            sendFullTerrain(handler);
+        }
     }
 
     // Resets player state for a new round
@@ -909,8 +1344,8 @@ public class GameServer {
 
         for(TankData tankData : serverContext.tanks.values()) {
             serverContext.gameMode.handlePlayerRespawn(serverContext, tankData.getPlayerId(), tankData);
-            broadcast(String.format("%s;%d;%f;%f;%f", NetworkProtocol.RESPAWN, tankData.getPlayerId(), tankData.getX(), tankData.getY(), tankData.getRotation()), -1);
-            broadcast(String.format("%s;%d;%d", NetworkProtocol.PLAYER_LIVES, tankData.getPlayerId(), totalRespawnsAllowed), -1);
+            broadcast(new ServerMessage.Respawn(tankData.getPlayerId(), tankData.getX(), tankData.getY(), tankData.getRotation()), -1);
+            broadcast(new ServerMessage.PlayerLives(tankData.getPlayerId(), totalRespawnsAllowed), -1);
         }
     }
 
@@ -962,7 +1397,7 @@ public class GameServer {
     */
 
     // Check if the win condition is met and handle the end of the round
-    private synchronized void checkWinCondition() {
+    private void checkWinCondition() {
         if (serverContext.currentGameState != GameState.PLAYING) {
             logger.warn("Skipping win condition check: Game state is {} not PLAYING.", serverContext.currentGameState);
             return;
@@ -976,7 +1411,7 @@ public class GameServer {
         }
     }
 
-    // Broadcasts the current game state to all players
+    // Broadcasts the current game state to all players as a single snapshot for this tick
     private void broadcastState() {
         if (serverContext.currentGameState != GameState.PLAYING) {
             // Do not broadcast state if not in PLAYING state
@@ -984,15 +1419,39 @@ public class GameServer {
             return;
         }
 
+        List<ServerMessage.Snapshot.TankState> tankStates = new ArrayList<>(serverContext.tanks.size());
         for (TankData tankData : serverContext.tanks.values()) {
             if (tankData == null) {
-                logger.error("Skipping broadcastState: tankData is null");
+                logger.error("Skipping tank in broadcastState: tankData is null");
                 continue;
             }
 
-            broadcast(String.format("%s;%d;%f;%f;%f",
-                    NetworkProtocol.PLAYER_UPDATE, tankData.getPlayerId(), tankData.getX(), tankData.getY(), tankData.getRotation()), -1);
+            tankStates.add(new ServerMessage.Snapshot.TankState(tankData.getPlayerId(), tankData.getX(), tankData.getY(), tankData.getRotation()));
         }
+
+        List<ServerMessage.Snapshot.BulletState> bulletStates = new ArrayList<>(serverContext.bullets.size());
+        for (BulletData bulletData : serverContext.bullets) {
+            bulletStates.add(new ServerMessage.Snapshot.BulletState(bulletData.getId(), bulletData.getPlayerId(), bulletData.getX(), bulletData.getY()));
+        }
+
+        ServerMessage.Snapshot snapshot = new ServerMessage.Snapshot(
+                serverContext.currentTick, StateQuantizer.forMap(serverContext.gameMapData), tankStates, bulletStates);
+        SnapshotHistory history = serverContext.snapshotHistory;
+
+        // Each client gets a delta against the last snapshot it acknowledged, or the full snapshot if that baseline is gone.
+        // Clients sharing a baseline share one encoded message.
+        OutboundMessage fullSnapshot = new OutboundMessage(snapshot);
+        Map<Long, OutboundMessage> deltasByBaseline = new HashMap<>();
+        for (ClientHandler handler : serverContext.clients.values()) {
+            long ackedTick = handler.getAckedSnapshotTick();
+            OutboundMessage outbound = deltasByBaseline.computeIfAbsent(ackedTick, tick -> {
+                ServerMessage message = history.messageFor(snapshot, tick);
+                return message == snapshot ? fullSnapshot : new OutboundMessage(message);
+            });
+            handler.sendState(outbound);
+        }
+
+        history.add(snapshot);
     }
 
     // Broadcasts a message to all players, excluding the specified player IDs
@@ -1002,8 +1461,14 @@ public class GameServer {
         }
     }
 
-    // Broadcasts a message to all players, excluding the specified player ID
+    // Broadcasts a raw text protocol line to all players, excluding the specified player ID
     public void broadcast(String message, int excludePlayerId) {
+        broadcast(new ServerMessage.Text(message), excludePlayerId);
+    }
+
+    // Broadcasts a message to all players, excluding the specified player ID.
+    // The message is wrapped once and the same instance is queued for every client, so it is only encoded once per wire format.
+    public void broadcast(ServerMessage message, int excludePlayerId) {
         logger.trace("Broadcasting (exclude {}): {}", excludePlayerId, message);
 
         if (serverContext.clients.isEmpty()) {
@@ -1011,6 +1476,8 @@ public class GameServer {
             return;
         }
 
+        OutboundMessage outbound = new OutboundMessage(message);
+
         for (ClientHandler handler : serverContext.clients.values()) {
             if (handler == null) {
                 logger.error("Skipping broadcast message: handler is null for playerId {}", excludePlayerId);
@@ -1024,7 +1491,7 @@ public class GameServer {
 
             logger.trace("Sending to client ID {}: {}", handler.getPlayerId(), message);
 
-            handler.sendMessage(message);
+            handler.sendMessage(outbound);
         }
 
         logger.trace("Broadcast message sent to all clients except player ID {}: {}", excludePlayerId, message);
@@ -1039,7 +1506,7 @@ public class GameServer {
 
     // Broadcasts an announcement to all players, excluding the specified player ID
     public void broadcastAnnouncement(String announcement, int excludePlayerId) {
-        broadcast(NetworkProtocol.ANNOUNCE + ";" + announcement, excludePlayerId);
+        broadcast(new ServerMessage.Announcement(announcement), excludePlayerId);
     }
 
     private String formatTime(long millis) {
@@ -1047,33 +1514,4 @@ public class GameServer {
         long minutes = (millis / (1000 * 60)) % 60;
         return String.format("%02d:%02d", minutes, seconds);
     }
-
-    private boolean checkBulletTerrainCollision(float oldX, float oldY, float newX, float newY) {
-        // Calculate the distance between old and new position
-        float dx = newX - oldX;
-        float dy = newY - oldY;
-        float distance = (float) Math.sqrt(dx * dx + dy * dy);
-        
-        // If the bullet barely moved, just check the new position
-        if (distance < 0.1f) {
-            return serverContext.gameMapData.blocksBulletsAt(newX, newY);
-        }
-        
-        // Sample multiple points along the bullet's path
-        // Use tile size to determine how many samples we need
-        float tileSize = serverContext.gameMapData.getTileSize();
-        int numSamples = (int) Math.ceil(distance / (tileSize * 0.5f)) + 1;
-        
-        for (int i = 0; i <= numSamples; i++) {
-            float t = (float) i / numSamples;
-            float checkX = oldX + dx * t;
-            float checkY = oldY + dy * t;
-            
-            if (serverContext.gameMapData.blocksBulletsAt(checkX, checkY)) {
-                return true;
-            }
-        }
-        
-        return false;
-    }
 }
\ No newline at end of file
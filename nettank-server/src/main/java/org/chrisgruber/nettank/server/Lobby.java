@@ -0,0 +1,164 @@
+package org.chrisgruber.nettank.server;
+
+import org.chrisgruber.nettank.server.network.NioTransport;
+import org.chrisgruber.nettank.server.network.UdpChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * Listens on the server port and hands every accepted connection to the room the room selector picks:
+ * always the same {@link GameServer} for a single match, or one of many under a {@link RoomManager}.
+ * Owns the connection transport and the optional UDP channel, which every room shares.
+ */
+public final class Lobby implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(Lobby.class);
+
+    // Connection transport, chosen at startup: "threads" (a reader and a sender virtual thread per client) or "nio" (one selector thread)
+    private static final String TRANSPORT_THREADS = "threads";
+    private static final String TRANSPORT_NIO = "nio";
+    private static final String TRANSPORT = System.getProperty("nettank.transport", TRANSPORT_THREADS);
+
+    // Optional UDP channel on the same port number, offered to binary clients for snapshots and input
+    private static final boolean UDP_ENABLED = Boolean.parseBoolean(System.getProperty("nettank.udp.enabled", "true"));
+
+    private final Supplier<GameServer> roomSelector;
+    private final InetAddress bindAddress;
+    private ServerSocket serverSocket;
+    private NioTransport nioTransport;
+    private UdpChannel udpChannel;
+    private final List<Thread> clientHandlerThreads = new CopyOnWriteArrayList<>();
+    private volatile boolean running = true;
+
+    // Binds the port right away, so a port in use fails the startup
+    public Lobby(int port, Supplier<GameServer> roomSelector) throws IOException {
+        this.roomSelector = roomSelector;
+
+        boolean useNio = TRANSPORT_NIO.equalsIgnoreCase(TRANSPORT);
+        if (!useNio && !TRANSPORT_THREADS.equalsIgnoreCase(TRANSPORT)) {
+            logger.warn("Unknown transport '{}', using '{}'", TRANSPORT, TRANSPORT_THREADS);
+        }
+
+        bindAddress = InetAddress.getByName("0.0.0.0");
+        if (useNio) {
+            nioTransport = new NioTransport(connection -> new ClientHandler(connection, roomSelector.get()),
+                    new InetSocketAddress(bindAddress, port));
+        } else {
+            serverSocket = new ServerSocket(port, 50, bindAddress);
+        }
+        if (UDP_ENABLED) {
+            int boundPort = getLocalPort();
+            try {
+                udpChannel = new UdpChannel(new InetSocketAddress(bindAddress, boundPort));
+                udpChannel.start();
+            } catch (IOException e) {
+                logger.warn("UDP channel unavailable on port {}, state stays on TCP: {}", boundPort, e.getMessage());
+                udpChannel = null;
+            }
+        }
+
+        logger.info("Server started on {}:{} ({} transport)", bindAddress.getHostAddress(), getLocalPort(),
+                useNio ? TRANSPORT_NIO : TRANSPORT_THREADS);
+    }
+
+    public int getLocalPort() {
+        return nioTransport != null ? nioTransport.getLocalPort() : serverSocket.getLocalPort();
+    }
+
+    // Null when UDP is disabled or its port could not be bound
+    public UdpChannel getUdpChannel() {
+        return udpChannel;
+    }
+
+    // Accepts connections on the calling thread until close() is called
+    public void run() {
+        logger.info("Waiting for client connections...");
+        if (nioTransport != null) {
+            nioTransport.run(); // Blocks until close() closes the transport
+        } else {
+            acceptConnections();
+        }
+    }
+
+    // Accept loop of the thread-per-connection transport
+    private void acceptConnections() {
+        while (running) {
+            try {
+                Socket clientSocket = serverSocket.accept(); // Blocks
+                if (!running) break; // Check flag after unblocking
+                logger.info("Client connected: {}", clientSocket.getInetAddress().getHostAddress());
+                ClientHandler clientHandler = new ClientHandler(clientSocket, roomSelector.get());
+                startClientThread(clientHandler);
+            } catch (SocketException e) {
+                if (running) { logger.error("Server socket accept error: {}", e.getMessage());}
+                else { logger.info("Server socket closed, accept loop terminating."); }
+                // Loop condition (running) handles exit
+            } catch (IOException e) {
+                if (running) { logger.error("Error accepting client connection", e); }
+            } catch (Exception e){
+                if (running) { logger.error("Unexpected error in accept loop", e); }
+            }
+        }
+    }
+
+    // Starts a new client handler thread for a player connecting
+    private void startClientThread(ClientHandler handler) {
+        int tempId = handler.getSocket().getPort();
+        // Use virtual threads for I/O-bound client handling (massive scalability improvement)
+        Thread thread = Thread.ofVirtual()
+            .name("ClientHandler-VT-" + tempId, 0)
+            .uncaughtExceptionHandler((t, e) -> logger.error("Uncaught exception in thread {}: {}", t.getName(), e.getMessage(), e))
+            .start(handler);
+        clientHandlerThreads.add(thread);
+        clientHandlerThreads.removeIf(t -> !t.isAlive());
+        logger.info("Started client handler virtual thread: {}", thread.getName());
+    }
+
+    // Stops accepting and closes the UDP channel; the rooms close their own client connections
+    @Override
+    public void close() {
+        running = false;
+
+        try {
+            if (serverSocket != null && !serverSocket.isClosed()) {
+                logger.debug("Closing server socket...");
+                serverSocket.close();
+                logger.info("Server socket closed.");
+            }
+        } catch (IOException e) { logger.error("Error closing server socket.", e); }
+
+        if (nioTransport != null) {
+            logger.debug("Closing NIO transport...");
+            nioTransport.close();
+        }
+
+        if (udpChannel != null) {
+            logger.debug("Closing UDP channel...");
+            udpChannel.close();
+        }
+    }
+
+    // Called once the rooms have closed their connections
+    public void interruptClientThreads() {
+        logger.info("Interrupting any potentially lingering client handler main threads...");
+        List<Thread> threadsToInterrupt = new ArrayList<>(clientHandlerThreads);
+        for (Thread t : threadsToInterrupt) {
+            if (t != null && t.isAlive()) {
+                logger.debug("Interrupting client handler main thread: {}", t.getName());
+                t.interrupt();
+            }
+        }
+        clientHandlerThreads.clear();
+    }
+}
@@ -0,0 +1,185 @@
+package org.chrisgruber.nettank.server;
+
+import org.chrisgruber.nettank.server.metrics.MetricsServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hosts many matches in one process. Each room is a {@link GameServer} with its own context, terrain and tick;
+ * one {@link Lobby} accepts every connection and puts it in the first room with a free slot, opening a new
+ * room when all are full. Room ticks run on a fixed pool of platform threads, one per core by default, instead
+ * of a GameLoop thread per room. The pool never runs two ticks of one room at once, so each room keeps a
+ * single writer.
+ */
+public final class RoomManager {
+    private static final Logger logger = LoggerFactory.getLogger(RoomManager.class);
+
+    // Platform threads shared by all room ticks
+    private static final int TICK_THREADS = Integer.getInteger("nettank.rooms.threads", Runtime.getRuntime().availableProcessors());
+
+    // Platform threads that prepare the rooms' next maps, sized like the tick pool so rooms ending rounds together
+    // don't queue far behind each other
+    private static final int TERRAIN_THREADS = Integer.getInteger("nettank.terrain.threads", Runtime.getRuntime().availableProcessors());
+
+    // Simulation rates of the first rooms in the order they open, e.g. "128,60,20"; later rooms use ticksPerSecond
+    private static final int[] ROOM_TICK_RATES = parseTickRates(System.getProperty("nettank.rooms.tick.rates", ""));
+
+    private final int port;
+    private final int networkHz;
+    private final int ticksPerSecond;
+    private final int[] roomTickRates;
+    private final int mapWidth;
+    private final int mapHeight;
+    private final int maxRooms;
+    private final List<GameServer> rooms = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService tickPool;
+    private final ExecutorService terrainPool;
+    private final AtomicBoolean stopping = new AtomicBoolean(false);
+    private Lobby lobby;
+    private MetricsServer metricsServer;
+
+    public RoomManager(int port, int networkHz, int ticksPerSecond, int mapWidth, int mapHeight, int maxRooms) {
+        this(port, networkHz, ticksPerSecond, mapWidth, mapHeight, maxRooms, TICK_THREADS, ROOM_TICK_RATES);
+    }
+
+    // Every room simulates at ticksPerSecond, and the pool schedules each room at its own period
+    public RoomManager(int port, int networkHz, int ticksPerSecond, int mapWidth, int mapHeight, int maxRooms, int tickThreads) {
+        this(port, networkHz, ticksPerSecond, mapWidth, mapHeight, maxRooms, tickThreads, new int[0]);
+    }
+
+    // Room i simulates at roomTickRates[i] while there is one, and at ticksPerSecond after that
+    public RoomManager(int port, int networkHz, int ticksPerSecond, int mapWidth, int mapHeight, int maxRooms, int tickThreads,
+                       int[] roomTickRates) {
+        if (maxRooms <= 0 || tickThreads <= 0) {
+            throw new IllegalArgumentException("Invalid room manager size: " + maxRooms + " rooms, " + tickThreads + " tick threads");
+        }
+        for (int rate : roomTickRates) {
+            if (rate <= 0) {
+                throw new IllegalArgumentException("Invalid room tick rate: " + rate);
+            }
+        }
+        this.port = port;
+        this.networkHz = networkHz;
+        this.ticksPerSecond = ticksPerSecond;
+        this.roomTickRates = roomTickRates.clone();
+        this.mapWidth = mapWidth;
+        this.mapHeight = mapHeight;
+        this.maxRooms = maxRooms;
+        this.tickPool = Executors.newScheduledThreadPool(tickThreads, tickThreadFactory());
+        this.terrainPool = GameServer.newTerrainPool(TERRAIN_THREADS);
+        logger.info("Room manager: up to {} rooms ticking on {} platform threads", maxRooms, tickThreads);
+    }
+
+    // Binds the port and accepts connections on the calling thread until stop() is called
+    public void start() throws IOException {
+        lobby = new Lobby(port, this::assignRoom);
+        metricsServer = MetricsServer.startIfEnabled(this::getRooms);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::stop, "ServerShutdownHook"));
+
+        try {
+            lobby.run(); // Blocks until stop() closes the lobby
+        } finally {
+            logger.info("Room manager accept loop finished.");
+        }
+    }
+
+    /**
+     * Picks the room for a new connection: the first one with a free slot, or a new room if there is none and
+     * the room limit allows it. When every room is full the connection goes to the first room, whose registration
+     * turns it away as "Server full", just like a full single-match server.
+     * Synchronized because the threads transport accepts on one thread but NIO and tests may call it from others.
+     */
+    synchronized GameServer assignRoom() {
+        for (GameServer room : rooms) {
+            if (room.hasFreeSlot()) {
+                return room;
+            }
+        }
+        if (rooms.size() < maxRooms) {
+            return openRoom();
+        }
+        logger.warn("All {} rooms are full", rooms.size());
+        return rooms.getFirst();
+    }
+
+    private GameServer openRoom() {
+        int index = rooms.size();
+        int roomTicksPerSecond = index < roomTickRates.length ? roomTickRates[index] : ticksPerSecond;
+        GameServer room = new GameServer(port, networkHz, roomTicksPerSecond, mapWidth, mapHeight, terrainPool);
+        room.startAsRoom(tickPool, lobby != null ? lobby.getUdpChannel() : null);
+        rooms.add(room);
+        logger.info("Opened room {} of {} at {} ticks per second", rooms.size(), maxRooms, roomTicksPerSecond);
+        return room;
+    }
+
+    // An unparsable list is ignored as a whole, so every room falls back to the server's rate
+    private static int[] parseTickRates(String value) {
+        if (value.isBlank()) {
+            return new int[0];
+        }
+        try {
+            String[] parts = value.split(",");
+            int[] rates = new int[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                rates[i] = Integer.parseInt(parts[i].trim());
+            }
+            return rates;
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid nettank.rooms.tick.rates '{}', using the server's tick rate for every room", value);
+            return new int[0];
+        }
+    }
+
+    public List<GameServer> getRooms() {
+        return List.copyOf(rooms);
+    }
+
+    public void stop() {
+        if (!stopping.compareAndSet(false, true)) {
+            return;
+        }
+        logger.info("Room manager stopping {} rooms...", rooms.size());
+
+        if (lobby != null) {
+            lobby.close();
+        }
+        if (metricsServer != null) {
+            metricsServer.close();
+        }
+        for (GameServer room : rooms) {
+            room.stop();
+        }
+        tickPool.shutdown();
+        terrainPool.shutdownNow(); // The rooms have cancelled their pending maps; nothing waits for the rest
+        try {
+            if (!tickPool.awaitTermination(2, TimeUnit.SECONDS)) {
+                logger.warn("Room tick threads did not finish after 2 seconds.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (lobby != null) {
+            lobby.interruptClientThreads();
+        }
+
+        logger.info("Room manager stopped.");
+    }
+
+    private static ThreadFactory tickThreadFactory() {
+        return Thread.ofPlatform()
+                .name("RoomTick-", 0)
+                .daemon(true)
+                .uncaughtExceptionHandler((t, e) -> logger.error("Uncaught exception in thread {}: {}", t.getName(), e.getMessage(), e))
+                .factory();
+    }
+}
@@ -0,0 +1,166 @@
+package org.chrisgruber.nettank.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Paces a fixed-timestep loop against absolute tick deadlines. The loop thread parks until the next deadline
+ * instead of waking every millisecond, so an idle server costs one wake-up per tick.
+ * <p>
+ * Two profiles trade CPU for precision:
+ * <ul>
+ *   <li>{@link Profile#LOW_CPU} parks for the whole wait and accepts the OS timer slack as jitter.</li>
+ *   <li>{@link Profile#LOW_JITTER} parks until a short spin tail before the deadline, then spins to it.</li>
+ * </ul>
+ * A loop that falls behind catches up with several ticks in a row, at most {@link #MAX_CATCH_UP_TICKS};
+ * deadlines beyond that are skipped rather than replayed. Overruns, skipped ticks and wake-up jitter are counted
+ * and can be read from any thread.
+ * <p>
+ * A loop woken by a timer it does not own, like a room on the shared tick pool, calls {@link #pollDueTicks()}
+ * instead of waiting: the same deadlines, catch-up limit and statistics, without parking the pool thread.
+ */
+public final class TickScheduler {
+    public enum Profile { LOW_CPU, LOW_JITTER }
+
+    public static final int MAX_CATCH_UP_TICKS = 10;
+    public static final long DEFAULT_SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+
+    private final long periodNanos;
+    private final long spinNanos;
+    private final Profile profile;
+    private final LongSupplier clock;
+    private long nextDeadline;  // Loop thread only
+
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder overruns = new LongAdder();
+    private final LongAdder skippedTicks = new LongAdder();
+    private final AtomicLong totalJitterNanos = new AtomicLong();
+    private final LongAccumulator maxJitterNanos = new LongAccumulator(Math::max, 0);
+
+    public TickScheduler(int ticksPerSecond, Profile profile, long spinNanos) {
+        this(ticksPerSecond, profile, spinNanos, System::nanoTime);
+    }
+
+    // Tests pass their own clock to check the tick accounting without depending on the machine's timing
+    TickScheduler(int ticksPerSecond, Profile profile, long spinNanos, LongSupplier clock) {
+        if (ticksPerSecond <= 0 || spinNanos < 0) {
+            throw new IllegalArgumentException("Invalid tick schedule: " + ticksPerSecond + " Hz, spin " + spinNanos + " ns");
+        }
+        this.periodNanos = TimeUnit.SECONDS.toNanos(1) / ticksPerSecond;
+        this.profile = profile;
+        this.spinNanos = profile == Profile.LOW_JITTER ? Math.min(spinNanos, periodNanos) : 0;
+        this.clock = clock;
+        this.nextDeadline = clock.getAsLong() + periodNanos;
+    }
+
+    // Reads the profile from nettank.tick.profile (low-cpu or low-jitter) and the spin tail from nettank.tick.spin.us
+    public static TickScheduler fromSystemProperties(int ticksPerSecond) {
+        String name = System.getProperty("nettank.tick.profile", "low-cpu");
+        Profile profile = "low-jitter".equalsIgnoreCase(name) ? Profile.LOW_JITTER : Profile.LOW_CPU;
+        long spinNanos = TimeUnit.MICROSECONDS.toNanos(Long.getLong("nettank.tick.spin.us", TimeUnit.NANOSECONDS.toMicros(DEFAULT_SPIN_NANOS)));
+        return new TickScheduler(ticksPerSecond, profile, spinNanos);
+    }
+
+    /**
+     * Waits for the next tick deadline and returns how many ticks are due: 1 on time, more when the previous
+     * ticks overran the period, never more than {@link #MAX_CATCH_UP_TICKS}.
+     */
+    public int awaitNextTick() throws InterruptedException {
+        long deadline = nextDeadline;
+        waitUntil(deadline);
+        return takeDueTicks(deadline, clock.getAsLong());
+    }
+
+    /**
+     * Non-blocking {@link #awaitNextTick()}: returns 0 before the next deadline, otherwise the ticks due since,
+     * counted the same way. Lateness then includes however late the caller's own timer fired.
+     */
+    public int pollDueTicks() {
+        long deadline = nextDeadline;
+        long now = clock.getAsLong();
+        if (now - deadline < 0) {
+            return 0;
+        }
+        return takeDueTicks(deadline, now);
+    }
+
+    private int takeDueTicks(long deadline, long now) {
+        long lateness = now - deadline;
+        long periodsLate = lateness / periodNanos;
+        int due = (int) Math.min(1 + periodsLate, MAX_CATCH_UP_TICKS);
+
+        waits.increment();
+        if (periodsLate == 0) {
+            // Woke within the period: how far past the deadline is the scheduling jitter
+            totalJitterNanos.addAndGet(lateness);
+            maxJitterNanos.accumulate(lateness);
+        } else {
+            overruns.increment();
+            skippedTicks.add(1 + periodsLate - due);
+        }
+
+        nextDeadline = deadline + (1 + periodsLate) * periodNanos;
+        return due;
+    }
+
+    // Starts the schedule over from now, e.g. after the loop was paused on purpose
+    public void restart() {
+        nextDeadline = clock.getAsLong() + periodNanos;
+    }
+
+    private void waitUntil(long deadline) throws InterruptedException {
+        while (true) {
+            long remaining = deadline - clock.getAsLong();
+            if (remaining <= 0) {
+                return;
+            }
+            if (remaining > spinNanos) {
+                LockSupport.parkNanos(this, remaining - spinNanos);
+            } else {
+                Thread.onSpinWait();
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    public Profile profile() {
+        return profile;
+    }
+
+    public long periodNanos() {
+        return periodNanos;
+    }
+
+    // Waits that found the loop a full period or more behind its deadline
+    public long overruns() {
+        return overruns.sum();
+    }
+
+    // Deadlines dropped because catching up would have taken more than MAX_CATCH_UP_TICKS ticks
+    public long skippedTicks() {
+        return skippedTicks.sum();
+    }
+
+    public long maxJitterNanos() {
+        return maxJitterNanos.get();
+    }
+
+    // Mean wake-up delay past the deadline over the waits that were not overruns
+    public long meanJitterNanos() {
+        long onTime = waits.sum() - overruns.sum();
+        return onTime > 0 ? totalJitterNanos.get() / onTime : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s, %d waits, %d overruns (%d ticks skipped), jitter mean %d us / max %d us",
+                profile, waits.sum(), overruns(), skippedTicks(),
+                TimeUnit.NANOSECONDS.toMicros(meanJitterNanos()), TimeUnit.NANOSECONDS.toMicros(maxJitterNanos()));
+    }
+}
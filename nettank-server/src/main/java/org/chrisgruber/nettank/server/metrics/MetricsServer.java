@@ -0,0 +1,196 @@
+package org.chrisgruber.nettank.server.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.chrisgruber.nettank.common.metrics.LatencyHistogram;
+import org.chrisgruber.nettank.server.ClientHandler;
+import org.chrisgruber.nettank.server.GameServer;
+import org.chrisgruber.nettank.server.TickScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Serves the server's metrics at {@code /metrics} in the Prometheus text format, on the loopback address only.
+ * Disabled unless {@code nettank.metrics.port} is set. Everything is read on request from the live servers:
+ * tick phase histograms, tick schedule statistics and per-client send queue and write counters.
+ * Rates such as messages per second come from Prometheus: {@code rate(nettank_client_messages_sent_total[1m])}.
+ */
+public final class MetricsServer implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsServer.class);
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private final HttpServer httpServer;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(Thread.ofVirtual().name("Metrics-HTTP").factory());
+    private final Supplier<List<GameServer>> rooms;
+
+    public MetricsServer(int port, Supplier<List<GameServer>> rooms) throws IOException {
+        this.rooms = rooms;
+        this.httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        httpServer.createContext("/metrics", this::handle);
+        httpServer.setExecutor(executor);
+        httpServer.start();
+        logger.info("Metrics available at http://{}:{}/metrics", InetAddress.getLoopbackAddress().getHostAddress(), getPort());
+    }
+
+    // Starts the endpoint if nettank.metrics.port is set; returns null otherwise or if the port cannot be bound
+    public static MetricsServer startIfEnabled(Supplier<List<GameServer>> rooms) {
+        Integer port = Integer.getInteger("nettank.metrics.port");
+        if (port == null) {
+            return null;
+        }
+        try {
+            return new MetricsServer(port, rooms);
+        } catch (IOException e) {
+            logger.warn("Metrics endpoint unavailable on port {}: {}", port, e.getMessage());
+            return null;
+        }
+    }
+
+    public int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = render(rooms.get()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    // Every sample of a metric family must follow its TYPE line, so each family loops over all rooms
+    static String render(List<GameServer> rooms) {
+        StringBuilder out = new StringBuilder(4096);
+
+        family(out, "nettank_tick_phase_seconds", "summary", "Time spent in each phase of a server tick, since start.");
+        for (int room = 0; room < rooms.size(); room++) {
+            TickProfiler profiler = rooms.get(room).getTickProfiler();
+            for (TickProfiler.Phase phase : TickProfiler.Phase.values()) {
+                LatencyHistogram histogram = profiler.histogram(phase);
+                String labels = "room=\"" + room + "\",phase=\"" + phase.label() + "\"";
+                for (double quantile : QUANTILES) {
+                    sample(out, "nettank_tick_phase_seconds", labels + ",quantile=\"" + quantile + "\"",
+                            histogram.valueAtQuantile(quantile) / NANOS_PER_SECOND);
+                }
+                sample(out, "nettank_tick_phase_seconds_sum", labels, histogram.sum() / NANOS_PER_SECOND);
+                sample(out, "nettank_tick_phase_seconds_count", labels, histogram.count());
+            }
+        }
+
+        family(out, "nettank_send_queue_depth", "summary", "Client send queue depths sampled at the end of each tick, since start.");
+        for (int room = 0; room < rooms.size(); room++) {
+            LatencyHistogram depths = rooms.get(room).getTickProfiler().sendQueueDepths();
+            String labels = "room=\"" + room + "\"";
+            for (double quantile : QUANTILES) {
+                sample(out, "nettank_send_queue_depth", labels + ",quantile=\"" + quantile + "\"", depths.valueAtQuantile(quantile));
+            }
+            sample(out, "nettank_send_queue_depth_sum", labels, depths.sum());
+            sample(out, "nettank_send_queue_depth_count", labels, depths.count());
+        }
+
+        family(out, "nettank_tick_phase_max_seconds", "gauge", "Longest time spent in each phase of a server tick.");
+        for (int room = 0; room < rooms.size(); room++) {
+            TickProfiler profiler = rooms.get(room).getTickProfiler();
+            for (TickProfiler.Phase phase : TickProfiler.Phase.values()) {
+                sample(out, "nettank_tick_phase_max_seconds", "room=\"" + room + "\",phase=\"" + phase.label() + "\"",
+                        profiler.histogram(phase).max() / NANOS_PER_SECOND);
+            }
+        }
+
+        family(out, "nettank_tick_overruns_total", "counter", "Tick waits that found the game loop a period or more behind.");
+        forEachScheduler(rooms, (room, scheduler) -> sample(out, "nettank_tick_overruns_total", room, scheduler.overruns()));
+        family(out, "nettank_tick_skipped_total", "counter", "Ticks skipped because the game loop fell too far behind.");
+        forEachScheduler(rooms, (room, scheduler) -> sample(out, "nettank_tick_skipped_total", room, scheduler.skippedTicks()));
+        family(out, "nettank_tick_jitter_max_seconds", "gauge", "Longest wake-up delay past a tick deadline.");
+        forEachScheduler(rooms, (room, scheduler) -> sample(out, "nettank_tick_jitter_max_seconds", room, scheduler.maxJitterNanos() / NANOS_PER_SECOND));
+
+        family(out, "nettank_connections", "gauge", "Open client connections.");
+        for (int room = 0; room < rooms.size(); room++) {
+            sample(out, "nettank_connections", "room=\"" + room + "\"", rooms.get(room).getConnectionCount());
+        }
+        family(out, "nettank_room_hibernating", "gauge", "1 while the room is idle and not ticking.");
+        for (int room = 0; room < rooms.size(); room++) {
+            sample(out, "nettank_room_hibernating", "room=\"" + room + "\"", rooms.get(room).isHibernating() ? 1 : 0);
+        }
+
+        family(out, "nettank_client_send_queue_depth", "gauge", "Messages waiting in a client's send queue.");
+        forEachClient(rooms, (labels, client) -> sample(out, "nettank_client_send_queue_depth", labels, client.getSendQueue().depth()));
+        family(out, "nettank_client_send_queue_peak_depth", "gauge", "Deepest a client's send queue has been.");
+        forEachClient(rooms, (labels, client) -> sample(out, "nettank_client_send_queue_peak_depth", labels, client.getSendQueue().peakDepth()));
+        family(out, "nettank_client_snapshots_coalesced_total", "counter", "Unsent snapshots replaced by a newer one.");
+        forEachClient(rooms, (labels, client) -> sample(out, "nettank_client_snapshots_coalesced_total", labels, client.getSendQueue().coalescedCount()));
+        family(out, "nettank_client_messages_sent_total", "counter", "Messages written to a client's socket.");
+        forEachClient(rooms, (labels, client) -> sample(out, "nettank_client_messages_sent_total", labels, client.getWriteStats().messages()));
+        family(out, "nettank_client_socket_writes_total", "counter", "Socket writes that carried those messages.");
+        forEachClient(rooms, (labels, client) -> sample(out, "nettank_client_socket_writes_total", labels, client.getWriteStats().writes()));
+        family(out, "nettank_client_bytes_sent_total", "counter", "Bytes written to a client's socket.");
+        forEachClient(rooms, (labels, client) -> sample(out, "nettank_client_bytes_sent_total", labels, client.getWriteStats().bytes()));
+
+        return out.toString();
+    }
+
+    private interface SchedulerSample {
+        void write(String roomLabel, TickScheduler scheduler);
+    }
+
+    private interface ClientSample {
+        void write(String labels, ClientHandler client);
+    }
+
+    private static void forEachScheduler(List<GameServer> rooms, SchedulerSample sample) {
+        for (int room = 0; room < rooms.size(); room++) {
+            TickScheduler scheduler = rooms.get(room).getTickScheduler();
+            if (scheduler != null) {
+                sample.write("room=\"" + room + "\"", scheduler);
+            }
+        }
+    }
+
+    // Registered clients only; a connection gets its player id when it registers
+    private static void forEachClient(List<GameServer> rooms, ClientSample sample) {
+        for (int room = 0; room < rooms.size(); room++) {
+            for (ClientHandler client : rooms.get(room).getClients()) {
+                int playerId = client.getPlayerId();
+                if (playerId >= 0) {
+                    sample.write("room=\"" + room + "\",player=\"" + playerId + "\"", client);
+                }
+            }
+        }
+    }
+
+    private static void family(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    @Override
+    public void close() {
+        httpServer.stop(0);
+        executor.shutdownNow();
+        logger.info("Metrics endpoint closed.");
+    }
+}
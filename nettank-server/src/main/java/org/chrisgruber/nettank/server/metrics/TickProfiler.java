@@ -0,0 +1,60 @@
+package org.chrisgruber.nettank.server.metrics;
+
+import org.chrisgruber.nettank.common.metrics.LatencyHistogram;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Times the phases of each server tick into one {@link LatencyHistogram} per phase. The ticking thread
+ * chains {@link #lap} calls, so each phase costs one {@code System.nanoTime()}. Also samples the send queue
+ * depth of every client at the end of each tick.
+ */
+public final class TickProfiler {
+    public enum Phase {
+        STATE_TRANSITIONS,
+        TANK_MOVEMENT,
+        BULLET_MOVEMENT,
+        COLLISION,
+        RESPAWN,
+        BROADCAST,
+        TICK;   // A whole tick: queued commands and game logic, without the broadcast
+
+        public String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final Map<Phase, LatencyHistogram> histograms = new EnumMap<>(Phase.class);
+    private final LatencyHistogram sendQueueDepths = new LatencyHistogram(); // Every client's queue depth at each tick end
+
+    public TickProfiler() {
+        for (Phase phase : Phase.values()) {
+            histograms.put(phase, new LatencyHistogram());
+        }
+    }
+
+    public void record(Phase phase, long nanos) {
+        histograms.get(phase).record(nanos);
+    }
+
+    // Records the time since startNanos for the phase and returns the current time, where the next phase starts
+    public long lap(Phase phase, long startNanos) {
+        long now = System.nanoTime();
+        histograms.get(phase).record(now - startNanos);
+        return now;
+    }
+
+    public LatencyHistogram histogram(Phase phase) {
+        return histograms.get(phase);
+    }
+
+    public void recordSendQueueDepth(int depth) {
+        sendQueueDepths.record(depth);
+    }
+
+    public LatencyHistogram sendQueueDepths() {
+        return sendQueueDepths;
+    }
+}
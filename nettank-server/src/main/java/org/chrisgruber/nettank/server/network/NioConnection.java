@@ -0,0 +1,191 @@
+package org.chrisgruber.nettank.server.network;
+
+import org.chrisgruber.nettank.common.network.BinaryProtocol;
+import org.chrisgruber.nettank.common.network.WireFormat;
+import org.chrisgruber.nettank.server.ClientHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One client connection served by {@link NioTransport}. Any thread may queue messages on the handler's
+ * {@link SendQueue}; only the selector thread reads, splits the input into lines or frames for the
+ * {@link ClientHandler}, and writes.
+ */
+public final class NioConnection {
+    private static final Logger logger = LoggerFactory.getLogger(NioConnection.class);
+
+    // Large enough for the longest accepted text line or client frame
+    static final int READ_BUFFER_BYTES = Math.max(ClientHandler.MAX_TEXT_LINE_BYTES + 1,
+            BinaryProtocol.LENGTH_PREFIX_BYTES + BinaryProtocol.MAX_CLIENT_FRAME_LENGTH);
+    private static final int MAX_BUFFERS_PER_WRITE = 64;
+
+    private final SocketChannel channel;
+    private final NioTransport transport;
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_BYTES);
+
+    // Set by any thread that queued a message, cleared by the selector thread before it drains the send queue
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    // Selector thread only: encoded messages not yet fully written, and the array handed to the gathering write
+    private final ArrayDeque<ByteBuffer> pendingWrites = new ArrayDeque<>();
+    private final ByteBuffer[] gather = new ByteBuffer[MAX_BUFFERS_PER_WRITE];
+    private WireFormat outboundFormat = WireFormat.TEXT;
+
+    private ClientHandler handler;
+    private SelectionKey key;
+
+    NioConnection(SocketChannel channel, NioTransport transport) {
+        this.channel = channel;
+        this.transport = transport;
+    }
+
+    void attach(ClientHandler handler, SelectionKey key) {
+        this.handler = handler;
+        this.key = key;
+    }
+
+    public Socket socket() {
+        return channel.socket();
+    }
+
+    ClientHandler handler() {
+        return handler;
+    }
+
+    SelectionKey key() {
+        return key;
+    }
+
+    boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    // Thread-safe; called after queuing a message, the selector thread writes it on its next pass
+    public void scheduleFlush() {
+        if (channel.isOpen() && flushScheduled.compareAndSet(false, true)) {
+            transport.scheduleFlush(this);
+        }
+    }
+
+    void clearFlushScheduled() {
+        flushScheduled.set(false);
+    }
+
+    /**
+     * Reads what the socket has and hands every complete line or frame to the handler.
+     * Returns false at end of stream.
+     */
+    boolean read() throws IOException {
+        int read = channel.read(readBuffer);
+        if (read < 0) {
+            return false;
+        }
+
+        readBuffer.flip();
+        try {
+            Object message;
+            while (channel.isOpen() && (message = nextMessage()) != null) {
+                handler.receive(message);
+            }
+        } finally {
+            readBuffer.compact();
+        }
+        return true;
+    }
+
+    // The handler switches its inbound format while handling CON, so the format is checked per message
+    private Object nextMessage() throws IOException {
+        if (handler.getInboundFormat() == WireFormat.BINARY) {
+            if (readBuffer.remaining() < BinaryProtocol.LENGTH_PREFIX_BYTES) {
+                return null;
+            }
+            int length = readBuffer.getInt(readBuffer.position());
+            if (length <= 0 || length > BinaryProtocol.MAX_CLIENT_FRAME_LENGTH) {
+                throw new IOException("Invalid frame length: " + length + " (max " + BinaryProtocol.MAX_CLIENT_FRAME_LENGTH + ")");
+            }
+            if (readBuffer.remaining() < BinaryProtocol.LENGTH_PREFIX_BYTES + length) {
+                return null;
+            }
+            byte[] frame = new byte[length];
+            readBuffer.position(readBuffer.position() + BinaryProtocol.LENGTH_PREFIX_BYTES);
+            readBuffer.get(frame);
+            return ByteBuffer.wrap(frame);
+        }
+
+        for (int i = readBuffer.position(); i < readBuffer.limit(); i++) {
+            if (readBuffer.get(i) == '\n') {
+                byte[] line = new byte[i - readBuffer.position()];
+                readBuffer.get(line);
+                readBuffer.get(); // Newline
+                int length = line.length > 0 && line[line.length - 1] == '\r' ? line.length - 1 : line.length;
+                return new String(line, 0, length, StandardCharsets.UTF_8);
+            }
+        }
+        if (readBuffer.remaining() > ClientHandler.MAX_TEXT_LINE_BYTES) {
+            throw new IOException("Line exceeds maximum length of " + ClientHandler.MAX_TEXT_LINE_BYTES + " bytes");
+        }
+        return null;
+    }
+
+    /**
+     * Writes queued messages with gathering writes until everything is out or the socket buffer is full.
+     * Returns true when nothing is left to write.
+     */
+    boolean flush() throws IOException {
+        while (true) {
+            SendQueue sendQueue = handler.getSendQueue();
+            OutboundMessage message;
+            while (pendingWrites.size() < MAX_BUFFERS_PER_WRITE && (message = sendQueue.poll()) != null) {
+                pendingWrites.add(message.directEncoded(outboundFormat));
+                handler.getWriteStats().recordMessage();
+                if (message.message() instanceof ServerMessage.ProtocolSwitch) {
+                    // Last text line; everything queued after it goes out as binary frames
+                    outboundFormat = WireFormat.BINARY;
+                }
+            }
+            if (pendingWrites.isEmpty()) {
+                return true;
+            }
+
+            int count = 0;
+            for (ByteBuffer buffer : pendingWrites) {
+                gather[count++] = buffer;
+                if (count == gather.length) {
+                    break;
+                }
+            }
+            handler.getWriteStats().recordWrite(channel.write(gather, 0, count));
+            Arrays.fill(gather, 0, count, null);
+
+            while (!pendingWrites.isEmpty() && !pendingWrites.peekFirst().hasRemaining()) {
+                pendingWrites.pollFirst();
+            }
+            if (!pendingWrites.isEmpty()) {
+                logger.trace("Socket buffer full for client {}, {} buffers pending", handler.getPlayerId(), pendingWrites.size());
+                return false;
+            }
+        }
+    }
+
+    void close() {
+        if (handler != null) {
+            handler.getSendQueue().clear();
+        }
+        pendingWrites.clear();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.debug("Error closing channel for client {}: {}", handler != null ? handler.getPlayerId() : -1, e.getMessage());
+        }
+    }
+}
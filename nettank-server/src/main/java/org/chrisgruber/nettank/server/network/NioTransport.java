@@ -0,0 +1,207 @@
+package org.chrisgruber.nettank.server.network;
+
+import org.chrisgruber.nettank.server.ClientHandler;
+import org.chrisgruber.nettank.server.GameServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+
+/**
+ * Serves every client connection from a single selector thread, as an alternative to a reader and a sender
+ * virtual thread per connection. Reads go into a direct buffer per connection; queued messages are written
+ * from their shared direct encodings with gathering writes. Protocol handling stays in {@link ClientHandler}.
+ */
+public final class NioTransport implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(NioTransport.class);
+
+    // How often registration and heartbeat timeouts are checked
+    private static final long TIMEOUT_SWEEP_INTERVAL_MS = 1000;
+
+    private final Function<NioConnection, ClientHandler> handlerFactory; // Picks the room for each accepted connection
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final Queue<NioConnection> flushQueue = new ConcurrentLinkedQueue<>();
+    private final List<NioConnection> connections = new ArrayList<>(); // Selector thread only
+    private volatile boolean running = true;
+
+    public NioTransport(GameServer server, InetSocketAddress address) throws IOException {
+        this(connection -> new ClientHandler(connection, server), address);
+    }
+
+    public NioTransport(Function<NioConnection, ClientHandler> handlerFactory, InetSocketAddress address) throws IOException {
+        this.handlerFactory = handlerFactory;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(address, 50);
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            serverChannel.close();
+            selector.close();
+            throw e;
+        }
+    }
+
+    public int getLocalPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    // Runs the selector loop on the calling thread until close() is called
+    public void run() {
+        logger.info("NIO transport accepting connections on port {}", getLocalPort());
+        long nextSweepTime = System.currentTimeMillis() + TIMEOUT_SWEEP_INTERVAL_MS;
+
+        try {
+            while (running) {
+                selector.select(TIMEOUT_SWEEP_INTERVAL_MS);
+                if (!running) break;
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        handleReady((NioConnection) key.attachment(), key);
+                    }
+                }
+
+                drainFlushQueue();
+
+                long currentTime = System.currentTimeMillis();
+                if (currentTime >= nextSweepTime) {
+                    sweepConnections(currentTime);
+                    nextSweepTime = currentTime + TIMEOUT_SWEEP_INTERVAL_MS;
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                logger.error("NIO selector loop failed", e);
+            }
+        } catch (Exception e) {
+            logger.error("Unexpected error in NIO selector loop", e);
+        } finally {
+            shutdown();
+        }
+    }
+
+    void scheduleFlush(NioConnection connection) {
+        flushQueue.add(connection);
+        selector.wakeup();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            try {
+                channel.configureBlocking(false);
+                NioConnection connection = new NioConnection(channel, this);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ, connection);
+                connection.attach(handlerFactory.apply(connection), key);
+                connections.add(connection);
+                logger.info("Client connected: {}", channel.socket().getInetAddress().getHostAddress());
+            } catch (IOException e) {
+                logger.error("Error setting up accepted connection", e);
+                channel.close();
+            }
+        }
+    }
+
+    private void handleReady(NioConnection connection, SelectionKey key) {
+        ClientHandler handler = connection.handler();
+        try {
+            if (key.isReadable() && !connection.read()) {
+                if (handler.getPlayerId() == -1) {
+                    logger.debug("Unregistered client disconnected (end of stream).");
+                } else {
+                    logger.info("Client {} disconnected (end of stream).", handler.getPlayerId());
+                }
+                handler.closeConnection("Client disconnected");
+                return;
+            }
+            if (key.isValid() && key.isWritable()) {
+                updateWriteInterest(connection, connection.flush());
+            }
+        } catch (IOException e) {
+            if (handler.getPlayerId() == -1) {
+                logger.debug("I/O error for unregistered client: {}", e.getMessage());
+            } else {
+                logger.info("I/O error for client {}: {}", handler.getPlayerId(), e.getMessage());
+            }
+            handler.closeConnection("IO error: " + e.getMessage());
+        }
+    }
+
+    private void drainFlushQueue() {
+        NioConnection connection;
+        while ((connection = flushQueue.poll()) != null) {
+            connection.clearFlushScheduled();
+            if (!connection.isOpen()) continue;
+            try {
+                updateWriteInterest(connection, connection.flush());
+            } catch (IOException e) {
+                logger.info("I/O error (write) for client {}: {}", connection.handler().getPlayerId(), e.getMessage());
+                connection.handler().closeConnection("IO write error: " + e.getMessage());
+            }
+        }
+    }
+
+    // Only wait for writability while a write is incomplete, otherwise the selector would spin
+    private void updateWriteInterest(NioConnection connection, boolean flushed) {
+        SelectionKey key = connection.key();
+        if (key.isValid()) {
+            key.interestOps(flushed ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void sweepConnections(long currentTime) {
+        Iterator<NioConnection> iterator = connections.iterator();
+        while (iterator.hasNext()) {
+            NioConnection connection = iterator.next();
+            if (!connection.isOpen() || connection.handler().checkTimeouts(currentTime)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    private void shutdown() {
+        running = false;
+        for (NioConnection connection : connections) {
+            if (connection.isOpen()) {
+                connection.handler().closeConnection("Server shutting down");
+                connection.close();
+            }
+        }
+        connections.clear();
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            logger.error("Error closing NIO transport", e);
+        }
+        logger.info("NIO transport stopped.");
+    }
+}
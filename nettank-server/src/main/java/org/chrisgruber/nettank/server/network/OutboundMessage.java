@@ -0,0 +1,92 @@
+package org.chrisgruber.nettank.server.network;
+
+import org.chrisgruber.nettank.common.network.WireFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A server message together with its encoded bytes, shared by every connection it is queued on.
+ * Each wire format is encoded at most once, on first use, so a broadcast to N clients costs one
+ * encode per format in use rather than N. The cached buffers are never modified after encoding;
+ * readers always work on duplicates. The NIO transport additionally asks for a direct copy, made once
+ * per format and shared the same way, so channel writes need no per-client copy into native memory.
+ */
+public final class OutboundMessage {
+    private final ServerMessage message;
+    private volatile ByteBuffer textBytes;
+    private volatile ByteBuffer frameBytes;
+    private volatile ByteBuffer directTextBytes;
+    private volatile ByteBuffer directFrameBytes;
+
+    public OutboundMessage(ServerMessage message) {
+        this.message = message;
+    }
+
+    public ServerMessage message() {
+        return message;
+    }
+
+    // Read-only view of the encoded message (a newline-terminated line for TEXT, a full frame for BINARY)
+    public ByteBuffer encoded(WireFormat format) {
+        return encodedBuffer(format).asReadOnlyBuffer();
+    }
+
+    // Read-only view of a direct copy of the encoded message, for channel writes
+    public ByteBuffer directEncoded(WireFormat format) {
+        ByteBuffer direct = format == WireFormat.BINARY ? directFrameBytes : directTextBytes;
+        if (direct == null) {
+            synchronized (this) {
+                direct = format == WireFormat.BINARY ? directFrameBytes : directTextBytes;
+                if (direct == null) {
+                    ByteBuffer encoded = encodedBuffer(format).duplicate();
+                    direct = ByteBuffer.allocateDirect(encoded.remaining()).put(encoded).flip();
+                    if (format == WireFormat.BINARY) {
+                        directFrameBytes = direct;
+                    } else {
+                        directTextBytes = direct;
+                    }
+                }
+            }
+        }
+        return direct.asReadOnlyBuffer();
+    }
+
+    public void writeTo(OutputStream out, WireFormat format) throws IOException {
+        ByteBuffer buffer = encodedBuffer(format);
+        out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+    }
+
+    private ByteBuffer encodedBuffer(WireFormat format) {
+        if (format == WireFormat.BINARY) {
+            ByteBuffer frame = frameBytes;
+            if (frame == null) {
+                synchronized (this) {
+                    frame = frameBytes;
+                    if (frame == null) {
+                        frameBytes = frame = message.toFrame();
+                    }
+                }
+            }
+            return frame;
+        }
+
+        ByteBuffer text = textBytes;
+        if (text == null) {
+            synchronized (this) {
+                text = textBytes;
+                if (text == null) {
+                    textBytes = text = ByteBuffer.wrap((message.toText() + "\n").getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return message.toString();
+    }
+}
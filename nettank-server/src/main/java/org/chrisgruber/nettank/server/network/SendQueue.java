@@ -0,0 +1,209 @@
+package org.chrisgruber.nettank.server.network;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded outbound queue of one connection, filled by any thread and drained by its sender.
+ * State snapshots supersede each other: a new snapshot or delta replaces an unsent one, so a slow
+ * client only ever has one state message queued. Reliable events are never dropped; when the queue
+ * is full, offer fails and the caller evicts the client instead.
+ * <p>
+ * The queue also keeps the depth metrics and the time spent above the high-water mark, which the
+ * {@link org.chrisgruber.nettank.server.ClientHandler} uses to evict clients that stay behind.
+ */
+public final class SendQueue {
+    public static final int DEFAULT_CAPACITY = 512;
+
+    private final int capacity;
+    private final int highWaterMark;
+    private final ArrayDeque<OutboundMessage> messages;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    // Guarded by lock
+    private OutboundMessage pendingState;   // The unsent snapshot or delta, if any
+    private boolean flushRequested;         // Set at the end of a server tick in tick flush mode
+    private long overHighWaterSince = -1;   // currentTimeMillis when the depth went over the mark, -1 while below
+    private int peakDepth;
+    private long coalescedCount;
+
+    public SendQueue(int capacity, int highWaterMark) {
+        if (capacity <= 0 || highWaterMark <= 0 || highWaterMark > capacity) {
+            throw new IllegalArgumentException("Invalid send queue bounds: capacity " + capacity + ", high-water mark " + highWaterMark);
+        }
+        this.capacity = capacity;
+        this.highWaterMark = highWaterMark;
+        this.messages = new ArrayDeque<>(capacity);
+    }
+
+    /**
+     * Queues a message, replacing the unsent state message if this one is a newer state message.
+     * Returns false, leaving the queue unchanged, when the queue is full.
+     */
+    public boolean offer(OutboundMessage message) {
+        lock.lock();
+        try {
+            boolean state = isState(message);
+            if (state && pendingState != null && messages.removeLastOccurrence(pendingState)) {
+                // The newer snapshot goes to the back, behind the events that were queued after the old one
+                coalescedCount++;
+            } else if (messages.size() >= capacity) {
+                return false;
+            }
+
+            messages.addLast(message);
+            if (state) {
+                pendingState = message;
+            }
+
+            int depth = messages.size();
+            peakDepth = Math.max(peakDepth, depth);
+            if (depth > highWaterMark && overHighWaterSince < 0) {
+                overHighWaterSince = System.currentTimeMillis();
+            }
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Returns the next message, or null if the queue is empty
+    public OutboundMessage poll() {
+        lock.lock();
+        try {
+            return removeFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Waits up to the timeout for the next message; returns null if none arrived
+    public OutboundMessage poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (messages.isEmpty()) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return removeFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Tick flush mode: waits for the next message, or returns null once the queue is empty and either a
+     * flush was requested (the tick ended) or the timeout passed. Null means "flush what you have written".
+     */
+    public OutboundMessage pollUntilFlush(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (messages.isEmpty()) {
+                if (flushRequested || nanos <= 0) {
+                    flushRequested = false;
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return removeFirst();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Marks the end of a server tick, so a sender in pollUntilFlush writes out this tick's messages at once
+    public void requestFlush() {
+        lock.lock();
+        try {
+            flushRequested = true;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private OutboundMessage removeFirst() {
+        OutboundMessage message = messages.pollFirst();
+        if (message != null && message == pendingState) {
+            pendingState = null;
+        }
+        if (messages.size() <= highWaterMark) {
+            overHighWaterSince = -1;
+        }
+        return message;
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            messages.clear();
+            pendingState = null;
+            overHighWaterSince = -1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return depth() == 0;
+    }
+
+    public int depth() {
+        lock.lock();
+        try {
+            return messages.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // How long the depth has stayed above the high-water mark, 0 while it is at or below it
+    public long millisOverHighWater(long currentTime) {
+        lock.lock();
+        try {
+            return overHighWaterSince < 0 ? 0 : Math.max(1, currentTime - overHighWaterSince);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int peakDepth() {
+        lock.lock();
+        try {
+            return peakDepth;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Number of unsent state messages replaced by a newer one
+    public long coalescedCount() {
+        lock.lock();
+        try {
+            return coalescedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int highWaterMark() {
+        return highWaterMark;
+    }
+
+    private static boolean isState(OutboundMessage message) {
+        return message.message() instanceof ServerMessage.Snapshot
+                || message.message() instanceof ServerMessage.DeltaSnapshot;
+    }
+}
@@ -0,0 +1,416 @@
+package org.chrisgruber.nettank.server.network;
+
+import org.chrisgruber.nettank.common.network.BinaryProtocol;
+import org.chrisgruber.nettank.common.network.FrameBuilder;
+import org.chrisgruber.nettank.common.network.NetworkProtocol;
+import org.chrisgruber.nettank.common.network.StateQuantizer;
+import org.chrisgruber.nettank.common.util.GameState;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Server to client messages. Each record knows both its text protocol line ({@link NetworkProtocol})
+ * and its binary frame ({@link BinaryProtocol}), so the game logic builds a message once and each
+ * connection encodes it in whichever format it negotiated.
+ */
+public sealed interface ServerMessage {
+
+    String toText();
+
+    ByteBuffer toFrame();
+
+    record AssignId(int id, float colorR, float colorG, float colorB) implements ServerMessage {
+        public String toText() {
+            return String.format("%s;%d;%f;%f;%f", NetworkProtocol.ASSIGN_ID, id, colorR, colorG, colorB);
+        }
+
+        public ByteBuffer toFrame() {
+            return new FrameBuilder(BinaryProtocol.ASSIGN_ID, 16)
+                    .putInt(id).putFloat(colorR).putFloat(colorG).putFloat(colorB)
+                    .build();
+        }
+    }
+
+    record MapInfo(int widthTiles, int heightTiles, float tileSize) implements ServerMessage {
+        public String toText() {
+            return String.format("%s;%d;%d;%f", NetworkProtocol.MAP_INFO, widthTiles, heightTiles, tileSize);
+        }
+
+        public ByteBuffer toFrame() {
+            return new FrameBuilder(BinaryProtocol.MAP_INFO, 12)
+                    .putInt(widthTiles).putInt(heightTiles).putFloat(tileSize)
+                    .build();
+        }
+    }
+
+    // The seed and profile the current map was generated from, for clients that rebuild it themselves
+    record TerrainInit(long seed, String profileName, int checksum) implements ServerMessage {
+        public String toText() {
+            return String.format("%s;%d;%s;%d", NetworkProtocol.TERRAIN_INIT, seed, profileName, checksum);
+        }
+
+        public ByteBuffer toFrame() {
+            return new FrameBuilder(BinaryProtocol.TERRAIN_INIT, 14 + profileName.length())
+                    .putLong(seed).putString(profileName).putInt(checksum)
+                    .build();
+        }
+    }
+
+    record TerrainData(int width, int height, String encodedData) implements ServerMessage {
+        public String toText() {
+            return String.format("%s;%d;%d;%s", NetworkProtocol.TERRAIN_DATA, width, height, encodedData);
+        }
+
+        public ByteBuffer toFrame() {
+            return new FrameBuilder(BinaryProtocol.TERRAIN_DATA, 12 + encodedData.length())
+                    .putInt(width).putInt(height).putText(encodedData)
+                    .build();
+        }
+    }
+
+    // Starts a binary terrain transfer; only ever sent to binary clients that asked for it in CON
+    record TerrainBegin(int width, int height, int flags, int encodedLength) implements ServerMessage {
+        public String toText() {
+            throw new IllegalStateException("Binary terrain is only sent to binary clients");
+        }
+
+        public ByteBuffer toFrame() {
+            return new FrameBuilder(BinaryProtocol.TERRAIN_BEGIN, 13)
+                    .putInt(width).putInt(height).putByte(flags).putInt(encodedLength)
+                    .build();
+        }
+    }
+
+    // The bytes from offset to offset + length of the encoded terrain a TerrainBegin announced
+    record TerrainChunk(byte[] encoded, int offset, int length) implements ServerMessage {
+        public String toText() {
+            throw new IllegalStateException("Binary terrain is only sent to binary clients");
+        }
+
+        public ByteBuffer toFrame() {
+            return new FrameBuilder(BinaryProtocol.TERRAIN_CHUNK, 4 + length)
+                    .putBytes(encoded, offset, length)
+                    .build();
+        }
+    }
+
+    record GameStateChange(GameState state, long timeData) implements ServerMessage {
+        public String toText() {
+            return String.format("%s;%s;%d", NetworkProtocol.GAME_STATE, state.name(), timeData);
+        }
+
+        public ByteBuffer toFrame() {
+            return new FrameBuilder(BinaryProtocol.GAME_STATE, 9)
+                    .putByte(state.ordinal()).putLong(timeData)
+                    .build();
+        }
+    }
+
+    record NewPlayer(int id, float x, float y, float rotation, String name,
+                     float colorR, float colorG, float colorB) implements ServerMessage {
+        public String toText() {
+            return String.format("%s;%d;%f;%f;%f;%s;%f;%f;%f",
+                    NetworkProtocol.NEW_PLAYER, id, x, y, rotation, name, colorR, colorG, colorB);
+        }
+
+        public ByteBuffer toFrame() {
+            return new FrameBuilder(BinaryProtocol.NEW_PLAYER, 46)
+                    .putInt(id).putFloat(x).putFloat(y).putFloat(rotation)
+                    .putString(name)
+                    .putFloat(colorR).putFloat(colorG).putFloat(colorB)
+                    .build();
+        }
+    }
+
+    record PlayerLives(int playerId, int lives) implements ServerMessage {
+        public String toText() {
+            return String.format("%s;%d;%d", NetworkProtocol.PLAYER_LIVES, playerId, lives);
+        }
+
+        public ByteBuffer toFrame() {
+            return new FrameBuilder(BinaryProtocol.PLAYER_LIVES, 8)
+                    .putInt(playerId).putInt(lives)
+                    .build();
+        }
+    }
+
+    record PlayerLeft(int id) implements ServerMessage {
+        public String toText() {
+            return NetworkProtocol.PLAYER_LEFT + ";" + id;
+        }
+
+        public ByteBuffer toFrame() {
+            return new FrameBuilder(BinaryProtocol.PLAYER_LEFT, 4).putInt(id).build();
+        }
+    }
+
+    record PlayerUpdate(int id, float x, float y, float rotation) implements ServerMessage {
+        public String toText() {
+            return String.format("%s;%d;%f;%f;%f", NetworkProtocol.PLAYER_UPDATE, id, x, y, rotation);
+        }
+
+        public ByteBuffer toFrame() {
+            return new FrameBuilder(BinaryProtocol.PLAYER_UPDATE, 16)
+                    .putInt(id).putFloat(x).putFloat(y).putFloat(rotation)
+                    .build();
+        }
+    }
+
+    // Every tank and bullet position for one simulation tick, sent once per network tick instead of a PlayerUpdate per tank.
+    // Positions and rotations go out as 16-bit values quantized against the map bounds.
+    record Snapshot(long tick, StateQuantizer quantizer, List<TankState> tanks, List<BulletState> bullets) implements ServerMessage {
+        public record TankState(int id, float x, float y, float rotation) {}
+
+        public record BulletState(UUID id, int ownerId, float x, float y) {}
+
+        public String toText() {
+            StringBuilder text = new StringBuilder(32 + tanks.size() * 24 + bullets.size() * 52)
+                    .append(NetworkProtocol.SNAPSHOT).append(';').append(tick)
+                    .append(';').append(tanks.size())
+                    .append(';').append(bullets.size());
+            for (TankState tank : tanks) {
+                text.append(';').append(tank.id())
+                        .append(':').append(quantizer.quantizeX(tank.x()))
+                        .append(':').append(quantizer.quantizeY(tank.y()))
+                        .append(':').append(quantizer.quantizeRotation(tank.rotation()));
+            }
+            appendBullets(text, quantizer, bullets);
+            return text.toString();
+        }
+
+        public ByteBuffer toFrame() {
+            FrameBuilder frame = new FrameBuilder(BinaryProtocol.SNAPSHOT, 12 + tanks.size() * 10 + bullets.size() * 24)
+                    .putLong(tick)
+                    .putShort(tanks.size());
+            for (TankState tank : tanks) {
+                frame.putInt(tank.id())
+                        .putShort(quantizer.quantizeX(tank.x()))
+                        .putShort(quantizer.quantizeY(tank.y()))
+                        .putShort(quantizer.quantizeRotation(tank.rotation()));
+            }
+            putBullets(frame, quantizer, bullets);
+            return frame.build();
+        }
+
+        static void appendBullets(StringBuilder text, StateQuantizer quantizer, List<BulletState> bullets) {
+            for (BulletState bullet : bullets) {
+                text.append(';').append(bullet.id())
+                        .append(':').append(bullet.ownerId())
+                        .append(':').append(quantizer.quantizeX(bullet.x()))
+                        .append(':').append(quantizer.quantizeY(bullet.y()));
+            }
+        }
+
+        static void putBullets(FrameBuilder frame, StateQuantizer quantizer, List<BulletState> bullets) {
+            frame.putShort(bullets.size());
+            for (BulletState bullet : bullets) {
+                frame.putUuid(bullet.id()).putInt(bullet.ownerId())
+                        .putShort(quantizer.quantizeX(bullet.x()))
+                        .putShort(quantizer.quantizeY(bullet.y()));
+            }
+        }
+    }
+
+    // Changes since a snapshot the client acknowledged; only tanks whose quantized fields changed are listed, bullets are always sent in full
+    record DeltaSnapshot(long tick, long baselineTick, StateQuantizer quantizer, List<TankDelta> changedTanks,
+                         List<Integer> removedTankIds, List<Snapshot.BulletState> bullets) implements ServerMessage {
+        // fieldMask uses BinaryProtocol.DELTA_* bits; fields outside the mask are ignored
+        public record TankDelta(int id, int fieldMask, float x, float y, float rotation) {}
+
+        public String toText() {
+            StringBuilder text = new StringBuilder(48 + changedTanks.size() * 20 + removedTankIds.size() * 4 + bullets.size() * 52)
+                    .append(NetworkProtocol.DELTA_SNAPSHOT).append(';').append(tick)
+                    .append(';').append(baselineTick)
+                    .append(';').append(changedTanks.size())
+                    .append(';').append(removedTankIds.size())
+                    .append(';').append(bullets.size());
+            for (TankDelta tank : changedTanks) {
+                text.append(';').append(tank.id()).append(':');
+                if ((tank.fieldMask() & BinaryProtocol.DELTA_X) != 0) text.append(quantizer.quantizeX(tank.x()));
+                text.append(':');
+                if ((tank.fieldMask() & BinaryProtocol.DELTA_Y) != 0) text.append(quantizer.quantizeY(tank.y()));
+                text.append(':');
+                if ((tank.fieldMask() & BinaryProtocol.DELTA_ROTATION) != 0) text.append(quantizer.quantizeRotation(tank.rotation()));
+            }
+            for (int removedId : removedTankIds) {
+                text.append(';').append(removedId);
+            }
+            Snapshot.appendBullets(text, quantizer, bullets);
+            return text.toString();
+        }
+
+        public ByteBuffer toFrame() {
+            FrameBuilder frame = new FrameBuilder(BinaryProtocol.DELTA_SNAPSHOT,
+                    22 + changedTanks.size() * 11 + removedTankIds.size() * 4 + bullets.size() * 24)
+                    .putLong(tick)
+                    .putLong(baselineTick)
+                    .putShort(changedTanks.size());
+            for (TankDelta tank : changedTanks) {
+                frame.putInt(tank.id()).putByte(tank.fieldMask());
+                if ((tank.fieldMask() & BinaryProtocol.DELTA_X) != 0) frame.putShort(quantizer.quantizeX(tank.x()));
+                if ((tank.fieldMask() & BinaryProtocol.DELTA_Y) != 0) frame.putShort(quantizer.quantizeY(tank.y()));
+                if ((tank.fieldMask() & BinaryProtocol.DELTA_ROTATION) != 0) frame.putShort(quantizer.quantizeRotation(tank.rotation()));
+            }
+            frame.putShort(removedTankIds.size());
+            for (int removedId : removedTankIds) {
+                frame.putInt(removedId);
+            }
+            Snapshot.putBullets(frame, quantizer, bullets);
+            return frame.build();
+        }
+    }
+
+    record Respawn(int id, float x, float y, float rotation) implements ServerMessage {
+        public String toText() {
+            return String.format("%s;%d;%f;%f;%f", NetworkProtocol.RESPAWN, id, x, y, rotation);
+        }
+
+        public ByteBuffer toFrame() {
+            return new FrameBuilder(BinaryProtocol.RESPAWN, 16)
+                    .putInt(id).putFloat(x).putFloat(y).putFloat(rotation)
+                    .build();
+        }
+    }
+
+    record Shoot(UUID bulletId, int ownerId, float x, float y, float dirX, float dirY) implements ServerMessage {
+        public String toText() {
+            return String.format("%s;%s;%d;%f;%f;%f;%f", NetworkProtocol.SHOOT, bulletId, ownerId, x, y, dirX, dirY);
+        }
+
+        public ByteBuffer toFrame() {
+            return new FrameBuilder(BinaryProtocol.SHOOT, 36)
+                    .putUuid(bulletId).putInt(ownerId)
+                    .putFloat(x).putFloat(y).putFloat(dirX).putFloat(dirY)
+                    .build();
+        }
+    }
+
+    record Hit(int targetId, int shooterId, UUID bulletId, int damage) implements ServerMessage {
+        public String toText() {
+            return String.format("%s;%d;%d;%s;%d", NetworkProtocol.HIT, targetId, shooterId, bulletId, damage);
+        }
+
+        public ByteBuffer toFrame() {
+            return new FrameBuilder(BinaryProtocol.HIT, 28)
+                    .putInt(targetId).putInt(shooterId).putUuid(bulletId).putInt(damage)
+                    .build();
+        }
+    }
+
+    record Destroyed(int targetId, int shooterId) implements ServerMessage {
+        public String toText() {
+            return String.format("%s;%d;%d", NetworkProtocol.DESTROYED, targetId, shooterId);
+        }
+
+        public ByteBuffer toFrame() {
+            return new FrameBuilder(BinaryProtocol.DESTROYED, 8)
+                    .putInt(targetId).putInt(shooterId)
+                    .build();
+        }
+    }
+
+    record Announcement(String message) implements ServerMessage {
+        public String toText() {
+            return NetworkProtocol.ANNOUNCE + ";" + message;
+        }
+
+        public ByteBuffer toFrame() {
+            return new FrameBuilder(BinaryProtocol.ANNOUNCE, 2 + message.length()).putString(message).build();
+        }
+    }
+
+    record SpectateStart(long respawnTimeMillis) implements ServerMessage {
+        public String toText() {
+            return String.format("%s;%d", NetworkProtocol.SPECTATE_START, respawnTimeMillis);
+        }
+
+        public ByteBuffer toFrame() {
+            return new FrameBuilder(BinaryProtocol.SPECTATE_START, 8).putLong(respawnTimeMillis).build();
+        }
+    }
+
+    record SpectateEnd() implements ServerMessage {
+        public String toText() {
+            return NetworkProtocol.SPECTATE_END;
+        }
+
+        public ByteBuffer toFrame() {
+            return new FrameBuilder(BinaryProtocol.SPECTATE_END, 0).build();
+        }
+    }
+
+    record SpectatePermanent() implements ServerMessage {
+        public String toText() {
+            return NetworkProtocol.SPECTATE_PERMANENT;
+        }
+
+        public ByteBuffer toFrame() {
+            return new FrameBuilder(BinaryProtocol.SPECTATE_PERMANENT, 0).build();
+        }
+    }
+
+    record ShootCooldown(long cooldownRemainingMs) implements ServerMessage {
+        public String toText() {
+            return String.format("%s;%d", NetworkProtocol.SHOOT_COOLDOWN, cooldownRemainingMs);
+        }
+
+        public ByteBuffer toFrame() {
+            return new FrameBuilder(BinaryProtocol.SHOOT_COOLDOWN, 8).putLong(cooldownRemainingMs).build();
+        }
+    }
+
+    record Pong() implements ServerMessage {
+        public String toText() {
+            return NetworkProtocol.PONG;
+        }
+
+        public ByteBuffer toFrame() {
+            return new FrameBuilder(BinaryProtocol.PONG, 0).build();
+        }
+    }
+
+    record Error(String errorMessage) implements ServerMessage {
+        public String toText() {
+            return NetworkProtocol.ERROR_MSG + ";" + errorMessage;
+        }
+
+        public ByteBuffer toFrame() {
+            return new FrameBuilder(BinaryProtocol.ERROR_MSG, 2 + errorMessage.length()).putString(errorMessage).build();
+        }
+    }
+
+    // Invites a binary client to bind its UDP channel; only ever sent on binary connections
+    record UdpOffer(long token, int udpPort) implements ServerMessage {
+        public String toText() {
+            throw new IllegalStateException("UDP offer is only sent to binary clients");
+        }
+
+        public ByteBuffer toFrame() {
+            return new FrameBuilder(BinaryProtocol.UDP_OFFER, 10).putLong(token).putShort(udpPort).build();
+        }
+    }
+
+    // Final text line of the handshake; the sender switches to binary frames once this has been written
+    record ProtocolSwitch() implements ServerMessage {
+        public String toText() {
+            return NetworkProtocol.PROTOCOL + ";" + BinaryProtocol.CAPABILITY;
+        }
+
+        public ByteBuffer toFrame() {
+            throw new IllegalStateException("Protocol switch is always sent as text");
+        }
+    }
+
+    // A raw text protocol line, wrapped in a TEXT frame for binary connections
+    record Text(String line) implements ServerMessage {
+        public String toText() {
+            return line;
+        }
+
+        public ByteBuffer toFrame() {
+            return new FrameBuilder(BinaryProtocol.TEXT, 4 + line.length()).putText(line).build();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package org.chrisgruber.nettank.server.network;
+
+import org.chrisgruber.nettank.common.network.BinaryProtocol;
+import org.chrisgruber.nettank.common.network.StateQuantizer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The most recent snapshots sent to clients, kept as baselines for delta compression.
+ * A client that acknowledged a tick still in the history gets a {@link ServerMessage.DeltaSnapshot} against it;
+ * a client with no ack, or one whose ack has already been evicted, gets the full snapshot.
+ * Only the game loop thread touches this class.
+ */
+public class SnapshotHistory {
+    public static final int DEFAULT_CAPACITY = 32; // About one second of snapshots at the default 30 Hz network rate
+
+    private final int capacity;
+    private final ArrayDeque<ServerMessage.Snapshot> snapshots;
+
+    public SnapshotHistory(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Snapshot history capacity must be at least 1");
+        }
+        this.capacity = capacity;
+        this.snapshots = new ArrayDeque<>(capacity);
+    }
+
+    public void add(ServerMessage.Snapshot snapshot) {
+        if (snapshots.size() == capacity) {
+            snapshots.removeFirst();
+        }
+        snapshots.addLast(snapshot);
+    }
+
+    // Returns the snapshot sent for the given tick, or null if it is unknown or too old
+    public ServerMessage.Snapshot get(long tick) {
+        // Newest first - acks are usually only a few snapshots behind
+        Iterator<ServerMessage.Snapshot> iterator = snapshots.descendingIterator();
+        while (iterator.hasNext()) {
+            ServerMessage.Snapshot snapshot = iterator.next();
+            if (snapshot.tick() == tick) {
+                return snapshot;
+            }
+            if (snapshot.tick() < tick) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    public void clear() {
+        snapshots.clear();
+    }
+
+    // The message to send a client that has acknowledged ackedTick: a delta when that baseline is still known
+    // and was quantized against the same map bounds, otherwise the full snapshot
+    public ServerMessage messageFor(ServerMessage.Snapshot current, long ackedTick) {
+        if (ackedTick < 0 || ackedTick >= current.tick()) {
+            return current;
+        }
+        ServerMessage.Snapshot baseline = get(ackedTick);
+        if (baseline == null || !baseline.quantizer().equals(current.quantizer())) {
+            return current;
+        }
+        return diff(baseline, current);
+    }
+
+    // Compares quantized values, so movement below the wire precision does not produce a delta entry
+    public static ServerMessage.DeltaSnapshot diff(ServerMessage.Snapshot baseline, ServerMessage.Snapshot current) {
+        StateQuantizer quantizer = current.quantizer();
+        Map<Integer, ServerMessage.Snapshot.TankState> baselineTanks = new HashMap<>(baseline.tanks().size() * 2);
+        for (ServerMessage.Snapshot.TankState tank : baseline.tanks()) {
+            baselineTanks.put(tank.id(), tank);
+        }
+
+        List<ServerMessage.DeltaSnapshot.TankDelta> changed = new ArrayList<>();
+        for (ServerMessage.Snapshot.TankState tank : current.tanks()) {
+            ServerMessage.Snapshot.TankState previous = baselineTanks.remove(tank.id());
+
+            int fieldMask = BinaryProtocol.DELTA_ALL;
+            if (previous != null) {
+                fieldMask = 0;
+                if (quantizer.quantizeX(previous.x()) != quantizer.quantizeX(tank.x())) fieldMask |= BinaryProtocol.DELTA_X;
+                if (quantizer.quantizeY(previous.y()) != quantizer.quantizeY(tank.y())) fieldMask |= BinaryProtocol.DELTA_Y;
+                if (quantizer.quantizeRotation(previous.rotation()) != quantizer.quantizeRotation(tank.rotation())) {
+                    fieldMask |= BinaryProtocol.DELTA_ROTATION;
+                }
+            }
+
+            if (fieldMask != 0) {
+                changed.add(new ServerMessage.DeltaSnapshot.TankDelta(tank.id(), fieldMask, tank.x(), tank.y(), tank.rotation()));
+            }
+        }
+
+        // Whatever is left in the baseline map is gone from the current snapshot
+        List<Integer> removed = new ArrayList<>(baselineTanks.keySet());
+
+        return new ServerMessage.DeltaSnapshot(current.tick(), baseline.tick(), quantizer, changed, removed, current.bullets());
+    }
+}
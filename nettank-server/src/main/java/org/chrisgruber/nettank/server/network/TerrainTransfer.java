@@ -0,0 +1,90 @@
+package org.chrisgruber.nettank.server.network;
+
+import org.chrisgruber.nettank.common.network.BinaryProtocol;
+import org.chrisgruber.nettank.common.world.GameMapData;
+import org.chrisgruber.nettank.common.world.TerrainCodec;
+import org.chrisgruber.nettank.common.world.TerrainEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One map's terrain as messages ready to queue: a TERRAIN_DATA CSV line for clients that did not ask for binary
+ * terrain, or a TERRAIN_BEGIN followed by TERRAIN_CHUNK frames for those that did. Clients that rebuild the map
+ * from its seed get a TERRAIN_INIT instead, and one of the full forms only if their checksum differs. Each form is
+ * encoded once, on first use, and the same messages are queued for every client that gets it. Used on the tick
+ * thread; a transfer prepared on another thread is encoded there with {@link #encodeAll} and handed over whole.
+ */
+public final class TerrainTransfer {
+    private static final Logger logger = LoggerFactory.getLogger(TerrainTransfer.class);
+
+    private final GameMapData mapData;
+    private final int flags;
+    private final long seed;
+    private final String profileName;
+    private OutboundMessage seedMessage;
+    private List<OutboundMessage> csv;
+    private List<OutboundMessage> binary;
+
+    // The map must be the one ProceduralTerrainGenerator builds from seed and profileName; a stale pair only costs
+    // the clients a failed check and the full terrain
+    public TerrainTransfer(GameMapData mapData, int flags, long seed, String profileName) {
+        this.mapData = mapData;
+        this.flags = flags;
+        this.seed = seed;
+        this.profileName = profileName;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public OutboundMessage seedMessage() {
+        if (seedMessage == null) {
+            seedMessage = new OutboundMessage(new ServerMessage.TerrainInit(seed, profileName, TerrainCodec.checksum(mapData)));
+        }
+        return seedMessage;
+    }
+
+    // Encodes every form now, so none is left for the tick thread to do on first use
+    public void encodeAll() {
+        seedMessage();
+        messages(true);
+        messages(false);
+    }
+
+    // True if this transfer was built for the given map; a map regenerated in place needs a new transfer
+    public boolean isFor(GameMapData mapData) {
+        return this.mapData == mapData;
+    }
+
+    public List<OutboundMessage> messages(boolean binaryTerrain) {
+        if (binaryTerrain) {
+            if (binary == null) {
+                binary = encodeBinary();
+            }
+            return binary;
+        }
+        if (csv == null) {
+            String encoded = TerrainEncoder.encode(mapData);
+            csv = List.of(new OutboundMessage(new ServerMessage.TerrainData(mapData.getWidthTiles(), mapData.getHeightTiles(), encoded)));
+            logger.debug("Encoded {}x{} terrain as CSV: {} bytes", mapData.getWidthTiles(), mapData.getHeightTiles(), encoded.length());
+        }
+        return csv;
+    }
+
+    private List<OutboundMessage> encodeBinary() {
+        byte[] encoded = TerrainCodec.encode(mapData, flags);
+        List<OutboundMessage> messages = new ArrayList<>(2 + encoded.length / BinaryProtocol.TERRAIN_CHUNK_BYTES);
+        messages.add(new OutboundMessage(new ServerMessage.TerrainBegin(mapData.getWidthTiles(), mapData.getHeightTiles(), flags, encoded.length)));
+        for (int offset = 0; offset < encoded.length; offset += BinaryProtocol.TERRAIN_CHUNK_BYTES) {
+            int length = Math.min(BinaryProtocol.TERRAIN_CHUNK_BYTES, encoded.length - offset);
+            messages.add(new OutboundMessage(new ServerMessage.TerrainChunk(encoded, offset, length)));
+        }
+        logger.debug("Encoded {}x{} terrain as binary (flags {}): {} bytes in {} chunks",
+                mapData.getWidthTiles(), mapData.getHeightTiles(), flags, encoded.length, messages.size() - 1);
+        return List.copyOf(messages);
+    }
+}
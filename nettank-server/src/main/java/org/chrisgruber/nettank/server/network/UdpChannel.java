@@ -0,0 +1,205 @@
+package org.chrisgruber.nettank.server.network;
+
+import org.chrisgruber.nettank.common.network.BinaryProtocol;
+import org.chrisgruber.nettank.common.network.Datagrams;
+import org.chrisgruber.nettank.common.network.FrameBuilder;
+import org.chrisgruber.nettank.common.network.WireFormat;
+import org.chrisgruber.nettank.server.ClientHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The optional UDP side channel (see {@link Datagrams}). Snapshots for bound clients go out as datagrams,
+ * so a lost packet only costs that one snapshot instead of stalling the TCP stream behind it, and INPUT
+ * datagrams from clients are handed to their {@link ClientHandler}. A client is bound once a UDP_HELLO
+ * carrying the token from its UDP_OFFER arrives; the source address of that datagram is where snapshots go.
+ */
+public final class UdpChannel implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(UdpChannel.class);
+
+    private final DatagramChannel channel;
+    private final SecureRandom random = new SecureRandom();
+    private final Map<Long, Session> sessionsByToken = new ConcurrentHashMap<>();
+    private final ByteBuffer sendBuffer = ByteBuffer.allocateDirect(Datagrams.MAX_DATAGRAM_BYTES); // Guarded by this
+    private final ByteBuffer welcomeFrame = new FrameBuilder(BinaryProtocol.UDP_WELCOME, 0).build();
+    private volatile boolean running = true;
+    private Thread receiverThread;
+
+    /** UDP state of one client connection, created when the offer is made. */
+    public final class Session {
+        private final long token;
+        private final ClientHandler handler;
+        private final AtomicInteger sendSequence = new AtomicInteger();
+        private volatile SocketAddress address; // Null until the client's UDP_HELLO arrives
+        private int lastReceivedSequence;       // Receiver thread only
+        private boolean receivedAny;            // Receiver thread only
+
+        private Session(long token, ClientHandler handler) {
+            this.token = token;
+            this.handler = handler;
+        }
+
+        public long token() {
+            return token;
+        }
+
+        public boolean isBound() {
+            return address != null;
+        }
+
+        // Sends the message's binary frame as one datagram; returns false if it must go over TCP instead
+        public boolean send(OutboundMessage message) {
+            SocketAddress target = address;
+            return target != null && UdpChannel.this.send(this, target, message.encoded(WireFormat.BINARY));
+        }
+
+        public void close() {
+            sessionsByToken.remove(token, this);
+            address = null;
+        }
+    }
+
+    public UdpChannel(InetSocketAddress address) throws IOException {
+        this.channel = DatagramChannel.open();
+        try {
+            channel.bind(address);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getLocalPort() {
+        return channel.socket().getLocalPort();
+    }
+
+    public void start() {
+        receiverThread = Thread.ofPlatform()
+                .name("UdpChannel-Receiver")
+                .daemon(true)
+                .start(this::runReceiverLoop);
+        logger.info("UDP channel listening on port {}", getLocalPort());
+    }
+
+    // Registers a connection and returns the session whose token goes into the UDP_OFFER
+    public Session openSession(ClientHandler handler) {
+        while (true) {
+            Session session = new Session(random.nextLong(), handler);
+            if (sessionsByToken.putIfAbsent(session.token, session) == null) {
+                return session;
+            }
+        }
+    }
+
+    private synchronized boolean send(Session session, SocketAddress target, ByteBuffer frame) {
+        if (!Datagrams.write(sendBuffer, session.token, session.sendSequence.incrementAndGet(), frame)) {
+            return false;
+        }
+        try {
+            channel.send(sendBuffer, target);
+            return true;
+        } catch (IOException e) {
+            if (running) {
+                logger.debug("UDP send to player {} failed: {}", session.handler.getPlayerId(), e.getMessage());
+            }
+            return false;
+        }
+    }
+
+    private void runReceiverLoop() {
+        ByteBuffer datagram = ByteBuffer.allocateDirect(Datagrams.MAX_DATAGRAM_BYTES);
+        while (running) {
+            SocketAddress source;
+            try {
+                datagram.clear();
+                source = channel.receive(datagram);
+            } catch (ClosedChannelException e) {
+                break;
+            } catch (IOException e) {
+                if (running) {
+                    logger.warn("UDP receive failed: {}", e.getMessage());
+                }
+                continue;
+            }
+            datagram.flip();
+            try {
+                handleDatagram(datagram, source);
+            } catch (Exception e) {
+                logger.debug("Dropping malformed datagram from {}: {}", source, e.getMessage());
+            }
+        }
+        logger.info("UDP receiver loop finished.");
+    }
+
+    private void handleDatagram(ByteBuffer datagram, SocketAddress source) {
+        if (datagram.remaining() < Datagrams.HEADER_BYTES) {
+            return;
+        }
+        long token = datagram.getLong();
+        int sequence = datagram.getInt();
+        if (!Datagrams.seekFrameBody(datagram)) {
+            return;
+        }
+
+        Session session = sessionsByToken.get(token);
+        if (session == null) {
+            return; // Unknown or closed connection
+        }
+
+        byte opcode = datagram.get(datagram.position());
+        if (opcode == BinaryProtocol.UDP_HELLO) {
+            bind(session, source);
+            return;
+        }
+
+        // Only the bound address may send state for this token, and only in sequence
+        if (!source.equals(session.address) || (session.receivedAny && !Datagrams.isNewer(sequence, session.lastReceivedSequence))) {
+            return;
+        }
+        session.receivedAny = true;
+        session.lastReceivedSequence = sequence;
+
+        if (opcode != BinaryProtocol.INPUT) {
+            logger.debug("Ignoring opcode 0x{} on the UDP channel", Integer.toHexString(Byte.toUnsignedInt(opcode)));
+            return;
+        }
+        byte[] frame = new byte[datagram.remaining()];
+        datagram.get(frame);
+        session.handler.receive(ByteBuffer.wrap(frame));
+    }
+
+    // Repeated hellos (the welcome got lost) just get another welcome; a new source address replaces the old one
+    private void bind(Session session, SocketAddress source) {
+        if (!source.equals(session.address)) {
+            session.address = source;
+            logger.info("Player {} bound UDP channel from {}", session.handler.getPlayerId(), source);
+        }
+        send(session, source, welcomeFrame);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.error("Error closing UDP channel", e);
+        }
+        if (receiverThread != null) {
+            receiverThread.interrupt();
+        }
+        sessionsByToken.clear();
+    }
+}
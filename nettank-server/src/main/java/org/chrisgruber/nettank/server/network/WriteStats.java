@@ -0,0 +1,65 @@
+package org.chrisgruber.nettank.server.network;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outbound counters of one connection: messages queued to the socket and the socket writes that carried them.
+ * Each write is one syscall and, with small payloads, usually one TCP segment, so {@link #savedWrites()}
+ * shows what batching several messages per write (tick flush mode, gathering NIO writes) saves.
+ */
+public final class WriteStats {
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    public void recordMessage() {
+        messages.increment();
+    }
+
+    public void recordWrite(long byteCount) {
+        writes.increment();
+        bytes.add(byteCount);
+    }
+
+    public long messages() {
+        return messages.sum();
+    }
+
+    public long writes() {
+        return writes.sum();
+    }
+
+    public long bytes() {
+        return bytes.sum();
+    }
+
+    // Socket writes avoided compared with writing every message on its own
+    public long savedWrites() {
+        return Math.max(0, messages() - writes());
+    }
+
+    // Wraps a socket stream so each write that reaches the socket is counted; buffer it above this wrapper
+    public OutputStream countingStream(OutputStream socketStream) {
+        return new FilterOutputStream(socketStream) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                recordWrite(1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                recordWrite(len);
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d messages in %d writes (%d saved, %d bytes)", messages(), writes(), savedWrites(), bytes());
+    }
+}
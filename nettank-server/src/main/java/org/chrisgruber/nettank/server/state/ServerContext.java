@@ -6,6 +6,7 @@ import org.chrisgruber.nettank.common.util.GameState;
 import org.chrisgruber.nettank.common.world.GameMapData;
 import org.chrisgruber.nettank.server.ClientHandler; // Server specific
 import org.chrisgruber.nettank.server.gamemode.GameMode;
+import org.chrisgruber.nettank.server.network.SnapshotHistory;
 
 import java.util.List;
 import java.util.Map;
@@ -39,6 +40,8 @@ public class ServerContext {
     public volatile long roundStartTimeMillis = 0;      // When the round started
     public volatile long stateChangeTime;               // When the current state was entered
     public volatile int lastAnnouncedNumber = -1;       // Last number announced to clients
+    public volatile long currentTick = 0;               // Simulation ticks since the server started, stamped on snapshots
+    public final SnapshotHistory snapshotHistory = new SnapshotHistory(SnapshotHistory.DEFAULT_CAPACITY); // Delta baselines
 
     // General Game Settings
     public volatile long tankRespawnDelayMillis = 3000;    // Config setting for how long to wait for destroyed tanks to respawn
@@ -1,6 +1,7 @@
 package org.chrisgruber.nettank.server.world;
 
 import org.chrisgruber.nettank.common.world.GameMapData;
+import org.chrisgruber.nettank.common.world.ProceduralTerrainGenerator;
 import org.chrisgruber.nettank.common.world.TerrainTile;
 import org.chrisgruber.nettank.common.world.TerrainType;
 import org.slf4j.Logger;
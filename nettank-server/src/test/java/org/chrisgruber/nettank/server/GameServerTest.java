@@ -1,10 +1,22 @@
 package org.chrisgruber.nettank.server;
 
+import org.chrisgruber.nettank.common.entities.BulletData;
 import org.chrisgruber.nettank.common.entities.TankData;
 import org.chrisgruber.nettank.common.network.NetworkProtocol;
+import org.chrisgruber.nettank.common.network.WireFormat;
 import org.chrisgruber.nettank.common.util.GameState;
+import org.chrisgruber.nettank.common.world.BaseTerrainProfile;
+import org.chrisgruber.nettank.common.world.GameMapData;
+import org.chrisgruber.nettank.common.world.ProceduralTerrainGenerator;
+import org.chrisgruber.nettank.common.world.TerrainCodec;
+import org.chrisgruber.nettank.common.world.TerrainType;
 import org.chrisgruber.nettank.server.gamemode.FreeForAll;
+import org.chrisgruber.nettank.server.network.OutboundMessage;
+import org.chrisgruber.nettank.server.network.SendQueue;
+import org.chrisgruber.nettank.server.network.ServerMessage;
 import org.chrisgruber.nettank.server.state.ServerContext;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,6 +26,11 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.net.Socket;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -93,7 +110,145 @@ class GameServerTest {
 
         assertEquals(1, context.clients.size());
         assertEquals(1, context.tanks.size());
-        verify(mockClientHandler, atLeastOnce()).sendMessage(anyString());
+        verify(mockClientHandler, atLeastOnce()).sendMessage(any(ServerMessage.class));
+    }
+
+    @Test
+    void testSeedTerrainClientGetsTheFullTerrainOnlyAfterAFailedCheck() throws Exception {
+        when(mockClientHandler.getSocket()).thenReturn(mockSocket);
+        when(mockSocket.getInetAddress()).thenReturn(java.net.InetAddress.getLocalHost());
+        when(mockClientHandler.usesSeedTerrain()).thenReturn(true);
+
+        gameServer.registerPlayer(mockClientHandler, "TestPlayer");
+        int playerId = 0;
+
+        ArgumentCaptor<OutboundMessage> captor = ArgumentCaptor.forClass(OutboundMessage.class);
+        verify(mockClientHandler, atLeastOnce()).sendMessage(captor.capture());
+        ServerMessage.TerrainInit init = captor.getAllValues().stream()
+                .map(OutboundMessage::message)
+                .filter(ServerMessage.TerrainInit.class::isInstance)
+                .map(ServerMessage.TerrainInit.class::cast)
+                .findFirst().orElseThrow();
+        assertTrue(captor.getAllValues().stream().noneMatch(outbound -> outbound.message() instanceof ServerMessage.TerrainData));
+
+        // What the client does with it: the same generator gives the same map
+        GameMapData rebuilt = new GameMapData(TEST_MAP_WIDTH, TEST_MAP_HEIGHT);
+        new ProceduralTerrainGenerator(init.seed()).generateProceduralTerrain(rebuilt, BaseTerrainProfile.valueOf(init.profileName()));
+        assertEquals(init.checksum(), TerrainCodec.checksum(rebuilt));
+
+        clearInvocations(mockClientHandler);
+        gameServer.handleTerrainCheck(playerId, init.seed(), true);
+        gameServer.handleTerrainCheck(playerId, init.seed() + 1, false);  // For a map that has since been replaced
+        verify(mockClientHandler, never()).sendMessage(any(OutboundMessage.class));
+
+        gameServer.handleTerrainCheck(playerId, init.seed(), false);
+        verify(mockClientHandler).sendMessage(argThat((OutboundMessage outbound) -> outbound.message() instanceof ServerMessage.TerrainData));
+    }
+
+    @Test
+    void testRoundOverSwapsInTheTerrainPreparedInTheBackground() throws Exception {
+        when(mockClientHandler.getSocket()).thenReturn(mockSocket);
+        when(mockSocket.getInetAddress()).thenReturn(java.net.InetAddress.getLocalHost());
+        when(mockClientHandler.usesSeedTerrain()).thenReturn(true);
+
+        var contextField = GameServer.class.getDeclaredField("serverContext");
+        contextField.setAccessible(true);
+        ServerContext context = (ServerContext) contextField.get(gameServer);
+        GameMapData firstMap = context.gameMapData;
+        long firstSeed = context.terrainSeed;
+
+        gameServer.registerPlayer(mockClientHandler, "TestPlayer");
+        var changeState = GameServer.class.getDeclaredMethod("changeState", GameState.class, long.class);
+        changeState.setAccessible(true);
+        changeState.invoke(gameServer, GameState.COUNTDOWN, 0L);
+        changeState.invoke(gameServer, GameState.PLAYING, 0L);
+        assertSame(firstMap, context.gameMapData); // The first map hasn't been played yet, so the first round uses it
+
+        clearInvocations(mockClientHandler);
+        awaitPreparedTerrain(gameServer);
+        changeState.invoke(gameServer, GameState.ROUND_OVER, 0L);
+
+        // A new map object, not the first one regenerated in place, built from the new seed
+        assertNotSame(firstMap, context.gameMapData);
+        assertNotEquals(firstSeed, context.terrainSeed);
+        GameMapData rebuilt = new GameMapData(TEST_MAP_WIDTH, TEST_MAP_HEIGHT);
+        new ProceduralTerrainGenerator(context.terrainSeed)
+                .generateProceduralTerrain(rebuilt, BaseTerrainProfile.valueOf(context.terrainProfileName));
+        assertEquals(TerrainCodec.checksum(rebuilt), TerrainCodec.checksum(context.gameMapData));
+
+        // Clients are told about the swapped-in map
+        verify(mockClientHandler).sendMessage(argThat((OutboundMessage outbound) ->
+                outbound.message() instanceof ServerMessage.TerrainInit init
+                        && init.seed() == context.terrainSeed
+                        && init.checksum() == TerrainCodec.checksum(rebuilt)));
+    }
+
+    @Test
+    void testNewRoundWaitsForItsTerrainInsteadOfReplayingTheLastMap() throws Exception {
+        ExecutorService terrainPool = Executors.newSingleThreadExecutor();
+        GameServer room = new GameServer(TEST_PORT, TEST_NETWORK_HZ, 60, TEST_MAP_WIDTH, TEST_MAP_HEIGHT, terrainPool);
+        try {
+            var contextField = GameServer.class.getDeclaredField("serverContext");
+            contextField.setAccessible(true);
+            ServerContext context = (ServerContext) contextField.get(room);
+            var changeState = GameServer.class.getDeclaredMethod("changeState", GameState.class, long.class);
+            changeState.setAccessible(true);
+            var hasTerrain = GameServer.class.getDeclaredMethod("hasTerrain");
+            hasTerrain.setAccessible(true);
+
+            // The room's first map, then a terrain pool kept busy, so the next map stays queued until the test releases it
+            awaitPreparedTerrain(room);
+            var release = new CountDownLatch(1);
+            terrainPool.submit(() -> release.await(5, TimeUnit.SECONDS));
+            assertTrue((boolean) hasTerrain.invoke(room));
+
+            changeState.invoke(room, GameState.COUNTDOWN, 0L);
+            changeState.invoke(room, GameState.PLAYING, 0L);
+            GameMapData playedMap = context.gameMapData;
+
+            // The round ends before the next map is ready: the tick doesn't wait, and the next round is held back
+            changeState.invoke(room, GameState.ROUND_OVER, 0L);
+            assertSame(playedMap, context.gameMapData);
+            changeState.invoke(room, GameState.PLAYING, 0L);
+            assertEquals(GameState.ROUND_OVER, context.currentGameState);
+            assertSame(playedMap, context.gameMapData);
+
+            // Once it is ready, the next attempt swaps it in and starts the round
+            release.countDown();
+            awaitPreparedTerrain(room);
+            changeState.invoke(room, GameState.PLAYING, 0L);
+            assertEquals(GameState.PLAYING, context.currentGameState);
+            assertNotSame(playedMap, context.gameMapData);
+        } finally {
+            room.stop();
+            terrainPool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testStopShutsDownOnlyATerrainPoolTheServerOwns() throws Exception {
+        var terrainPoolField = GameServer.class.getDeclaredField("terrainPool");
+        terrainPoolField.setAccessible(true);
+        ExecutorService ownPool = (ExecutorService) terrainPoolField.get(gameServer);
+
+        ExecutorService sharedPool = Executors.newSingleThreadExecutor();
+        GameServer room = new GameServer(TEST_PORT, TEST_NETWORK_HZ, 60, TEST_MAP_WIDTH, TEST_MAP_HEIGHT, sharedPool);
+        try {
+            gameServer.stop();
+            room.stop();
+
+            assertTrue(ownPool.isShutdown());
+            assertFalse(sharedPool.isShutdown()); // The RoomManager's, shared with the other rooms
+        } finally {
+            sharedPool.shutdownNow();
+        }
+    }
+
+    // Waits until the terrain being prepared for the server's next round is done
+    private static void awaitPreparedTerrain(GameServer server) throws Exception {
+        var nextTerrainField = GameServer.class.getDeclaredField("nextTerrain");
+        nextTerrainField.setAccessible(true);
+        ((Future<?>) nextTerrainField.get(server)).get();
     }
 
     @Test
@@ -122,9 +277,9 @@ class GameServerTest {
         // Try to add one more player
         gameServer.registerPlayer(mockClientHandler, "OverflowPlayer");
 
-        ArgumentCaptor<String> messageCaptor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<ServerMessage> messageCaptor = ArgumentCaptor.forClass(ServerMessage.class);
         verify(mockClientHandler).sendMessage(messageCaptor.capture());
-        assertTrue(messageCaptor.getValue().contains(NetworkProtocol.ERROR_MSG));
+        assertTrue(messageCaptor.getValue().toText().startsWith(NetworkProtocol.ERROR_MSG));
         verify(mockClientHandler).closeConnection("Server full");
     }
 
@@ -280,10 +435,68 @@ class GameServerTest {
         gameServer.registerPlayer(handler1, "Player1");
         gameServer.registerPlayer(handler2, "Player2");
 
+        clearInvocations(handler1, handler2); // Ignore the registration broadcasts
+
         gameServer.broadcast("Test message", 0);
 
-        verify(handler1, never()).sendMessage("Test message");
-        verify(handler2, times(1)).sendMessage("Test message");
+        ArgumentCaptor<OutboundMessage> messageCaptor = ArgumentCaptor.forClass(OutboundMessage.class);
+        verify(handler1, never()).sendMessage(any(OutboundMessage.class));
+        verify(handler2, times(1)).sendMessage(messageCaptor.capture());
+        assertEquals("Test message", messageCaptor.getValue().message().toText());
+    }
+
+    @Test
+    void testBroadcastSharesOneEncodedMessage() throws Exception {
+        ClientHandler handler1 = mock(ClientHandler.class);
+        ClientHandler handler2 = mock(ClientHandler.class);
+        when(handler1.getSocket()).thenReturn(mockSocket);
+        when(handler2.getSocket()).thenReturn(mockSocket);
+        when(mockSocket.getInetAddress()).thenReturn(java.net.InetAddress.getLocalHost());
+        when(handler1.getPlayerId()).thenReturn(0);
+        when(handler2.getPlayerId()).thenReturn(1);
+
+        gameServer.registerPlayer(handler1, "Player1");
+        gameServer.registerPlayer(handler2, "Player2");
+
+        clearInvocations(handler1, handler2); // Ignore the registration broadcasts
+
+        gameServer.broadcast(new ServerMessage.PlayerLeft(5), -1);
+
+        ArgumentCaptor<OutboundMessage> captor1 = ArgumentCaptor.forClass(OutboundMessage.class);
+        ArgumentCaptor<OutboundMessage> captor2 = ArgumentCaptor.forClass(OutboundMessage.class);
+        verify(handler1).sendMessage(captor1.capture());
+        verify(handler2).sendMessage(captor2.capture());
+        assertSame(captor1.getValue(), captor2.getValue());
+        assertEquals(captor1.getValue().encoded(WireFormat.TEXT), captor2.getValue().encoded(WireFormat.TEXT));
+    }
+
+    @Test
+    void testSnapshotIsSentWhenOnlyBulletsMove() throws Exception {
+        when(mockClientHandler.getSocket()).thenReturn(mockSocket);
+        when(mockSocket.getInetAddress()).thenReturn(java.net.InetAddress.getLocalHost());
+        when(mockClientHandler.getSendQueue()).thenReturn(new SendQueue(16, 8));
+
+        var contextField = GameServer.class.getDeclaredField("serverContext");
+        contextField.setAccessible(true);
+        ServerContext context = (ServerContext) contextField.get(gameServer);
+        context.currentGameState = GameState.PLAYING;
+        gameServer.registerPlayer(mockClientHandler, "TestPlayer");
+
+        var processGameUpdates = GameServer.class.getDeclaredMethod("processGameUpdates", double.class);
+        processGameUpdates.setAccessible(true);
+        var lastNetworkUpdate = GameServer.class.getDeclaredField("lastNetworkUpdateTimeMillis");
+        lastNetworkUpdate.setAccessible(true);
+
+        // The tank stands still and nothing is in flight: no snapshot
+        processGameUpdates.invoke(gameServer, 1.0);
+        verify(mockClientHandler, never()).sendState(any(OutboundMessage.class));
+
+        // A bullet in flight is enough, though no tank moved
+        context.bullets.add(new BulletData(UUID.randomUUID(), 99, new Vector2f(100, 100),
+                new Vector2f(GameServer.BULLET_SPEED, 0), 0, System.currentTimeMillis(), false));
+        lastNetworkUpdate.setLong(gameServer, 0);
+        processGameUpdates.invoke(gameServer, 1.0);
+        verify(mockClientHandler).sendState(any(OutboundMessage.class));
     }
 
     @Test
@@ -298,10 +511,11 @@ class GameServerTest {
 
         gameServer.broadcastAnnouncement("Test Announcement", -1);
 
-        ArgumentCaptor<String> messageCaptor = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<OutboundMessage> messageCaptor = ArgumentCaptor.forClass(OutboundMessage.class);
         verify(mockClientHandler, atLeastOnce()).sendMessage(messageCaptor.capture());
 
         boolean foundAnnouncement = messageCaptor.getAllValues().stream()
+            .map(outbound -> outbound.message().toText())
             .anyMatch(msg -> msg.contains(NetworkProtocol.ANNOUNCE) && msg.contains("Test Announcement"));
         assertTrue(foundAnnouncement);
     }
@@ -451,6 +665,29 @@ class GameServerTest {
         assertEquals(initialBulletCount, context.bullets.size());
     }
 
+    @Test
+    void testSubmittedCommandsRunInOrderOnlyWhenTheLoopDrainsThem() throws Exception {
+        when(mockClientHandler.getSocket()).thenReturn(mockSocket);
+        when(mockSocket.getInetAddress()).thenReturn(java.net.InetAddress.getLocalHost());
+
+        var contextField = GameServer.class.getDeclaredField("serverContext");
+        contextField.setAccessible(true);
+        ServerContext context = (ServerContext) contextField.get(gameServer);
+        context.currentGameState = GameState.PLAYING;
+
+        gameServer.submit(() -> gameServer.registerPlayer(mockClientHandler, "TestPlayer"));
+        gameServer.submit(() -> gameServer.handlePlayerMovementInput(0, true, false, false, false));
+        assertTrue(context.tanks.isEmpty());
+
+        var runCommands = GameServer.class.getDeclaredMethod("runCommands");
+        runCommands.setAccessible(true);
+        runCommands.invoke(gameServer);
+
+        TankData tank = context.tanks.get(0);
+        assertNotNull(tank);
+        assertTrue(tank.isMovingForward());
+    }
+
     @Test
     void testBroadcastWithEmptyClientList() throws Exception {
         var contextField = GameServer.class.getDeclaredField("serverContext");
@@ -461,4 +698,114 @@ class GameServerTest {
         gameServer.broadcast("Test message", -1);
         // Should not throw exception
     }
+
+    // Runs a server at the given simulation rate for the given game time, with one bullet flying right from (400, 416)
+    private static BulletData flyBullet(int ticksPerSecond, float seconds, int wallTileX) throws Exception {
+        return flyBullet(ticksPerSecond, seconds, wallTileX, null);
+    }
+
+    // As above, with the target tank, if any, standing on the map
+    private static BulletData flyBullet(int ticksPerSecond, float seconds, int wallTileX, TankData target) throws Exception {
+        GameServer server = new GameServer(TEST_PORT, TEST_NETWORK_HZ, ticksPerSecond, TEST_MAP_WIDTH, TEST_MAP_HEIGHT);
+        try {
+            var contextField = GameServer.class.getDeclaredField("serverContext");
+            contextField.setAccessible(true);
+            ServerContext context = (ServerContext) contextField.get(server);
+            context.currentGameState = GameState.PLAYING;
+            context.gameMapData = new GameMapData(TEST_MAP_WIDTH, TEST_MAP_HEIGHT, GameMapData.DEFAULT_TILE_SIZE);
+            if (wallTileX >= 0) {
+                for (int y = 0; y < TEST_MAP_HEIGHT; y++) {
+                    context.gameMapData.getTile(wallTileX, y).setBaseType(TerrainType.FOREST);
+                }
+            }
+
+            if (target != null) {
+                context.tanks.put(target.getPlayerId(), target);
+            }
+
+            BulletData bullet = new BulletData(UUID.randomUUID(), 99, new Vector2f(400, 416),
+                    new Vector2f(GameServer.BULLET_SPEED, 0), 0, System.currentTimeMillis(), false);
+            context.bullets.add(bullet);
+
+            var updateGameLogic = GameServer.class.getDeclaredMethod("updateGameLogic", float.class);
+            updateGameLogic.setAccessible(true);
+            int ticks = Math.round(seconds * ticksPerSecond);
+            for (int i = 0; i < ticks && context.bullets.contains(bullet); i++) {
+                updateGameLogic.invoke(server, 1.0f / ticksPerSecond);
+            }
+            return bullet;
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void testBulletTravelsTheSameDistanceAtEveryTickRate() throws Exception {
+        for (int ticksPerSecond : new int[] {20, 30, 60, 128}) {
+            BulletData bullet = flyBullet(ticksPerSecond, 0.5f, -1);
+            assertEquals(400 + GameServer.BULLET_SPEED * 0.5f, bullet.getX(), 0.5f, ticksPerSecond + " ticks per second");
+        }
+    }
+
+    @Test
+    void testBulletStopsAtTheWallAtEveryTickRate() throws Exception {
+        int wallTileX = 20;
+        float wallX = wallTileX * GameMapData.DEFAULT_TILE_SIZE;
+        for (int ticksPerSecond : new int[] {5, 20, 30, 60, 128}) {
+            BulletData bullet = flyBullet(ticksPerSecond, 1.0f, wallTileX);
+            assertEquals(wallX, bullet.getX(), 0.01f, ticksPerSecond + " ticks per second");
+        }
+    }
+
+    @Test
+    void testBulletHitsTankAtTheContactPointAtEveryTickRate() throws Exception {
+        // At 5 ticks per second the bullet moves 70 px a tick, more than twice the tank's width
+        float tankX = 505;
+        float contactX = tankX - TankData.COLLISION_RADIUS - BulletData.COLLISION_RADIUS;
+        for (int ticksPerSecond : new int[] {5, 20, 60, 128}) {
+            TankData tank = new TankData(7, new Vector2f(tankX, 416), new Vector2f(), 0, new Vector3f(1, 1, 1), "Target");
+            tank.setPosition(tank.getPosition());
+            tank.setHitPoints(2);
+
+            BulletData bullet = flyBullet(ticksPerSecond, 1.0f, -1, tank);
+            assertTrue(bullet.isDestroyed(), ticksPerSecond + " ticks per second missed the tank");
+            assertEquals(1, tank.getHitPoints());
+            assertEquals(contactX, bullet.getX(), 0.5f, ticksPerSecond + " ticks per second");
+        }
+    }
+
+    @Test
+    void testFiringWhileMovingOrTurnedNeverHitsTheShooter() throws Exception {
+        for (float rotation : new float[] {0, 37, 90, 135, 222, 301}) {
+            for (boolean movingForward : new boolean[] {false, true}) {
+                GameServer server = new GameServer(TEST_PORT, TEST_NETWORK_HZ, TEST_MAP_WIDTH, TEST_MAP_HEIGHT);
+                try {
+                    var contextField = GameServer.class.getDeclaredField("serverContext");
+                    contextField.setAccessible(true);
+                    ServerContext context = (ServerContext) contextField.get(server);
+                    context.currentGameState = GameState.PLAYING;
+                    context.gameMapData = new GameMapData(TEST_MAP_WIDTH, TEST_MAP_HEIGHT, GameMapData.DEFAULT_TILE_SIZE);
+
+                    TankData shooter = new TankData(3, new Vector2f(800, 800), new Vector2f(), 0, new Vector3f(1, 1, 1), "Shooter");
+                    shooter.setPosition(shooter.getPosition());
+                    shooter.setRotation(rotation);
+                    shooter.setHitPoints(2);
+                    shooter.setMovingForward(movingForward);
+                    context.tanks.put(shooter.getPlayerId(), shooter);
+
+                    server.handlePlayerShootMainWeaponInput(shooter.getPlayerId());
+                    assertEquals(1, context.bullets.size());
+
+                    var updateGameLogic = GameServer.class.getDeclaredMethod("updateGameLogic", float.class);
+                    updateGameLogic.setAccessible(true);
+                    for (int i = 0; i < 30; i++) {
+                        updateGameLogic.invoke(server, 1.0f / 60);
+                    }
+                    assertEquals(2, shooter.getHitPoints(), "rotation " + rotation + ", moving forward " + movingForward);
+                } finally {
+                    server.stop();
+                }
+            }
+        }
+    }
 }
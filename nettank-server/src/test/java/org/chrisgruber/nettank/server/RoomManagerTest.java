@@ -0,0 +1,216 @@
+package org.chrisgruber.nettank.server;
+
+import org.chrisgruber.nettank.server.state.ServerContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Timeout(value = 10, unit = TimeUnit.SECONDS)
+class RoomManagerTest {
+
+    private RoomManager roomManager;
+
+    @BeforeEach
+    void setUp() {
+        // Never started, so no port is bound; rooms still tick on the pool
+        roomManager = new RoomManager(5557, 30, 60, 20, 20, 2, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        roomManager.stop();
+    }
+
+    private static void fill(GameServer room) {
+        while (room.hasFreeSlot()) {
+            room.connectionOpened();
+        }
+    }
+
+    private static ServerContext contextOf(GameServer room) throws Exception {
+        var contextField = GameServer.class.getDeclaredField("serverContext");
+        contextField.setAccessible(true);
+        return (ServerContext) contextField.get(room);
+    }
+
+    @Test
+    void testConnectionsFillRoomsInOrderAndOpenNewRoomsOnDemand() {
+        GameServer first = roomManager.assignRoom();
+        assertSame(first, roomManager.assignRoom()); // Nothing connected yet, still free
+        assertEquals(1, roomManager.getRooms().size());
+
+        fill(first);
+        GameServer second = roomManager.assignRoom();
+        assertNotSame(first, second);
+        assertEquals(2, roomManager.getRooms().size());
+
+        // A slot freed in the first room is reused before the newer room
+        first.connectionClosed();
+        assertSame(first, roomManager.assignRoom());
+    }
+
+    @Test
+    void testFullRoomsSendConnectionToFirstRoomWithoutOpeningMore() {
+        fill(roomManager.assignRoom());
+        fill(roomManager.assignRoom());
+
+        assertSame(roomManager.getRooms().getFirst(), roomManager.assignRoom());
+        assertEquals(2, roomManager.getRooms().size());
+    }
+
+    @Test
+    void testEachRoomHasItsOwnContextAndTicksOnThePool() throws Exception {
+        GameServer first = roomManager.assignRoom();
+        fill(first);
+        GameServer second = roomManager.assignRoom();
+        second.connectionOpened(); // Keeps the room awake
+
+        ServerContext firstContext = contextOf(first);
+        ServerContext secondContext = contextOf(second);
+        assertNotSame(firstContext, secondContext);
+
+        // One tick thread drives both rooms
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((firstContext.currentTick < 5 || secondContext.currentTick < 5) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(firstContext.currentTick >= 5);
+        assertTrue(secondContext.currentTick >= 5);
+        assertNotSame(firstContext.gameMapData, secondContext.gameMapData); // Each room ticks only once its map is in
+    }
+
+    @Test
+    void testRoomTicksArePacedByTheirTickScheduler() throws Exception {
+        long start = System.nanoTime();
+        GameServer room = roomManager.assignRoom();
+        room.connectionOpened(); // Keeps the room awake
+        ServerContext context = contextOf(room);
+
+        TickScheduler scheduler = room.getTickScheduler();
+        assertNotNull(scheduler);
+        assertEquals(TickScheduler.Profile.LOW_CPU, scheduler.profile());
+        assertEquals(TimeUnit.SECONDS.toNanos(1) / 60, scheduler.periodNanos());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (context.currentTick < 30 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        // Ticks are counted against the room's deadlines, so however often the pool fires the room never runs ahead
+        long ticks = context.currentTick;
+        long deadlinesPassed = (System.nanoTime() - start) / scheduler.periodNanos();
+        assertTrue(ticks >= 30);
+        assertTrue(ticks <= deadlinesPassed, ticks + " ticks after " + deadlinesPassed + " deadlines");
+    }
+
+    @Test
+    void testRoomsOpenAtTheirOwnTickRateThenTheDefault() {
+        var manager = new RoomManager(5558, 30, 60, 20, 20, 3, 1, new int[] {128, 20});
+        try {
+            fill(manager.assignRoom());
+            fill(manager.assignRoom());
+            manager.assignRoom();
+
+            List<GameServer> rooms = manager.getRooms();
+            assertEquals(3, rooms.size());
+            assertEquals(TimeUnit.SECONDS.toNanos(1) / 128, rooms.get(0).getTickScheduler().periodNanos());
+            assertEquals(TimeUnit.SECONDS.toNanos(1) / 20, rooms.get(1).getTickScheduler().periodNanos());
+            assertEquals(TimeUnit.SECONDS.toNanos(1) / 60, rooms.get(2).getTickScheduler().periodNanos());
+        } finally {
+            manager.stop();
+        }
+    }
+
+    @Test
+    void testRejectsNonPositiveRoomTickRate() {
+        assertThrows(IllegalArgumentException.class, () -> new RoomManager(5558, 30, 60, 20, 20, 2, 1, new int[] {60, 0}));
+    }
+
+    @Test
+    void testStopShutsDownTheSharedTerrainPool() throws Exception {
+        roomManager.assignRoom();
+        var terrainPoolField = RoomManager.class.getDeclaredField("terrainPool");
+        terrainPoolField.setAccessible(true);
+        ExecutorService terrainPool = (ExecutorService) terrainPoolField.get(roomManager);
+        assertFalse(terrainPool.isShutdown());
+
+        roomManager.stop();
+
+        assertTrue(terrainPool.isShutdown());
+    }
+
+    @Test
+    void testRoomGeneratesItsFirstMapOnTheTerrainPoolAndTicksOnceItIsIn() throws Exception {
+        // The terrain pool is kept busy, so the room's first map stays queued until the test releases it
+        ExecutorService terrainPool = Executors.newSingleThreadExecutor();
+        ScheduledExecutorService tickPool = Executors.newSingleThreadScheduledExecutor();
+        var release = new CountDownLatch(1);
+        terrainPool.submit(() -> release.await(5, TimeUnit.SECONDS));
+        GameServer room = new GameServer(5557, 30, 60, 20, 20, terrainPool);
+        try {
+            // Opening the room, which the lobby does on its accept or selector thread, generates no map
+            ServerContext context = contextOf(room);
+            assertNull(context.gameMapData);
+
+            room.startAsRoom(tickPool, null);
+            room.connectionOpened(); // Keeps the room awake
+            var commandRan = new CountDownLatch(1);
+            room.submit(commandRan::countDown);
+            Thread.sleep(100);
+            assertEquals(1, commandRan.getCount()); // Commands, registrations included, wait for the map
+            assertEquals(0, context.currentTick);
+
+            release.countDown();
+            assertTrue(commandRan.await(5, TimeUnit.SECONDS));
+            assertNotNull(context.gameMapData);
+        } finally {
+            room.stop();
+            tickPool.shutdownNow();
+            terrainPool.shutdownNow();
+        }
+    }
+
+    @Test
+    void testSubmittedCommandRunsOnRoomTickThread() throws Exception {
+        GameServer room = roomManager.assignRoom();
+        var threadName = new CompletableFuture<String>();
+
+        room.submit(() -> threadName.complete(Thread.currentThread().getName()));
+
+        assertTrue(threadName.get(5, TimeUnit.SECONDS).startsWith("RoomTick-"));
+    }
+
+    @Test
+    void testIdleRoomHibernatesAndWakesOnNextConnection() throws Exception {
+        GameServer room = roomManager.assignRoom();
+        ServerContext context = contextOf(room);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!room.isHibernating() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(room.isHibernating());
+
+        long hibernatedTick = context.currentTick;
+        Thread.sleep(100);
+        assertEquals(hibernatedTick, context.currentTick);
+
+        room.connectionOpened();
+        assertFalse(room.isHibernating());
+        deadline = System.currentTimeMillis() + 5000;
+        while (context.currentTick < hibernatedTick + 5 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(context.currentTick >= hibernatedTick + 5);
+    }
+}
@@ -0,0 +1,96 @@
+package org.chrisgruber.nettank.server;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Timeout(value = 10, unit = TimeUnit.SECONDS)
+class TickSchedulerTest {
+
+    @Test
+    void testWaitsForEachDeadlineAndRunsAtLeastOneTick() throws Exception {
+        var scheduler = new TickScheduler(100, TickScheduler.Profile.LOW_JITTER, TickScheduler.DEFAULT_SPIN_NANOS);
+        long start = System.nanoTime();
+
+        // Only lower bounds: a loaded machine may wake late and make a wait return several ticks
+        int ticks = 0;
+        for (int i = 0; i < 5; i++) {
+            int due = scheduler.awaitNextTick();
+            assertTrue(due >= 1, "ticks due: " + due);
+            ticks += due;
+        }
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50) - scheduler.periodNanos());
+        assertTrue(ticks >= 5);
+        assertTrue(scheduler.meanJitterNanos() <= scheduler.maxJitterNanos());
+    }
+
+    @Test
+    void testPollCountsDueTicksAndJitterAgainstTheClock() {
+        long[] now = {0};
+        long period = TimeUnit.MILLISECONDS.toNanos(10);
+        var scheduler = new TickScheduler(100, TickScheduler.Profile.LOW_CPU, 0, () -> now[0]);
+
+        now[0] = period / 2;
+        assertEquals(0, scheduler.pollDueTicks()); // Before the first deadline
+
+        now[0] = period + TimeUnit.MICROSECONDS.toNanos(300);
+        assertEquals(1, scheduler.pollDueTicks());
+        now[0] = 2 * period + TimeUnit.MICROSECONDS.toNanos(100);
+        assertEquals(1, scheduler.pollDueTicks());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(300), scheduler.maxJitterNanos());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(200), scheduler.meanJitterNanos());
+        assertEquals(0, scheduler.overruns());
+
+        // Two and a half periods past the third deadline: that tick and the two after it are due
+        now[0] = 5 * period + period / 2;
+        assertEquals(3, scheduler.pollDueTicks());
+        assertEquals(1, scheduler.overruns());
+        assertEquals(0, scheduler.skippedTicks());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(300), scheduler.maxJitterNanos()); // Overruns aren't jitter
+
+        now[0] = 6 * period - 1;
+        assertEquals(0, scheduler.pollDueTicks());
+        now[0] = 6 * period;
+        assertEquals(1, scheduler.pollDueTicks());
+    }
+
+    @Test
+    void testOverrunCatchesUpWithSeveralTicks() throws Exception {
+        var scheduler = new TickScheduler(100, TickScheduler.Profile.LOW_CPU, 0);
+        scheduler.awaitNextTick();
+
+        Thread.sleep(35); // A slow tick: the next few deadlines pass while it runs
+
+        // Only a lower bound: the sleep may overshoot by any amount on a loaded machine
+        int due = scheduler.awaitNextTick();
+        assertTrue(due >= 3 && due <= TickScheduler.MAX_CATCH_UP_TICKS, "ticks due: " + due);
+        assertEquals(1, scheduler.overruns());
+        if (due < TickScheduler.MAX_CATCH_UP_TICKS) {
+            assertEquals(0, scheduler.skippedTicks());
+        }
+    }
+
+    @Test
+    void testLongStallSkipsTicksBeyondCatchUpLimit() throws Exception {
+        var scheduler = new TickScheduler(1000, TickScheduler.Profile.LOW_CPU, 0);
+
+        Thread.sleep(50);
+
+        assertEquals(TickScheduler.MAX_CATCH_UP_TICKS, scheduler.awaitNextTick());
+        assertTrue(scheduler.skippedTicks() > 0);
+        assertEquals(1, scheduler.awaitNextTick()); // Back on schedule, no replay of the skipped ticks
+    }
+
+    @Test
+    void testInterruptStopsWait() {
+        var scheduler = new TickScheduler(1, TickScheduler.Profile.LOW_CPU, 0);
+        Thread.currentThread().interrupt();
+
+        assertThrows(InterruptedException.class, scheduler::awaitNextTick);
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+}
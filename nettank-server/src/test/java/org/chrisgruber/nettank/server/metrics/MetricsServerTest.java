@@ -0,0 +1,61 @@
+package org.chrisgruber.nettank.server.metrics;
+
+import org.chrisgruber.nettank.server.GameServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Timeout(value = 10, unit = TimeUnit.SECONDS)
+class MetricsServerTest {
+
+    private GameServer gameServer;
+    private MetricsServer metricsServer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        gameServer = new GameServer(5558, 30, 20, 20);
+        metricsServer = new MetricsServer(0, () -> List.of(gameServer));
+    }
+
+    @AfterEach
+    void tearDown() {
+        metricsServer.close();
+        gameServer.stop();
+    }
+
+    @Test
+    void testRendersPhaseSummariesInPrometheusFormat() {
+        gameServer.getTickProfiler().record(TickProfiler.Phase.TANK_MOVEMENT, 2_000);
+        gameServer.getTickProfiler().record(TickProfiler.Phase.TANK_MOVEMENT, 4_000);
+
+        String text = MetricsServer.render(List.of(gameServer));
+
+        assertTrue(text.contains("# TYPE nettank_tick_phase_seconds summary\n"));
+        assertTrue(text.contains("nettank_tick_phase_seconds_count{room=\"0\",phase=\"tank_movement\"} 2.0\n"));
+        assertTrue(text.contains("nettank_tick_phase_seconds_sum{room=\"0\",phase=\"tank_movement\"} 6.0E-6\n"));
+        assertTrue(text.contains("nettank_tick_phase_max_seconds{room=\"0\",phase=\"tank_movement\"} 4.0E-6\n"));
+        assertTrue(text.contains("nettank_connections{room=\"0\"} 0.0\n"));
+    }
+
+    @Test
+    void testServesMetricsOnLoopback() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + metricsServer.getPort() + "/metrics")).build();
+
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain; version=0.0.4"));
+        assertTrue(response.body().contains("# TYPE nettank_client_bytes_sent_total counter"));
+    }
+}
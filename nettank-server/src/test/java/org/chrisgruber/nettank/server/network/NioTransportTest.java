@@ -0,0 +1,187 @@
+package org.chrisgruber.nettank.server.network;
+
+import org.chrisgruber.nettank.common.network.BinaryProtocol;
+import org.chrisgruber.nettank.common.network.Datagrams;
+import org.chrisgruber.nettank.common.network.FrameBuilder;
+import org.chrisgruber.nettank.common.network.StateQuantizer;
+import org.chrisgruber.nettank.common.network.WireIO;
+import org.chrisgruber.nettank.server.ClientHandler;
+import org.chrisgruber.nettank.server.GameServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.DataInputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@Timeout(value = 10, unit = TimeUnit.SECONDS)
+class NioTransportTest {
+
+    private GameServer mockServer;
+    private NioTransport transport;
+    private Thread selectorThread;
+    private final BlockingQueue<ClientHandler> registrations = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        mockServer = mock(GameServer.class);
+        // There is no game loop here, so submitted commands run right away on the submitting (selector) thread
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(mockServer).submit(any());
+        doAnswer(invocation -> registrations.add(invocation.getArgument(0)))
+                .when(mockServer).registerPlayer(any(), any());
+        transport = new NioTransport(mockServer, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        selectorThread = Thread.ofPlatform().name("NioTransportTest-Selector").start(transport::run);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        transport.close();
+        selectorThread.join(2000);
+    }
+
+    private Socket connect() throws Exception {
+        return new Socket(InetAddress.getLoopbackAddress(), transport.getLocalPort());
+    }
+
+    private ClientHandler awaitRegistration(String name) throws InterruptedException {
+        ClientHandler handler = registrations.poll(2, TimeUnit.SECONDS);
+        assertNotNull(handler, "no registration received");
+        verify(mockServer).registerPlayer(handler, name);
+        return handler;
+    }
+
+    @Test
+    void testTextConnectionRegistersAndReceivesMessages() throws Exception {
+        try (Socket socket = connect()) {
+            OutputStream out = socket.getOutputStream();
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+
+            out.write("CON;Alice\n".getBytes(StandardCharsets.UTF_8));
+            ClientHandler handler = awaitRegistration("Alice");
+
+            handler.sendMessage(new ServerMessage.Text("AID;3"));
+            handler.sendMessage(new ServerMessage.Pong());
+
+            assertEquals("AID;3", WireIO.readLine(in, 1024));
+            assertEquals("PON", WireIO.readLine(in, 1024));
+        }
+    }
+
+    @Test
+    void testBinaryHandshakeSwitchesBothDirections() throws Exception {
+        try (Socket socket = connect()) {
+            OutputStream out = socket.getOutputStream();
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+
+            out.write("CON;Bob;BIN\n".getBytes(StandardCharsets.UTF_8));
+            awaitRegistration("Bob");
+            assertEquals("PRO;BIN", WireIO.readLine(in, 1024));
+
+            // A plain binary PING is answered with a PONG frame
+            ByteBuffer ping = new FrameBuilder(BinaryProtocol.PING, 0).build();
+            out.write(ping.array(), 0, ping.remaining());
+
+            ByteBuffer pong = WireIO.readFrame(in, BinaryProtocol.MAX_SERVER_FRAME_LENGTH);
+            assertNotNull(pong);
+            assertEquals(BinaryProtocol.PONG, pong.get());
+        }
+    }
+
+    @Test
+    void testMessagesSplitAcrossReadsAndBatchedWrites() throws Exception {
+        try (Socket socket = connect()) {
+            OutputStream out = socket.getOutputStream();
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+
+            out.write("CON;Ca".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            Thread.sleep(50);
+            out.write("rol\n".getBytes(StandardCharsets.UTF_8));
+            ClientHandler handler = awaitRegistration("Carol");
+
+            // More messages than one gathering write takes
+            OutboundMessage shared = new OutboundMessage(new ServerMessage.Announcement("hello"));
+            for (int i = 0; i < 200; i++) {
+                handler.sendMessage(shared);
+            }
+            for (int i = 0; i < 200; i++) {
+                assertEquals("ANN;hello", WireIO.readLine(in, 1024));
+            }
+        }
+    }
+
+    @Test
+    void testUdpCloseMovesStateBackToTcp() throws Exception {
+        UdpChannel udpChannel = new UdpChannel(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        udpChannel.start();
+        when(mockServer.getUdpChannel()).thenReturn(udpChannel);
+        doAnswer(invocation -> {
+            ClientHandler registered = invocation.getArgument(0);
+            registered.setPlayerInfo(1, invocation.getArgument(1));
+            return registrations.add(registered);
+        }).when(mockServer).registerPlayer(any(), any());
+
+        try (Socket socket = connect(); DatagramChannel udp = DatagramChannel.open()) {
+            OutputStream out = socket.getOutputStream();
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            out.write("CON;Dave;BIN;UDP\n".getBytes(StandardCharsets.UTF_8));
+            ClientHandler handler = awaitRegistration("Dave");
+            assertEquals("PRO;BIN", WireIO.readLine(in, 1024));
+
+            ByteBuffer offer = WireIO.readFrame(in, BinaryProtocol.MAX_SERVER_FRAME_LENGTH);
+            assertNotNull(offer);
+            assertEquals(BinaryProtocol.UDP_OFFER, offer.get());
+            long token = offer.getLong();
+
+            // The hello binds the session on the server; the client is taken to have lost the welcome
+            udp.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), udpChannel.getLocalPort()));
+            ByteBuffer hello = ByteBuffer.allocate(Datagrams.MAX_DATAGRAM_BYTES);
+            assertTrue(Datagrams.write(hello, token, 1, new FrameBuilder(BinaryProtocol.UDP_HELLO, 0).build()));
+            udp.write(hello);
+            udp.read(ByteBuffer.allocate(Datagrams.MAX_DATAGRAM_BYTES));     // UDP_WELCOME: the session is bound
+
+            // The client gives up: UDP_CLOSE, then a PING whose PONG shows the close was handled
+            ByteBuffer close = new FrameBuilder(BinaryProtocol.UDP_CLOSE, 0).build();
+            out.write(close.array(), 0, close.remaining());
+            ByteBuffer ping = new FrameBuilder(BinaryProtocol.PING, 0).build();
+            out.write(ping.array(), 0, ping.remaining());
+            assertEquals(BinaryProtocol.PONG, WireIO.readFrame(in, BinaryProtocol.MAX_SERVER_FRAME_LENGTH).get());
+
+            handler.sendState(new OutboundMessage(new ServerMessage.Snapshot(5, new StateQuantizer(100, 100),
+                    List.of(new ServerMessage.Snapshot.TankState(1, 10, 20, 90)), List.of())));
+            ByteBuffer state = WireIO.readFrame(in, BinaryProtocol.MAX_SERVER_FRAME_LENGTH);
+            assertNotNull(state);
+            assertEquals(BinaryProtocol.SNAPSHOT, state.get());
+            assertEquals(5L, state.getLong());
+        } finally {
+            udpChannel.close();
+        }
+    }
+
+    @Test
+    void testOversizedLineClosesConnection() throws Exception {
+        try (Socket socket = connect()) {
+            socket.getOutputStream().write(new byte[ClientHandler.MAX_TEXT_LINE_BYTES + 10]);
+
+            assertEquals(-1, socket.getInputStream().read());
+            verify(mockServer, never()).registerPlayer(any(), any());
+        }
+    }
+}
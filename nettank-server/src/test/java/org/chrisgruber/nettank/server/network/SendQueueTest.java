@@ -0,0 +1,109 @@
+package org.chrisgruber.nettank.server.network;
+
+import org.chrisgruber.nettank.common.network.StateQuantizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SendQueueTest {
+
+    private static OutboundMessage snapshot(long tick) {
+        return new OutboundMessage(new ServerMessage.Snapshot(tick, new StateQuantizer(100, 100), List.of(), List.of()));
+    }
+
+    private static OutboundMessage event(String line) {
+        return new OutboundMessage(new ServerMessage.Text(line));
+    }
+
+    @Test
+    void testNewerSnapshotReplacesUnsentOneBehindLaterEvents() {
+        var queue = new SendQueue(8, 8);
+        var first = snapshot(1);
+        var hit = event("HIT");
+        var second = snapshot(2);
+
+        assertTrue(queue.offer(first));
+        assertTrue(queue.offer(hit));
+        assertTrue(queue.offer(second));
+
+        assertEquals(2, queue.depth());
+        assertEquals(1, queue.coalescedCount());
+        assertSame(hit, queue.poll());
+        assertSame(second, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void testSnapshotAfterSentOneIsQueued() {
+        var queue = new SendQueue(8, 8);
+        queue.offer(snapshot(1));
+        queue.poll();
+
+        assertTrue(queue.offer(snapshot(2)));
+        assertEquals(1, queue.depth());
+        assertEquals(0, queue.coalescedCount());
+    }
+
+    @Test
+    void testFullQueueRejectsEventsButStillCoalescesState() {
+        var queue = new SendQueue(2, 1);
+        assertTrue(queue.offer(snapshot(1)));
+        assertTrue(queue.offer(event("A")));
+
+        assertFalse(queue.offer(event("B")));
+        assertTrue(queue.offer(snapshot(2)));
+        assertEquals(2, queue.depth());
+        assertEquals(2, queue.peakDepth());
+    }
+
+    @Test
+    void testHighWaterTimeResetsOnceDrainedBelowMark() {
+        var queue = new SendQueue(4, 1);
+        long now = System.currentTimeMillis();
+        queue.offer(event("A"));
+        assertEquals(0, queue.millisOverHighWater(now));
+
+        queue.offer(event("B"));
+        assertTrue(queue.millisOverHighWater(now + 1000) >= 1000);
+
+        queue.poll();
+        assertEquals(0, queue.millisOverHighWater(now + 1000));
+    }
+
+    @Test
+    void testTimedPollWaitsForMessage() throws Exception {
+        var queue = new SendQueue(4, 4);
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+
+        var message = event("A");
+        Thread.ofVirtual().start(() -> queue.offer(message));
+        assertSame(message, queue.poll(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testPollUntilFlushDrainsQueueBeforeReportingFlush() throws Exception {
+        var queue = new SendQueue(4, 4);
+        var first = event("A");
+        var second = event("B");
+        queue.offer(first);
+        queue.offer(second);
+        queue.requestFlush();
+
+        assertSame(first, queue.pollUntilFlush(1, TimeUnit.SECONDS));
+        assertSame(second, queue.pollUntilFlush(1, TimeUnit.SECONDS));
+        assertNull(queue.pollUntilFlush(1, TimeUnit.SECONDS)); // The tick ended: flush now, without waiting
+
+        // The request was consumed, so the next call waits for the timeout again
+        long start = System.nanoTime();
+        assertNull(queue.pollUntilFlush(50, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(40));
+    }
+
+    @Test
+    void testRejectsHighWaterMarkAboveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new SendQueue(4, 5));
+    }
+}
@@ -0,0 +1,93 @@
+package org.chrisgruber.nettank.server.network;
+
+import org.chrisgruber.nettank.common.network.BinaryProtocol;
+import org.chrisgruber.nettank.common.network.StateQuantizer;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotHistoryTest {
+
+    // One quantization step per world unit
+    private static final StateQuantizer QUANTIZER = new StateQuantizer(StateQuantizer.POSITION_STEPS, StateQuantizer.POSITION_STEPS);
+
+    private static ServerMessage.Snapshot snapshot(long tick, ServerMessage.Snapshot.TankState... tanks) {
+        return new ServerMessage.Snapshot(tick, QUANTIZER, List.of(tanks), List.of());
+    }
+
+    private static ServerMessage.Snapshot.TankState tank(int id, float x, float y, float rotation) {
+        return new ServerMessage.Snapshot.TankState(id, x, y, rotation);
+    }
+
+    @Test
+    void testDiffListsOnlyChangedFields() {
+        var baseline = snapshot(10, tank(0, 1, 2, 3), tank(1, 4, 5, 6), tank(2, 7, 8, 9));
+        var current = snapshot(12, tank(0, 3, 2, 3), tank(1, 4.2f, 5, 6), tank(3, 1, 1, 1));
+
+        var delta = SnapshotHistory.diff(baseline, current);
+
+        assertEquals(12, delta.tick());
+        assertEquals(10, delta.baselineTick());
+        assertEquals(List.of(
+                new ServerMessage.DeltaSnapshot.TankDelta(0, BinaryProtocol.DELTA_X, 3, 2, 3),
+                new ServerMessage.DeltaSnapshot.TankDelta(3, BinaryProtocol.DELTA_ALL, 1, 1, 1)),
+            delta.changedTanks());
+        assertEquals(List.of(2), delta.removedTankIds());
+    }
+
+    @Test
+    void testIdleTanksProduceEmptyDelta() {
+        var history = new SnapshotHistory(4);
+        history.add(snapshot(10, tank(0, 1, 2, 3)));
+
+        var message = history.messageFor(snapshot(11, tank(0, 1, 2, 3)), 10);
+
+        var delta = assertInstanceOf(ServerMessage.DeltaSnapshot.class, message);
+        assertTrue(delta.changedTanks().isEmpty());
+        assertTrue(delta.removedTankIds().isEmpty());
+    }
+
+    @Test
+    void testFallsBackToFullSnapshotWithoutUsableBaseline() {
+        var history = new SnapshotHistory(2);
+        history.add(snapshot(1));
+        history.add(snapshot(2));
+        history.add(snapshot(3)); // Evicts tick 1
+        var current = snapshot(4);
+
+        assertSame(current, history.messageFor(current, -1), "no ack yet");
+        assertSame(current, history.messageFor(current, 1), "baseline evicted");
+        assertInstanceOf(ServerMessage.DeltaSnapshot.class, history.messageFor(current, 2));
+    }
+
+    @Test
+    void testFallsBackToFullSnapshotWhenMapBoundsChange() {
+        var history = new SnapshotHistory(4);
+        history.add(snapshot(1));
+        var current = new ServerMessage.Snapshot(2, new StateQuantizer(100, 100), List.of(), List.of());
+
+        assertSame(current, history.messageFor(current, 1));
+    }
+
+    @Test
+    void testDeltaTextLeavesUnchangedFieldsEmpty() {
+        var delta = SnapshotHistory.diff(snapshot(10, tank(0, 1, 2, 3)), snapshot(11, tank(0, 1, 7, 3)));
+
+        assertEquals("SND;11;10;1;0;0;0::7:", delta.toText());
+    }
+
+    @Test
+    void testSnapshotEncodesQuantizedFields() {
+        var snapshot = snapshot(5, tank(4, 10, 20, 90));
+
+        assertEquals("SNP;5;1;0;4:10:20:16384", snapshot.toText());
+        ByteBuffer frame = snapshot.toFrame();
+        frame.position(BinaryProtocol.LENGTH_PREFIX_BYTES + 1 + 8 + 2 + 4);
+        assertEquals(10, Short.toUnsignedInt(frame.getShort()));
+        assertEquals(20, Short.toUnsignedInt(frame.getShort()));
+        assertEquals(16384, Short.toUnsignedInt(frame.getShort()));
+    }
+}
@@ -0,0 +1,127 @@
+package org.chrisgruber.nettank.server.network;
+
+import org.chrisgruber.nettank.common.network.BinaryProtocol;
+import org.chrisgruber.nettank.common.network.Datagrams;
+import org.chrisgruber.nettank.common.network.FrameBuilder;
+import org.chrisgruber.nettank.common.network.StateQuantizer;
+import org.chrisgruber.nettank.server.ClientHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@Timeout(value = 10, unit = TimeUnit.SECONDS)
+class UdpChannelTest {
+
+    private UdpChannel udpChannel;
+    private DatagramChannel client;
+    private ClientHandler handler;
+    private final BlockingQueue<ByteBuffer> received = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        handler = mock(ClientHandler.class);
+        doAnswer(invocation -> received.add(invocation.getArgument(0))).when(handler).receive(any());
+
+        udpChannel = new UdpChannel(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        udpChannel.start();
+        client = DatagramChannel.open();
+        client.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), udpChannel.getLocalPort()));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        client.close();
+        udpChannel.close();
+    }
+
+    private void sendFromClient(long token, int sequence, ByteBuffer frame) throws Exception {
+        ByteBuffer datagram = ByteBuffer.allocate(Datagrams.MAX_DATAGRAM_BYTES);
+        assertTrue(Datagrams.write(datagram, token, sequence, frame));
+        client.write(datagram);
+    }
+
+    // Returns the next datagram positioned at its frame's opcode
+    private ByteBuffer receiveOnClient(long expectedToken) throws Exception {
+        ByteBuffer datagram = ByteBuffer.allocate(Datagrams.MAX_DATAGRAM_BYTES);
+        client.read(datagram);
+        datagram.flip();
+        assertEquals(expectedToken, datagram.getLong());
+        datagram.getInt(); // Sequence
+        assertTrue(Datagrams.seekFrameBody(datagram));
+        return datagram;
+    }
+
+    private UdpChannel.Session bind(int helloSequence) throws Exception {
+        UdpChannel.Session session = udpChannel.openSession(handler);
+        sendFromClient(session.token(), helloSequence, new FrameBuilder(BinaryProtocol.UDP_HELLO, 0).build());
+        assertEquals(BinaryProtocol.UDP_WELCOME, receiveOnClient(session.token()).get());
+        assertTrue(session.isBound());
+        return session;
+    }
+
+    @Test
+    void testHelloBindsSessionAndStateFollows() throws Exception {
+        UdpChannel.Session session = bind(1);
+
+        ServerMessage.Snapshot snapshot = new ServerMessage.Snapshot(7, new StateQuantizer(100, 100),
+                List.of(new ServerMessage.Snapshot.TankState(1, 10, 20, 90)), List.of());
+        assertTrue(session.send(new OutboundMessage(snapshot)));
+
+        ByteBuffer frame = receiveOnClient(session.token());
+        assertEquals(BinaryProtocol.SNAPSHOT, frame.get());
+        assertEquals(7L, frame.getLong());
+    }
+
+    @Test
+    void testInputIsDeliveredInSequenceOnly() throws Exception {
+        UdpChannel.Session session = bind(1);
+        ByteBuffer input = new FrameBuilder(BinaryProtocol.INPUT, 1).putByte(BinaryProtocol.INPUT_FORWARD).build();
+
+        sendFromClient(session.token(), 3, input);
+        sendFromClient(session.token(), 2, input); // Late, dropped
+        sendFromClient(session.token(), 4, new FrameBuilder(BinaryProtocol.SHOOT_CMD, 0).build()); // Not allowed over UDP
+        sendFromClient(session.token(), 5, input);
+
+        ByteBuffer first = received.poll(2, TimeUnit.SECONDS);
+        assertNotNull(first);
+        assertEquals(BinaryProtocol.INPUT, first.get());
+        assertEquals(BinaryProtocol.INPUT_FORWARD, first.get());
+        assertNotNull(received.poll(2, TimeUnit.SECONDS));
+        assertNull(received.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testUnknownTokenAndClosedSessionAreIgnored() throws Exception {
+        UdpChannel.Session session = udpChannel.openSession(handler);
+        session.close();
+
+        sendFromClient(session.token(), 1, new FrameBuilder(BinaryProtocol.UDP_HELLO, 0).build());
+        sendFromClient(session.token() + 1, 1, new FrameBuilder(BinaryProtocol.UDP_HELLO, 0).build());
+
+        client.configureBlocking(false);
+        Thread.sleep(200);
+        assertEquals(0, client.read(ByteBuffer.allocate(Datagrams.MAX_DATAGRAM_BYTES)));
+        assertFalse(session.isBound());
+    }
+
+    @Test
+    void testOversizedMessageIsLeftForTcp() throws Exception {
+        UdpChannel.Session session = bind(1);
+
+        String longText = "x".repeat(Datagrams.MAX_FRAME_BYTES);
+        assertFalse(session.send(new OutboundMessage(new ServerMessage.Announcement(longText))));
+    }
+}
@@ -0,0 +1,45 @@
+package org.chrisgruber.nettank.server.network;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteStatsTest {
+
+    @Test
+    void testBufferedMessagesFlushedOnceCountAsOneWrite() throws Exception {
+        var stats = new WriteStats();
+        var socket = new ByteArrayOutputStream();
+        OutputStream out = new BufferedOutputStream(stats.countingStream(socket));
+
+        for (int i = 0; i < 5; i++) {
+            out.write(new byte[]{1, 2, 3});
+            stats.recordMessage();
+        }
+        out.flush();
+
+        assertEquals(5, stats.messages());
+        assertEquals(1, stats.writes());
+        assertEquals(15, stats.bytes());
+        assertEquals(4, stats.savedWrites());
+        assertEquals(15, socket.size());
+    }
+
+    @Test
+    void testUnbufferedWritesSaveNothing() throws Exception {
+        var stats = new WriteStats();
+        OutputStream out = stats.countingStream(new ByteArrayOutputStream());
+
+        out.write(new byte[]{1, 2});
+        stats.recordMessage();
+        out.write(3);
+        stats.recordMessage();
+
+        assertEquals(2, stats.writes());
+        assertEquals(0, stats.savedWrites());
+    }
+}